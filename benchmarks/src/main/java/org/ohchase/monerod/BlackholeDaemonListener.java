@@ -0,0 +1,52 @@
+package org.ohchase.monerod;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Listener that hands every event to a {@link Blackhole}, so dispatch cannot be optimized away.
+ */
+public class BlackholeDaemonListener implements IDaemonListener {
+
+    private final Blackhole blackhole;
+
+    public BlackholeDaemonListener(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    @Override
+    public void onRpcReady() {
+        blackhole.consume(1);
+    }
+
+    @Override
+    public void onP2PReady() {
+        blackhole.consume(2);
+    }
+
+    @Override
+    public void onDaemonStarted() {
+        blackhole.consume(3);
+    }
+
+    @Override
+    public void onDaemonKilled() {
+        blackhole.consume(4);
+    }
+
+    @Override
+    public void onDaemonExited(int exitCode) {
+        blackhole.consume(exitCode);
+    }
+
+    @Override
+    public void onNewTopBlockCandidate(long currentHeight, long candidateHeight) {
+        blackhole.consume(currentHeight);
+        blackhole.consume(candidateHeight);
+    }
+
+    @Override
+    public void onSyncProgress(long currentHeight, long targetHeight) {
+        blackhole.consume(currentHeight);
+        blackhole.consume(targetHeight);
+    }
+}
@@ -0,0 +1,103 @@
+package org.ohchase.monerod;
+
+import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.configuration.NetworkType;
+import org.ohchase.monerod.configuration.P2PConfig;
+import org.ohchase.monerod.configuration.ProxyConfig;
+import org.ohchase.monerod.configuration.RestrictedRpcConfig;
+import org.ohchase.monerod.configuration.RpcConfig;
+import org.ohchase.monerod.configuration.TxProxy;
+import org.ohchase.monerod.configuration.TxProxyType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DaemonProcess#buildCommand} across configuration shapes.
+ * The command echo to stdout is part of the measured path, it is written to a discarding stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuildCommandBenchmark {
+
+    /**
+     * Configuration shapes, from the bare minimum to every optional section set.
+     */
+    public enum Shape {
+        MINIMAL,
+        PRUNED,
+        RPC,
+        FULL
+    }
+
+    @Param({"MINIMAL", "PRUNED", "RPC", "FULL"})
+    public Shape shape;
+
+    private final Path monerodBinary = Path.of("/opt/monero/monerod");
+
+    private DaemonConfig daemonConfig;
+
+    private PrintStream stdout;
+
+    @Setup
+    public void setup() {
+        DaemonConfig.DaemonConfigBuilder builder = DaemonConfig.builder()
+                .networkType(NetworkType.STAGE_NET)
+                .dataDirectory(Path.of("/var/lib/monero"));
+
+        if (shape != Shape.MINIMAL) {
+            builder.syncPrunedBlocks(true).prunedBlockchain(true);
+        }
+        if (shape == Shape.RPC || shape == Shape.FULL) {
+            builder.rpcConfig(RpcConfig.builder().address("127.0.0.1").port(38081).build())
+                    .restrictedRpcConfig(RestrictedRpcConfig.builder().address("127.0.0.1").port(38089).build());
+        }
+        if (shape == Shape.FULL) {
+            builder.p2pConfig(P2PConfig.builder()
+                            .address("127.0.0.1")
+                            .port(38080)
+                            .proxy(ProxyConfig.builder().address("127.0.0.1").port(9050).build())
+                            .build())
+                    .txProxy(TxProxy.builder()
+                            .type(TxProxyType.TOR)
+                            .address("127.0.0.1")
+                            .port(9050)
+                            .maxConnections(16)
+                            .disableNoise(true)
+                            .build());
+        }
+        daemonConfig = builder.build();
+
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public List<String> buildCommand() {
+        return DaemonProcess.buildCommand(monerodBinary, daemonConfig);
+    }
+}
@@ -0,0 +1,63 @@
+package org.ohchase.monerod;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Synthetic monerod console output bundled under {@code /corpus}, 3000 lines per network.
+ * <p>
+ * It is not a recording. It was generated to follow the console format of monerod v0.18:
+ * <ul>
+ *     <li>the real startup sequence;</li>
+ *     <li>"Synced" lines every 20 ms or so, in steps of exactly 20 blocks;</li>
+ *     <li>top block candidate, peer list and dropped connection lines in between;</li>
+ *     <li>lines without the log prefix, to exercise unprefixed output.</li>
+ * </ul>
+ * Peer addresses are from the RFC 5737 documentation ranges. The timing and height patterns are more regular
+ * than a real node's. Parsing cost per line is representative, arrival patterns are not.
+ */
+public enum Corpus {
+    /**
+     * Modelled on a stagenet node catching up from far behind.
+     */
+    STAGENET("stagenet.log"),
+    /**
+     * Modelled on a mainnet node catching up the last few months.
+     */
+    MAINNET("mainnet.log");
+
+    private final String resource;
+
+    Corpus(String resource) {
+        this.resource = resource;
+    }
+
+    /**
+     * @return raw bytes of the corpus.
+     */
+    public byte[] load() {
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing corpus resource: " + resource);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param output raw output bytes.
+     * @return number of lines in the output.
+     */
+    public static int countLines(byte[] output) {
+        int lines = 0;
+        for (byte b : output) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
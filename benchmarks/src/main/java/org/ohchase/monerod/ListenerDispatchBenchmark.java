@@ -0,0 +1,68 @@
+package org.ohchase.monerod;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of an {@link IDaemonListener} callback at a call site seeing one, two or three listener types,
+ * covering monomorphic, bimorphic and megamorphic dispatch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListenerDispatchBenchmark {
+
+    @Param({"1", "2", "3"})
+    public int listenerTypes;
+
+    private IDaemonListener[] listeners;
+
+    private int next;
+
+    private long height = 372056;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        IDaemonListener[] types = {
+                new BlackholeDaemonListener(blackhole),
+                new NoopDaemonListener(),
+                new CountingDaemonListener()
+        };
+        listeners = new IDaemonListener[6];
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = types[i % listenerTypes];
+        }
+    }
+
+    @Benchmark
+    public void onSyncProgress() {
+        IDaemonListener listener = listeners[next];
+        next = next == listeners.length - 1 ? 0 : next + 1;
+        listener.onSyncProgress(height++, 2020778);
+    }
+
+    private static final class CountingDaemonListener extends NoopDaemonListener {
+
+        private long events;
+
+        @Override
+        public void onSyncProgress(long currentHeight, long targetHeight) {
+            events++;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.ohchase.monerod;
+
+/**
+ * Listener that ignores every event.
+ */
+public class NoopDaemonListener implements IDaemonListener {
+
+    @Override
+    public void onRpcReady() {
+    }
+
+    @Override
+    public void onP2PReady() {
+    }
+
+    @Override
+    public void onDaemonStarted() {
+    }
+
+    @Override
+    public void onDaemonKilled() {
+    }
+
+    @Override
+    public void onDaemonExited(int exitCode) {
+    }
+
+    @Override
+    public void onNewTopBlockCandidate(long currentHeight, long candidateHeight) {
+    }
+
+    @Override
+    public void onSyncProgress(long currentHeight, long targetHeight) {
+    }
+}
@@ -0,0 +1,111 @@
+package org.ohchase.monerod;
+
+import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.configuration.NetworkType;
+import org.ohchase.monerod.configuration.SyncStatsConfig;
+import org.ohchase.monerod.events.DaemonEventPublisher;
+import org.ohchase.monerod.stats.SyncStatistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays synthetic monerod output (see {@link Corpus}) through the output pump of {@link DaemonProcess},
+ * the same path a reader thread drains a running daemon with.
+ * The {@code lines} secondary result is lines/sec, run with {@code -prof gc} for the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputReadingBenchmark {
+
+    private static final byte[] STARTED_LINE = "Starting p2p net loop".getBytes(StandardCharsets.US_ASCII);
+
+    @Param({"STAGENET", "MAINNET"})
+    public Corpus corpus;
+
+    private final DaemonConfig daemonConfig = DaemonConfig.builder()
+            .networkType(NetworkType.STAGE_NET)
+            .dataDirectory(Path.of("/var/lib/monero"))
+            .build();
+
+    private byte[] output;
+    private byte[] startupOutput;
+    private int lineCount;
+    private int startupLineCount;
+
+    @Setup
+    public void setup() {
+        output = corpus.load();
+        lineCount = Corpus.countLines(output);
+
+        startupOutput = Arrays.copyOf(output, startupEnd(output));
+        startupLineCount = Corpus.countLines(startupOutput);
+    }
+
+    /**
+     * Startup phase of the pump, up to and including "Starting p2p net loop".
+     */
+    @Benchmark
+    public boolean readStartup(Blackhole blackhole, LineCounter counter) {
+        DaemonStartup startup = replay(startupOutput, blackhole);
+        counter.lines += startupLineCount;
+        return startup.getStarted().isDone();
+    }
+
+    /**
+     * The whole corpus through the pump, the startup phase followed by sync events.
+     */
+    @Benchmark
+    public DaemonStartup readOutput(Blackhole blackhole, LineCounter counter) {
+        DaemonStartup startup = replay(output, blackhole);
+        counter.lines += lineCount;
+        return startup;
+    }
+
+    /**
+     * Drains the given output to its end, as a reader thread does once the daemon exited.
+     */
+    private DaemonStartup replay(byte[] replayed, Blackhole blackhole) {
+        IDaemonListener listener = new BlackholeDaemonListener(blackhole);
+        DaemonEventPublisher events = new DaemonEventPublisher(listener);
+        DaemonStartup startup = new DaemonStartup(events);
+        DaemonProcess daemonProcess = new DaemonProcess(null, daemonConfig, listener, events, startup, new ReplayedProcess(replayed),
+                new SyncStatistics(SyncStatsConfig.defaults()), null, null, null);
+        daemonProcess.getOutputPump().drain(true);
+        return startup;
+    }
+
+    /**
+     * @return offset just past the line reporting the daemon started.
+     */
+    private static int startupEnd(byte[] output) {
+        for (int i = 0; i + STARTED_LINE.length <= output.length; i++) {
+            if (Arrays.equals(output, i, i + STARTED_LINE.length, STARTED_LINE, 0, STARTED_LINE.length)) {
+                int end = i + STARTED_LINE.length;
+                while (end < output.length && output[end++] != '\n') {
+                    // up to the end of the line
+                }
+                return end;
+            }
+        }
+        throw new IllegalStateException("Corpus never reports the daemon started");
+    }
+}
@@ -0,0 +1,51 @@
+package org.ohchase.monerod;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Process that already exited, whose output is a fixed byte array.
+ */
+class ReplayedProcess extends Process {
+
+    private final InputStream output;
+
+    ReplayedProcess(byte[] output) {
+        this.output = new ByteArrayInputStream(output);
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return OutputStream.nullOutputStream();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return output;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return InputStream.nullInputStream();
+    }
+
+    @Override
+    public int waitFor() {
+        return 0;
+    }
+
+    @Override
+    public int exitValue() {
+        return 0;
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public boolean isAlive() {
+        return false;
+    }
+}
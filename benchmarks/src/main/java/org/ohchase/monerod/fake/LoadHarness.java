@@ -0,0 +1,339 @@
+package org.ohchase.monerod.fake;
+
+import org.ohchase.monerod.Corpus;
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.DaemonStartup;
+import org.ohchase.monerod.NoopDaemonListener;
+import org.ohchase.monerod.ShutdownReport;
+import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.configuration.NetworkType;
+import org.ohchase.monerod.configuration.RestrictedRpcConfig;
+import org.ohchase.monerod.configuration.ShutdownConfig;
+import org.ohchase.monerod.events.DaemonEvent;
+import org.ohchase.monerod.events.OverflowPolicy;
+import org.ohchase.monerod.rpc.DaemonRpcClient;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.ServerSocket;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Drives {@link DaemonProcess} end to end against a {@link FakeMonerod}, one scenario at a time, and reports
+ * startup time, output throughput, latency from the fake's pipe to the listener and to an event subscriber,
+ * dropped events, and how the shutdown went.
+ * <p>
+ * Run from the shaded jar with {@code java -cp target/benchmarks.jar org.ohchase.monerod.fake.LoadHarness
+ * [scenario...]}, every scenario by default. Latencies are only measured for synthetic output, whose heights
+ * map back to the timestamps the fake records.
+ */
+public final class LoadHarness {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(120);
+
+    private static final int SUBSCRIBER_CAPACITY = 64 * 1024;
+
+    private final Path work;
+
+    public LoadHarness(Path work) {
+        this.work = work;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path work = Files.createTempDirectory("monerod-load");
+        LoadHarness harness = new LoadHarness(work);
+        Path mainnet = work.resolve("mainnet.log");
+        Files.write(mainnet, Corpus.MAINNET.load());
+
+        Map<String, Function<LoadHarness, Result>> scenarios = new LinkedHashMap<>();
+        scenarios.put("slow-start", h -> h.run("slow-start", FakeScenario.synthetic(1_000).startupDelay(Duration.ofMillis(500)), false));
+        scenarios.put("flood", h -> h.run("flood", FakeScenario.synthetic(2_000_000).noiseEvery(4), false));
+        scenarios.put("paced-100k", h -> h.run("paced-100k", FakeScenario.synthetic(300_000).rate(100_000), false));
+        scenarios.put("paced-400k", h -> h.run("paced-400k", FakeScenario.synthetic(1_200_000).rate(400_000), false));
+        scenarios.put("replay", h -> h.run("replay", FakeScenario.replay(mainnet, 1_000_000).exitWhenDone(), false));
+        scenarios.put("stall", h -> h.run("stall", FakeScenario.synthetic(200_000).stall(100_000, Duration.ofSeconds(1)), false));
+        scenarios.put("crash", h -> h.run("crash", FakeScenario.synthetic(1_000_000).crash(300_000, 139), false));
+        scenarios.put("slow-exit", h -> h.run("slow-exit", FakeScenario.synthetic(10_000).exitDelay(Duration.ofSeconds(2)), false));
+        scenarios.put("stuck-exit", h -> h.run("stuck-exit", FakeScenario.synthetic(10_000).ignoreExit(), false));
+        scenarios.put("stub-rpc", h -> h.run("stub-rpc", FakeScenario.synthetic(10_000).startupDelay(Duration.ofSeconds(1)).stubRpc(), true));
+
+        List<String> selected = args.length > 0 ? List.of(args) : List.copyOf(scenarios.keySet());
+        for (String name : selected) {
+            Function<LoadHarness, Result> scenario = scenarios.get(name);
+            if (scenario == null) {
+                throw new IllegalArgumentException("Unknown scenario " + name + ", known: " + scenarios.keySet());
+            }
+            System.out.println(scenario.apply(harness));
+        }
+    }
+
+    /**
+     * Launches the fake with a scenario through {@link DaemonProcess#startAsync}, waits until it printed every line
+     * or exited, and stops it.
+     * @param name scenario name, also the name of its working directory.
+     * @param scenario what the fake does.
+     * @param restrictedRpc whether to bind a restricted RPC port, served by the fake if its scenario stubs RPC.
+     * @return the measurements.
+     */
+    public Result run(String name, FakeScenario scenario, boolean restrictedRpc) {
+        try {
+            return measure(name, scenario, restrictedRpc);
+        } catch (IOException e) {
+            throw new IllegalStateException("Scenario " + name + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted in scenario " + name, e);
+        }
+    }
+
+    private Result measure(String name, FakeScenario scenario, boolean restrictedRpc) throws IOException, InterruptedException {
+        Path directory = work.resolve(name);
+        Files.createDirectories(directory);
+        Path stamps = directory.resolve("timestamps");
+        Files.deleteIfExists(stamps);
+        MappedByteBuffer timestamps;
+        try (RandomAccessFile file = new RandomAccessFile(stamps.toFile(), "rw")) {
+            file.setLength(Math.max(8, scenario.lines * 8));
+            timestamps = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            timestamps.order(ByteOrder.nativeOrder());
+        }
+        boolean synthetic = scenario.replay == null;
+        if (synthetic) {
+            scenario.timestamps(stamps);
+        }
+        Path binary = FakeMonerod.install(directory, scenario);
+
+        DaemonConfig.DaemonConfigBuilder config = DaemonConfig.builder()
+                .networkType(NetworkType.MAIN_NET)
+                .dataDirectory(directory.resolve("data"))
+                .shutdownConfig(ShutdownConfig.builder()
+                        .gracefulTimeout(Duration.ofSeconds(5))
+                        .terminateTimeout(Duration.ofSeconds(5))
+                        .killTimeout(Duration.ofSeconds(5))
+                        .build());
+        if (restrictedRpc) {
+            config.restrictedRpcConfig(RestrictedRpcConfig.builder().address("127.0.0.1").port(freePort()).build());
+        }
+
+        LatencyListener listener = new LatencyListener(timestamps, (int) scenario.lines, synthetic);
+        LatencySubscriber subscriber = new LatencySubscriber(timestamps, (int) scenario.lines, synthetic);
+        long launchNanos = System.nanoTime();
+        DaemonStartup startup = DaemonProcess.startAsync(binary, listener, config.build());
+        DaemonProcess daemonProcess = startup.getDaemonProcess();
+        if (daemonProcess == null) {
+            throw new IOException("Could not launch " + binary, failure(startup.getStarted()));
+        }
+        daemonProcess.getEvents().subscribe(subscriber, SUBSCRIBER_CAPACITY, OverflowPolicy.DROP_OLDEST);
+
+        Duration rpcReady = null;
+        try {
+            if (restrictedRpc) {
+                startup.getRpcReady().get(TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+                rpcReady = Duration.ofNanos(System.nanoTime() - launchNanos);
+                // the stub answers like the daemon would
+                DaemonRpcClient.forRestricted(daemonProcess).getHeight().get(TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            startup.getStarted().get(TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            daemonProcess.shutdown();
+            throw new IOException("Fake did not start", e);
+        }
+        long startedNanos = System.nanoTime();
+        long startupLines = daemonProcess.getLinesRead();
+
+        // every line printed, or the fake died
+        try {
+            CompletableFuture.anyOf(listener.done, daemonProcess.onExit()).get(TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            System.out.println("Warning. Scenario " + name + " did not finish within " + TIMEOUT);
+        }
+        if (!daemonProcess.isAlive()) {
+            // output left in the pipe is still being read
+            awaitEvents(name, subscriber);
+        }
+        long outputNanos = Math.max(1, (listener.lastNanos != 0 ? listener.lastNanos : System.nanoTime()) - startedNanos);
+        long lines = daemonProcess.getLinesRead() - startupLines;
+
+        ShutdownReport shutdown = daemonProcess.shutdown();
+        awaitEvents(name, subscriber);
+        return new Result(name, Duration.ofNanos(startedNanos - launchNanos), rpcReady, lines,
+                lines * 1e9 / outputNanos, listener.latencies.summary(), subscriber.latencies.summary(),
+                daemonProcess.getEvents().getDroppedEvents(), shutdown);
+    }
+
+    private static void awaitEvents(String name, LatencySubscriber subscriber) throws InterruptedException {
+        try {
+            subscriber.completed.get(TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            System.out.println("Warning. Events of scenario " + name + " did not complete");
+        }
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) {
+        try {
+            future.getNow(null);
+            return null;
+        } catch (RuntimeException e) {
+            return e.getCause();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Measurements of one scenario.
+     * @param startup from launch to "Starting p2p net loop" read.
+     * @param rpcReady from launch to RPC readiness, null without RPC.
+     * @param lines output lines read after startup.
+     * @param linesPerSecond lines read per second from startup to the last sync line, or the end of the output.
+     * @param listenerLatency from the fake's pipe write to the listener, on the output reader thread.
+     * @param subscriberLatency from the fake's pipe write to an event subscriber.
+     * @param droppedEvents progress events the subscriber's queue dropped.
+     * @param shutdown how the fake was stopped.
+     */
+    public record Result(String name, Duration startup, Duration rpcReady, long lines, double linesPerSecond,
+                         String listenerLatency, String subscriberLatency, long droppedEvents, ShutdownReport shutdown) {
+
+        @Override
+        public String toString() {
+            return String.format("%-11s startup %5d ms%s, %,9d lines at %,10.0f lines/s, listener %s, subscriber %s, "
+                            + "%,d dropped, shutdown %s in %d ms exit %d",
+                    name, startup.toMillis(), rpcReady != null ? " (rpc " + rpcReady.toMillis() + " ms)" : "",
+                    lines, linesPerSecond, listenerLatency, subscriberLatency, droppedEvents,
+                    shutdown.getTier(), shutdown.getDuration().toMillis(), shutdown.getExitCode());
+        }
+    }
+
+    /**
+     * Latency samples in nanoseconds, written by one thread.
+     */
+    private static final class Latencies {
+
+        private final long[] samples;
+
+        private int count;
+
+        private Latencies(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        void add(long nanos) {
+            if (count < samples.length) {
+                samples[count++] = nanos;
+            }
+        }
+
+        String summary() {
+            if (count == 0) {
+                return "n/a";
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return String.format("p50 %s p99 %s p99.9 %s max %s", micros(sorted, 0.5), micros(sorted, 0.99),
+                    micros(sorted, 0.999), micros(sorted, 1));
+        }
+
+        private static String micros(long[] sorted, double quantile) {
+            return String.format("%.0fus", sorted[(int) Math.min(sorted.length - 1, quantile * sorted.length)] / 1e3);
+        }
+    }
+
+    /**
+     * Measures on the output reader thread, and notices the last synthetic line.
+     */
+    private static final class LatencyListener extends NoopDaemonListener {
+
+        private final MappedByteBuffer timestamps;
+
+        private final long lastHeight;
+
+        private final boolean synthetic;
+
+        private final Latencies latencies;
+
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private volatile long lastNanos;
+
+        private LatencyListener(MappedByteBuffer timestamps, int lines, boolean synthetic) {
+            this.timestamps = timestamps;
+            this.lastHeight = FakeScenario.START_HEIGHT + lines - 1;
+            this.synthetic = synthetic;
+            this.latencies = new Latencies(synthetic ? lines : 0);
+        }
+
+        @Override
+        public void onSyncProgress(long currentHeight, long targetHeight) {
+            if (!synthetic) {
+                return;
+            }
+            long now = System.nanoTime();
+            latencies.add(now - timestamps.getLong((int) (currentHeight - FakeScenario.START_HEIGHT) * 8));
+            if (currentHeight == lastHeight) {
+                lastNanos = now;
+                done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Measures delivery to a subscriber, off the output reader thread.
+     */
+    private static final class LatencySubscriber implements Flow.Subscriber<DaemonEvent> {
+
+        private final MappedByteBuffer timestamps;
+
+        private final boolean synthetic;
+
+        private final Latencies latencies;
+
+        private final CompletableFuture<Void> completed = new CompletableFuture<>();
+
+        private LatencySubscriber(MappedByteBuffer timestamps, int lines, boolean synthetic) {
+            this.timestamps = timestamps;
+            this.synthetic = synthetic;
+            this.latencies = new Latencies(synthetic ? lines : 0);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(DaemonEvent event) {
+            if (synthetic && event instanceof DaemonEvent.SyncProgress progress) {
+                latencies.add(System.nanoTime() - timestamps.getLong((int) (progress.currentHeight() - FakeScenario.START_HEIGHT) * 8));
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completed.complete(null);
+        }
+
+        @Override
+        public void onComplete() {
+            completed.complete(null);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.ohchase.monerod.output;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Baseline copy of the String and regex based output parsing that {@link MonerodOutputReader} replaced.
+ * Kept so the two can be compared on the same input.
+ */
+final class LegacyOutputParser {
+
+    private static final Pattern NEW_TOP_BLOCK_CANDIDATE_PATTERN = Pattern.compile("Sync data returned a new top block candidate: (\\d+) -> (\\d+)");
+
+    private static final Pattern SYNC_PROGRESS_PATTERN = Pattern.compile("Synced (\\d+)/(\\d+) \\((\\d+)%, (\\d+) left\\)");
+
+    private LegacyOutputParser() {
+    }
+
+    /**
+     * Parses the stream the way the listener thread used to.
+     * @return sum of all parsed heights, so the work cannot be optimized away.
+     */
+    static long parse(InputStream stream) throws IOException {
+        long checksum = 0;
+        BufferedReader in = new BufferedReader(new InputStreamReader(stream));
+        String stdoutLine;
+        while ((stdoutLine = in.readLine()) != null) {
+            if (stdoutLine.contains("p2p server initialized OK")
+                    || stdoutLine.contains("core RPC server started ok")
+                    || stdoutLine.contains("Starting p2p net loop")) {
+                checksum++;
+            }
+
+            if (stdoutLine.contains("Synced")) {
+                Matcher matcher = SYNC_PROGRESS_PATTERN.matcher(stdoutLine);
+                if (matcher.find()) {
+                    checksum += Long.parseLong(matcher.group(1)) + Long.parseLong(matcher.group(2));
+                }
+            }
+
+            if (stdoutLine.contains("Sync data returned a new top block candidate")) {
+                Matcher matcher = NEW_TOP_BLOCK_CANDIDATE_PATTERN.matcher(stdoutLine);
+                if (matcher.find()) {
+                    checksum += Long.parseLong(matcher.group(1)) + Long.parseLong(matcher.group(2));
+                }
+            }
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,64 @@
+package org.ohchase.monerod.output;
+
+import org.ohchase.monerod.Corpus;
+import org.ohchase.monerod.LineCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the legacy String/regex parser against {@link MonerodOutputReader} on the synthetic output of {@link Corpus}.
+ * The {@code lines} secondary result is lines/sec, run with {@code -prof gc} and compare {@code gc.alloc.rate}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputParsingBenchmark {
+
+    @Param({"STAGENET", "MAINNET"})
+    public Corpus corpus;
+
+    private byte[] output;
+    private int lineCount;
+
+    @Setup
+    public void setup() {
+        output = corpus.load();
+        lineCount = Corpus.countLines(output);
+    }
+
+    @Benchmark
+    public long legacy(LineCounter counter) throws IOException {
+        counter.lines += lineCount;
+        return LegacyOutputParser.parse(new ByteArrayInputStream(output));
+    }
+
+    @Benchmark
+    public long outputReader(LineCounter counter) throws IOException {
+        long checksum = 0;
+        MonerodOutputReader reader = new MonerodOutputReader(new ByteArrayInputStream(output));
+        OutputMarker marker;
+        while ((marker = reader.readLine()) != null) {
+            if (marker != OutputMarker.NONE) {
+                checksum += reader.getFirstHeight() + reader.getSecondHeight();
+            }
+        }
+        counter.lines += lineCount;
+        return checksum;
+    }
+}
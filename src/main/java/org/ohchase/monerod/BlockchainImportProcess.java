@@ -0,0 +1,254 @@
+package org.ohchase.monerod;
+
+import lombok.Getter;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.configuration.ImportConfig;
+import org.ohchase.monerod.configuration.SyncStatsConfig;
+import org.ohchase.monerod.output.ImportOutputReader;
+import org.ohchase.monerod.output.TailBuffer;
+import org.ohchase.monerod.stats.SyncStatistics;
+import org.ohchase.monerod.stats.SyncStats;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Represents a running monero-blockchain-import process, bootstrapping a data directory from a local raw blockchain file.
+ * Importing a file is much faster than the initial sync over P2P, and the daemon can be started straight after.
+ */
+public class BlockchainImportProcess {
+
+    /**
+     * Bytes of output kept for the error message of a failed import.
+     */
+    private static final int OUTPUT_TAIL_CAPACITY = 64 * 1024;
+
+    @Getter
+    private final Path importBinary;
+
+    @Getter
+    private final DaemonConfig daemonConfig;
+
+    @Getter
+    private final ImportConfig importConfig;
+
+    private final Process process;
+
+    private final IBlockchainImportListener importListener;
+
+    private final SyncStatistics statistics = new SyncStatistics(SyncStatsConfig.defaults());
+
+    private final TailBuffer output = new TailBuffer(OUTPUT_TAIL_CAPACITY);
+
+    /**
+     * Completes with the exit code once the import exited and its output was read.
+     */
+    @Getter
+    private final CompletableFuture<Integer> finished = new CompletableFuture<>();
+
+    private BlockchainImportProcess(Path importBinary, DaemonConfig daemonConfig, ImportConfig importConfig,
+                                    IBlockchainImportListener importListener, Process process) {
+        this.importBinary = importBinary;
+        this.daemonConfig = daemonConfig;
+        this.importConfig = importConfig;
+        this.importListener = importListener;
+        this.process = process;
+    }
+
+    /**
+     * Starts importing without blocking. Progress is reported from a reader thread.
+     * @param importBinary Path for the monero-blockchain-import binary.
+     * @param importListener Listener for import events.
+     * @param daemonConfig Configuration of the daemon, its network and data directory are imported into.
+     * @param importConfig Configuration for the import.
+     * @return the running import.
+     * @throws IOException if the process fails to start.
+     */
+    public static BlockchainImportProcess start(Path importBinary, IBlockchainImportListener importListener,
+                                                DaemonConfig daemonConfig, ImportConfig importConfig) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder();
+        processBuilder.command(buildCommand(importBinary, daemonConfig, importConfig));
+        processBuilder.environment().put("LANG", "en_US.UTF-8"); // scrape output in English
+        processBuilder.redirectErrorStream(true);
+        Process process = processBuilder.start();
+
+        BlockchainImportProcess importProcess = new BlockchainImportProcess(importBinary, daemonConfig, importConfig, importListener, process);
+        Thread reader = DaemonExecutors.threadFactory("monerod-import-" + process.pid()).newThread(importProcess::readOutput);
+        reader.start();
+        return importProcess;
+    }
+
+    /**
+     * Imports the raw blockchain file and then starts the daemon on the imported data directory.
+     * Blocks until the daemon reports it has started.
+     * @param importBinary Path for the monero-blockchain-import binary.
+     * @param monerodBinary Path for the monerod binary.
+     * @param importListener Listener for import events.
+     * @param daemonListener Listener for daemon events.
+     * @param daemonConfig Configuration for the daemon.
+     * @param importConfig Configuration for the import.
+     * @return DaemonProcess on successful start.
+     * @throws IOException if the import fails or the daemon fails to start.
+     */
+    public static DaemonProcess importAndStart(Path importBinary, Path monerodBinary,
+                                               IBlockchainImportListener importListener, IDaemonListener daemonListener,
+                                               DaemonConfig daemonConfig, ImportConfig importConfig) throws IOException {
+        BlockchainImportProcess importProcess = start(importBinary, importListener, daemonConfig, importConfig);
+        importProcess.waitForSuccess();
+        return DaemonProcess.start(monerodBinary, daemonListener, daemonConfig);
+    }
+
+    /**
+     * Starts the daemon on the imported data directory once the import succeeds, without blocking.
+     * @param monerodBinary Path for the monerod binary.
+     * @param daemonListener Listener for daemon events.
+     * @return future of the daemon startup, failing with an {@link IOException} if the import fails.
+     */
+    public CompletableFuture<DaemonStartup> thenStartDaemon(Path monerodBinary, IDaemonListener daemonListener) {
+        return finished.thenCompose(exitCode -> exitCode == 0
+                ? CompletableFuture.completedFuture(DaemonProcess.startAsync(monerodBinary, daemonListener, daemonConfig))
+                : CompletableFuture.failedFuture(failure(exitCode)));
+    }
+
+    /**
+     * Waits for the import to finish.
+     * @throws IOException if the import exits with a non-zero code or waiting is interrupted.
+     */
+    public void waitForSuccess() throws IOException {
+        int exitCode;
+        try {
+            exitCode = finished.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            throw new IOException("Interrupted while waiting for the blockchain import.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to read blockchain import output.", e.getCause());
+        }
+        if (exitCode != 0) {
+            throw failure(exitCode);
+        }
+    }
+
+    /**
+     * Stops the import. The database keeps the blocks committed so far, and a later import resumes from there.
+     */
+    public void cancel() {
+        process.destroy();
+    }
+
+    /**
+     * @return true while the import is running.
+     */
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * @return statistics of the import rate, computed from the parsed progress.
+     */
+    public SyncStats getStats() {
+        return statistics.snapshot();
+    }
+
+    static List<String> buildCommand(Path importBinary, DaemonConfig daemonConfig, ImportConfig importConfig) {
+        List<String> command = new ArrayList<>();
+        command.add(importBinary.toAbsolutePath().toString());
+
+        switch (daemonConfig.getNetworkType()) {
+            case MAIN_NET -> {
+                // no additional flags needed
+            }
+            case STAGE_NET -> command.add("--stagenet");
+            case TEST_NET -> command.add("--testnet");
+        }
+
+        command.add("--data-dir");
+        command.add(daemonConfig.getDataDirectory().toAbsolutePath().toString());
+
+        command.add("--input-file");
+        command.add(importConfig.getInputFile().toAbsolutePath().toString());
+
+        if (importConfig.getBatchSize() != null) {
+            command.add("--batch-size");
+            command.add(importConfig.getBatchSize().toString());
+        }
+
+        if (importConfig.getDangerousUnverifiedImport() != null
+                && importConfig.getDangerousUnverifiedImport()) {
+            command.add("--dangerous-unverified-import");
+            command.add("1");
+        }
+
+        if (importConfig.getPopBlocks() != null) {
+            command.add("--pop-blocks");
+            command.add(importConfig.getPopBlocks().toString());
+        }
+
+        return command;
+    }
+
+    private IOException failure(int exitCode) {
+        return new IOException("Blockchain import exited with code " + exitCode + ". Output:\n" + output);
+    }
+
+    private void readOutput() {
+        ImportOutputReader reader = new ImportOutputReader(process.getInputStream());
+        long lastHeight = -1;
+        int exitCode = -1;
+        Throwable error = null;
+        try {
+            try {
+                while (reader.readSegment()) {
+                    if (!reader.isProgress()) {
+                        byte[] segment = reader.getSegment().getBytes(StandardCharsets.UTF_8);
+                        output.write(segment, 0, segment.length);
+                        output.write('\n');
+                        continue;
+                    }
+                    // the import redraws the same height many times, report changes only
+                    if (reader.getHeight() == lastHeight) {
+                        continue;
+                    }
+                    lastHeight = reader.getHeight();
+                    statistics.onSyncProgress(reader.getHeight(), reader.getTargetHeight(), System.nanoTime());
+                    SyncStats stats = statistics.snapshot();
+                    try {
+                        importListener.onImportProgress(new ImportProgress(reader.getHeight(), reader.getTargetHeight(),
+                                stats.getEwmaRate(), stats.getEta().orElse(null)));
+                    } catch (RuntimeException e) {
+                        System.out.println("Warning. Import listener failed: " + e);
+                    }
+                }
+            } catch (IOException e) {
+                // the stream closes when the process is destroyed
+            }
+
+            exitCode = process.waitFor();
+            try {
+                importListener.onImportFinished(exitCode);
+            } catch (RuntimeException e) {
+                System.out.println("Warning. Import listener failed: " + e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = e;
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            // waiters must never hang, whatever happened to the reader
+            if (error != null) {
+                finished.completeExceptionally(error);
+            } else {
+                finished.complete(exitCode);
+            }
+        }
+    }
+}
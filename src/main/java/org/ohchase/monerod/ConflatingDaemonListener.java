@@ -0,0 +1,268 @@
+package org.ohchase.monerod;
+
+import lombok.Getter;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Listener decorator that conflates sync events.
+ * Only the latest sync progress and the latest new top block candidate are kept,
+ * each delivered at most once per interval. A trailing delivery guarantees the final value is never lost.
+ * Lifecycle events are never dropped, and any pending sync events are delivered before them.
+ * <p>
+ * The delegate is called on the output reader thread, or for trailing deliveries on the I/O executor, one call at a
+ * time and never under the lock guarding the pending values. A sync event arriving while a slow delegate runs is
+ * left pending for the trailing delivery instead of waiting for it.
+ */
+public class ConflatingDaemonListener implements IDaemonListener {
+
+    @Getter
+    private final IDaemonListener delegate;
+
+    @Getter
+    private final Duration interval;
+
+    private final long intervalNanos;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Executor executor;
+
+    private final Object lock = new Object();
+
+    // serializes calls to the delegate, keeping them in order
+    private final ReentrantLock delivery = new ReentrantLock();
+
+    // guarded by lock
+    private final Conflated syncProgress = new Conflated();
+    private final Conflated newTopBlockCandidate = new Conflated();
+    private boolean flushScheduled;
+
+    /**
+     * @param delegate listener receiving the conflated events.
+     * @param interval minimum time between two deliveries of the same event type.
+     */
+    public ConflatingDaemonListener(IDaemonListener delegate, Duration interval) {
+        this(delegate, interval, DaemonExecutors.scheduler(), DaemonExecutors.ioExecutor());
+    }
+
+    /**
+     * @param delegate listener receiving the conflated events.
+     * @param interval minimum time between two deliveries of the same event type.
+     * @param scheduler scheduler timing trailing deliveries, never runs the delegate.
+     * @param executor executor running trailing deliveries, which may block in the delegate.
+     */
+    public ConflatingDaemonListener(IDaemonListener delegate, Duration interval, ScheduledExecutorService scheduler, Executor executor) {
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("Conflation interval must not be negative: " + interval);
+        }
+        this.delegate = delegate;
+        this.interval = interval;
+        this.intervalNanos = interval.toNanos();
+        this.scheduler = scheduler;
+        this.executor = executor;
+    }
+
+    @Override
+    public void onRpcReady() {
+        delivery.lock();
+        try {
+            flush();
+            delegate.onRpcReady();
+        } finally {
+            delivery.unlock();
+        }
+    }
+
+    @Override
+    public void onP2PReady() {
+        delivery.lock();
+        try {
+            flush();
+            delegate.onP2PReady();
+        } finally {
+            delivery.unlock();
+        }
+    }
+
+    @Override
+    public void onDaemonStarted() {
+        delivery.lock();
+        try {
+            flush();
+            delegate.onDaemonStarted();
+        } finally {
+            delivery.unlock();
+        }
+    }
+
+    @Override
+    public void onDaemonKilled() {
+        delivery.lock();
+        try {
+            flush();
+            delegate.onDaemonKilled();
+        } finally {
+            delivery.unlock();
+        }
+    }
+
+    @Override
+    public void onDaemonExited(int exitCode) {
+        delivery.lock();
+        try {
+            flush();
+            delegate.onDaemonExited(exitCode);
+        } finally {
+            delivery.unlock();
+        }
+    }
+
+    @Override
+    public void onNewTopBlockCandidate(long currentHeight, long candidateHeight) {
+        synchronized (lock) {
+            newTopBlockCandidate.set(currentHeight, candidateHeight);
+        }
+        deliverDueIfIdle();
+    }
+
+    @Override
+    public void onSyncProgress(long currentHeight, long targetHeight) {
+        synchronized (lock) {
+            syncProgress.set(currentHeight, targetHeight);
+        }
+        deliverDueIfIdle();
+    }
+
+    /**
+     * Delivers every pending event regardless of the interval, on the calling thread.
+     */
+    public void flush() {
+        delivery.lock();
+        try {
+            deliver(true);
+        } finally {
+            delivery.unlock();
+        }
+    }
+
+    /**
+     * Delivers what is due unless another thread is delivering, in which case a trailing delivery picks it up.
+     * The output reader never waits for a slow delegate running a trailing delivery.
+     */
+    private void deliverDueIfIdle() {
+        if (!delivery.tryLock()) {
+            synchronized (lock) {
+                scheduleTrailing(System.nanoTime());
+            }
+            return;
+        }
+        try {
+            deliver(false);
+        } finally {
+            delivery.unlock();
+        }
+    }
+
+    private void trailingDelivery() {
+        synchronized (lock) {
+            flushScheduled = false;
+        }
+        delivery.lock();
+        try {
+            deliver(false);
+        } finally {
+            delivery.unlock();
+        }
+    }
+
+    /**
+     * Takes the due values under the state lock and hands them to the delegate after releasing it.
+     * Called holding the delivery lock, which keeps deliveries in order.
+     * @param all whether to deliver every pending value, due or not.
+     */
+    private void deliver(boolean all) {
+        long now = System.nanoTime();
+        boolean candidateDue;
+        boolean progressDue;
+        long candidateCurrent;
+        long candidateHeight;
+        long progressCurrent;
+        long progressTarget;
+        synchronized (lock) {
+            candidateDue = all ? newTopBlockCandidate.pending : newTopBlockCandidate.isDue(now, intervalNanos);
+            progressDue = all ? syncProgress.pending : syncProgress.isDue(now, intervalNanos);
+            candidateCurrent = newTopBlockCandidate.first;
+            candidateHeight = newTopBlockCandidate.second;
+            progressCurrent = syncProgress.first;
+            progressTarget = syncProgress.second;
+            if (candidateDue) {
+                newTopBlockCandidate.delivered(now);
+            }
+            if (progressDue) {
+                syncProgress.delivered(now);
+            }
+            scheduleTrailing(now);
+        }
+        if (candidateDue) {
+            delegate.onNewTopBlockCandidate(candidateCurrent, candidateHeight);
+        }
+        if (progressDue) {
+            delegate.onSyncProgress(progressCurrent, progressTarget);
+        }
+    }
+
+    /**
+     * Schedules a trailing delivery for whatever is still pending. Called holding the state lock.
+     * The scheduler only hands the delivery to the I/O executor, it never runs the delegate itself.
+     */
+    private void scheduleTrailing(long now) {
+        long delay = Math.min(newTopBlockCandidate.delay(now, intervalNanos), syncProgress.delay(now, intervalNanos));
+        if (delay != Long.MAX_VALUE && !flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(() -> executor.execute(this::trailingDelivery), delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Latest value of one event type, guarded by the state lock of the enclosing listener.
+     */
+    private static final class Conflated {
+        private boolean pending;
+        private boolean everDelivered;
+        private long lastDeliveryNanos;
+        private long first;
+        private long second;
+
+        private void set(long first, long second) {
+            this.first = first;
+            this.second = second;
+            this.pending = true;
+        }
+
+        private boolean isDue(long now, long intervalNanos) {
+            return pending && (!everDelivered || now - lastDeliveryNanos >= intervalNanos);
+        }
+
+        /**
+         * @return nanoseconds until the pending value is due, or {@link Long#MAX_VALUE} if nothing is pending.
+         */
+        private long delay(long now, long intervalNanos) {
+            if (!pending) {
+                return Long.MAX_VALUE;
+            }
+            return Math.max(1, intervalNanos - (now - lastDeliveryNanos));
+        }
+
+        private void delivered(long now) {
+            pending = false;
+            everDelivered = true;
+            lastDeliveryNanos = now;
+        }
+    }
+}
@@ -1,38 +1,51 @@
 package org.ohchase.monerod;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
 import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.configuration.LogStoreConfig;
+import org.ohchase.monerod.configuration.PerformanceConfig;
+import org.ohchase.monerod.configuration.ShutdownConfig;
+import org.ohchase.monerod.configuration.SyncStatsConfig;
+import org.ohchase.monerod.configuration.ZmqConfig;
+import org.ohchase.monerod.events.DaemonEventPublisher;
+import org.ohchase.monerod.logstore.LogStore;
+import org.ohchase.monerod.output.MonerodOutputReader;
+import org.ohchase.monerod.output.OutputMarker;
+import org.ohchase.monerod.output.TailBuffer;
+import org.ohchase.monerod.prewarm.DatabasePrewarmer;
+import org.ohchase.monerod.prewarm.LockStatus;
+import org.ohchase.monerod.prewarm.PrewarmReport;
+import org.ohchase.monerod.proxy.RpcProxy;
+import org.ohchase.monerod.rpc.DaemonRpcClient;
+import org.ohchase.monerod.stats.SyncStatistics;
+import org.ohchase.monerod.stats.SyncStats;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a running Daemon process.
  * Manages the lifecycle and output of the daemon.
  */
-@AllArgsConstructor
 public class DaemonProcess {
 
     /**
-     * Pattern to match new top block candidate lines like:
-     * Sync data returned a new top block candidate: 371876 -> 2020778
+     * Console command asking monerod to exit, written to its stdin.
      */
-    private static final Pattern NEW_TOP_BLOCK_CANDIDATE_PATTERN = Pattern.compile("Sync data returned a new top block candidate: (\\d+) -> (\\d+)");
-
-    /**
-     * Pattern to match sync progress lines like:
-     * Synced 372056/2020778 (18%, 1648722 left)
-     */
-    private static final Pattern SYNC_PROGRESS_PATTERN = Pattern.compile("Synced (\\d+)/(\\d+) \\((\\d+)%, (\\d+) left\\)");
+    private static final byte[] EXIT_COMMAND = "exit\n".getBytes(StandardCharsets.US_ASCII);
 
     @Getter
     private final Path monerodBinary;
@@ -45,32 +58,161 @@ public class DaemonProcess {
 
     private final Process process;
 
-    private final Thread listenerThread;
+    private final OutputPump outputPump;
+
+    private final SyncStatistics syncStatistics;
+
+    private final DaemonStartup startup;
+
+    private final LogStore logStore;
+
+    private final RpcProxy rpcProxy;
+
+    private final PrewarmReport prewarmReport;
+
+    private final AtomicLong linesRead = new AtomicLong();
+
+    private final DaemonEventPublisher events;
+
+    private volatile boolean shuttingDown;
+
+    DaemonProcess(Path monerodBinary, DaemonConfig daemonConfig, IDaemonListener daemonListener, DaemonEventPublisher events,
+                          DaemonStartup startup, Process process, SyncStatistics syncStatistics, LogStore logStore,
+                          RpcProxy rpcProxy, PrewarmReport prewarmReport) {
+        this.monerodBinary = monerodBinary;
+        this.daemonConfig = daemonConfig;
+        this.daemonListener = daemonListener;
+        this.events = events;
+        this.process = process;
+        this.syncStatistics = syncStatistics;
+        this.logStore = logStore;
+        this.rpcProxy = rpcProxy;
+        this.prewarmReport = prewarmReport;
+        this.startup = startup;
+        this.outputPump = new OutputPump();
+    }
 
     /**
-     * Stops the daemon process and waits for the listener thread to finish.
+     * Stops the daemon process and waits for its output to be fully read.
+     * @return exit code of the daemon, -1 if it did not exit.
+     * @see #shutdown()
      */
     public int stop() {
-        process.destroy();
+        return shutdown().getExitCode();
+    }
 
+    /**
+     * Stops the daemon process in tiers, so it gets the chance to close its database cleanly
+     * and does not have to recover it on the next start.
+     * <ol>
+     *     <li>Asks the daemon to exit, through the unrestricted RPC interface if configured, otherwise or if that fails
+     *     by writing {@code exit} to its stdin, and waits up to the graceful timeout.</li>
+     *     <li>Sends SIGTERM and waits up to the terminate timeout.</li>
+     *     <li>Kills the process and waits up to the kill timeout.</li>
+     * </ol>
+     * Blocks for at most the sum of the timeouts of the {@link ShutdownConfig}, including the wait for the end of the output.
+     * @return which tier stopped the daemon, how long it took, and the exit code.
+     */
+    public ShutdownReport shutdown() {
+        ShutdownConfig config = daemonConfig.getShutdownConfig() != null
+                ? daemonConfig.getShutdownConfig()
+                : ShutdownConfig.defaults();
+        long startNanos = System.nanoTime();
+        long overallDeadline = startNanos + config.getGracefulTimeout().toNanos()
+                + config.getTerminateTimeout().toNanos() + config.getKillTimeout().toNanos();
+        ShutdownTier tier = ShutdownTier.ALREADY_EXITED;
+        shuttingDown = true;
         try {
-            listenerThread.join();
+            if (process.isAlive()) {
+                tier = ShutdownTier.GRACEFUL;
+                long deadline = startNanos + config.getGracefulTimeout().toNanos();
+                boolean requested = requestExit(config, deadline);
+                boolean exited = requested && process.waitFor(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+                if (!exited) {
+                    System.out.println(requested
+                            ? "Warning. monerod did not exit within " + config.getGracefulTimeout() + ", terminating it."
+                            : "Warning. Could not ask monerod to exit, terminating it.");
+                    tier = ShutdownTier.TERMINATED;
+                    process.destroy();
+                    exited = process.waitFor(config.getTerminateTimeout().toNanos(), TimeUnit.NANOSECONDS);
+                }
+
+                if (!exited) {
+                    System.out.println("Warning. monerod did not terminate within " + config.getTerminateTimeout() + ", killing it.");
+                    tier = ShutdownTier.KILLED;
+                    process.destroyForcibly();
+                    process.waitFor(config.getKillTimeout().toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+
+            // the output ends with the process, unless a child inherited it; stay within the overall bound
+            long pumpTimeout = Math.min(config.getKillTimeout().toNanos(), Math.max(0, overallDeadline - System.nanoTime()));
+            try {
+                outputPump.finished.get(pumpTimeout, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                System.out.println("Warning. Output of monerod did not end after it stopped.");
+            } catch (ExecutionException e) {
+                // output reading never fails its future
+            }
         } catch (InterruptedException e) {
-            System.out.println("Warning. Interrupted while waiting for listener thread to finish.");
+            System.out.println("Interrupted while waiting for process to terminate.");
             Thread.currentThread().interrupt();
+            events.complete();
+            return new ShutdownReport(tier, Duration.ofNanos(System.nanoTime() - startNanos), -1);
+        }
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - startNanos);
+        if (process.isAlive()) {
+            System.out.println("Warning. monerod is still running after being killed.");
+            events.complete();
+            return new ShutdownReport(tier, duration, -1);
         }
+        int exitCode = process.exitValue();
+        events.onDaemonExited(exitCode);
+        events.complete();
+        return new ShutdownReport(tier, duration, exitCode);
+    }
 
+    /**
+     * Asks the daemon to exit, through RPC if possible and otherwise through stdin.
+     * @param deadline {@link System#nanoTime()} by which the request must have been made.
+     * @return true if the request was made.
+     */
+    private boolean requestExit(ShutdownConfig config, long deadline) throws InterruptedException {
+        if (config.isUseRpc() && daemonConfig.getRpcConfig() != null) {
+            try {
+                DaemonRpcClient.forDaemon(this).stopDaemon().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                return true;
+            } catch (ExecutionException | TimeoutException e) {
+                // the RPC server may not be up, or already gone
+            }
+        }
         try {
-            int exitCode = process.waitFor();
-            this.daemonListener.onDaemonExited(exitCode);
-            return exitCode;
-        } catch (InterruptedException e) {
-            System.out.println("Interrupted while waiting for process to terminate.");
-            Thread.currentThread().interrupt();
-            return -1;
+            OutputStream stdin = process.getOutputStream();
+            stdin.write(EXIT_COMMAND);
+            stdin.flush();
+            return true;
+        } catch (IOException e) {
+            // stdin closed, the daemon is exiting or does not read commands
+            return false;
         }
     }
 
+    /**
+     * @return pump reading the process output.
+     */
+    OutputPump getOutputPump() {
+        return outputPump;
+    }
+
+    /**
+     * Destroys the process without waiting for it, used to abandon a start.
+     */
+    void destroy() {
+        process.destroy();
+    }
+
     /**
      * Gets the uptime of the daemon process.
      * @return Duration representing the uptime.
@@ -81,6 +223,67 @@ public class DaemonProcess {
         return Duration.ofMillis(uptimeMillis);
     }
 
+    /**
+     * Gets the sync statistics of the daemon, computed from the parsed sync progress lines.
+     * Safe to call from any thread, never contends with the output reader.
+     * @return immutable snapshot of the sync statistics.
+     */
+    public SyncStats getSyncStats() {
+        return syncStatistics.snapshot();
+    }
+
+    /**
+     * Gets the number of output lines read from the daemon so far.
+     * @return lines read.
+     */
+    public long getLinesRead() {
+        return linesRead.get();
+    }
+
+    /**
+     * Gets the publisher of the daemon's events, for consumers that must not run on the output reader thread.
+     * Subscribers only see events published after they subscribed, and are completed once the daemon stopped,
+     * or once its output ended if it exited on its own.
+     * @return event publisher.
+     */
+    public DaemonEventPublisher getEvents() {
+        return events;
+    }
+
+    /**
+     * Gets the store the daemon's output is persisted to.
+     * It stays readable after the daemon stopped.
+     * @return the log store, if configured.
+     */
+    public Optional<LogStore> getLogStore() {
+        return Optional.ofNullable(logStore);
+    }
+
+    /**
+     * Gets the caching proxy in front of the restricted RPC interface.
+     * It is closed once the daemon stopped.
+     * @return the proxy, if configured.
+     */
+    public Optional<RpcProxy> getRpcProxy() {
+        return Optional.ofNullable(rpcProxy);
+    }
+
+    /**
+     * Gets the outcome of loading the database into the page cache before launch.
+     * @return the report, if prewarming was configured and could read the database.
+     */
+    public Optional<PrewarmReport> getPrewarmReport() {
+        return Optional.ofNullable(prewarmReport);
+    }
+
+    /**
+     * Gets the operating system process id of the daemon.
+     * @return process id.
+     */
+    public long getPid() {
+        return process.pid();
+    }
+
     /**
      * Checks if the daemon process is still running.
      * @return true if running, false if exited.
@@ -89,6 +292,14 @@ public class DaemonProcess {
         return process.isAlive();
     }
 
+    /**
+     * Completes with the exit code once the daemon process exited, whether stopped or not.
+     * @return future of the exit code.
+     */
+    public CompletableFuture<Integer> onExit() {
+        return process.onExit().thenApply(Process::exitValue);
+    }
+
     /**
      * Gets the exit code of the daemon process.
      * @return exit code.
@@ -100,57 +311,242 @@ public class DaemonProcess {
 
     /**
      * Starts the daemon process with the given configuration and listener.
+     * Blocks until the daemon reports it has started, including the time spent prewarming the database if configured.
      * @param monerodBinary Path for the monerod binary.
      * @param daemonListener Listener for daemon events.
      * @param daemonConfig Configuration for the daemon.
      * @return DaemonProcess on successful start.
      * @throws IOException if the process fails to start.
+     * @throws IllegalArgumentException if the configuration is invalid, checked before launching.
      */
     public static DaemonProcess start(Path monerodBinary, IDaemonListener daemonListener, DaemonConfig daemonConfig) throws IOException {
-        ProcessBuilder processBuilder = new ProcessBuilder();
+        DaemonStartup startup = startAsync(monerodBinary, daemonListener, daemonConfig);
+        try {
+            return startup.getStarted().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to start monerod process.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            startup.cancel();
+            throw new IOException("Interrupted while waiting for monerod to start.", e);
+        }
+    }
+
+    /**
+     * Starts the daemon process without blocking.
+     * The returned startup reports P2P readiness, RPC readiness and full start as separate futures.
+     * RPC readiness is also confirmed by probing the configured RPC port, so it can complete before the log line appears,
+     * in which case {@link IDaemonListener#onRpcReady()} is called from the probing thread.
+     * With a {@link org.ohchase.monerod.configuration.PrewarmConfig}, the database is first loaded on the I/O executor
+     * and the process is launched once that finished; the startup's daemon process is null meanwhile.
+     * @param monerodBinary Path for the monerod binary.
+     * @param daemonListener Listener for daemon events.
+     * @param daemonConfig Configuration for the daemon.
+     * @return progress of the start; its started future fails with an {@link IOException} if the daemon fails to start.
+     * @throws IllegalArgumentException if the configuration is invalid, checked before launching.
+     */
+    public static DaemonStartup startAsync(Path monerodBinary, IDaemonListener daemonListener, DaemonConfig daemonConfig) {
+        return startAsync(monerodBinary, daemonListener, daemonConfig, ReaderPool.dedicatedThreads());
+    }
+
+    /**
+     * Starts the daemon process without blocking, draining its output on the given reader pool.
+     * @param monerodBinary Path for the monerod binary.
+     * @param daemonListener Listener for daemon events.
+     * @param daemonConfig Configuration for the daemon.
+     * @param readerPool Pool reading the daemon's output.
+     * @return progress of the start; its started future fails with an {@link IOException} if the daemon fails to start.
+     * @throws IllegalArgumentException if the configuration is invalid, checked before launching.
+     * @see #startAsync(Path, IDaemonListener, DaemonConfig)
+     */
+    public static DaemonStartup startAsync(Path monerodBinary, IDaemonListener daemonListener, DaemonConfig daemonConfig, ReaderPool readerPool) {
+        // conflate sync events when requested
+        IDaemonListener delegate = daemonConfig.getConflationConfig() != null
+                ? new ConflatingDaemonListener(daemonListener, daemonConfig.getConflationConfig().getInterval())
+                : daemonListener;
+
+        // validates the configuration before anything is started
         List<String> command = buildCommand(monerodBinary, daemonConfig);
 
+        DaemonEventPublisher events = new DaemonEventPublisher(delegate);
+        DaemonStartup startup = new DaemonStartup(events);
+        if (daemonConfig.getPrewarmConfig() == null) {
+            launch(monerodBinary, daemonConfig, command, readerPool, daemonListener, events, startup, null);
+            return startup;
+        }
+
+        // loading the database into the page cache can take its whole time budget, so not on the caller's thread
+        CompletableFuture.supplyAsync(() -> prewarm(daemonConfig), DaemonExecutors.ioExecutor())
+                .whenComplete((prewarmReport, error) -> {
+                    if (error != null) {
+                        System.out.println("Warning. Could not prewarm the database: " + error);
+                    }
+                    try {
+                        launch(monerodBinary, daemonConfig, command, readerPool, daemonListener, events, startup, prewarmReport);
+                    } catch (RuntimeException e) {
+                        startup.getStarted().completeExceptionally(new IOException("Failed to start monerod process.", e));
+                    }
+                });
+        return startup;
+    }
+
+    /**
+     * Opens the log store and RPC proxy if configured and launches the process, completing the startup on failure.
+     */
+    private static void launch(Path monerodBinary, DaemonConfig daemonConfig, List<String> command, ReaderPool readerPool,
+                               IDaemonListener daemonListener, DaemonEventPublisher events, DaemonStartup startup,
+                               PrewarmReport prewarmReport) {
+        if (startup.isCancelled()) {
+            return;
+        }
+
+        // persist output when requested
+        LogStore logStore = null;
+        if (daemonConfig.getLogStoreConfig() != null) {
+            LogStoreConfig logStoreConfig = daemonConfig.getLogStoreConfig();
+            Path directory = logStoreConfig.getDirectory() != null
+                    ? logStoreConfig.getDirectory()
+                    : daemonConfig.getDataDirectory().resolve("output-log");
+            try {
+                logStore = LogStore.open(directory, logStoreConfig);
+            } catch (IOException e) {
+                startup.getStarted().completeExceptionally(e);
+                return;
+            }
+        }
+
+        // front the restricted RPC interface when requested
+        RpcProxy rpcProxy = null;
+        if (daemonConfig.getRpcProxyConfig() != null) {
+            try {
+                rpcProxy = RpcProxy.start(daemonConfig.getRpcProxyConfig(), DaemonRpcClient.endpoint(
+                        daemonConfig.getRestrictedRpcConfig().getAddress(), daemonConfig.getRestrictedRpcConfig().getPort()));
+            } catch (IOException e) {
+                if (logStore != null) {
+                    logStore.close();
+                }
+                startup.getStarted().completeExceptionally(e);
+                return;
+            }
+        }
+
+        ProcessBuilder processBuilder = new ProcessBuilder();
         processBuilder.command(command);
         processBuilder.environment().put("LANG", "en_US.UTF-8"); // scrape output in English
         processBuilder.redirectErrorStream(true);
-        Process process = processBuilder.start();
-
-        // read process output until success
-        String initializationLine;
-        StringBuilder sb = new StringBuilder();
-        BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        boolean success = false;
-        while ((initializationLine = in.readLine()) != null) {
-            sb.append(initializationLine).append("\n");
-
-            // notify listener of p2p ready
-            if (initializationLine.contains("p2p server initialized OK")) {
-                daemonListener.onP2PReady();
+        Process process;
+        try {
+            process = processBuilder.start();
+        } catch (IOException e) {
+            if (logStore != null) {
+                logStore.close();
             }
-
-            // notify listener of rpc ready
-            if (initializationLine.contains("core RPC server started ok")) {
-                daemonListener.onRpcReady();
+            if (rpcProxy != null) {
+                rpcProxy.close();
             }
+            startup.getStarted().completeExceptionally(e);
+            return;
+        }
+
+        SyncStatsConfig syncStatsConfig = daemonConfig.getSyncStatsConfig() != null
+                ? daemonConfig.getSyncStatsConfig()
+                : SyncStatsConfig.defaults();
+        SyncStatistics syncStatistics = new SyncStatistics(syncStatsConfig);
 
-            // read success message
-            if (initializationLine.contains("Starting p2p net loop")) {
-                daemonListener.onDaemonStarted();
-                success = true;
-                break;
+        // read startup output and then keep reading, off the calling thread
+        DaemonProcess daemonProcess = new DaemonProcess(monerodBinary, daemonConfig, daemonListener, events, startup, process,
+                syncStatistics, logStore, rpcProxy, prewarmReport);
+        if (!startup.attach(daemonProcess)) {
+            // cancelled while launching
+            process.destroy();
+            if (logStore != null) {
+                logStore.close();
             }
+            if (rpcProxy != null) {
+                rpcProxy.close();
+            }
+            return;
         }
-        if (!success) {
-            process.destroy();
-            throw new IOException("Failed to start monerod process. Output:\n" + sb);
+        readerPool.register(daemonProcess.outputPump);
+        startup.probeRpc();
+    }
+
+    /**
+     * Loads the database into the page cache and warns about what the previous daemon left behind.
+     * Failures only cost the warm cache, the daemon is launched regardless.
+     * @return the report, or null if the database could not be read.
+     */
+    private static PrewarmReport prewarm(DaemonConfig daemonConfig) {
+        PrewarmReport report;
+        try {
+            report = DatabasePrewarmer.prewarm(daemonConfig.getDataDirectory(), daemonConfig.getPrewarmConfig());
+        } catch (IOException e) {
+            System.out.println("Warning. Could not prewarm the database: " + e.getMessage());
+            return null;
+        }
+        LockStatus lockStatus = report.getLockStatus();
+        if (lockStatus.isPresent() && !lockStatus.isReadable()) {
+            System.out.println("Warning. lock.mdb is not an LMDB lock file, the database may be damaged.");
+        }
+        if (!lockStatus.getStalePids().isEmpty()) {
+            System.out.println("Warning. lock.mdb holds reader slots of exited processes " + lockStatus.getStalePids()
+                    + ", the previous daemon did not shut down cleanly.");
+        }
+        if (!lockStatus.getLivePids().isEmpty()) {
+            System.out.println("Warning. Processes " + lockStatus.getLivePids() + " still use the database.");
+        }
+        return report;
+    }
+
+    /**
+     * Handles one line of startup output.
+     * @return true if the line reports the daemon started.
+     */
+    private static boolean onStartupLine(IDaemonListener daemonListener, OutputMarker marker, MonerodOutputReader in, TailBuffer startupOutput) {
+        startupOutput.write(in.getLineBuffer(), in.getLineOffset(), in.getLineLength());
+        startupOutput.write('\n');
+
+        // notify listener of p2p ready
+        if (marker == OutputMarker.P2P_READY) {
+            daemonListener.onP2PReady();
+        }
+
+        // notify listener of rpc ready
+        if (marker == OutputMarker.RPC_READY) {
+            daemonListener.onRpcReady();
         }
 
-        // continue printing output in separate, non-blocking thread, and notify of events.
-        Thread listenerThread = createListenerThread(daemonListener, in);
-        return new DaemonProcess(monerodBinary, daemonConfig, daemonListener, process, listenerThread);
+        // read success message
+        if (marker == OutputMarker.DAEMON_STARTED) {
+            daemonListener.onDaemonStarted();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Handles one line of output once the daemon started.
+     */
+    private static void onOutputLine(IDaemonListener daemonListener, SyncStatistics syncStatistics, OutputMarker marker, MonerodOutputReader stdoutReader) {
+        switch (marker) {
+            case SYNC_PROGRESS -> {
+                syncStatistics.onSyncProgress(stdoutReader.getFirstHeight(), stdoutReader.getSecondHeight(), System.nanoTime());
+                daemonListener.onSyncProgress(stdoutReader.getFirstHeight(), stdoutReader.getSecondHeight());
+            }
+            case NEW_TOP_BLOCK_CANDIDATE -> {
+                syncStatistics.onNewTopBlockCandidate(stdoutReader.getFirstHeight(), stdoutReader.getSecondHeight(), System.nanoTime());
+                daemonListener.onNewTopBlockCandidate(stdoutReader.getFirstHeight(), stdoutReader.getSecondHeight());
+            }
+            default -> {
+                // not of interest once started
+            }
+        }
     }
 
-    private static List<String> buildCommand(Path monerodBinary, DaemonConfig daemonConfig) {
+    static List<String> buildCommand(Path monerodBinary, DaemonConfig daemonConfig) {
         List<String> command = new ArrayList<>();
         command.add(monerodBinary.toAbsolutePath().toString());
 
@@ -165,8 +561,21 @@ public class DaemonProcess {
         command.add("--data-dir");
         command.add(daemonConfig.getDataDirectory().toAbsolutePath().toString());
 
-        // Opinionated configuration
-        command.add("--no-zmq");
+        // ZMQ configuration, disabled unless asked for
+        if (daemonConfig.getZmqConfig() != null) {
+            ZmqConfig zmqConfig = daemonConfig.getZmqConfig();
+            command.add("--zmq-pub");
+            String host = zmqConfig.getAddress().contains(":") ? "[" + zmqConfig.getAddress() + "]" : zmqConfig.getAddress();
+            command.add("tcp://" + host + ":" + zmqConfig.getPubPort());
+            command.add("--zmq-rpc-bind-ip");
+            command.add(zmqConfig.getAddress());
+            if (zmqConfig.getRpcPort() != null) {
+                command.add("--zmq-rpc-bind-port");
+                command.add(zmqConfig.getRpcPort().toString());
+            }
+        } else {
+            command.add("--no-zmq");
+        }
 
         // Pruning configuration
         if (daemonConfig.getSyncPrunedBlocks() != null
@@ -180,6 +589,28 @@ public class DaemonProcess {
             command.add("--prune-blockchain");
         }
 
+        // Performance configuration
+        if (daemonConfig.getPerformanceConfig() != null) {
+            PerformanceConfig performanceConfig = daemonConfig.getPerformanceConfig();
+            performanceConfig.validate(daemonConfig.getNetworkType());
+
+            if (performanceConfig.getDbSyncFlag() != null) {
+                command.add("--db-sync-mode");
+                command.add(performanceConfig.getDbSyncFlag());
+            }
+            addOption(command, "--max-concurrency", performanceConfig.getMaxConcurrency());
+            addOption(command, "--prep-blocks-threads", performanceConfig.getPrepBlocksThreads());
+            addOption(command, "--block-sync-size", performanceConfig.getBlockSyncSize());
+            if (performanceConfig.getFastBlockSync() != null) {
+                command.add("--fast-block-sync");
+                command.add(performanceConfig.getFastBlockSync() ? "1" : "0");
+            }
+            addOption(command, "--out-peers", performanceConfig.getOutPeers());
+            addOption(command, "--in-peers", performanceConfig.getInPeers());
+            addOption(command, "--limit-rate-up", performanceConfig.getLimitRateUp());
+            addOption(command, "--limit-rate-down", performanceConfig.getLimitRateDown());
+        }
+
         // P2P Configuration
         if (daemonConfig.getP2pConfig() != null) {
 
@@ -223,6 +654,8 @@ public class DaemonProcess {
 
             command.add("--rpc-restricted-bind-port");
             command.add(String.valueOf(daemonConfig.getRestrictedRpcConfig().getPort()));
+        } else if (daemonConfig.getRpcProxyConfig() != null) {
+            throw new IllegalArgumentException("The RPC proxy requires the restricted RPC interface to be configured");
         }
 
         // Transaction proxy configuration
@@ -258,35 +691,131 @@ public class DaemonProcess {
         return command;
     }
 
-    private static Thread createListenerThread(IDaemonListener daemonListener, BufferedReader stdoutBuffer) {
-        Thread stdoutThread = new Thread(() -> {
+    private static void addOption(List<String> command, String option, Integer value) {
+        if (value != null) {
+            command.add(option);
+            command.add(value.toString());
+        }
+    }
+
+    /**
+     * Reads the daemon's output, first the startup phase and then sync events, on whatever thread a {@link ReaderPool} gives it.
+     * Only one thread drains a pump at a time.
+     */
+    final class OutputPump {
+
+        /**
+         * Lines handled per non-blocking drain, so one busy daemon cannot starve the others sharing a thread.
+         */
+        private static final int MAX_POLL_LINES = 256;
+
+        private final MonerodOutputReader in = new MonerodOutputReader(process.getInputStream());
+
+        /**
+         * Bytes of startup output kept for the error message of a failed start.
+         */
+        private static final int STARTUP_OUTPUT_CAPACITY = 64 * 1024;
+
+        private final TailBuffer startupOutput = new TailBuffer(STARTUP_OUTPUT_CAPACITY);
+
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+        private boolean started;
+
+        /**
+         * Reads and handles output.
+         * A non-blocking drain handles what is available, and finishes with a blocking drain once the process exited.
+         * @param blocking whether to block until the end of the output.
+         * @return number of lines handled, or -1 once the output ended.
+         */
+        int drain(boolean blocking) {
             try {
-                String stdoutLine;
-                while ((stdoutLine = stdoutBuffer.readLine()) != null) {
-                    if (stdoutLine.contains("Synced")) {
-                        Matcher matcher = SYNC_PROGRESS_PATTERN.matcher(stdoutLine);
-                        if (matcher.find()) {
-                            long currentHeight = Long.parseLong(matcher.group(1));
-                            long targetHeight = Long.parseLong(matcher.group(2));
-                            daemonListener.onSyncProgress(currentHeight, targetHeight);
-                        }
+                int lines = 0;
+                OutputMarker marker;
+                while ((marker = blocking ? in.readLine() : in.pollLine()) != null) {
+                    onLine(marker);
+                    lines++;
+                    if (!blocking && lines == MAX_POLL_LINES) {
+                        return lines;
                     }
-
-                    if (stdoutLine.contains("Sync data returned a new top block candidate")) {
-                        Matcher matcher = NEW_TOP_BLOCK_CANDIDATE_PATTERN.matcher(stdoutLine);
-                        if (matcher.find()) {
-                            long currentHeight = Long.parseLong(matcher.group(1));
-                            long candidateHeight = Long.parseLong(matcher.group(2));
-                            daemonListener.onNewTopBlockCandidate(currentHeight, candidateHeight);
-                        }
+                }
+                if (!blocking) {
+                    if (process.isAlive()) {
+                        return lines;
                     }
+                    // the process is gone, whatever is left can be read to the end without waiting
+                    return drain(true);
                 }
-                daemonListener.onDaemonKilled();
+                finish(null);
             } catch (IOException e) {
-                // Stream closed, exit thread
+                finish(e);
+            } catch (RuntimeException e) {
+                System.out.println("Warning. Stopped reading monerod output: " + e);
+                finish(e);
+            }
+            return -1;
+        }
+
+        /**
+         * @return name for threads draining this pump.
+         */
+        String getName() {
+            return "monerod-stdout-" + process.pid();
+        }
+
+        private void onLine(OutputMarker marker) {
+            // single writer, an ordered store is enough
+            linesRead.lazySet(linesRead.get() + 1);
+            if (logStore != null) {
+                logStore.append(in.getLineBuffer(), in.getLineOffset(), in.getLineLength());
             }
-        });
-        stdoutThread.start();
-        return stdoutThread;
+            // a throwing listener must not stop the output from being read, on a shared pool that of other daemons too
+            if (started) {
+                try {
+                    onOutputLine(events, syncStatistics, marker, in);
+                } catch (RuntimeException e) {
+                    System.out.println("Warning. Daemon listener failed: " + e);
+                }
+            } else {
+                boolean daemonStarted;
+                try {
+                    daemonStarted = onStartupLine(startup.getStartupListener(), marker, in, startupOutput);
+                } catch (RuntimeException e) {
+                    System.out.println("Warning. Daemon listener failed: " + e);
+                    daemonStarted = marker == OutputMarker.DAEMON_STARTED;
+                }
+                if (daemonStarted) {
+                    started = true;
+                    startup.getStarted().complete(DaemonProcess.this);
+                }
+            }
+        }
+
+        private void finish(Exception error) {
+            if (!started) {
+                process.destroy();
+                startup.getStarted().completeExceptionally(error != null
+                        ? error
+                        : new IOException("Failed to start monerod process. Output:\n" + startupOutput));
+            } else if (error == null) {
+                try {
+                    events.onDaemonKilled();
+                } catch (RuntimeException e) {
+                    System.out.println("Warning. Daemon listener failed: " + e);
+                }
+            }
+            // on error the stream was closed, nothing more to report
+            if (logStore != null) {
+                logStore.close();
+            }
+            if (rpcProxy != null) {
+                rpcProxy.close();
+            }
+            // a shutdown completes the subscribers itself, after reporting the exit code
+            if (!shuttingDown) {
+                events.complete();
+            }
+            finished.complete(null);
+        }
     }
 }
@@ -0,0 +1,217 @@
+package org.ohchase.monerod;
+
+import lombok.Getter;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.rpc.DaemonRpcClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Progress of an asynchronous daemon start.
+ * Each readiness stage is a separate future, so callers can route traffic as soon as the part they need is up.
+ * RPC readiness is signalled by whichever comes first: the startup log line or a successful probe of the RPC port.
+ */
+public class DaemonStartup {
+
+    private static final Duration PROBE_INTERVAL = Duration.ofMillis(250);
+
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(1);
+
+    /**
+     * Daemon being started, usable for stopping it before startup completes.
+     * Null until the process is launched, which waits for prewarming if configured, and if it could not be launched at all.
+     */
+    @Getter
+    private volatile DaemonProcess daemonProcess;
+
+    /**
+     * Completed once the P2P server is initialized.
+     */
+    @Getter
+    private final CompletableFuture<Void> p2pReady = new CompletableFuture<>();
+
+    /**
+     * Completed once the RPC server is serving requests. Probing continues after the daemon started if the log
+     * line was not seen; without a configured RPC port it completes with the start at the latest. Fails if the
+     * start fails or the daemon exits first.
+     */
+    @Getter
+    private final CompletableFuture<Void> rpcReady = new CompletableFuture<>();
+
+    /**
+     * Completed with the daemon once it is fully started, or exceptionally with an {@link java.io.IOException}.
+     */
+    @Getter
+    private final CompletableFuture<DaemonProcess> started = new CompletableFuture<>();
+
+    private final AtomicBoolean rpcReadyNotified = new AtomicBoolean();
+
+    private final IDaemonListener startupListener;
+
+    // guarded by this
+    private boolean cancelled;
+
+    DaemonStartup(IDaemonListener daemonListener) {
+        this.startupListener = new StartupListener(daemonListener);
+
+        // a failed start fails every stage that has not completed
+        started.whenComplete((process, error) -> {
+            if (error != null) {
+                p2pReady.completeExceptionally(error);
+                rpcReady.completeExceptionally(error);
+            } else if (!bindsRpc()) {
+                // nothing to probe, and monerod starts its RPC server before the net loop
+                markRpcReady();
+            }
+        });
+    }
+
+    /**
+     * Abandons the start, destroying the daemon process, or not launching it if it is still waiting for prewarming.
+     * The started future then fails.
+     */
+    public void cancel() {
+        DaemonProcess current;
+        synchronized (this) {
+            cancelled = true;
+            current = daemonProcess;
+        }
+        if (current != null) {
+            current.destroy();
+        } else {
+            started.completeExceptionally(new IOException("Start of monerod cancelled"));
+        }
+    }
+
+    /**
+     * @return true if the start was cancelled.
+     */
+    synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Binds the launched process.
+     * @return false if the start was cancelled meanwhile, in which case the caller destroys the process.
+     */
+    synchronized boolean attach(DaemonProcess daemonProcess) {
+        if (cancelled) {
+            return false;
+        }
+        this.daemonProcess = daemonProcess;
+        return true;
+    }
+
+    /**
+     * @return listener to read startup output with, completing the stage futures.
+     */
+    IDaemonListener getStartupListener() {
+        return startupListener;
+    }
+
+    /**
+     * Starts probing the RPC port, if the daemon binds one, until RPC is ready or the daemon exits.
+     */
+    void probeRpc() {
+        if (!bindsRpc()) {
+            return;
+        }
+        DaemonRpcClient client = new DaemonRpcClient(DaemonRpcClient.forDaemon(daemonProcess).getEndpoint(),
+                DaemonRpcClient.sharedHttpClient(), PROBE_TIMEOUT);
+        scheduleProbe(client);
+    }
+
+    private void scheduleProbe(DaemonRpcClient client) {
+        DaemonExecutors.scheduler().schedule(() -> {
+            // keep probing after the start, the RPC line may not have been seen before the net loop line
+            if (rpcReady.isDone()) {
+                return;
+            }
+            if (!daemonProcess.isAlive()) {
+                rpcReady.completeExceptionally(new IOException("monerod exited before its RPC server was ready"));
+                return;
+            }
+            client.getHeight().whenComplete((height, error) -> {
+                if (error == null) {
+                    markRpcReady();
+                } else {
+                    scheduleProbe(client);
+                }
+            });
+        }, PROBE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private boolean bindsRpc() {
+        if (daemonProcess == null) {
+            return false;
+        }
+        DaemonConfig daemonConfig = daemonProcess.getDaemonConfig();
+        return daemonConfig.getRpcConfig() != null || daemonConfig.getRestrictedRpcConfig() != null;
+    }
+
+    private void markRpcReady() {
+        startupListener.onRpcReady();
+    }
+
+    /**
+     * Completes the stage futures as startup events arrive, and notifies RPC ready only once.
+     */
+    private final class StartupListener implements IDaemonListener {
+
+        private final IDaemonListener delegate;
+
+        private StartupListener(IDaemonListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onRpcReady() {
+            if (rpcReadyNotified.compareAndSet(false, true)) {
+                try {
+                    delegate.onRpcReady();
+                } finally {
+                    rpcReady.complete(null);
+                }
+            }
+        }
+
+        @Override
+        public void onP2PReady() {
+            try {
+                delegate.onP2PReady();
+            } finally {
+                p2pReady.complete(null);
+            }
+        }
+
+        @Override
+        public void onDaemonStarted() {
+            delegate.onDaemonStarted();
+        }
+
+        @Override
+        public void onDaemonKilled() {
+            delegate.onDaemonKilled();
+        }
+
+        @Override
+        public void onDaemonExited(int exitCode) {
+            delegate.onDaemonExited(exitCode);
+        }
+
+        @Override
+        public void onNewTopBlockCandidate(long currentHeight, long candidateHeight) {
+            delegate.onNewTopBlockCandidate(currentHeight, candidateHeight);
+        }
+
+        @Override
+        public void onSyncProgress(long currentHeight, long targetHeight) {
+            delegate.onSyncProgress(currentHeight, targetHeight);
+        }
+    }
+}
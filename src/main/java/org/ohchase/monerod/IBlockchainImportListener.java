@@ -0,0 +1,19 @@
+package org.ohchase.monerod;
+
+/**
+ * Listener interface for blockchain import events.
+ */
+public interface IBlockchainImportListener {
+
+    /**
+     * Called when the import reports a new height.
+     * @param progress current progress
+     */
+    void onImportProgress(ImportProgress progress);
+
+    /**
+     * Called once the import process has exited.
+     * @param exitCode the exit code of the import process
+     */
+    void onImportFinished(int exitCode);
+}
@@ -0,0 +1,41 @@
+package org.ohchase.monerod;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Progress of a blockchain import.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ImportProgress {
+
+    /**
+     * Height of the last imported block.
+     */
+    private final long height;
+
+    /**
+     * Height the import stops at.
+     */
+    private final long targetHeight;
+
+    /**
+     * Import rate in blocks per second, smoothed over recent progress.
+     */
+    private final double blocksPerSecond;
+
+    private final Duration eta;
+
+    /**
+     * @return estimated time until the import finishes, empty while the rate is unknown.
+     */
+    public Optional<Duration> getEta() {
+        return Optional.ofNullable(eta);
+    }
+}
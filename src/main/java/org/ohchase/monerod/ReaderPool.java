@@ -0,0 +1,194 @@
+package org.ohchase.monerod;
+
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decides which threads drain the output of daemon processes.
+ * <ul>
+ *     <li>{@link #dedicatedThreads()}: one platform thread per daemon, the default.</li>
+ *     <li>{@link #virtualThreads()}: one virtual thread per daemon, on runtimes that support them.</li>
+ *     <li>{@link #shared(int)}: a fixed number of platform threads polling many daemons without blocking.</li>
+ * </ul>
+ * Listeners are called on the reading thread. On a shared pool that thread serves other daemons too,
+ * so listeners must not block: a slow callback stalls the output of every daemon polled by the same worker.
+ * Listeners doing slow work should hand it off to an executor.
+ */
+public final class ReaderPool implements AutoCloseable {
+
+    private static final ReaderPool DEDICATED = new ReaderPool(null, null);
+
+    /**
+     * Idle back-off bounds of shared workers. The upper bound keeps a burst from filling the OS pipe while a worker sleeps.
+     */
+    private static final long MIN_IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final ExecutorService virtualExecutor;
+
+    private final Worker[] workers;
+
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    private ReaderPool(ExecutorService virtualExecutor, Worker[] workers) {
+        this.virtualExecutor = virtualExecutor;
+        this.workers = workers;
+    }
+
+    /**
+     * @return pool starting one platform thread per daemon.
+     */
+    public static ReaderPool dedicatedThreads() {
+        return DEDICATED;
+    }
+
+    /**
+     * @return pool starting one virtual thread per daemon.
+     * @throws UnsupportedOperationException if the runtime has no virtual threads.
+     */
+    public static ReaderPool virtualThreads() {
+        ExecutorService executor = newVirtualThreadExecutor();
+        if (executor == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on " + Runtime.version());
+        }
+        return new ReaderPool(executor, null);
+    }
+
+    /**
+     * Creates a bounded pool of platform threads, each polling the output of many daemons without blocking.
+     * Listeners of the daemons must not block, see the class documentation.
+     * @param threads number of threads.
+     * @return shared pool, to be closed once its daemons stopped.
+     */
+    public static ReaderPool shared(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one reader thread is needed: " + threads);
+        }
+        Worker[] workers = new Worker[threads];
+        ReaderPool pool = new ReaderPool(null, workers);
+        for (int i = 0; i < threads; i++) {
+            workers[i] = pool.new Worker();
+            Thread thread = DaemonExecutors.threadFactory("monerod-reader-pool").newThread(workers[i]);
+            workers[i].thread = thread;
+            thread.start();
+        }
+        return pool;
+    }
+
+    /**
+     * @param threads number of threads if a shared pool is used.
+     * @return virtual thread pool when the runtime supports it, otherwise a shared pool.
+     */
+    public static ReaderPool automatic(int threads) {
+        return isVirtualThreadsSupported() ? virtualThreads() : shared(threads);
+    }
+
+    /**
+     * @return true if the runtime supports virtual threads.
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * Starts draining a daemon's output.
+     */
+    void register(DaemonProcess.OutputPump pump) {
+        if (closed) {
+            throw new IllegalStateException("Reader pool is closed");
+        }
+        if (workers != null) {
+            Worker worker = workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+            worker.pumps.add(pump);
+            LockSupport.unpark(worker.thread);
+        } else if (virtualExecutor != null) {
+            virtualExecutor.execute(() -> pump.drain(true));
+        } else {
+            new Thread(() -> pump.drain(true), pump.getName()).start();
+        }
+    }
+
+    /**
+     * Stops the pool's threads. Output of daemons still registered is no longer read.
+     * The default dedicated thread pool cannot be closed.
+     */
+    @Override
+    public void close() {
+        if (this == DEDICATED) {
+            return;
+        }
+        closed = true;
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+        }
+        if (workers != null) {
+            for (Worker worker : workers) {
+                LockSupport.unpark(worker.thread);
+            }
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        if (!isVirtualThreadsSupported()) {
+            return null;
+        }
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Polls its share of the registered daemons round-robin, backing off while all of them are idle.
+     */
+    private final class Worker implements Runnable {
+
+        private final Queue<DaemonProcess.OutputPump> pumps = new ConcurrentLinkedQueue<>();
+
+        private Thread thread;
+
+        @Override
+        public void run() {
+            long idleNanos = MIN_IDLE_NANOS;
+            while (!closed) {
+                int lines = 0;
+                for (Iterator<DaemonProcess.OutputPump> iterator = pumps.iterator(); iterator.hasNext(); ) {
+                    DaemonProcess.OutputPump pump = iterator.next();
+                    int drained;
+                    try {
+                        drained = pump.drain(false);
+                    } catch (RuntimeException e) {
+                        // drain finishes its pump on failure, this only keeps the other daemons of the worker read
+                        System.out.println("Warning. Stopped reading " + pump.getName() + ": " + e);
+                        drained = -1;
+                    }
+                    if (drained < 0) {
+                        iterator.remove();
+                    } else {
+                        lines += drained;
+                    }
+                }
+
+                if (lines > 0) {
+                    idleNanos = MIN_IDLE_NANOS;
+                } else {
+                    LockSupport.parkNanos(this, idleNanos);
+                    idleNanos = Math.min(idleNanos * 2, MAX_IDLE_NANOS);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.ohchase.monerod;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * Outcome of stopping a daemon.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ShutdownReport {
+
+    /**
+     * Step that stopped the daemon, or the last one tried if it did not stop.
+     */
+    private final ShutdownTier tier;
+
+    /**
+     * Time from the start of the shutdown until the process exited and its output was read.
+     */
+    private final Duration duration;
+
+    /**
+     * Exit code of the daemon, -1 if it did not exit or the shutdown was interrupted.
+     */
+    private final int exitCode;
+}
@@ -0,0 +1,23 @@
+package org.ohchase.monerod;
+
+/**
+ * Step of a shutdown that stopped the daemon.
+ */
+public enum ShutdownTier {
+    /**
+     * The daemon had already exited.
+     */
+    ALREADY_EXITED,
+    /**
+     * The daemon exited when asked to, through RPC or stdin.
+     */
+    GRACEFUL,
+    /**
+     * The daemon exited on SIGTERM.
+     */
+    TERMINATED,
+    /**
+     * The daemon was killed.
+     */
+    KILLED
+}
@@ -0,0 +1,322 @@
+package org.ohchase.monerod.balancer;
+
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.BalancerConfig;
+import org.ohchase.monerod.events.OverflowPolicy;
+import org.ohchase.monerod.rpc.DaemonRpcClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Routes RPC calls across several daemons.
+ * <p>
+ * Each call goes to the better of two randomly picked eligible nodes, scored by latency average times requests
+ * in flight, which keeps load off slow nodes without the herding of always picking the best one. Nodes at
+ * {@link BalancerConfig#getMaxOutstanding()} and nodes lagging the highest one by more than
+ * {@link BalancerConfig#getMaxLag()} blocks are not eligible. Idempotent reads are hedged: when the first node
+ * has not answered within a multiple of its average latency, or fails, the read is also sent to another node
+ * and the first answer wins.
+ */
+public class RpcBalancer {
+
+    private final BalancerConfig config;
+
+    private final List<RpcNode> nodes = new CopyOnWriteArrayList<>();
+
+    private final LongAdder hedges = new LongAdder();
+
+    private final LongAdder hedgeWins = new LongAdder();
+
+    /**
+     * @param config balancer configuration.
+     */
+    public RpcBalancer(BalancerConfig config) {
+        if (config.getMaxOutstanding() < 1) {
+            throw new IllegalArgumentException("Outstanding request limit must be positive: " + config.getMaxOutstanding());
+        }
+        this.config = config;
+    }
+
+    /**
+     * Adds a node whose height is set through {@link RpcNode#setHeight(long)}, or never, in which case it is never
+     * considered lagging.
+     * @param name unique node name.
+     * @param client client of the node's RPC interface.
+     * @return the node.
+     */
+    public RpcNode addNode(String name, DaemonRpcClient client) {
+        RpcNode node = new RpcNode(name, client, config.getEwmaHalfLife());
+        synchronized (this) {
+            for (RpcNode existing : nodes) {
+                if (existing.getName().equals(name)) {
+                    throw new IllegalArgumentException("Node already added: " + name);
+                }
+            }
+            nodes.add(node);
+        }
+        return node;
+    }
+
+    /**
+     * Adds a managed daemon, reached through its restricted RPC interface and followed for its chain height.
+     * @param name unique node name.
+     * @param daemonProcess running daemon.
+     * @return the node.
+     * @throws IllegalStateException if the daemon binds no restricted RPC interface.
+     */
+    public RpcNode addDaemon(String name, DaemonProcess daemonProcess) {
+        RpcNode node = addNode(name, DaemonRpcClient.forRestricted(daemonProcess));
+        daemonProcess.getEvents().subscribe(node.new HeightSubscriber(), 16, OverflowPolicy.CONFLATE);
+        return node;
+    }
+
+    /**
+     * Removes a node, its requests in flight still complete.
+     * @param name node name.
+     * @return true if the node was present.
+     */
+    public synchronized boolean removeNode(String name) {
+        for (RpcNode node : nodes) {
+            if (node.getName().equals(name)) {
+                nodes.remove(node);
+                node.cancelSubscription();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the nodes, in the order they were added.
+     */
+    public List<RpcNode> getNodes() {
+        return List.copyOf(nodes);
+    }
+
+    /**
+     * @return reads sent to a second node.
+     */
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return hedged reads answered by the second node first.
+     */
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * Sends a call to one node, without hedging. Use for calls that must not run twice.
+     * @param request issues the call through the chosen node's client.
+     * @param <T> result type.
+     * @return future of the result, failed with an {@link IOException} if no node is eligible.
+     */
+    public <T> CompletableFuture<T> call(Function<DaemonRpcClient, CompletableFuture<T>> request) {
+        RpcNode node = choose(null);
+        if (node == null) {
+            return CompletableFuture.failedFuture(new IOException("No eligible RPC node"));
+        }
+        return send(node, request);
+    }
+
+    /**
+     * Sends an idempotent read, hedged on a second node when the first is slow or fails.
+     * @param request issues the call through the chosen node's client, may run on two nodes.
+     * @param <T> result type.
+     * @return future of the first result, failed with the last error if every attempt failed.
+     */
+    public <T> CompletableFuture<T> read(Function<DaemonRpcClient, CompletableFuture<T>> request) {
+        RpcNode first = choose(null);
+        if (first == null) {
+            return CompletableFuture.failedFuture(new IOException("No eligible RPC node"));
+        }
+        if (!config.isHedging()) {
+            return send(first, request);
+        }
+        return new HedgedRead<>(request, first).result;
+    }
+
+    /**
+     * Picks the better of two random eligible nodes and claims a request slot on it.
+     * @param exclude node not to pick, may be null.
+     * @return the node, or null if none is eligible.
+     */
+    RpcNode choose(RpcNode exclude) {
+        List<RpcNode> eligible = eligible(exclude);
+        while (!eligible.isEmpty()) {
+            RpcNode node;
+            if (eligible.size() == 1) {
+                node = eligible.get(0);
+            } else {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int a = random.nextInt(eligible.size());
+                int b = random.nextInt(eligible.size() - 1);
+                if (b >= a) {
+                    b++;
+                }
+                RpcNode first = eligible.get(a);
+                RpcNode second = eligible.get(b);
+                node = cost(first) <= cost(second) ? first : second;
+            }
+            if (node.acquire(config.getMaxOutstanding())) {
+                return node;
+            }
+            // filled up meanwhile
+            eligible.remove(node);
+        }
+        return null;
+    }
+
+    private List<RpcNode> eligible(RpcNode exclude) {
+        long best = 0;
+        for (RpcNode node : nodes) {
+            best = Math.max(best, node.getHeight());
+        }
+        List<RpcNode> eligible = new ArrayList<>(nodes.size());
+        for (RpcNode node : nodes) {
+            long height = node.getHeight();
+            boolean lagging = height > 0 && best - height > config.getMaxLag();
+            if (node != exclude && !lagging && node.getOutstanding() < config.getMaxOutstanding()) {
+                eligible.add(node);
+            }
+        }
+        return eligible;
+    }
+
+    private static double cost(RpcNode node) {
+        return node.ewmaNanos() * (node.getOutstanding() + 1);
+    }
+
+    /**
+     * Sends through a node whose slot is already claimed, releasing it with the latency once done.
+     */
+    private <T> CompletableFuture<T> send(RpcNode node, Function<DaemonRpcClient, CompletableFuture<T>> request) {
+        long startNanos = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = request.apply(node.getClient());
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) -> {
+            long nowNanos = System.nanoTime();
+            long latency = nowNanos - startNanos;
+            if (error != null) {
+                latency = Math.max(latency, config.getFailurePenalty().toNanos());
+            }
+            node.release(latency, error != null, nowNanos);
+        });
+    }
+
+    /**
+     * One read: the first attempt, and a hedge once the first is late or failed.
+     * The losing attempt is left to finish, its latency still feeds the node's average.
+     */
+    private final class HedgedRead<T> {
+
+        private final Function<DaemonRpcClient, CompletableFuture<T>> request;
+
+        private final RpcNode first;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        // guarded by this
+        private ScheduledFuture<?> timer;
+        private boolean hedged;
+        private boolean answered;
+        private int launched = 1;
+        private int failed;
+        private Throwable lastError;
+
+        private HedgedRead(Function<DaemonRpcClient, CompletableFuture<T>> request, RpcNode first) {
+            this.request = request;
+            this.first = first;
+            attempt(first, false);
+            long delay = Math.max(config.getMinHedgeDelay().toNanos(), (long) (first.ewmaNanos() * config.getHedgeMultiplier()));
+            synchronized (this) {
+                if (!hedged && !result.isDone()) {
+                    timer = DaemonExecutors.scheduler().schedule(this::hedge, delay, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        private void attempt(RpcNode node, boolean hedge) {
+            send(node, request).whenComplete((value, error) -> {
+                if (error == null) {
+                    boolean won;
+                    synchronized (this) {
+                        won = !answered;
+                        answered = true;
+                        if (timer != null) {
+                            timer.cancel(false);
+                        }
+                    }
+                    // counted before completing, so callers see the counters of their read
+                    if (won) {
+                        if (hedge) {
+                            hedgeWins.increment();
+                        }
+                        result.complete(value);
+                    }
+                    return;
+                }
+                boolean hedgeNow;
+                boolean giveUp;
+                synchronized (this) {
+                    failed++;
+                    lastError = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    hedgeNow = !hedged;
+                    giveUp = hedged && failed == launched;
+                }
+                if (hedgeNow) {
+                    hedge();
+                } else if (giveUp) {
+                    result.completeExceptionally(lastError);
+                }
+            });
+        }
+
+        /**
+         * Sends the read to a second node, once.
+         */
+        private void hedge() {
+            synchronized (this) {
+                if (hedged || answered) {
+                    return;
+                }
+                hedged = true;
+                launched++;
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+            }
+            RpcNode second = choose(first);
+            if (second == null) {
+                boolean giveUp;
+                synchronized (this) {
+                    launched--;
+                    giveUp = failed == launched;
+                }
+                if (giveUp) {
+                    result.completeExceptionally(lastError);
+                }
+                return;
+            }
+            hedges.increment();
+            attempt(second, true);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.ohchase.monerod.balancer;
+
+import lombok.Getter;
+import org.ohchase.monerod.events.DaemonEvent;
+import org.ohchase.monerod.rpc.DaemonRpcClient;
+
+import java.time.Duration;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One daemon behind an {@link RpcBalancer}, with its latency average, requests in flight and chain height.
+ */
+public class RpcNode {
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final DaemonRpcClient client;
+
+    private final long halfLifeNanos;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    // guarded by this
+    private double ewmaNanos = Double.NaN;
+    private long lastSampleNanos;
+
+    private volatile long height;
+
+    private volatile Flow.Subscription subscription;
+
+    RpcNode(String name, DaemonRpcClient client, Duration ewmaHalfLife) {
+        this.name = name;
+        this.client = client;
+        this.halfLifeNanos = Math.max(1, ewmaHalfLife.toNanos());
+    }
+
+    /**
+     * Sets the chain height of the node, for nodes whose heights do not come from a managed daemon.
+     * @param height current height, 0 if unknown.
+     */
+    public void setHeight(long height) {
+        this.height = height;
+    }
+
+    /**
+     * @return chain height last reported by the node, 0 if unknown.
+     */
+    public long getHeight() {
+        return height;
+    }
+
+    /**
+     * @return requests in flight.
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return requests sent, including hedges.
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return requests that failed.
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return average latency, zero before the first request completed.
+     */
+    public synchronized Duration getEwmaLatency() {
+        return Double.isNaN(ewmaNanos) ? Duration.ZERO : Duration.ofNanos((long) ewmaNanos);
+    }
+
+    /**
+     * @return average latency in nanoseconds, 0 before the first request completed so new nodes get probed.
+     */
+    synchronized double ewmaNanos() {
+        return Double.isNaN(ewmaNanos) ? 0 : ewmaNanos;
+    }
+
+    /**
+     * Claims a request slot.
+     * @return false if the node is at its limit.
+     */
+    boolean acquire(int maxOutstanding) {
+        while (true) {
+            int current = outstanding.get();
+            if (current >= maxOutstanding) {
+                return false;
+            }
+            if (outstanding.compareAndSet(current, current + 1)) {
+                requests.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a request slot and records its latency.
+     */
+    void release(long latencyNanos, boolean failed, long nowNanos) {
+        outstanding.decrementAndGet();
+        if (failed) {
+            failures.increment();
+        }
+        synchronized (this) {
+            if (Double.isNaN(ewmaNanos)) {
+                ewmaNanos = latencyNanos;
+            } else {
+                // decay by the time since the previous sample, but let bursts of samples still move the average
+                double alpha = 1 - Math.pow(0.5, (double) Math.max(0, nowNanos - lastSampleNanos) / halfLifeNanos);
+                ewmaNanos += Math.max(alpha, 0.05) * (latencyNanos - ewmaNanos);
+            }
+            lastSampleNanos = nowNanos;
+        }
+    }
+
+    void cancelSubscription() {
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * Follows the chain height a managed daemon reports in its output.
+     */
+    final class HeightSubscriber implements Flow.Subscriber<DaemonEvent> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            RpcNode.this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(DaemonEvent event) {
+            if (event instanceof DaemonEvent.SyncProgress progress) {
+                height = progress.currentHeight();
+            } else if (event instanceof DaemonEvent.NewTopBlockCandidate candidate) {
+                height = candidate.currentHeight();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // nothing to follow anymore
+        }
+
+        @Override
+        public void onComplete() {
+            // nothing to follow anymore
+        }
+    }
+}
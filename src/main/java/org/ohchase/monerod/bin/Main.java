@@ -100,6 +100,7 @@ public class Main {
         DaemonProcess daemonProcess = DaemonProcess.start(monerodBinary, listener, daemonConfig);
         while (daemonProcess.isAlive()) {
             System.out.println("Daemon is running... Uptime: " + daemonProcess.getUptime().toSeconds() + " seconds");
+            System.out.println("  Sync Stats: " + daemonProcess.getSyncStats());
             Thread.sleep(Duration.ofSeconds(10).toMillis());
 
             // For demonstration purposes, we will not stop the daemon automatically.
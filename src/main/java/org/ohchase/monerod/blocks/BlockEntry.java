@@ -0,0 +1,37 @@
+package org.ohchase.monerod.blocks;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * A block and its transactions as serialized blobs, as returned by the binary RPC interface.
+ * Blobs are read-only slices of the response, shared rather than copied.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class BlockEntry {
+
+    private final long height;
+
+    /**
+     * Serialized block.
+     */
+    private final ByteBuffer block;
+
+    /**
+     * Serialized transactions, excluding the miner transaction, pruned if {@link #pruned}.
+     */
+    private final List<ByteBuffer> transactions;
+
+    private final boolean pruned;
+
+    /**
+     * Block weight, only sent by the daemon for pruned blocks, 0 otherwise.
+     */
+    private final long blockWeight;
+}
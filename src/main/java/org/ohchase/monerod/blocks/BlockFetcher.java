@@ -0,0 +1,283 @@
+package org.ohchase.monerod.blocks;
+
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.BlockFetchConfig;
+import org.ohchase.monerod.epee.EpeeReader;
+import org.ohchase.monerod.epee.EpeeType;
+import org.ohchase.monerod.epee.EpeeWriter;
+import org.ohchase.monerod.rpc.DaemonRpcClient;
+import org.ohchase.monerod.rpc.RpcException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Downloads ranges of blocks through {@code /get_blocks_by_height.bin}.
+ * <p>
+ * Several height ranges are kept in flight, each response is decoded on the I/O executor as soon as it arrives,
+ * and decoded batches wait in a reorder buffer until they can be delivered in height order. A batch's slot is only
+ * freed once the consumer handled it, so a slow consumer holds back requests instead of buffering the chain in memory.
+ */
+public class BlockFetcher {
+
+    private static final String PATH = "/get_blocks_by_height.bin";
+
+    private final URI endpoint;
+
+    private final HttpClient httpClient;
+
+    private final BlockFetchConfig config;
+
+    /**
+     * @param endpoint base URI of the RPC interface.
+     * @param httpClient client to send requests through.
+     * @param config fetch configuration.
+     */
+    public BlockFetcher(URI endpoint, HttpClient httpClient, BlockFetchConfig config) {
+        if (config.getBatchSize() < 1 || config.getMaxInFlight() < 1) {
+            throw new IllegalArgumentException("Batch size and requests in flight must be positive");
+        }
+        this.endpoint = endpoint;
+        this.httpClient = httpClient;
+        this.config = config;
+    }
+
+    /**
+     * Creates a fetcher for the RPC interface of a daemon, preferring the unrestricted one.
+     * @param daemonProcess daemon to download from.
+     * @param config fetch configuration.
+     * @return fetcher bound to the daemon.
+     */
+    public static BlockFetcher forDaemon(DaemonProcess daemonProcess, BlockFetchConfig config) {
+        return new BlockFetcher(DaemonRpcClient.forDaemon(daemonProcess).getEndpoint(), DaemonRpcClient.sharedHttpClient(), config);
+    }
+
+    /**
+     * Fetches blocks and delivers them in order.
+     * @param startHeight first height.
+     * @param endHeight height after the last one.
+     * @param consumer receives the blocks, on the I/O executor, never concurrently.
+     * @return future completed once every block was delivered, or exceptionally with the first failure.
+     *         Cancelling it stops issuing requests.
+     */
+    public CompletableFuture<Void> fetch(long startHeight, long endHeight, IBlockConsumer consumer) {
+        if (startHeight < 0 || endHeight < startHeight) {
+            throw new IllegalArgumentException("Invalid height range " + startHeight + " to " + endHeight);
+        }
+        Fetch fetch = new Fetch(startHeight, endHeight, consumer);
+        fetch.issue();
+        return fetch.done;
+    }
+
+    /**
+     * Fetches one batch of blocks.
+     * @param heights heights to fetch.
+     * @return future of the blocks in the order of the heights.
+     */
+    public CompletableFuture<List<BlockEntry>> fetchBatch(long[] heights) {
+        byte[] body = new EpeeWriter()
+                .beginObject(1)
+                .name("heights").uint64Array(heights)
+                .toByteArray();
+        HttpRequest request = HttpRequest.newBuilder(endpoint.resolve(PATH))
+                .timeout(config.getTimeout())
+                .header("Content-Type", "application/octet-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApplyAsync(response -> {
+                    try {
+                        if (response.statusCode() != 200) {
+                            throw new RpcException(response.statusCode(), "HTTP status " + response.statusCode() + " from " + response.uri());
+                        }
+                        return readBlocks(ByteBuffer.wrap(response.body()), heights);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, DaemonExecutors.ioExecutor());
+    }
+
+    /**
+     * Decodes a {@code get_blocks_by_height.bin} response.
+     * @param document response body.
+     * @param heights heights requested, in order.
+     * @return one entry per height.
+     * @throws IOException if the response is malformed, reports a failure, or does not hold every block.
+     */
+    static List<BlockEntry> readBlocks(ByteBuffer document, long[] heights) throws IOException {
+        EpeeReader reader = new EpeeReader(document);
+        List<BlockEntry> blocks = new ArrayList<>(heights.length);
+        String status = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "blocks" -> {
+                    int count = reader.beginArray();
+                    if (count != heights.length) {
+                        throw new IOException("Requested " + heights.length + " blocks, got " + count);
+                    }
+                    for (long height : heights) {
+                        blocks.add(readBlock(reader, height));
+                    }
+                    reader.endArray();
+                }
+                case "status" -> status = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!"OK".equals(status)) {
+            throw new RpcException(-1, "Daemon returned status " + status);
+        }
+        return blocks;
+    }
+
+    private static BlockEntry readBlock(EpeeReader reader, long height) throws IOException {
+        ByteBuffer block = null;
+        List<ByteBuffer> transactions = List.of();
+        boolean pruned = false;
+        long blockWeight = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "block" -> block = reader.nextBlob();
+                case "pruned" -> pruned = reader.nextBoolean();
+                case "block_weight" -> blockWeight = reader.nextLong();
+                case "txs" -> transactions = readTransactions(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (block == null) {
+            throw new IOException("Block entry without block at height " + height);
+        }
+        return new BlockEntry(height, block, transactions, pruned, blockWeight);
+    }
+
+    /**
+     * Reads the transactions of a block, sent as plain blobs or, for pruned blocks, as objects holding the blob.
+     */
+    private static List<ByteBuffer> readTransactions(EpeeReader reader) throws IOException {
+        int count = reader.beginArray();
+        List<ByteBuffer> transactions = new ArrayList<>(count);
+        while (reader.hasNext()) {
+            if (reader.peek() == EpeeType.STRING) {
+                transactions.add(reader.nextBlob());
+                continue;
+            }
+            ByteBuffer blob = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("blob")) {
+                    blob = reader.nextBlob();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (blob == null) {
+                throw new IOException("Transaction entry without blob");
+            }
+            transactions.add(blob);
+        }
+        reader.endArray();
+        return transactions;
+    }
+
+    /**
+     * One {@link #fetch} call: issues batches up to the in-flight limit and delivers completed ones in order.
+     */
+    private final class Fetch {
+
+        private final long endHeight;
+
+        private final IBlockConsumer consumer;
+
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        // guarded by this
+        private final Map<Long, List<BlockEntry>> completed = new HashMap<>();
+        private long nextRequestHeight;
+        private long nextDeliveryHeight;
+        private int inFlight;
+        private boolean delivering;
+
+        private Fetch(long startHeight, long endHeight, IBlockConsumer consumer) {
+            this.endHeight = endHeight;
+            this.consumer = consumer;
+            this.nextRequestHeight = startHeight;
+            this.nextDeliveryHeight = startHeight;
+        }
+
+        synchronized void issue() {
+            if (nextDeliveryHeight >= endHeight) {
+                done.complete(null);
+                return;
+            }
+            while (inFlight < config.getMaxInFlight() && nextRequestHeight < endHeight && !done.isDone()) {
+                long from = nextRequestHeight;
+                int count = (int) Math.min(config.getBatchSize(), endHeight - from);
+                long[] heights = new long[count];
+                for (int i = 0; i < count; i++) {
+                    heights[i] = from + i;
+                }
+                nextRequestHeight += count;
+                inFlight++;
+                fetchBatch(heights).whenComplete((blocks, error) -> {
+                    if (error != null) {
+                        done.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                    } else {
+                        onBatch(from, blocks);
+                    }
+                });
+            }
+        }
+
+        private void onBatch(long from, List<BlockEntry> blocks) {
+            synchronized (this) {
+                completed.put(from, blocks);
+                if (delivering) {
+                    return;
+                }
+                delivering = true;
+            }
+            while (true) {
+                List<BlockEntry> batch;
+                synchronized (this) {
+                    batch = completed.remove(nextDeliveryHeight);
+                    if (batch == null || done.isDone()) {
+                        delivering = false;
+                        return;
+                    }
+                }
+                try {
+                    for (BlockEntry block : batch) {
+                        consumer.onBlock(block);
+                    }
+                } catch (RuntimeException e) {
+                    synchronized (this) {
+                        delivering = false;
+                    }
+                    done.completeExceptionally(e);
+                    return;
+                }
+                synchronized (this) {
+                    nextDeliveryHeight += batch.size();
+                    inFlight--;
+                    issue();
+                }
+            }
+        }
+    }
+}
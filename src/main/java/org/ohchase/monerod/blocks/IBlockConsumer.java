@@ -0,0 +1,13 @@
+package org.ohchase.monerod.blocks;
+
+/**
+ * Receives fetched blocks, one at a time and in height order.
+ */
+public interface IBlockConsumer {
+
+    /**
+     * Called for every block. Throwing stops the fetch, failing it with the exception.
+     * @param block the block.
+     */
+    void onBlock(BlockEntry block);
+}
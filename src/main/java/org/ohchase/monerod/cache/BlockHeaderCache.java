@@ -0,0 +1,580 @@
+package org.ohchase.monerod.cache;
+
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.HeaderCacheConfig;
+import org.ohchase.monerod.events.DaemonEvent;
+import org.ohchase.monerod.events.OverflowPolicy;
+import org.ohchase.monerod.rpc.BlockHeader;
+import org.ohchase.monerod.rpc.DaemonRpcClient;
+import org.ohchase.monerod.zmq.ChainMain;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of block headers, looked up by height or by hash and loaded lazily through RPC.
+ * <p>
+ * Headers live in a fixed array of slots indexed by two primitive open addressing maps, one keyed by height and one
+ * by the first eight bytes of the hash. Eviction follows the CLOCK algorithm: a hand sweeps the slots, sparing those
+ * used since its last pass. Concurrent misses for the same key share one RPC call.
+ * <p>
+ * Reorgs are handled by invalidating only the affected tail. A lower chain height, a {@code chain_main} event
+ * replacing a cached block, or a freshly loaded header that does not link to its cached neighbours removes every
+ * cached header from the first affected height up. After a height regression, a new top block candidate, or a new
+ * top with cached headers within {@link HeaderCacheConfig#getMaxReorgDepth()} blocks of it, those headers are compared
+ * against the daemon's in one range call, at most once per {@link HeaderCacheConfig#getVerifyInterval()}. Tops while
+ * the cache holds nothing near them, as during the initial sync, cost nothing.
+ * Loads that were in flight while the cache was invalidated are repeated rather than cached.
+ * The {@code depth} of a cached header is the one at load time.
+ */
+public class BlockHeaderCache implements AutoCloseable {
+
+    /**
+     * Loads beyond this many in flight are not shared between callers.
+     */
+    private static final int MAX_PENDING = 256;
+
+    /**
+     * Times a load is repeated when the cache was invalidated while it was in flight.
+     */
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final DaemonRpcClient rpcClient;
+
+    private final HeaderCacheConfig config;
+
+    // guarded by this
+    private final BlockHeader[] headers;
+    private final boolean[] referenced;
+    private final int[] freeSlots;
+    private int freeSlotCount;
+    private int hand;
+    private final LongIntMap byHeight;
+    private final LongIntMap byHash;
+    private final CompletableFuture<?>[] pending = new CompletableFuture<?>[MAX_PENDING];
+    private final String[] pendingHashes = new String[MAX_PENDING];
+    private final int[] freePending = new int[MAX_PENDING];
+    private int freePendingCount;
+    private final LongIntMap pendingByHeight = new LongIntMap(MAX_PENDING);
+    private final LongIntMap pendingByHash = new LongIntMap(MAX_PENDING);
+    private long generation;
+    private long topHeight = -1;
+    /**
+     * Upper bound of the cached main chain heights, -1 if none. Evictions leave it unchanged.
+     */
+    private long highestCached = -1;
+    private boolean verifying;
+    private boolean verifyAgain;
+    private boolean verifyScheduled;
+    private long lastVerifyNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private volatile Flow.Subscription subscription;
+
+    /**
+     * @param rpcClient client headers are loaded through.
+     * @param config cache configuration.
+     */
+    public BlockHeaderCache(DaemonRpcClient rpcClient, HeaderCacheConfig config) {
+        if (config.getCapacity() < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + config.getCapacity());
+        }
+        this.rpcClient = rpcClient;
+        this.config = config;
+        int capacity = config.getCapacity();
+        this.headers = new BlockHeader[capacity];
+        this.referenced = new boolean[capacity];
+        this.freeSlots = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            freeSlots[freeSlotCount++] = capacity - 1 - i;
+        }
+        for (int i = 0; i < MAX_PENDING; i++) {
+            freePending[freePendingCount++] = MAX_PENDING - 1 - i;
+        }
+        this.byHeight = new LongIntMap(capacity);
+        this.byHash = new LongIntMap(capacity);
+    }
+
+    /**
+     * Creates a cache for a daemon, following the chain height it reports in its output.
+     * @param daemonProcess daemon to load headers from.
+     * @param config cache configuration.
+     * @return subscribed cache, to be closed once no longer used.
+     */
+    public static BlockHeaderCache attach(DaemonProcess daemonProcess, HeaderCacheConfig config) {
+        BlockHeaderCache cache = new BlockHeaderCache(DaemonRpcClient.forDaemon(daemonProcess), config);
+        daemonProcess.getEvents().subscribe(cache.new TopSubscriber(), 16, OverflowPolicy.CONFLATE);
+        return cache;
+    }
+
+    /**
+     * Gets the main chain header at a height.
+     * @param height block height.
+     * @return future of the header, completed at once on a hit.
+     */
+    public CompletableFuture<BlockHeader> get(long height) {
+        synchronized (this) {
+            int slot = byHeight.get(height);
+            if (slot >= 0) {
+                referenced[slot] = true;
+                hits.increment();
+                return CompletableFuture.completedFuture(headers[slot]);
+            }
+            misses.increment();
+            int shared = pendingByHeight.get(height);
+            if (shared >= 0) {
+                return cast(pending[shared]);
+            }
+            CompletableFuture<BlockHeader> load = load(() -> rpcClient.getBlockHeaderByHeight(height), 1);
+            int index = acquirePending();
+            if (index >= 0) {
+                pending[index] = load;
+                pendingByHeight.put(height, index);
+                load.whenComplete((header, error) -> releasePending(pendingByHeight, height, index));
+            }
+            return load;
+        }
+    }
+
+    /**
+     * Gets the header of a block by hash, which may also be an alternative chain block.
+     * @param hash block hash as hex.
+     * @return future of the header, completed at once on a hit.
+     */
+    public CompletableFuture<BlockHeader> getByHash(String hash) {
+        long key = hashKey(hash);
+        synchronized (this) {
+            int slot = byHash.get(key);
+            if (slot >= 0 && headers[slot].getHash().equals(hash)) {
+                referenced[slot] = true;
+                hits.increment();
+                return CompletableFuture.completedFuture(headers[slot]);
+            }
+            misses.increment();
+            int shared = pendingByHash.get(key);
+            if (shared >= 0 && hash.equals(pendingHashes[shared])) {
+                return cast(pending[shared]);
+            }
+            CompletableFuture<BlockHeader> load = load(() -> rpcClient.getBlockHeaderByHash(hash), 1);
+            int index = shared < 0 ? acquirePending() : -1;
+            if (index >= 0) {
+                pending[index] = load;
+                pendingHashes[index] = hash;
+                pendingByHash.put(key, index);
+                load.whenComplete((header, error) -> releasePending(pendingByHash, key, index));
+            }
+            return load;
+        }
+    }
+
+    /**
+     * Reports the daemon's chain height, the number of blocks in its main chain.
+     * A lower height than before drops the cached headers above it.
+     * @param chainHeight chain height.
+     */
+    public void onChainHeight(long chainHeight) {
+        onTop(chainHeight, false);
+    }
+
+    /**
+     * Reports that the daemon learnt of a higher chain from a peer, so its own chain may be about to reorganize.
+     * @param chainHeight the daemon's current chain height.
+     */
+    public void onNewTopBlockCandidate(long chainHeight) {
+        onTop(chainHeight, true);
+    }
+
+    private void onTop(long chainHeight, boolean candidate) {
+        synchronized (this) {
+            if (chainHeight == topHeight && !candidate) {
+                return;
+            }
+            boolean regressed = chainHeight < topHeight;
+            if (regressed) {
+                invalidateFrom(chainHeight);
+            }
+            topHeight = chainHeight;
+            if (!regressed && !candidate && !isCachedNearTop(chainHeight)) {
+                return;
+            }
+        }
+        requestVerification();
+    }
+
+    /**
+     * Applies a {@code chain_main} event from the ZMQ publisher, invalidating cached blocks it replaced.
+     * @param chainMain blocks added to the main chain.
+     */
+    public void onChainMain(ChainMain chainMain) {
+        synchronized (this) {
+            long height = chainMain.getFirstHeight();
+            int below = byHeight.get(height - 1);
+            if (below >= 0 && !headers[below].getHash().equals(chainMain.getFirstPrevId())) {
+                invalidateFrom(height - 1);
+            }
+            for (String id : chainMain.getIds()) {
+                int slot = byHeight.get(height);
+                if (slot >= 0 && !headers[slot].getHash().equals(id)) {
+                    invalidateFrom(height);
+                    break;
+                }
+                height++;
+            }
+            topHeight = Math.max(topHeight, chainMain.getLastHeight() + 1);
+            if (!isCachedNearTop(topHeight)) {
+                return;
+            }
+        }
+        requestVerification();
+    }
+
+    /**
+     * Drops every cached header.
+     */
+    public synchronized void clear() {
+        invalidateFrom(0);
+        for (int slot = 0; slot < headers.length; slot++) {
+            if (headers[slot] != null) {
+                removeSlot(slot);
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Stops following the daemon's chain height.
+     */
+    @Override
+    public void close() {
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    public synchronized int size() {
+        return headers.length - freeSlotCount;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return headers dropped because of reorgs or height regressions.
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Loads a header and caches it, unless the cache was invalidated meanwhile, in which case the load is repeated.
+     */
+    private CompletableFuture<BlockHeader> load(Supplier<CompletableFuture<BlockHeader>> call, int attempt) {
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+        return call.get().thenCompose(header -> {
+            boolean cached;
+            boolean verify = false;
+            synchronized (this) {
+                cached = loadGeneration == generation;
+                if (cached) {
+                    verify = insert(header);
+                }
+            }
+            if (verify) {
+                requestVerification();
+            }
+            if (!cached && attempt < MAX_LOAD_ATTEMPTS) {
+                return load(call, attempt + 1);
+            }
+            return CompletableFuture.completedFuture(header);
+        });
+    }
+
+    /**
+     * Caches a freshly loaded header.
+     * @return true if it does not link to a cached neighbour, so the cached chain must be verified.
+     */
+    private boolean insert(BlockHeader header) {
+        long height = header.getHeight();
+        long key = hashKey(header.getHash());
+        int existing = byHash.get(key);
+        if (existing >= 0) {
+            if (headers[existing].getHash().equals(header.getHash())
+                    && headers[existing].isOrphanStatus() == header.isOrphanStatus()) {
+                headers[existing] = header;
+                referenced[existing] = true;
+                return false;
+            }
+            // same hash prefix or changed orphan status, keep the fresh one
+            removeSlot(existing);
+        }
+
+        boolean verify = false;
+        if (!header.isOrphanStatus()) {
+            int atHeight = byHeight.get(height);
+            if (atHeight >= 0) {
+                // another block at this height: the chain changed here
+                invalidateFrom(height);
+            }
+            int above = byHeight.get(height + 1);
+            if (above >= 0 && !headers[above].getPrevHash().equals(header.getHash())) {
+                invalidateFrom(height + 1);
+            }
+            int below = byHeight.get(height - 1);
+            if (below >= 0 && !headers[below].getHash().equals(header.getPrevHash())) {
+                // the cached parent is stale, and possibly more below it
+                invalidateFrom(height - 1);
+                verify = true;
+            }
+        }
+
+        int slot = acquireSlot();
+        headers[slot] = header;
+        referenced[slot] = true;
+        byHash.put(key, slot);
+        if (!header.isOrphanStatus()) {
+            byHeight.put(height, slot);
+            highestCached = Math.max(highestCached, height);
+        }
+        return verify;
+    }
+
+    /**
+     * Drops the cached main chain headers at and above a height, and makes loads in flight start over.
+     */
+    private void invalidateFrom(long height) {
+        generation++;
+        if (highestCached - height < headers.length) {
+            // a shallow tail: look its heights up rather than scanning every slot
+            for (long at = Math.max(0, height); at <= highestCached; at++) {
+                int slot = byHeight.get(at);
+                if (slot >= 0) {
+                    removeSlot(slot);
+                    invalidations.increment();
+                }
+            }
+        } else {
+            for (int slot = 0; slot < headers.length; slot++) {
+                BlockHeader header = headers[slot];
+                if (header != null && !header.isOrphanStatus() && header.getHeight() >= height) {
+                    removeSlot(slot);
+                    invalidations.increment();
+                }
+            }
+        }
+        highestCached = Math.min(highestCached, height - 1);
+    }
+
+    /**
+     * @return true if headers may be cached within the reorg depth below a top.
+     */
+    private boolean isCachedNearTop(long chainHeight) {
+        return highestCached >= chainHeight - config.getMaxReorgDepth();
+    }
+
+    /**
+     * Compares the cached headers near the top with the daemon's, one verification at a time and at most one
+     * per verify interval. Requests meanwhile are folded into one verification after it.
+     */
+    private void requestVerification() {
+        synchronized (this) {
+            if (verifying) {
+                verifyAgain = true;
+                return;
+            }
+            if (verifyScheduled) {
+                return;
+            }
+            long wait = lastVerifyNanos + config.getVerifyInterval().toNanos() - System.nanoTime();
+            if (lastVerifyNanos != 0 && wait > 0) {
+                verifyScheduled = true;
+                DaemonExecutors.scheduler().schedule(
+                        () -> DaemonExecutors.ioExecutor().execute(this::scheduledVerification),
+                        wait, TimeUnit.NANOSECONDS);
+                return;
+            }
+            verifying = true;
+            lastVerifyNanos = System.nanoTime();
+        }
+        verify().whenComplete((ignored, error) -> {
+            // a failed verification is retried with the next top
+            synchronized (this) {
+                verifying = false;
+                if (!verifyAgain) {
+                    return;
+                }
+                verifyAgain = false;
+            }
+            requestVerification();
+        });
+    }
+
+    private void scheduledVerification() {
+        synchronized (this) {
+            verifyScheduled = false;
+            lastVerifyNanos = 0;
+        }
+        requestVerification();
+    }
+
+    private CompletableFuture<Void> verify() {
+        return rpcClient.getHeight().thenCompose(chainHeight -> {
+            long start;
+            synchronized (this) {
+                if (chainHeight < topHeight) {
+                    invalidateFrom(chainHeight);
+                }
+                topHeight = chainHeight;
+                start = -1;
+                for (long height = Math.max(0, chainHeight - config.getMaxReorgDepth()); height < chainHeight; height++) {
+                    if (byHeight.get(height) >= 0) {
+                        start = height;
+                        break;
+                    }
+                }
+            }
+            if (start < 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return rpcClient.getBlockHeadersRange(start, chainHeight - 1).thenAccept(this::reconcile);
+        });
+    }
+
+    /**
+     * Invalidates from the lowest cached header that differs from the daemon's.
+     * @param fresh the daemon's headers of a contiguous range, in height order.
+     */
+    private synchronized void reconcile(List<BlockHeader> fresh) {
+        if (fresh.isEmpty()) {
+            return;
+        }
+        BlockHeader first = fresh.get(0);
+        int below = byHeight.get(first.getHeight() - 1);
+        if (below >= 0 && !headers[below].getHash().equals(first.getPrevHash())) {
+            // forked below the verified window
+            System.out.println("Warning. Reorg deeper than " + config.getMaxReorgDepth() + " blocks, clearing the header cache.");
+            invalidateFrom(0);
+            return;
+        }
+        for (BlockHeader header : fresh) {
+            int slot = byHeight.get(header.getHeight());
+            if (slot >= 0 && !headers[slot].getHash().equals(header.getHash())) {
+                invalidateFrom(header.getHeight());
+                return;
+            }
+        }
+    }
+
+    private int acquireSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        while (true) {
+            int slot = hand;
+            hand = (hand + 1) % headers.length;
+            if (referenced[slot]) {
+                referenced[slot] = false;
+            } else {
+                removeSlot(slot);
+                evictions.increment();
+                return freeSlots[--freeSlotCount];
+            }
+        }
+    }
+
+    private void removeSlot(int slot) {
+        BlockHeader header = headers[slot];
+        byHeight.remove(header.getHeight(), slot);
+        byHash.remove(hashKey(header.getHash()), slot);
+        headers[slot] = null;
+        referenced[slot] = false;
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private int acquirePending() {
+        return freePendingCount > 0 ? freePending[--freePendingCount] : -1;
+    }
+
+    private synchronized void releasePending(LongIntMap index, long key, int pendingIndex) {
+        if (index.remove(key, pendingIndex)) {
+            pending[pendingIndex] = null;
+            pendingHashes[pendingIndex] = null;
+            freePending[freePendingCount++] = pendingIndex;
+        }
+    }
+
+    /**
+     * @return the first eight bytes of a hex hash, or a hash code for anything else.
+     */
+    static long hashKey(String hash) {
+        if (hash.length() < 16) {
+            return hash.hashCode();
+        }
+        long key = 0;
+        for (int i = 0; i < 16; i++) {
+            int digit = Character.digit(hash.charAt(i), 16);
+            if (digit < 0) {
+                return hash.hashCode();
+            }
+            key = key << 4 | digit;
+        }
+        return key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<BlockHeader> cast(CompletableFuture<?> future) {
+        return (CompletableFuture<BlockHeader>) future;
+    }
+
+    /**
+     * Follows the chain height the daemon reports in its output.
+     */
+    private final class TopSubscriber implements Flow.Subscriber<DaemonEvent> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            BlockHeaderCache.this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(DaemonEvent event) {
+            if (event instanceof DaemonEvent.SyncProgress progress) {
+                onChainHeight(progress.currentHeight());
+            } else if (event instanceof DaemonEvent.NewTopBlockCandidate candidate) {
+                onNewTopBlockCandidate(candidate.currentHeight());
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // nothing to follow anymore
+        }
+
+        @Override
+        public void onComplete() {
+            // nothing to follow anymore
+        }
+    }
+}
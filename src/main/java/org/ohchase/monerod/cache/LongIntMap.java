@@ -0,0 +1,124 @@
+package org.ohchase.monerod.cache;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity open addressing map from {@code long} keys to non-negative {@code int} values, without boxing.
+ * Linear probing with backward-shift deletion, so removals leave no tombstones behind. Not thread-safe.
+ */
+final class LongIntMap {
+
+    private static final int EMPTY = -1;
+
+    private final long[] keys;
+
+    private final int[] values;
+
+    private final int mask;
+
+    private int size;
+
+    /**
+     * @param maxEntries entries the map must hold, the table is sized for a load factor of at most one half.
+     */
+    LongIntMap(int maxEntries) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(values, EMPTY);
+    }
+
+    /**
+     * @return the value, or -1 if absent.
+     */
+    int get(long key) {
+        for (int index = index(key); ; index = (index + 1) & mask) {
+            if (values[index] == EMPTY) {
+                return EMPTY;
+            }
+            if (keys[index] == key) {
+                return values[index];
+            }
+        }
+    }
+
+    /**
+     * @param value non-negative value.
+     * @return the previous value, or -1 if absent.
+     */
+    int put(long key, int value) {
+        for (int index = index(key); ; index = (index + 1) & mask) {
+            if (values[index] == EMPTY) {
+                if (size == keys.length - 1) {
+                    throw new IllegalStateException("Map is full");
+                }
+                keys[index] = key;
+                values[index] = value;
+                size++;
+                return EMPTY;
+            }
+            if (keys[index] == key) {
+                int previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Removes the key if it maps to the given value.
+     * @return true if removed.
+     */
+    boolean remove(long key, int value) {
+        for (int index = index(key); ; index = (index + 1) & mask) {
+            if (values[index] == EMPTY) {
+                return false;
+            }
+            if (keys[index] == key) {
+                if (values[index] != value) {
+                    return false;
+                }
+                shiftBack(index);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Moves later entries of the probe sequence into the freed index, so lookups never stop early.
+     */
+    private void shiftBack(int freed) {
+        int index = freed;
+        while (true) {
+            index = (index + 1) & mask;
+            if (values[index] == EMPTY) {
+                break;
+            }
+            int home = index(keys[index]);
+            // move the entry unless its home lies cyclically within (freed, index]
+            boolean stays = freed <= index ? freed < home && home <= index : freed < home || home <= index;
+            if (!stays) {
+                keys[freed] = keys[index];
+                values[freed] = values[index];
+                freed = index;
+            }
+        }
+        values[freed] = EMPTY;
+    }
+
+    private int index(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
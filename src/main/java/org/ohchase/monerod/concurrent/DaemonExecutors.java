@@ -0,0 +1,64 @@
+package org.ohchase.monerod.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executors for the library's background work.
+ * All threads are daemon threads, so they never keep the JVM alive.
+ */
+public final class DaemonExecutors {
+
+    private DaemonExecutors() {
+    }
+
+    /**
+     * Shared scheduler for short, periodic or delayed tasks.
+     * Tasks must not block, long-running work belongs on its own thread.
+     * @return shared scheduler.
+     */
+    public static ScheduledExecutorService scheduler() {
+        return SchedulerHolder.SCHEDULER;
+    }
+
+    /**
+     * Shared, unbounded pool for blocking I/O such as decoding response streams.
+     * Idle threads are reclaimed after a minute.
+     * @return shared I/O executor.
+     */
+    public static ExecutorService ioExecutor() {
+        return IoHolder.IO_EXECUTOR;
+    }
+
+    /**
+     * Creates a thread factory producing daemon threads named {@code <prefix>-<n>}.
+     * @param prefix thread name prefix.
+     * @return thread factory.
+     */
+    public static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class IoHolder {
+        private static final ExecutorService IO_EXECUTOR = Executors.newCachedThreadPool(threadFactory("monerod-io"));
+    }
+
+    private static final class SchedulerHolder {
+        private static final ScheduledExecutorService SCHEDULER = createScheduler();
+
+        private static ScheduledExecutorService createScheduler() {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, threadFactory("monerod-scheduler"));
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+}
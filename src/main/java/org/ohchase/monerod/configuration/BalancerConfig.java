@@ -0,0 +1,73 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Configuration for balancing RPC calls across daemons.
+ */
+@Builder
+public class BalancerConfig {
+
+    /**
+     * Requests in flight per node, nodes at the limit are skipped.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxOutstanding = 32;
+
+    /**
+     * Blocks a node may lag the highest node by before it is excluded.
+     */
+    @Getter
+    @Builder.Default
+    private final long maxLag = 10;
+
+    /**
+     * Half-life of the latency average, older samples weigh half as much after it.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration ewmaHalfLife = Duration.ofSeconds(10);
+
+    /**
+     * Latency recorded for a failed request, so failing nodes lose traffic.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration failurePenalty = Duration.ofSeconds(1);
+
+    /**
+     * A read is hedged on a second node once it took this many times the first node's average latency.
+     */
+    @Getter
+    @Builder.Default
+    private final double hedgeMultiplier = 2.0;
+
+    /**
+     * Lower bound of the hedge delay, so fast nodes are not hedged on noise.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration minHedgeDelay = Duration.ofMillis(20);
+
+    /**
+     * Whether reads are hedged at all.
+     */
+    @Getter
+    @Builder.Default
+    private final boolean hedging = true;
+
+    /**
+     * @return configuration with every default.
+     */
+    public static BalancerConfig defaults() {
+        return builder().build();
+    }
+}
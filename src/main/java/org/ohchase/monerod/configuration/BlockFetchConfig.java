@@ -0,0 +1,43 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Configuration for downloading blocks through the binary RPC interface.
+ */
+@Builder
+public class BlockFetchConfig {
+
+    /**
+     * Blocks requested per call.
+     */
+    @Getter
+    @Builder.Default
+    private final int batchSize = 100;
+
+    /**
+     * Calls kept in flight, including decoded batches waiting to be delivered in order.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxInFlight = 4;
+
+    /**
+     * Timeout of each call.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration timeout = Duration.ofSeconds(60);
+
+    /**
+     * @return configuration with every default.
+     */
+    public static BlockFetchConfig defaults() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,24 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Configuration for conflated delivery of sync events.
+ * Sync progress and new top block candidate events are reduced to the latest value
+ * and delivered at most once per interval. Lifecycle events are always delivered.
+ */
+@Builder
+public class ConflationConfig {
+
+    /**
+     * Minimum time between two deliveries of the same event type.
+     */
+    @Getter
+    @NonNull
+    private final Duration interval;
+
+}
@@ -43,6 +43,13 @@ public class DaemonConfig {
     @Getter
     private final RestrictedRpcConfig restrictedRpcConfig;
 
+    /**
+     * Configuration for a caching proxy in front of the restricted RPC interface, started with the daemon.
+     * Requires {@link #restrictedRpcConfig}. When not set, no proxy is started.
+     */
+    @Getter
+    private final RpcProxyConfig rpcProxyConfig;
+
     /**
      * Configuration for the unrestricted RPC interface.
      */
@@ -55,6 +62,27 @@ public class DaemonConfig {
     @Getter
     private final TxProxy txProxy;
 
+    /**
+     * Configuration for the ZMQ publisher.
+     * When not set, ZMQ is disabled.
+     */
+    @Getter
+    private final ZmqConfig zmqConfig;
+
+    /**
+     * Configuration for persisting the daemon's output to disk.
+     * When not set, output is not kept once parsed.
+     */
+    @Getter
+    private final LogStoreConfig logStoreConfig;
+
+    /**
+     * Configuration for loading the database into the page cache before the daemon is launched.
+     * Starting then blocks for up to its time budget. When not set, the daemon is launched right away.
+     */
+    @Getter
+    private final PrewarmConfig prewarmConfig;
+
     /**
      * Whether to run the daemon in pruned mode.
      */
@@ -67,4 +95,32 @@ public class DaemonConfig {
     @Getter
     private final Boolean prunedBlockchain;
 
+    /**
+     * Configuration for the daemon's throughput settings.
+     * When not set, the daemon's defaults apply.
+     */
+    @Getter
+    private final PerformanceConfig performanceConfig;
+
+    /**
+     * Configuration for conflated delivery of sync events to the listener.
+     * When not set, every sync event is delivered as soon as it is read.
+     */
+    @Getter
+    private final ConflationConfig conflationConfig;
+
+    /**
+     * Configuration for the sync statistics engine.
+     * When not set, {@link SyncStatsConfig#defaults()} is used.
+     */
+    @Getter
+    private final SyncStatsConfig syncStatsConfig;
+
+    /**
+     * Configuration for stopping the daemon.
+     * When not set, {@link ShutdownConfig#defaults()} is used.
+     */
+    @Getter
+    private final ShutdownConfig shutdownConfig;
+
 }
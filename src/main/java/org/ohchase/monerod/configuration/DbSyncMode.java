@@ -0,0 +1,35 @@
+package org.ohchase.monerod.configuration;
+
+/**
+ * Enumeration of monerod database sync modes, passed to {@code --db-sync-mode}.
+ */
+public enum DbSyncMode {
+    /**
+     * Syncs the database on every commit.
+     * Slowest, survives power loss.
+     */
+    SAFE("safe"),
+    /**
+     * Syncs the database periodically, monerod's default.
+     * A crash may lose the most recent blocks, which are downloaded again.
+     */
+    FAST("fast"),
+    /**
+     * Writes through an asynchronous writable memory map.
+     * Fastest, <b>a crash or power loss may corrupt the database</b>.
+     */
+    FASTEST("fastest");
+
+    private final String flag;
+
+    DbSyncMode(String flag) {
+        this.flag = flag;
+    }
+
+    /**
+     * @return value as passed on the command line.
+     */
+    public String getFlag() {
+        return flag;
+    }
+}
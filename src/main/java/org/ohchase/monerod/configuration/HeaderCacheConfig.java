@@ -0,0 +1,45 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the block header cache.
+ */
+@Builder
+public class HeaderCacheConfig {
+
+    /**
+     * Headers kept. Beyond it, headers not used recently are evicted.
+     */
+    @Getter
+    @Builder.Default
+    private final int capacity = 4096;
+
+    /**
+     * Blocks walked back from the top when checking the cached chain after a new top.
+     * A reorg deeper than this clears the whole cache.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxReorgDepth = 64;
+
+    /**
+     * Minimum time between two checks of the cached chain, each costing the daemon a range call.
+     * Tops arriving meanwhile are checked together once it passed.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration verifyInterval = Duration.ofSeconds(1);
+
+    /**
+     * @return configuration with every default.
+     */
+    public static HeaderCacheConfig defaults() {
+        return builder().build();
+    }
+}
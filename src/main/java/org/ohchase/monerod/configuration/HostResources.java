@@ -0,0 +1,132 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Resources of the host a daemon runs on, used to derive performance settings.
+ * Read from {@code /proc} and {@code /sys} on Linux, anything unavailable is reported as unknown.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class HostResources {
+
+    /**
+     * Processors available to the JVM, which honours CPU quotas.
+     */
+    private final int availableProcessors;
+
+    /**
+     * Total memory in bytes, 0 if unknown.
+     */
+    private final long totalMemory;
+
+    /**
+     * Memory available for new work in bytes, 0 if unknown.
+     */
+    private final long availableMemory;
+
+    /**
+     * Whether the disk holding the data directory is rotational, null if unknown.
+     */
+    private final Boolean rotationalDisk;
+
+    /**
+     * Detects the resources of this host.
+     * @param dataDirectory directory whose disk type is detected, it may not exist yet.
+     * @return detected resources.
+     */
+    public static HostResources detect(Path dataDirectory) {
+        return detect(dataDirectory, Path.of("/proc"), Path.of("/sys"));
+    }
+
+    /**
+     * Detects the resources of this host from the given {@code /proc} and {@code /sys} roots.
+     */
+    static HostResources detect(Path dataDirectory, Path procRoot, Path sysRoot) {
+        long totalMemory = 0;
+        long availableMemory = 0;
+        try {
+            for (String line : Files.readAllLines(procRoot.resolve("meminfo"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("MemTotal:")) {
+                    totalMemory = parseKilobytes(line);
+                } else if (line.startsWith("MemAvailable:")) {
+                    availableMemory = parseKilobytes(line);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // unknown
+        }
+        return new HostResources(Runtime.getRuntime().availableProcessors(), totalMemory, availableMemory,
+                detectRotational(dataDirectory, procRoot, sysRoot));
+    }
+
+    private static long parseKilobytes(String line) {
+        String[] fields = line.trim().split("\\s+");
+        return Long.parseLong(fields[1]) * 1024;
+    }
+
+    /**
+     * Finds the mount holding the directory in {@code mountinfo}, then reads {@code queue/rotational}
+     * of its block device, or of the disk when the device is a partition.
+     */
+    private static Boolean detectRotational(Path dataDirectory, Path procRoot, Path sysRoot) {
+        try {
+            Path directory = dataDirectory.toAbsolutePath().normalize();
+            while (directory != null && !Files.exists(directory)) {
+                directory = directory.getParent();
+            }
+            if (directory == null) {
+                return null;
+            }
+            String path = directory.toRealPath().toString();
+
+            String device = null;
+            int longestMount = -1;
+            List<String> mounts = Files.readAllLines(procRoot.resolve("self").resolve("mountinfo"), StandardCharsets.UTF_8);
+            for (String mount : mounts) {
+                String[] fields = mount.split(" ");
+                if (fields.length < 5) {
+                    continue;
+                }
+                String mountPoint = fields[4].replace("\\040", " ");
+                boolean contains = path.equals(mountPoint)
+                        || mountPoint.equals("/")
+                        || path.startsWith(mountPoint.endsWith("/") ? mountPoint : mountPoint + "/");
+                if (contains && mountPoint.length() > longestMount) {
+                    longestMount = mountPoint.length();
+                    device = fields[2];
+                }
+            }
+            if (device == null) {
+                return null;
+            }
+
+            Path block = sysRoot.resolve("dev").resolve("block").resolve(device);
+            if (!Files.exists(block)) {
+                return null;
+            }
+            Path devicePath = block.toRealPath();
+            for (Path candidate = devicePath; candidate != null; candidate = candidate.getParent()) {
+                Path rotational = candidate.resolve("queue").resolve("rotational");
+                if (Files.isReadable(rotational)) {
+                    return Files.readString(rotational, StandardCharsets.US_ASCII).trim().equals("1");
+                }
+                if (!candidate.startsWith(sysRoot)) {
+                    break;
+                }
+            }
+            return null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.nio.file.Path;
+
+/**
+ * Configuration for importing a raw blockchain file with monero-blockchain-import.
+ */
+@Builder
+public class ImportConfig {
+
+    /**
+     * Raw blockchain file to import, as written by monero-blockchain-export.
+     */
+    @Getter
+    @NonNull
+    private final Path inputFile;
+
+    /**
+     * Number of blocks committed to the database per batch.
+     */
+    @Getter
+    private final Integer batchSize;
+
+    /**
+     * Whether to skip verification of the imported blocks and transactions.
+     * <b>Only enable for files you exported yourself, a malicious file is trusted blindly.</b>
+     */
+    @Getter
+    private final Boolean dangerousUnverifiedImport;
+
+    /**
+     * Number of blocks to remove from the top of the chain instead of importing.
+     */
+    @Getter
+    private final Long popBlocks;
+}
@@ -0,0 +1,71 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration for the persistent store of the daemon's output.
+ */
+@Builder
+public class LogStoreConfig {
+
+    /**
+     * Smallest segment size, a segment must hold the longest line the output reader produces.
+     */
+    public static final long MIN_SEGMENT_SIZE = 2L * 1024 * 1024;
+
+    /**
+     * Directory holding the segment files.
+     * When not set, {@code output-log} under the daemon's data directory is used.
+     */
+    @Getter
+    private final Path directory;
+
+    /**
+     * Size of each memory-mapped segment file, at least {@link #MIN_SEGMENT_SIZE}.
+     */
+    @Getter
+    @Builder.Default
+    private final long segmentSize = 64L * 1024 * 1024;
+
+    /**
+     * Total size of the segments kept, the oldest segments are deleted beyond it.
+     */
+    @Getter
+    @Builder.Default
+    private final long maxTotalSize = 1024L * 1024 * 1024;
+
+    /**
+     * Age after which segments are deleted.
+     * When not set, segments are only deleted by size.
+     */
+    @Getter
+    private final Duration maxAge;
+
+    /**
+     * Size of the buffer between the output reader and the writer thread.
+     * Output arriving while it is full is dropped and counted, the reader never waits.
+     */
+    @Getter
+    @Builder.Default
+    private final int bufferSize = 4 * 1024 * 1024;
+
+    /**
+     * Minimum time between two entries of the timestamp index, which is also the precision of time range reads.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration indexInterval = Duration.ofSeconds(1);
+
+    /**
+     * @return configuration with every default.
+     */
+    public static LogStoreConfig defaults() {
+        return builder().build();
+    }
+}
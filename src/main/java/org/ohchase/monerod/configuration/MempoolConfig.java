@@ -0,0 +1,59 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Configuration for mirroring the daemon's transaction pool.
+ */
+@Builder
+public class MempoolConfig {
+
+    /**
+     * Time between the end of one poll and the start of the next.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration interval = Duration.ofSeconds(2);
+
+    /**
+     * Whether to fetch the body of every transaction entering the pool.
+     * When disabled, only hashes are tracked.
+     */
+    @Getter
+    @Builder.Default
+    private final boolean fetchBodies = true;
+
+    /**
+     * Transactions fetched per call, the restricted RPC interface serves at most 100.
+     */
+    @Getter
+    @Builder.Default
+    private final int bodyBatchSize = 100;
+
+    /**
+     * Transactions the hash set is sized for up front, it grows beyond.
+     */
+    @Getter
+    @Builder.Default
+    private final int initialCapacity = 4096;
+
+    /**
+     * Timeout of each call.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration timeout = Duration.ofSeconds(30);
+
+    /**
+     * @return configuration with every default.
+     */
+    public static MempoolConfig defaults() {
+        return builder().build();
+    }
+}
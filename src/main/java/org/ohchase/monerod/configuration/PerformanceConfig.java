@@ -0,0 +1,208 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * Configuration for the daemon's throughput settings.
+ * Every setting is optional, the daemon's default applies when it is not set.
+ * Use {@link #of(PerformanceProfile, HostResources)} for a preset, or {@link #auto(Path)} to derive one from the host.
+ */
+@Builder(toBuilder = true)
+public class PerformanceConfig {
+
+    private static final long GIB = 1024L * 1024 * 1024;
+
+    /**
+     * Database sync mode.
+     */
+    @Getter
+    private final DbSyncMode dbSyncMode;
+
+    /**
+     * Number of blocks between asynchronous database syncs.
+     * When not set, the daemon syncs every 250 MB written.
+     */
+    @Getter
+    private final Integer dbSyncBlocks;
+
+    /**
+     * Whether to allow {@link DbSyncMode#FASTEST} on the main network, where a corrupt database means a full resync.
+     */
+    @Getter
+    private final boolean allowUnsafeDbSync;
+
+    /**
+     * Maximum number of threads used for parallel work.
+     */
+    @Getter
+    private final Integer maxConcurrency;
+
+    /**
+     * Number of threads preparing blocks for verification.
+     */
+    @Getter
+    private final Integer prepBlocksThreads;
+
+    /**
+     * Number of blocks requested from a peer at once.
+     */
+    @Getter
+    private final Integer blockSyncSize;
+
+    /**
+     * Whether to skip verification of blocks covered by the embedded checkpoint hashes.
+     */
+    @Getter
+    private final Boolean fastBlockSync;
+
+    /**
+     * Maximum number of outgoing peer connections.
+     */
+    @Getter
+    private final Integer outPeers;
+
+    /**
+     * Maximum number of incoming peer connections.
+     */
+    @Getter
+    private final Integer inPeers;
+
+    /**
+     * Upload limit in kB/s.
+     */
+    @Getter
+    private final Integer limitRateUp;
+
+    /**
+     * Download limit in kB/s.
+     */
+    @Getter
+    private final Integer limitRateDown;
+
+    /**
+     * Creates the configuration of a preset, sized for the given host.
+     * @param profile preset to use.
+     * @param host resources of the host.
+     * @return preset configuration.
+     */
+    public static PerformanceConfig of(PerformanceProfile profile, HostResources host) {
+        int cores = Math.max(1, host.getAvailableProcessors());
+        boolean rotational = Boolean.TRUE.equals(host.getRotationalDisk());
+        return switch (profile) {
+            case INITIAL_SYNC_FAST -> builder()
+                    .dbSyncMode(DbSyncMode.FAST)
+                    // an HDD seeks on every sync, sync less often
+                    .dbSyncBlocks(rotational ? 2000 : 500)
+                    .maxConcurrency(cores)
+                    .prepBlocksThreads(cores)
+                    .blockSyncSize(rotational ? 20 : 100)
+                    .fastBlockSync(true)
+                    .outPeers(64)
+                    .limitRateUp(2048)
+                    .limitRateDown(65536)
+                    .build();
+            case STEADY_STATE -> builder()
+                    .dbSyncMode(DbSyncMode.FAST)
+                    .maxConcurrency(Math.max(1, cores / 2))
+                    .prepBlocksThreads(Math.min(4, cores))
+                    .fastBlockSync(true)
+                    .outPeers(12)
+                    .inPeers(48)
+                    .limitRateUp(2048)
+                    .limitRateDown(8192)
+                    .build();
+            case LOW_RESOURCE -> builder()
+                    .dbSyncMode(DbSyncMode.FAST)
+                    .maxConcurrency(Math.min(2, cores))
+                    .prepBlocksThreads(1)
+                    .blockSyncSize(10)
+                    .fastBlockSync(true)
+                    .outPeers(8)
+                    .inPeers(16)
+                    .limitRateUp(512)
+                    .limitRateDown(4096)
+                    .build();
+            case AUTO -> of(choose(host), host);
+        };
+    }
+
+    /**
+     * Creates the configuration best suited to this host.
+     * @param dataDirectory data directory of the daemon, used to detect the disk type.
+     * @return configuration of the chosen preset.
+     */
+    public static PerformanceConfig auto(Path dataDirectory) {
+        return of(PerformanceProfile.AUTO, HostResources.detect(dataDirectory));
+    }
+
+    /**
+     * Picks a preset for the host: small hosts get {@link PerformanceProfile#LOW_RESOURCE},
+     * hosts with many cores, plenty of memory and a solid state disk {@link PerformanceProfile#INITIAL_SYNC_FAST}.
+     * @param host resources of the host.
+     * @return chosen preset.
+     */
+    public static PerformanceProfile choose(HostResources host) {
+        long memory = host.getTotalMemory();
+        if (host.getAvailableProcessors() <= 2 || (memory > 0 && memory < 4 * GIB)) {
+            return PerformanceProfile.LOW_RESOURCE;
+        }
+        if (host.getAvailableProcessors() >= 4
+                && (memory == 0 || memory >= 8 * GIB)
+                && !Boolean.TRUE.equals(host.getRotationalDisk())) {
+            return PerformanceProfile.INITIAL_SYNC_FAST;
+        }
+        return PerformanceProfile.STEADY_STATE;
+    }
+
+    /**
+     * Checks the settings for the given network.
+     * @param networkType network the daemon runs on.
+     * @throws IllegalArgumentException if a setting is out of range or the combination is unsafe.
+     */
+    public void validate(NetworkType networkType) {
+        if (dbSyncMode == DbSyncMode.FASTEST && networkType == NetworkType.MAIN_NET && !allowUnsafeDbSync) {
+            throw new IllegalArgumentException("db sync mode FASTEST can corrupt the database on a crash,"
+                    + " set allowUnsafeDbSync to use it on the main network");
+        }
+        if (dbSyncBlocks != null && dbSyncMode == null) {
+            throw new IllegalArgumentException("dbSyncBlocks requires a dbSyncMode");
+        }
+        requirePositive("dbSyncBlocks", dbSyncBlocks);
+        requirePositive("maxConcurrency", maxConcurrency);
+        requirePositive("prepBlocksThreads", prepBlocksThreads);
+        requirePositive("blockSyncSize", blockSyncSize);
+        requirePositive("limitRateUp", limitRateUp);
+        requirePositive("limitRateDown", limitRateDown);
+        if (outPeers != null && outPeers < 0) {
+            throw new IllegalArgumentException("outPeers must not be negative: " + outPeers);
+        }
+        if (inPeers != null && inPeers < 0) {
+            throw new IllegalArgumentException("inPeers must not be negative: " + inPeers);
+        }
+        if (outPeers != null && outPeers == 0 && inPeers != null && inPeers == 0) {
+            throw new IllegalArgumentException("A daemon without outgoing and incoming peers can never sync");
+        }
+    }
+
+    /**
+     * @return value of {@code --db-sync-mode}, or null when the daemon default applies.
+     */
+    public String getDbSyncFlag() {
+        if (dbSyncMode == null) {
+            return null;
+        }
+        if (dbSyncBlocks == null) {
+            return dbSyncMode.getFlag();
+        }
+        return dbSyncMode.getFlag() + ":async:" + dbSyncBlocks + "blocks";
+    }
+
+    private static void requirePositive(String name, Integer value) {
+        if (value != null && value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+    }
+}
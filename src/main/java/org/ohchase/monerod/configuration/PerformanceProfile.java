@@ -0,0 +1,25 @@
+package org.ohchase.monerod.configuration;
+
+/**
+ * Enumeration of performance presets, see {@link PerformanceConfig#of(PerformanceProfile, HostResources)}.
+ */
+public enum PerformanceProfile {
+    /**
+     * Catching up with the chain as fast as the host allows.
+     * Many outgoing peers, large block batches, every core verifying.
+     */
+    INITIAL_SYNC_FAST,
+    /**
+     * Following the chain once synced, leaving headroom for other work.
+     */
+    STEADY_STATE,
+    /**
+     * Small hosts such as single-board computers or shared VMs.
+     * Few peers, small batches, limited bandwidth.
+     */
+    LOW_RESOURCE,
+    /**
+     * Picks one of the other presets from the host's cores, memory and disk type.
+     */
+    AUTO
+}
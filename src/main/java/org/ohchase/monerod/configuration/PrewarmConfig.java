@@ -0,0 +1,66 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import org.ohchase.monerod.prewarm.IPrewarmListener;
+
+import java.time.Duration;
+
+/**
+ * Configuration for loading the blockchain database into the page cache before the daemon starts.
+ */
+@Builder
+public class PrewarmConfig {
+
+    /**
+     * Bytes at the end of {@code data.mdb} to load, where LMDB keeps the most recently written pages.
+     * 0 loads the whole file.
+     */
+    @Getter
+    @Builder.Default
+    private final long hotSetBytes = 0;
+
+    /**
+     * Time after which loading stops, so a huge database cannot hold back the start for long.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration timeBudget = Duration.ofSeconds(60);
+
+    /**
+     * Threads loading chunks in parallel.
+     */
+    @Getter
+    @Builder.Default
+    private final int workers = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Bytes mapped and loaded per unit of work, at most 1 GiB.
+     */
+    @Getter
+    @Builder.Default
+    private final long chunkBytes = 64L * 1024 * 1024;
+
+    /**
+     * Time between progress reports.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration progressInterval = Duration.ofSeconds(1);
+
+    /**
+     * Listener for the lock file inspection and progress, may be null.
+     */
+    @Getter
+    private final IPrewarmListener listener;
+
+    /**
+     * @return configuration with every default.
+     */
+    public static PrewarmConfig defaults() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,59 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration for sampling the daemon's resource usage from {@code /proc}.
+ */
+@Builder
+public class ResourceSamplerConfig {
+
+    /**
+     * Time between two samples.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration interval = Duration.ofSeconds(5);
+
+    /**
+     * Number of recent samples kept.
+     */
+    @Getter
+    @Builder.Default
+    private final int historySize = 120;
+
+    /**
+     * Root of the proc filesystem, only changed to read a copy of it.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Path procRoot = Path.of("/proc");
+
+    /**
+     * Clock ticks per second of the CPU times in {@code stat}, {@code getconf CLK_TCK}.
+     */
+    @Getter
+    @Builder.Default
+    private final int clockTicksPerSecond = 100;
+
+    /**
+     * Whether to count open file descriptors, which lists {@code fd} on every sample.
+     */
+    @Getter
+    @Builder.Default
+    private final boolean countFileDescriptors = true;
+
+    /**
+     * @return configuration with every default.
+     */
+    public static ResourceSamplerConfig defaults() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,72 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the caching front proxy of the restricted RPC interface.
+ */
+@Builder
+public class RpcProxyConfig {
+
+    /**
+     * Address the proxy binds to.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final String address = "127.0.0.1";
+
+    /**
+     * Port the proxy binds to, 0 picks a free port.
+     */
+    @Getter
+    private final int port;
+
+    /**
+     * How long responses describing the chain tip, such as {@code get_info}, are served from the cache.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration shortTtl = Duration.ofSeconds(1);
+
+    /**
+     * Confirmations after which blocks and transactions are considered immutable and cached until evicted.
+     */
+    @Getter
+    @Builder.Default
+    private final int confirmations = 10;
+
+    /**
+     * Bytes of responses kept, least recently used ones are evicted beyond it.
+     */
+    @Getter
+    @Builder.Default
+    private final long maxCacheBytes = 64L * 1024 * 1024;
+
+    /**
+     * Threads accepting client requests. Upstream calls do not hold them.
+     */
+    @Getter
+    @Builder.Default
+    private final int threads = 4;
+
+    /**
+     * Timeout of each upstream call.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration upstreamTimeout = Duration.ofSeconds(30);
+
+    /**
+     * @return configuration with every default.
+     */
+    public static RpcProxyConfig defaults() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,54 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Configuration for stopping the daemon.
+ * The daemon is first asked to exit, which lets it close the database cleanly, then sent SIGTERM,
+ * then killed. Stopping takes at most the sum of the three timeouts.
+ */
+@Builder
+public class ShutdownConfig {
+
+    /**
+     * Time the daemon is given to exit after being asked to, including the request itself.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration gracefulTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Time the daemon is given to exit after SIGTERM.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration terminateTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Time waited for the process to disappear after it was killed.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration killTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Whether to ask through the unrestricted RPC interface, when configured, before writing {@code exit} to stdin.
+     */
+    @Getter
+    @Builder.Default
+    private final boolean useRpc = true;
+
+    /**
+     * @return configuration with every default.
+     */
+    public static ShutdownConfig defaults() {
+        return builder().build();
+    }
+}
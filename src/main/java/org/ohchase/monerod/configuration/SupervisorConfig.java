@@ -0,0 +1,84 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Configuration for restarting a daemon that exited unexpectedly.
+ * The delay before a restart grows exponentially from {@link #initialBackoff} up to {@link #maxBackoff},
+ * and resets once an incarnation stayed up for {@link #stableAfter}.
+ */
+@Builder
+public class SupervisorConfig {
+
+    /**
+     * Delay before the first restart after a stable run.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration initialBackoff = Duration.ofSeconds(1);
+
+    /**
+     * Upper bound of the delay before a restart.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration maxBackoff = Duration.ofMinutes(5);
+
+    /**
+     * Factor applied to the delay after every consecutive crash.
+     */
+    @Getter
+    @Builder.Default
+    private final double backoffMultiplier = 2.0;
+
+    /**
+     * Random spread of the delay as a fraction of it, 0.2 giving delays between 80% and 120%.
+     * Keeps daemons that crashed together from restarting in lockstep.
+     */
+    @Getter
+    @Builder.Default
+    private final double jitter = 0.2;
+
+    /**
+     * Uptime after which an incarnation is considered stable and the backoff starts over.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration stableAfter = Duration.ofMinutes(10);
+
+    /**
+     * Window in which {@link #crashLoopThreshold} crashes are considered a crash loop.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration crashLoopWindow = Duration.ofMinutes(10);
+
+    /**
+     * Crashes within the window after which the supervisor gives up.
+     */
+    @Getter
+    @Builder.Default
+    private final int crashLoopThreshold = 5;
+
+    /**
+     * Total restarts allowed over the supervisor's lifetime, 0 for no limit.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxRestarts = 0;
+
+    /**
+     * @return configuration with every default.
+     */
+    public static SupervisorConfig defaults() {
+        return builder().build();
+    }
+}
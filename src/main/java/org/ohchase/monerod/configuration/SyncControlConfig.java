@@ -0,0 +1,126 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the adaptive sync controller.
+ * While catching up, the controller searches for the outgoing peer count with the best sync rate within
+ * {@link #minOutPeers} and {@link #maxOutPeers}. Once synced, it applies the steady-state budgets.
+ */
+@Builder
+public class SyncControlConfig {
+
+    /**
+     * Time between two evaluations.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration interval = Duration.ofSeconds(15);
+
+    /**
+     * Time after a change before its effect on the sync rate is judged.
+     * Should cover the sync statistics window, so the rate reflects the new setting only.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration settleTime = Duration.ofSeconds(90);
+
+    /**
+     * Relative change of the sync rate below which a change is considered to have no effect.
+     */
+    @Getter
+    @Builder.Default
+    private final double deadBand = 0.05;
+
+    /**
+     * Lowest outgoing peer count tried while catching up, at most {@link #maxOutPeers}.
+     */
+    @Getter
+    @Builder.Default
+    private final int minOutPeers = 8;
+
+    /**
+     * Highest outgoing peer count tried while catching up.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxOutPeers = 64;
+
+    /**
+     * Outgoing peers added or removed per step.
+     */
+    @Getter
+    @Builder.Default
+    private final int outPeersStep = 8;
+
+    /**
+     * Outgoing peers when catching up starts.
+     */
+    @Getter
+    @Builder.Default
+    private final int catchUpOutPeers = 32;
+
+    /**
+     * Upload limit in kB/s while catching up.
+     */
+    @Getter
+    @Builder.Default
+    private final int catchUpLimitUp = 2048;
+
+    /**
+     * Download limit in kB/s while catching up.
+     */
+    @Getter
+    @Builder.Default
+    private final int catchUpLimitDown = 65536;
+
+    @Getter
+    @Builder.Default
+    private final int steadyOutPeers = 12;
+
+    @Getter
+    @Builder.Default
+    private final int steadyInPeers = 48;
+
+    /**
+     * Upload limit in kB/s once synced.
+     */
+    @Getter
+    @Builder.Default
+    private final int steadyLimitUp = 2048;
+
+    /**
+     * Download limit in kB/s once synced.
+     */
+    @Getter
+    @Builder.Default
+    private final int steadyLimitDown = 8192;
+
+    /**
+     * Blocks behind the target at which the daemon counts as synced.
+     */
+    @Getter
+    @Builder.Default
+    private final long syncedEnterBlocks = 2;
+
+    /**
+     * Blocks behind the target at which a synced daemon counts as catching up again.
+     * Must be larger than {@link #syncedEnterBlocks}, so a daemon at the tip does not flap between the two.
+     */
+    @Getter
+    @Builder.Default
+    private final long syncedExitBlocks = 30;
+
+    /**
+     * @return configuration with every default.
+     */
+    public static SyncControlConfig defaults() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,45 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the sync statistics engine.
+ */
+@Builder
+public class SyncStatsConfig {
+
+    /**
+     * Length of the sliding window for the windowed sync rate.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration window = Duration.ofMinutes(1);
+
+    /**
+     * Half-life of the exponentially weighted moving average sync rate.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration ewmaHalfLife = Duration.ofSeconds(30);
+
+    /**
+     * Time without a height change, while not synced, after which sync is reported as stalled.
+     */
+    @Getter
+    @NonNull
+    @Builder.Default
+    private final Duration stallTimeout = Duration.ofMinutes(2);
+
+    /**
+     * @return configuration with every default.
+     */
+    public static SyncStatsConfig defaults() {
+        return builder().build();
+    }
+}
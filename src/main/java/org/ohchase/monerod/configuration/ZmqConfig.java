@@ -0,0 +1,35 @@
+package org.ohchase.monerod.configuration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Configuration for the ZMQ interfaces.
+ * When set, the daemon publishes chain and txpool events on a ZMQ PUB socket
+ * instead of running with {@code --no-zmq}.
+ */
+@Builder
+public class ZmqConfig {
+
+    /**
+     * IP address for the ZMQ publisher and ZMQ RPC interface.
+     */
+    @Getter
+    @NonNull
+    private final String address;
+
+    /**
+     * Port number for the ZMQ publisher.
+     */
+    @Getter
+    @NonNull
+    private final Integer pubPort;
+
+    /**
+     * Port number for the ZMQ RPC interface.
+     * When not set, the daemon's default for the network is used.
+     */
+    @Getter
+    private final Integer rpcPort;
+}
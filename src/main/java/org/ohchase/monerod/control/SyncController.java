@@ -0,0 +1,268 @@
+package org.ohchase.monerod.control;
+
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.SyncControlConfig;
+import org.ohchase.monerod.rpc.DaemonRpcClient;
+import org.ohchase.monerod.stats.SyncStats;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Feedback controller adjusting a running daemon's peers and bandwidth limits through the unrestricted RPC interface.
+ * <p>
+ * While catching up, it hill-climbs the outgoing peer count on the windowed sync rate: a step that raised the rate
+ * by more than the dead band is followed by another in the same direction, one that lowered it is reverted,
+ * and the direction is probed again after a few evaluations without change. Every change is given the settle time
+ * before it is judged. Once synced it applies the steady-state budgets, and switches back only when the daemon
+ * falls further behind than the exit threshold, so it does not oscillate at the tip.
+ */
+public class SyncController implements AutoCloseable {
+
+    /**
+     * Evaluations without a significant rate change before the controller probes again.
+     */
+    static final int REPROBE_AFTER = 4;
+
+    /**
+     * Phase of the controller.
+     */
+    public enum State {
+        /**
+         * No budget applied yet, or the last one failed and is applied again.
+         */
+        IDLE,
+        /**
+         * Searching for the peer count with the best sync rate.
+         */
+        CATCHING_UP,
+        /**
+         * Synced, steady-state budgets applied.
+         */
+        STEADY
+    }
+
+    private final Supplier<SyncStats> syncStats;
+
+    private final DaemonRpcClient rpcClient;
+
+    private final SyncControlConfig config;
+
+    private ScheduledFuture<?> task;
+
+    // guarded by this
+    private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+    private int direction = 1;
+    private double baselineRate = Double.NaN;
+    private long lastChangeNanos;
+    private int holds;
+
+    private volatile State state = State.IDLE;
+    private volatile int outPeers;
+    private volatile long adjustments;
+
+    /**
+     * @param syncStats source of the daemon's sync statistics.
+     * @param rpcClient client of the daemon's unrestricted RPC interface.
+     * @param config controller configuration.
+     * @throws IllegalArgumentException if the peer bounds or the synced thresholds are out of order.
+     */
+    public SyncController(Supplier<SyncStats> syncStats, DaemonRpcClient rpcClient, SyncControlConfig config) {
+        if (config.getMinOutPeers() > config.getMaxOutPeers()) {
+            throw new IllegalArgumentException("Minimum outgoing peers above the maximum: "
+                    + config.getMinOutPeers() + " > " + config.getMaxOutPeers());
+        }
+        if (config.getSyncedExitBlocks() <= config.getSyncedEnterBlocks()) {
+            throw new IllegalArgumentException("Synced exit threshold must be above the enter threshold: "
+                    + config.getSyncedExitBlocks() + " <= " + config.getSyncedEnterBlocks());
+        }
+        this.syncStats = syncStats;
+        this.rpcClient = rpcClient;
+        this.config = config;
+    }
+
+    /**
+     * Creates and starts a controller for a running daemon.
+     * @param daemonProcess daemon to control.
+     * @param config controller configuration.
+     * @return started controller.
+     * @throws IllegalArgumentException if the peer bounds or the synced thresholds are out of order.
+     * @throws IllegalStateException if the daemon has no unrestricted RPC interface.
+     */
+    public static SyncController attach(DaemonProcess daemonProcess, SyncControlConfig config) {
+        if (daemonProcess.getDaemonConfig().getRpcConfig() == null) {
+            throw new IllegalStateException("Adaptive control requires the unrestricted RPC interface");
+        }
+        SyncController controller = new SyncController(daemonProcess::getSyncStats, DaemonRpcClient.forDaemon(daemonProcess), config);
+        controller.start();
+        return controller;
+    }
+
+    /**
+     * Starts evaluating on the shared scheduler.
+     */
+    public synchronized void start() {
+        if (task == null) {
+            long interval = config.getInterval().toNanos();
+            task = DaemonExecutors.scheduler().scheduleWithFixedDelay(() -> tick(System.nanoTime()), 0, interval, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops evaluating. Settings applied so far stay in effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return outgoing peer count last applied, 0 before the first.
+     */
+    public int getOutPeers() {
+        return outPeers;
+    }
+
+    /**
+     * @return number of settings applied so far.
+     */
+    public long getAdjustments() {
+        return adjustments;
+    }
+
+    /**
+     * Evaluates the sync statistics once. Skipped while a change is still being applied.
+     * @param nowNanos current {@link System#nanoTime()}.
+     */
+    synchronized void tick(long nowNanos) {
+        if (!pending.isDone()) {
+            return;
+        }
+        SyncStats stats = syncStats.get();
+        if (stats.getTargetHeight() == 0) {
+            // nothing parsed yet
+            return;
+        }
+        long remaining = stats.getRemainingBlocks();
+        switch (state) {
+            case IDLE -> {
+                if (remaining <= config.getSyncedEnterBlocks()) {
+                    enterSteady();
+                } else {
+                    enterCatchUp(nowNanos);
+                }
+            }
+            case CATCHING_UP -> {
+                if (remaining <= config.getSyncedEnterBlocks()) {
+                    enterSteady();
+                } else {
+                    climb(stats, nowNanos);
+                }
+            }
+            case STEADY -> {
+                if (remaining > config.getSyncedExitBlocks()) {
+                    enterCatchUp(nowNanos);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return completion of the change being applied.
+     */
+    synchronized CompletableFuture<Void> pending() {
+        return pending;
+    }
+
+    private void enterCatchUp(long nowNanos) {
+        state = State.CATCHING_UP;
+        direction = 1;
+        baselineRate = Double.NaN;
+        holds = 0;
+        lastChangeNanos = nowNanos;
+        outPeers = clamp(config.getCatchUpOutPeers());
+        apply(CompletableFuture.allOf(
+                rpcClient.setOutPeers(outPeers),
+                rpcClient.setLimit(config.getCatchUpLimitUp(), config.getCatchUpLimitDown())));
+    }
+
+    private void enterSteady() {
+        state = State.STEADY;
+        outPeers = config.getSteadyOutPeers();
+        apply(CompletableFuture.allOf(
+                rpcClient.setOutPeers(outPeers),
+                rpcClient.setInPeers(config.getSteadyInPeers()),
+                rpcClient.setLimit(config.getSteadyLimitUp(), config.getSteadyLimitDown())));
+    }
+
+    private void climb(SyncStats stats, long nowNanos) {
+        if (nowNanos - lastChangeNanos < config.getSettleTime().toNanos()) {
+            return;
+        }
+        double rate = stats.getWindowRate();
+        if (Double.isNaN(baselineRate)) {
+            // first evaluation at the starting point, probe upwards
+            baselineRate = rate;
+            step(nowNanos);
+            return;
+        }
+
+        double change = (rate - baselineRate) / Math.max(baselineRate, 1e-9);
+        if (change > config.getDeadBand()) {
+            // the last step helped, keep going
+            baselineRate = rate;
+            holds = 0;
+            step(nowNanos);
+        } else if (change < -config.getDeadBand()) {
+            // the last step hurt, undo it and keep the previous baseline
+            direction = -direction;
+            holds = 0;
+            step(nowNanos);
+        } else if (++holds >= REPROBE_AFTER) {
+            // conditions drift, probe again from here
+            baselineRate = rate;
+            holds = 0;
+            step(nowNanos);
+        }
+    }
+
+    private void step(long nowNanos) {
+        int next = clamp(outPeers + direction * config.getOutPeersStep());
+        if (next == outPeers) {
+            // at a bound, probe the other way
+            direction = -direction;
+            next = clamp(outPeers + direction * config.getOutPeersStep());
+        }
+        lastChangeNanos = nowNanos;
+        if (next != outPeers) {
+            outPeers = next;
+            apply(rpcClient.setOutPeers(next));
+        }
+    }
+
+    private int clamp(int peers) {
+        return Math.max(config.getMinOutPeers(), Math.min(config.getMaxOutPeers(), peers));
+    }
+
+    private void apply(CompletableFuture<Void> change) {
+        adjustments++;
+        pending = change.whenComplete((result, error) -> {
+            if (error != null) {
+                System.out.println("Warning. Adaptive control could not update the daemon: " + error);
+                synchronized (this) {
+                    // apply the budget of the current phase again
+                    state = State.IDLE;
+                }
+            }
+        });
+    }
+}
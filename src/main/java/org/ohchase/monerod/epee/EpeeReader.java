@@ -0,0 +1,385 @@
+package org.ohchase.monerod.epee;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming pull parser for the epee portable storage format of monerod's binary RPC endpoints.
+ * It works directly on a {@link ByteBuffer}: blobs are returned as slices of it, never copied,
+ * and values the caller does not ask for are skipped without being decoded.
+ * <p>
+ * A document is a root object: call {@link #beginObject()} first, then alternate {@link #nextName()} with a value method
+ * while {@link #hasNext()}, and finish with {@link #endObject()}. Arrays are read the same way between
+ * {@link #beginArray()} and {@link #endArray()}, without names. Not thread-safe.
+ */
+public final class EpeeReader {
+
+    /**
+     * Signature and version opening every document, as written on the wire.
+     */
+    static final int SIGNATURE_A = 0x01011101;
+    static final int SIGNATURE_B = 0x01020101;
+    static final byte VERSION = 1;
+
+    private static final int MAX_DEPTH = 64;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * Entries or elements left per nesting level.
+     */
+    private final long[] remaining = new long[MAX_DEPTH];
+
+    /**
+     * Element type per nesting level, null for objects.
+     */
+    private final EpeeType[] elementTypes = new EpeeType[MAX_DEPTH];
+
+    private int depth = -1;
+
+    /**
+     * Type of the value following the name just read, or of the root object before it is opened.
+     */
+    private EpeeType pendingType = EpeeType.OBJECT;
+
+    /**
+     * Whether the pending value is an array of {@link #pendingType}.
+     */
+    private boolean pendingArray;
+
+    /**
+     * @param document buffer holding a whole document from its position to its limit. Its position is not changed.
+     * @throws IOException if the document does not start with the portable storage signature.
+     */
+    public EpeeReader(ByteBuffer document) throws IOException {
+        this.buffer = document.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 9 || buffer.getInt() != SIGNATURE_A || buffer.getInt() != SIGNATURE_B || buffer.get() != VERSION) {
+            throw new IOException("Not an epee portable storage document");
+        }
+    }
+
+    /**
+     * @return true if the current object or array has more entries.
+     */
+    public boolean hasNext() {
+        return depth >= 0 && remaining[depth] > 0;
+    }
+
+    /**
+     * @return type of the next value, {@link EpeeType#ARRAY} for any array.
+     * @throws IOException if not positioned before a value.
+     */
+    public EpeeType peek() throws IOException {
+        if (depth >= 0 && elementTypes[depth] != null) {
+            return elementTypes[depth];
+        }
+        if (pendingType == null) {
+            throw new IOException("Expected a member name");
+        }
+        return pendingArray ? EpeeType.ARRAY : pendingType;
+    }
+
+    /**
+     * Reads the name of the next object member.
+     * @return member name.
+     * @throws IOException if not inside an object or the document is malformed.
+     */
+    public String nextName() throws IOException {
+        if (depth < 0 || elementTypes[depth] != null || pendingType != null) {
+            throw new IOException("Not positioned before a member name");
+        }
+        if (remaining[depth] == 0) {
+            throw new IOException("No more members in object");
+        }
+        remaining[depth]--;
+        int length = get() & 0xFF;
+        checkedLength(length);
+        String name;
+        if (buffer.hasArray()) {
+            name = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.US_ASCII);
+            skip(length);
+        } else {
+            name = new String(bytes(length), StandardCharsets.US_ASCII);
+        }
+        int code = get() & 0xFF;
+        pendingArray = (code & EpeeType.ARRAY_FLAG) != 0;
+        pendingType = EpeeType.fromCode(code & ~EpeeType.ARRAY_FLAG);
+        if (pendingType == null) {
+            throw new IOException("Unknown type " + code + " of member " + name);
+        }
+        return name;
+    }
+
+    public void beginObject() throws IOException {
+        if (nextType() != EpeeType.OBJECT) {
+            throw new IOException("Expected an object");
+        }
+        push(null, readCount());
+    }
+
+    public void endObject() throws IOException {
+        pop(false);
+    }
+
+    /**
+     * Opens an array, after which its elements are read without names.
+     * @return number of elements.
+     * @throws IOException if the next value is not an array.
+     */
+    public int beginArray() throws IOException {
+        EpeeType elementType;
+        if (depth >= 0 && elementTypes[depth] != null) {
+            // element of an array of arrays, carrying its own type
+            if (elementTypes[depth] != EpeeType.ARRAY) {
+                throw new IOException("Expected an array");
+            }
+            remaining[depth]--;
+            int code = get() & 0xFF;
+            elementType = EpeeType.fromCode(code & ~EpeeType.ARRAY_FLAG);
+            if ((code & EpeeType.ARRAY_FLAG) == 0 || elementType == null) {
+                throw new IOException("Malformed nested array type " + code);
+            }
+        } else {
+            if (pendingType == null || !pendingArray) {
+                throw new IOException("Expected an array");
+            }
+            elementType = pendingType;
+            pendingType = null;
+        }
+        long count = readCount();
+        push(elementType, count);
+        return (int) count;
+    }
+
+    public void endArray() throws IOException {
+        pop(true);
+    }
+
+    /**
+     * Reads an integer of any width. Unsigned 64-bit values above {@link Long#MAX_VALUE} come back negative.
+     * @return the value.
+     * @throws IOException if the next value is not an integer.
+     */
+    public long nextLong() throws IOException {
+        EpeeType type = nextType();
+        try {
+            return switch (type) {
+                case INT64, UINT64 -> buffer.getLong();
+                case INT32 -> buffer.getInt();
+                case UINT32 -> buffer.getInt() & 0xFFFFFFFFL;
+                case INT16 -> buffer.getShort();
+                case UINT16 -> buffer.getShort() & 0xFFFF;
+                case INT8 -> buffer.get();
+                case UINT8 -> buffer.get() & 0xFF;
+                default -> throw new IOException("Expected an integer, got " + type);
+            };
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if (value != (int) value) {
+            throw new IOException("Integer out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    public double nextDouble() throws IOException {
+        EpeeType type = nextType();
+        if (type != EpeeType.DOUBLE) {
+            throw new IOException("Expected a double, got " + type);
+        }
+        try {
+            return buffer.getDouble();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public boolean nextBoolean() throws IOException {
+        EpeeType type = nextType();
+        if (type != EpeeType.BOOL) {
+            throw new IOException("Expected a boolean, got " + type);
+        }
+        return get() != 0;
+    }
+
+    /**
+     * Reads a string value as raw bytes, without copying.
+     * @return read-only slice of the document, valid as long as the document's buffer is not modified.
+     * @throws IOException if the next value is not a string.
+     */
+    public ByteBuffer nextBlob() throws IOException {
+        EpeeType type = nextType();
+        if (type != EpeeType.STRING) {
+            throw new IOException("Expected a string, got " + type);
+        }
+        int length = checkedLength(readCount());
+        int start = buffer.position();
+        buffer.position(start + length);
+        return buffer.slice(start, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Reads a string value as UTF-8 text.
+     * @return the text.
+     * @throws IOException if the next value is not a string.
+     */
+    public String nextString() throws IOException {
+        ByteBuffer blob = nextBlob();
+        return StandardCharsets.UTF_8.decode(blob).toString();
+    }
+
+    /**
+     * Skips the next value, including everything nested in it.
+     * @throws IOException if the document is malformed.
+     */
+    public void skipValue() throws IOException {
+        if (depth >= 0 && elementTypes[depth] == null && pendingType == null) {
+            // positioned before a name, skip the whole member
+            nextName();
+        }
+        EpeeType type = peek();
+        switch (type) {
+            case OBJECT -> {
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+            }
+            case ARRAY -> {
+                beginArray();
+                skipElements();
+                endArray();
+            }
+            case STRING -> nextBlob();
+            default -> {
+                nextType();
+                skip(type.getSize());
+            }
+        }
+    }
+
+    /**
+     * @return bytes consumed so far, including the signature.
+     */
+    public int getPosition() {
+        return buffer.position();
+    }
+
+    private void skipElements() throws IOException {
+        EpeeType elementType = elementTypes[depth];
+        if (elementType.getSize() > 0) {
+            // fixed size elements are skipped at once
+            long bytes = remaining[depth] * elementType.getSize();
+            skip(checkedLength(bytes));
+            remaining[depth] = 0;
+            return;
+        }
+        while (hasNext()) {
+            skipValue();
+        }
+    }
+
+    /**
+     * Consumes the type of the next value.
+     */
+    private EpeeType nextType() throws IOException {
+        if (depth >= 0 && elementTypes[depth] != null) {
+            if (remaining[depth] == 0) {
+                throw new IOException("No more elements in array");
+            }
+            remaining[depth]--;
+            return elementTypes[depth];
+        }
+        EpeeType type = pendingType;
+        if (type == null) {
+            throw new IOException("Expected a member name");
+        }
+        if (pendingArray) {
+            throw new IOException("Expected an array reader call, got an array of " + type);
+        }
+        pendingType = null;
+        return type;
+    }
+
+    private void push(EpeeType elementType, long count) throws IOException {
+        if (depth + 1 == MAX_DEPTH) {
+            throw new IOException("Nesting deeper than " + MAX_DEPTH);
+        }
+        depth++;
+        remaining[depth] = count;
+        elementTypes[depth] = elementType;
+    }
+
+    private void pop(boolean array) throws IOException {
+        if (depth < 0 || (elementTypes[depth] != null) != array) {
+            throw new IOException(array ? "Not inside an array" : "Not inside an object");
+        }
+        if (remaining[depth] != 0 || pendingType != null) {
+            throw new IOException("Closing " + (array ? "array" : "object") + " with " + remaining[depth] + " entries left");
+        }
+        depth--;
+    }
+
+    /**
+     * Reads a variable length count, whose two low bits give its width of 1, 2, 4 or 8 bytes.
+     */
+    private long readCount() throws IOException {
+        try {
+            int first = buffer.get(buffer.position()) & 0xFF;
+            long count = switch (first & 0x03) {
+                case 0 -> buffer.get() & 0xFFL;
+                case 1 -> buffer.getShort() & 0xFFFFL;
+                case 2 -> buffer.getInt() & 0xFFFFFFFFL;
+                default -> buffer.getLong();
+            };
+            count >>>= 2;
+            if (count > buffer.remaining()) {
+                // every entry takes at least one byte
+                throw new IOException("Count " + count + " exceeds the document");
+            }
+            return count;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw truncated();
+        }
+    }
+
+    private int checkedLength(long length) throws IOException {
+        if (length > buffer.remaining()) {
+            throw truncated();
+        }
+        return (int) length;
+    }
+
+    private byte get() throws IOException {
+        if (!buffer.hasRemaining()) {
+            throw truncated();
+        }
+        return buffer.get();
+    }
+
+    private void skip(int bytes) throws IOException {
+        if (bytes > buffer.remaining()) {
+            throw truncated();
+        }
+        buffer.position(buffer.position() + bytes);
+    }
+
+    private byte[] bytes(int length) throws IOException {
+        byte[] bytes = new byte[checkedLength(length)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private IOException truncated() {
+        return new IOException("Truncated epee document at " + buffer.position());
+    }
+}
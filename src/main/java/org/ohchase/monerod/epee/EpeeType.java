@@ -0,0 +1,71 @@
+package org.ohchase.monerod.epee;
+
+/**
+ * Value types of the epee portable storage format.
+ */
+public enum EpeeType {
+    INT64(1, 8),
+    INT32(2, 4),
+    INT16(3, 2),
+    INT8(4, 1),
+    UINT64(5, 8),
+    UINT32(6, 4),
+    UINT16(7, 2),
+    UINT8(8, 1),
+    DOUBLE(9, 8),
+    /**
+     * Length-prefixed bytes, used for both text and binary blobs.
+     */
+    STRING(10, -1),
+    BOOL(11, 1),
+    OBJECT(12, -1),
+    /**
+     * Array of arrays. Arrays of other types are marked by {@link #ARRAY_FLAG} on their element type instead.
+     */
+    ARRAY(13, -1);
+
+    /**
+     * Set on the type code of an array's elements to mark the array.
+     */
+    public static final int ARRAY_FLAG = 0x80;
+
+    private static final EpeeType[] BY_CODE = new EpeeType[14];
+
+    static {
+        for (EpeeType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+
+    /**
+     * Encoded size of a value, -1 if variable.
+     */
+    private final int size;
+
+    EpeeType(int code, int size) {
+        this.code = code;
+        this.size = size;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    boolean isInteger() {
+        return code <= UINT8.code;
+    }
+
+    /**
+     * @param code type code without the array flag.
+     * @return the type, or null if unknown.
+     */
+    static EpeeType fromCode(int code) {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
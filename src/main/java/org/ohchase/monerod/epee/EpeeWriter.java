@@ -0,0 +1,149 @@
+package org.ohchase.monerod.epee;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal writer of epee portable storage documents, for binary RPC requests.
+ * Counts precede the entries in this format, so objects and arrays are opened with their size and need no closing call.
+ * A value written right after {@link #name(String)} is a member, otherwise an array element or the root object.
+ */
+public final class EpeeWriter {
+
+    private ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+
+    private String pendingName;
+
+    public EpeeWriter() {
+        buffer.putInt(EpeeReader.SIGNATURE_A).putInt(EpeeReader.SIGNATURE_B).put(EpeeReader.VERSION);
+    }
+
+    /**
+     * Writes an object member name, to be followed by exactly one value.
+     * @param name member name, at most 255 ASCII characters.
+     * @return this writer.
+     */
+    public EpeeWriter name(String name) {
+        if (name.length() > 255) {
+            throw new IllegalArgumentException("Member name too long: " + name);
+        }
+        pendingName = name;
+        return this;
+    }
+
+    /**
+     * Opens an object or the root object.
+     * @param entries number of members that follow.
+     * @return this writer.
+     */
+    public EpeeWriter beginObject(int entries) {
+        type(EpeeType.OBJECT.getCode());
+        count(entries);
+        return this;
+    }
+
+    /**
+     * Opens an array member.
+     * @param elementType type of the elements.
+     * @param count number of elements that follow.
+     * @return this writer.
+     */
+    public EpeeWriter beginArray(EpeeType elementType, int count) {
+        type(EpeeType.ARRAY_FLAG | elementType.getCode());
+        count(count);
+        return this;
+    }
+
+    public EpeeWriter uint64(long value) {
+        type(EpeeType.UINT64.getCode());
+        ensure(8).putLong(value);
+        return this;
+    }
+
+    public EpeeWriter uint32(long value) {
+        type(EpeeType.UINT32.getCode());
+        ensure(4).putInt((int) value);
+        return this;
+    }
+
+    public EpeeWriter value(boolean value) {
+        type(EpeeType.BOOL.getCode());
+        ensure(1).put((byte) (value ? 1 : 0));
+        return this;
+    }
+
+    public EpeeWriter value(String value) {
+        return blob(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public EpeeWriter blob(byte[] value) {
+        type(EpeeType.STRING.getCode());
+        count(value.length);
+        ensure(value.length).put(value);
+        return this;
+    }
+
+    /**
+     * Writes an array member of unsigned 64-bit integers.
+     * @param values elements.
+     * @return this writer.
+     */
+    public EpeeWriter uint64Array(long[] values) {
+        beginArray(EpeeType.UINT64, values.length);
+        ByteBuffer out = ensure(values.length * 8);
+        for (long value : values) {
+            out.putLong(value);
+        }
+        return this;
+    }
+
+    /**
+     * @return the document written so far.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Writes the pending member name and the value's type code, if the value is a member.
+     */
+    private void type(int code) {
+        if (pendingName == null) {
+            return;
+        }
+        ensure(pendingName.length() + 2);
+        buffer.put((byte) pendingName.length());
+        for (int i = 0; i < pendingName.length(); i++) {
+            buffer.put((byte) pendingName.charAt(i));
+        }
+        buffer.put((byte) code);
+        pendingName = null;
+    }
+
+    /**
+     * Writes a count in the narrowest of the 1, 2, 4 or 8 byte forms.
+     */
+    private void count(long count) {
+        if (count < 1L << 6) {
+            ensure(1).put((byte) (count << 2));
+        } else if (count < 1L << 14) {
+            ensure(2).putShort((short) (count << 2 | 1));
+        } else if (count < 1L << 30) {
+            ensure(4).putInt((int) (count << 2 | 2));
+        } else {
+            ensure(8).putLong(count << 2 | 3);
+        }
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,88 @@
+package org.ohchase.monerod.events;
+
+import org.ohchase.monerod.IDaemonListener;
+
+/**
+ * Event of a daemon, as published by {@link DaemonEventPublisher}.
+ * Every event carries the {@link System#nanoTime()} at which it was read from the daemon's output.
+ */
+public sealed interface DaemonEvent {
+
+    /**
+     * @return {@link System#nanoTime()} when the event was read.
+     */
+    long nanoTime();
+
+    /**
+     * Progress events may be conflated or dropped under backpressure, lifecycle events never are.
+     * @return true for sync progress and new top block candidates.
+     */
+    default boolean isProgress() {
+        return false;
+    }
+
+    /**
+     * Calls the matching method of a listener.
+     * @param listener listener to notify.
+     */
+    void dispatch(IDaemonListener listener);
+
+    record RpcReady(long nanoTime) implements DaemonEvent {
+        @Override
+        public void dispatch(IDaemonListener listener) {
+            listener.onRpcReady();
+        }
+    }
+
+    record P2PReady(long nanoTime) implements DaemonEvent {
+        @Override
+        public void dispatch(IDaemonListener listener) {
+            listener.onP2PReady();
+        }
+    }
+
+    record DaemonStarted(long nanoTime) implements DaemonEvent {
+        @Override
+        public void dispatch(IDaemonListener listener) {
+            listener.onDaemonStarted();
+        }
+    }
+
+    record DaemonKilled(long nanoTime) implements DaemonEvent {
+        @Override
+        public void dispatch(IDaemonListener listener) {
+            listener.onDaemonKilled();
+        }
+    }
+
+    record DaemonExited(long nanoTime, int exitCode) implements DaemonEvent {
+        @Override
+        public void dispatch(IDaemonListener listener) {
+            listener.onDaemonExited(exitCode);
+        }
+    }
+
+    record NewTopBlockCandidate(long nanoTime, long currentHeight, long candidateHeight) implements DaemonEvent {
+        @Override
+        public boolean isProgress() {
+            return true;
+        }
+
+        @Override
+        public void dispatch(IDaemonListener listener) {
+            listener.onNewTopBlockCandidate(currentHeight, candidateHeight);
+        }
+    }
+
+    record SyncProgress(long nanoTime, long currentHeight, long targetHeight) implements DaemonEvent {
+        @Override
+        public boolean isProgress() {
+            return true;
+        }
+
+        @Override
+        public void dispatch(IDaemonListener listener) {
+            listener.onSyncProgress(currentHeight, targetHeight);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package org.ohchase.monerod.events;
+
+import org.ohchase.monerod.IDaemonListener;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes a daemon's events to any number of subscribers.
+ * <p>
+ * It sits in the listener chain on the reader thread: every event is passed on to the delegate listener, then offered
+ * to each subscription's bounded queue under a lock that is never held while a subscriber runs, so a slow subscriber
+ * never blocks the reader. Each subscription is drained on an executor, honouring its demand, and handles a full queue
+ * according to its {@link OverflowPolicy}. Subscribers only see events published after they subscribed,
+ * and are completed once the daemon's output ended or it was stopped.
+ * <p>
+ * Events are timestamped before the delegate runs, and a throwing delegate neither keeps them from subscribers
+ * nor stops the reader.
+ */
+public class DaemonEventPublisher implements Flow.Publisher<DaemonEvent>, IDaemonListener {
+
+    /**
+     * Queue capacity of {@link #subscribe(Flow.Subscriber)}.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final IDaemonListener delegate;
+
+    private final Executor executor;
+
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean completed;
+
+    /**
+     * @param delegate listener called first with every event, on the reader thread.
+     */
+    public DaemonEventPublisher(IDaemonListener delegate) {
+        this(delegate, DaemonExecutors.ioExecutor());
+    }
+
+    /**
+     * @param delegate listener called first with every event, on the reader thread.
+     * @param executor executor delivering events to subscribers.
+     */
+    public DaemonEventPublisher(IDaemonListener delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    /**
+     * Subscribes with a queue of {@link #DEFAULT_CAPACITY} events and the {@link OverflowPolicy#BLOCK} policy.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super DaemonEvent> subscriber) {
+        subscribe(subscriber, DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Subscribes to the events published from now on.
+     * @param subscriber subscriber, called on the publisher's executor.
+     * @param capacity queued events above which the overflow policy applies to progress events.
+     * @param policy what to do with progress events once the queue is full.
+     */
+    public void subscribe(Flow.Subscriber<? super DaemonEvent> subscriber, int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Subscription capacity must be positive: " + capacity);
+        }
+        EventSubscription subscription = new EventSubscription(subscriber, capacity, policy);
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+        if (completed) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Completes every subscription once its queued events were delivered. Later events are not published.
+     */
+    public void complete() {
+        completed = true;
+        for (EventSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * @return number of current subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * @return progress events dropped or conflated away over all subscriptions.
+     */
+    public long getDroppedEvents() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void onRpcReady() {
+        long nanoTime = System.nanoTime();
+        try {
+            delegate.onRpcReady();
+        } catch (RuntimeException e) {
+            delegateFailed(e);
+        }
+        if (!subscriptions.isEmpty()) {
+            publish(new DaemonEvent.RpcReady(nanoTime));
+        }
+    }
+
+    @Override
+    public void onP2PReady() {
+        long nanoTime = System.nanoTime();
+        try {
+            delegate.onP2PReady();
+        } catch (RuntimeException e) {
+            delegateFailed(e);
+        }
+        if (!subscriptions.isEmpty()) {
+            publish(new DaemonEvent.P2PReady(nanoTime));
+        }
+    }
+
+    @Override
+    public void onDaemonStarted() {
+        long nanoTime = System.nanoTime();
+        try {
+            delegate.onDaemonStarted();
+        } catch (RuntimeException e) {
+            delegateFailed(e);
+        }
+        if (!subscriptions.isEmpty()) {
+            publish(new DaemonEvent.DaemonStarted(nanoTime));
+        }
+    }
+
+    @Override
+    public void onDaemonKilled() {
+        long nanoTime = System.nanoTime();
+        try {
+            delegate.onDaemonKilled();
+        } catch (RuntimeException e) {
+            delegateFailed(e);
+        }
+        if (!subscriptions.isEmpty()) {
+            publish(new DaemonEvent.DaemonKilled(nanoTime));
+        }
+    }
+
+    @Override
+    public void onDaemonExited(int exitCode) {
+        long nanoTime = System.nanoTime();
+        try {
+            delegate.onDaemonExited(exitCode);
+        } catch (RuntimeException e) {
+            delegateFailed(e);
+        }
+        if (!subscriptions.isEmpty()) {
+            publish(new DaemonEvent.DaemonExited(nanoTime, exitCode));
+        }
+    }
+
+    @Override
+    public void onNewTopBlockCandidate(long currentHeight, long candidateHeight) {
+        long nanoTime = System.nanoTime();
+        try {
+            delegate.onNewTopBlockCandidate(currentHeight, candidateHeight);
+        } catch (RuntimeException e) {
+            delegateFailed(e);
+        }
+        if (!subscriptions.isEmpty()) {
+            publish(new DaemonEvent.NewTopBlockCandidate(nanoTime, currentHeight, candidateHeight));
+        }
+    }
+
+    @Override
+    public void onSyncProgress(long currentHeight, long targetHeight) {
+        long nanoTime = System.nanoTime();
+        try {
+            delegate.onSyncProgress(currentHeight, targetHeight);
+        } catch (RuntimeException e) {
+            delegateFailed(e);
+        }
+        if (!subscriptions.isEmpty()) {
+            publish(new DaemonEvent.SyncProgress(nanoTime, currentHeight, targetHeight));
+        }
+    }
+
+    private static void delegateFailed(RuntimeException e) {
+        System.out.println("Warning. Daemon listener failed: " + e);
+    }
+
+    private void publish(DaemonEvent event) {
+        if (completed) {
+            return;
+        }
+        for (EventSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Bounded queue of one subscriber, drained by at most one task at a time.
+     */
+    private final class EventSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super DaemonEvent> subscriber;
+
+        private final int capacity;
+
+        private final OverflowPolicy policy;
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        // guarded by this
+        private final ArrayDeque<DaemonEvent> queue = new ArrayDeque<>();
+        private DaemonEvent pendingSync;
+        private DaemonEvent pendingCandidate;
+        private long demand;
+        private boolean completing;
+        private boolean terminated;
+
+        private volatile boolean cancelled;
+
+        private EventSubscription(Flow.Subscriber<? super DaemonEvent> subscriber, int capacity, OverflowPolicy policy) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.policy = policy;
+        }
+
+        void offer(DaemonEvent event) {
+            synchronized (this) {
+                if (cancelled || completing) {
+                    return;
+                }
+                if (!event.isProgress()) {
+                    // conflated progress read before the event is delivered before it
+                    movePending();
+                    queue.addLast(event);
+                } else {
+                    switch (policy) {
+                        case BLOCK -> {
+                            if (queue.size() < capacity && pendingOf(event) == null) {
+                                queue.addLast(event);
+                            } else {
+                                setPending(event);
+                            }
+                        }
+                        case DROP_OLDEST -> {
+                            if (queue.size() >= capacity) {
+                                dropOldestProgress();
+                            }
+                            queue.addLast(event);
+                        }
+                        case CONFLATE -> setPending(event);
+                    }
+                }
+            }
+            schedule();
+        }
+
+        void complete() {
+            synchronized (this) {
+                completing = true;
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Requested " + n + " events, must be positive"));
+                return;
+            }
+            synchronized (this) {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                while (true) {
+                    DaemonEvent next = null;
+                    boolean finished = false;
+                    synchronized (this) {
+                        if (cancelled) {
+                            queue.clear();
+                            pendingSync = null;
+                            pendingCandidate = null;
+                            return;
+                        }
+                        // pending progress stays conflated until it can be delivered
+                        if (queue.isEmpty() && demand > 0) {
+                            movePending();
+                        }
+                        if (queue.isEmpty()) {
+                            if (completing && !terminated && pendingSync == null && pendingCandidate == null) {
+                                terminated = true;
+                                finished = true;
+                            }
+                        } else if (demand > 0) {
+                            next = queue.pollFirst();
+                            if (demand != Long.MAX_VALUE) {
+                                demand--;
+                            }
+                        }
+                    }
+                    if (finished) {
+                        subscriptions.remove(this);
+                        try {
+                            subscriber.onComplete();
+                        } catch (RuntimeException e) {
+                            System.out.println("Warning. Daemon event subscriber failed on completion: " + e);
+                        }
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    try {
+                        subscriber.onNext(next);
+                    } catch (RuntimeException e) {
+                        System.out.println("Warning. Daemon event subscriber failed, cancelling its subscription: " + e);
+                        cancel();
+                        return;
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        private DaemonEvent pendingOf(DaemonEvent event) {
+            return event instanceof DaemonEvent.SyncProgress ? pendingSync : pendingCandidate;
+        }
+
+        private void setPending(DaemonEvent event) {
+            if (event instanceof DaemonEvent.SyncProgress) {
+                if (pendingSync != null) {
+                    dropped.increment();
+                }
+                pendingSync = event;
+            } else {
+                if (pendingCandidate != null) {
+                    dropped.increment();
+                }
+                pendingCandidate = event;
+            }
+        }
+
+        private void movePending() {
+            DaemonEvent first = pendingSync;
+            DaemonEvent second = pendingCandidate;
+            if (first != null && second != null && second.nanoTime() < first.nanoTime()) {
+                first = pendingCandidate;
+                second = pendingSync;
+            }
+            if (first != null) {
+                queue.addLast(first);
+            }
+            if (second != null) {
+                queue.addLast(second);
+            }
+            pendingSync = null;
+            pendingCandidate = null;
+        }
+
+        private void dropOldestProgress() {
+            for (Iterator<DaemonEvent> iterator = queue.iterator(); iterator.hasNext(); ) {
+                if (iterator.next().isProgress()) {
+                    iterator.remove();
+                    dropped.increment();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.ohchase.monerod.events;
+
+import org.ohchase.monerod.IDaemonListener;
+
+import java.util.concurrent.Flow;
+
+/**
+ * Subscriber passing every event to an {@link IDaemonListener}, so existing listeners can be moved off the reader thread.
+ */
+public class ListenerSubscriber implements Flow.Subscriber<DaemonEvent> {
+
+    private final IDaemonListener listener;
+
+    private Flow.Subscription subscription;
+
+    /**
+     * @param listener listener to notify.
+     */
+    public ListenerSubscriber(IDaemonListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(DaemonEvent event) {
+        event.dispatch(listener);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        System.out.println("Warning. Daemon event stream failed: " + throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        // nothing more will arrive
+    }
+
+    /**
+     * Stops receiving events.
+     */
+    public void cancel() {
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.ohchase.monerod.events;
+
+/**
+ * What a subscription does with progress events once its queue is full.
+ * Lifecycle events are never dropped under any policy, they are queued beyond the capacity.
+ * The reader of the daemon's output is never blocked either way.
+ */
+public enum OverflowPolicy {
+    /**
+     * Holds progress back instead of dropping the queued events, the way a blocking queue would hold back its producer.
+     * While the queue is full, only the latest progress event of each kind is kept aside, and queued once it drained.
+     */
+    BLOCK,
+    /**
+     * Drops the oldest queued progress event to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Keeps at most one pending progress event of each kind, the latest, whether the queue is full or not.
+     */
+    CONFLATE
+}
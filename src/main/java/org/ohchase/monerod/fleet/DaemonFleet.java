@@ -0,0 +1,380 @@
+package org.ohchase.monerod.fleet;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.DaemonStartup;
+import org.ohchase.monerod.IDaemonListener;
+import org.ohchase.monerod.ReaderPool;
+import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.configuration.NetworkType;
+import org.ohchase.monerod.configuration.P2PConfig;
+import org.ohchase.monerod.configuration.RestrictedRpcConfig;
+import org.ohchase.monerod.configuration.RpcConfig;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Manages many monerod instances on one host.
+ * Daemons get non-conflicting ports and a data directory per network and name,
+ * and their output is drained by a shared {@link ReaderPool} instead of a thread per daemon.
+ * The aggregate {@link FleetStatus} is maintained as events arrive, so querying it is O(1).
+ */
+public class DaemonFleet implements AutoCloseable {
+
+    @Getter
+    private final Path monerodBinary;
+
+    /**
+     * Root of the data directories, each daemon uses {@code <root>/<network>/<name>}.
+     */
+    @Getter
+    private final Path rootDirectory;
+
+    /**
+     * Address the daemons bind their P2P and RPC interfaces to.
+     */
+    @Getter
+    private final String bindAddress;
+
+    private final ReaderPool readerPool;
+
+    private final PortAllocator portAllocator;
+
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+
+    // guarded by this
+    private final List<Member> ordered = new ArrayList<>();
+    private int startedCount;
+    private int syncedCount;
+    private Member slowest;
+
+    private volatile FleetStatus status = FleetStatus.EMPTY;
+
+    /**
+     * @param monerodBinary Path for the monerod binary.
+     * @param rootDirectory Root of the data directories.
+     * @param bindAddress Address to bind P2P and RPC to, defaults to loopback.
+     * @param readerPool Pool reading daemon output, defaults to {@link ReaderPool#automatic(int)} with one thread per two cores.
+     */
+    @Builder
+    private DaemonFleet(@NonNull Path monerodBinary, @NonNull Path rootDirectory, String bindAddress, ReaderPool readerPool) throws IOException {
+        this.monerodBinary = monerodBinary;
+        this.rootDirectory = rootDirectory;
+        this.bindAddress = bindAddress != null ? bindAddress : "127.0.0.1";
+        this.readerPool = readerPool != null
+                ? readerPool
+                : ReaderPool.automatic(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        this.portAllocator = new PortAllocator(InetAddress.getByName(this.bindAddress));
+    }
+
+    /**
+     * Starts a daemon with default settings.
+     * @see #start(String, NetworkType, IDaemonListener, Consumer)
+     */
+    public DaemonStartup start(String name, NetworkType networkType, IDaemonListener daemonListener) throws IOException {
+        return start(name, networkType, daemonListener, builder -> {
+        });
+    }
+
+    /**
+     * Starts a daemon in the fleet.
+     * @param name unique name of the daemon, also its data directory name.
+     * @param networkType network of the daemon.
+     * @param daemonListener listener for the daemon's events.
+     *                       It may be called on a thread shared with other daemons and must not block, see {@link ReaderPool}.
+     * @param customizer adjusts the configuration after ports and data directory were filled in.
+     * @return progress of the start.
+     * @throws IOException if the data directory cannot be created.
+     */
+    public DaemonStartup start(String name, NetworkType networkType, IDaemonListener daemonListener,
+                               Consumer<DaemonConfig.DaemonConfigBuilder> customizer) throws IOException {
+        if (name.isEmpty() || name.contains("/") || name.contains("\\") || name.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid daemon name: " + name);
+        }
+
+        Path dataDirectory = rootDirectory.resolve(networkType.name().toLowerCase(Locale.ROOT)).resolve(name);
+        Files.createDirectories(dataDirectory);
+
+        Member member = join(name, networkType, daemonListener);
+        try {
+            DaemonConfig.DaemonConfigBuilder builder = DaemonConfig.builder()
+                    .networkType(networkType)
+                    .dataDirectory(dataDirectory)
+                    .p2pConfig(P2PConfig.builder().address(bindAddress).port(member.ports.getP2pPort()).build())
+                    .rpcConfig(RpcConfig.builder().address(bindAddress).port(member.ports.getRpcPort()).build())
+                    .restrictedRpcConfig(RestrictedRpcConfig.builder().address(bindAddress).port(member.ports.getRestrictedRpcPort()).build());
+            customizer.accept(builder);
+
+            member.startup = DaemonProcess.startAsync(monerodBinary, member, builder.build(), readerPool);
+            member.startup.getStarted().whenComplete((process, error) -> {
+                if (error != null) {
+                    remove(member);
+                }
+            });
+            return member.startup;
+        } catch (RuntimeException e) {
+            remove(member);
+            throw e;
+        }
+    }
+
+    /**
+     * Stops a daemon and removes it from the fleet.
+     * @param name name of the daemon.
+     * @return exit code of the daemon.
+     * @throws IllegalArgumentException if no such daemon is in the fleet.
+     */
+    public int stop(String name) {
+        Member member = members.get(name);
+        if (member == null) {
+            throw new IllegalArgumentException("No daemon in fleet: " + name);
+        }
+        DaemonProcess daemonProcess = member.startup != null ? member.startup.getDaemonProcess() : null;
+        member.stopping = true;
+        try {
+            if (daemonProcess == null && member.startup != null) {
+                // still prewarming, make sure it is never launched
+                member.startup.cancel();
+            }
+            return daemonProcess != null ? daemonProcess.stop() : -1;
+        } finally {
+            remove(member);
+        }
+    }
+
+    /**
+     * Stops every daemon of the fleet.
+     */
+    public void stopAll() {
+        for (String name : List.copyOf(members.keySet())) {
+            if (members.containsKey(name)) {
+                stop(name);
+            }
+        }
+    }
+
+    /**
+     * @param name name of the daemon.
+     * @return the daemon, once started.
+     */
+    public Optional<DaemonProcess> getDaemon(String name) {
+        Member member = members.get(name);
+        if (member == null || member.startup == null || !member.startup.getStarted().isDone()
+                || member.startup.getStarted().isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.of(member.startup.getStarted().join());
+    }
+
+    /**
+     * @return names of the daemons in the fleet.
+     */
+    public List<String> getNames() {
+        return List.copyOf(members.keySet());
+    }
+
+    /**
+     * @param name name of the daemon.
+     * @return ports assigned to the daemon.
+     */
+    public Optional<PortAssignment> getPorts(String name) {
+        return Optional.ofNullable(members.get(name)).map(member -> member.ports);
+    }
+
+    /**
+     * @return aggregate status of the fleet, O(1).
+     */
+    public FleetStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Stops every daemon and the fleet's reader pool.
+     */
+    @Override
+    public void close() {
+        stopAll();
+        readerPool.close();
+    }
+
+    /**
+     * Adds a member and allocates its ports, before its daemon is launched.
+     * @return the member, which is the listener to launch the daemon with.
+     * @throws IllegalArgumentException if the name is taken.
+     */
+    Member join(String name, NetworkType networkType, IDaemonListener daemonListener) {
+        Member member = new Member(name, networkType, daemonListener);
+        if (members.putIfAbsent(name, member) != null) {
+            throw new IllegalArgumentException("Daemon already in fleet: " + name);
+        }
+        try {
+            member.ports = portAllocator.allocate(networkType);
+        } catch (RuntimeException e) {
+            remove(member);
+            throw e;
+        }
+        synchronized (this) {
+            ordered.add(member);
+            member.inFleet = true;
+            publish();
+        }
+        return member;
+    }
+
+    private void remove(Member member) {
+        if (!members.remove(member.name, member)) {
+            return;
+        }
+        if (member.ports != null) {
+            portAllocator.release(member.networkType, member.ports);
+        }
+        synchronized (this) {
+            ordered.remove(member);
+            member.inFleet = false;
+            if (member.started) {
+                startedCount--;
+            }
+            if (member.synced) {
+                syncedCount--;
+            }
+            if (member == slowest) {
+                findSlowest();
+            }
+            publish();
+        }
+    }
+
+    private synchronized void onStarted(Member member) {
+        if (!member.started && member.inFleet) {
+            member.started = true;
+            startedCount++;
+            publish();
+        }
+    }
+
+    private synchronized void onHeights(Member member, long currentHeight, long targetHeight) {
+        if (!member.inFleet) {
+            return;
+        }
+        long previousRemaining = member.remaining();
+        member.currentHeight = currentHeight;
+        member.targetHeight = Math.max(member.targetHeight, targetHeight);
+        member.reported = true;
+
+        boolean synced = member.targetHeight > 0 && member.currentHeight >= member.targetHeight;
+        if (synced != member.synced) {
+            member.synced = synced;
+            syncedCount += synced ? 1 : -1;
+        }
+
+        if (member == slowest) {
+            // the slowest caught up: another daemon may now be further behind
+            if (member.remaining() < previousRemaining) {
+                findSlowest();
+            }
+        } else if (slowest == null || member.remaining() > slowest.remaining()) {
+            slowest = member;
+        }
+        publish();
+    }
+
+    private void findSlowest() {
+        slowest = null;
+        for (Member member : ordered) {
+            if (member.reported && (slowest == null || member.remaining() > slowest.remaining())) {
+                slowest = member;
+            }
+        }
+    }
+
+    private void publish() {
+        status = slowest == null
+                ? new FleetStatus(ordered.size(), startedCount, syncedCount, null, 0, 0)
+                : new FleetStatus(ordered.size(), startedCount, syncedCount, slowest.name, slowest.currentHeight, slowest.remaining());
+    }
+
+    /**
+     * Fleet member, tracking the heights reported through its listener.
+     */
+    final class Member implements IDaemonListener {
+        private final String name;
+        private final NetworkType networkType;
+        private final IDaemonListener delegate;
+        private volatile DaemonStartup startup;
+        private volatile PortAssignment ports;
+        private volatile boolean stopping;
+
+        // guarded by the fleet
+        private boolean inFleet;
+        private boolean started;
+        private boolean synced;
+        private boolean reported;
+        private long currentHeight;
+        private long targetHeight;
+
+        private Member(String name, NetworkType networkType, IDaemonListener delegate) {
+            this.name = name;
+            this.networkType = networkType;
+            this.delegate = delegate;
+        }
+
+        private long remaining() {
+            return Math.max(0, targetHeight - currentHeight);
+        }
+
+        @Override
+        public void onRpcReady() {
+            delegate.onRpcReady();
+        }
+
+        @Override
+        public void onP2PReady() {
+            delegate.onP2PReady();
+        }
+
+        @Override
+        public void onDaemonStarted() {
+            onStarted(this);
+            delegate.onDaemonStarted();
+        }
+
+        @Override
+        public void onDaemonKilled() {
+            // died on its own: free the name and ports, a stop removes the member itself.
+            // Done first so a throwing listener cannot leave a dead daemon in the fleet.
+            if (!stopping) {
+                remove(this);
+            }
+            delegate.onDaemonKilled();
+        }
+
+        @Override
+        public void onDaemonExited(int exitCode) {
+            delegate.onDaemonExited(exitCode);
+        }
+
+        @Override
+        public void onNewTopBlockCandidate(long currentHeight, long candidateHeight) {
+            onHeights(this, currentHeight, candidateHeight);
+            delegate.onNewTopBlockCandidate(currentHeight, candidateHeight);
+        }
+
+        @Override
+        public void onSyncProgress(long currentHeight, long targetHeight) {
+            onHeights(this, currentHeight, targetHeight);
+            delegate.onSyncProgress(currentHeight, targetHeight);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.ohchase.monerod.fleet;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable, fleet-wide aggregate status.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class FleetStatus {
+
+    static final FleetStatus EMPTY = new FleetStatus(0, 0, 0, null, 0, 0);
+
+    /**
+     * Number of daemons in the fleet, started or starting.
+     */
+    private final int nodeCount;
+
+    /**
+     * Number of daemons that finished starting.
+     */
+    private final int startedCount;
+
+    /**
+     * Number of daemons whose height reached their target height.
+     */
+    private final int syncedCount;
+
+    /**
+     * Name of the daemon furthest behind its target, or null if no daemon reported sync progress.
+     */
+    private final String slowestNode;
+
+    /**
+     * Current height of the slowest daemon.
+     */
+    private final long slowestHeight;
+
+    /**
+     * Blocks the slowest daemon has left to sync.
+     */
+    private final long slowestRemainingBlocks;
+}
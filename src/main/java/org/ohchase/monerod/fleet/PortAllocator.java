@@ -0,0 +1,78 @@
+package org.ohchase.monerod.fleet;
+
+import org.ohchase.monerod.configuration.NetworkType;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Allocates non-conflicting P2P and RPC ports for the daemons of a fleet.
+ * Each network starts at monerod's default ports, and every further daemon moves up by {@value #SLOT_SIZE},
+ * keeping monerod's layout of P2P, RPC and restricted RPC at offsets 0, 1 and 9.
+ * Ports already bound by another process are skipped.
+ */
+public class PortAllocator {
+
+    static final int SLOT_SIZE = 10;
+
+    private static final int MAX_PORT = 65535;
+
+    private final InetAddress bindAddress;
+
+    private final Map<NetworkType, BitSet> usedSlots = new EnumMap<>(NetworkType.class);
+
+    public PortAllocator(InetAddress bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+    /**
+     * @param networkType network of the daemon.
+     * @return free ports for one daemon.
+     * @throws IllegalStateException if the network's port range is exhausted.
+     */
+    public synchronized PortAssignment allocate(NetworkType networkType) {
+        BitSet used = usedSlots.computeIfAbsent(networkType, type -> new BitSet());
+        int base = basePort(networkType);
+        for (int slot = used.nextClearBit(0); base + slot * SLOT_SIZE + SLOT_SIZE - 1 <= MAX_PORT; slot = used.nextClearBit(slot + 1)) {
+            int p2pPort = base + slot * SLOT_SIZE;
+            if (isFree(p2pPort) && isFree(p2pPort + 1) && isFree(p2pPort + 9)) {
+                used.set(slot);
+                return new PortAssignment(slot, p2pPort, p2pPort + 1, p2pPort + 9);
+            }
+        }
+        throw new IllegalStateException("No free ports left for " + networkType);
+    }
+
+    /**
+     * Returns ports to the allocator.
+     * @param networkType network the ports were allocated for.
+     * @param assignment ports to release.
+     */
+    public synchronized void release(NetworkType networkType, PortAssignment assignment) {
+        BitSet used = usedSlots.get(networkType);
+        if (used != null) {
+            used.clear(assignment.getSlot());
+        }
+    }
+
+    private static int basePort(NetworkType networkType) {
+        return switch (networkType) {
+            case MAIN_NET -> 18080;
+            case TEST_NET -> 28080;
+            case STAGE_NET -> 38080;
+        };
+    }
+
+    private boolean isFree(int port) {
+        try {
+            new ServerSocket(port, 1, bindAddress).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
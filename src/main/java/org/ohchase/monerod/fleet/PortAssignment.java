@@ -0,0 +1,25 @@
+package org.ohchase.monerod.fleet;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Ports assigned to one daemon of a fleet.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PortAssignment {
+
+    /**
+     * Slot of the assignment within its network's port range.
+     */
+    private final int slot;
+
+    private final int p2pPort;
+
+    private final int rpcPort;
+
+    private final int restrictedRpcPort;
+}
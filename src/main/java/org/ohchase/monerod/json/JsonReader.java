@@ -0,0 +1,505 @@
+package org.ohchase.monerod.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Streaming pull parser for UTF-8 JSON.
+ * Values are read one token at a time straight from the stream, so callers pick the members they need
+ * and skip the rest without a document tree ever being built.
+ * Not thread-safe.
+ */
+public final class JsonReader implements Closeable {
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final InputStream in;
+
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    /**
+     * Number of bytes consumed before the current buffer contents.
+     */
+    private long bufferStart;
+
+    private int[] stack = new int[32];
+    private int depth;
+
+    private JsonToken peeked;
+
+    private final StringBuilder scratch = new StringBuilder();
+
+    public JsonReader(InputStream in) {
+        this(in, 8192);
+    }
+
+    public JsonReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        this.stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * @param json UTF-8 encoded JSON.
+     * @return reader over the bytes.
+     */
+    public static JsonReader of(byte[] json) {
+        return of(json, 0, json.length);
+    }
+
+    /**
+     * @param json buffer holding UTF-8 encoded JSON.
+     * @param offset start of the JSON in the buffer.
+     * @param length length of the JSON.
+     * @return reader over the bytes.
+     */
+    public static JsonReader of(byte[] json, int offset, int length) {
+        return new JsonReader(new ByteArrayInputStream(json, offset, length), Math.max(16, Math.min(length, 8192)));
+    }
+
+    /**
+     * @return type of the next token, without consuming it.
+     * @throws IOException if the stream fails or the JSON is malformed.
+     */
+    public JsonToken peek() throws IOException {
+        if (peeked == null) {
+            peeked = doPeek();
+        }
+        return peeked;
+    }
+
+    /**
+     * @return true if the current array or object has another element.
+     * @throws IOException if the stream fails or the JSON is malformed.
+     */
+    public boolean hasNext() throws IOException {
+        JsonToken token = peek();
+        return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(JsonToken.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(JsonToken.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(JsonToken.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(JsonToken.END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * @return name of the next object member.
+     * @throws IOException if the next token is not a name.
+     */
+    public String nextName() throws IOException {
+        expect(JsonToken.NAME);
+        return readString();
+    }
+
+    /**
+     * @return next string value, numbers are returned as their literal text.
+     * @throws IOException if the next token is not a string or number.
+     */
+    public String nextString() throws IOException {
+        JsonToken token = peek();
+        if (token == JsonToken.NUMBER) {
+            peeked = null;
+            readNumber();
+            return scratch.toString();
+        }
+        expect(JsonToken.STRING);
+        return readString();
+    }
+
+    /**
+     * Reads an integer. Unsigned 64-bit values above {@link Long#MAX_VALUE} are returned in two's complement,
+     * use {@link Long#toUnsignedString(long)} to render them.
+     * @return next integer value.
+     * @throws IOException if the next token is not an integer.
+     */
+    public long nextLong() throws IOException {
+        JsonToken token = peek();
+        if (token == JsonToken.STRING) {
+            // monerod quotes some wide values
+            peeked = null;
+            readString();
+        } else {
+            expect(JsonToken.NUMBER);
+            readNumber();
+        }
+        try {
+            if (scratch.length() > 0 && scratch.charAt(0) == '-') {
+                return Long.parseLong(scratch, 0, scratch.length(), 10);
+            }
+            return Long.parseUnsignedLong(scratch, 0, scratch.length(), 10);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected an integer but was " + scratch);
+        }
+    }
+
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if ((int) value != value) {
+            throw syntaxError("Integer out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    public double nextDouble() throws IOException {
+        expect(JsonToken.NUMBER);
+        readNumber();
+        try {
+            return Double.parseDouble(scratch.toString());
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected a number but was " + scratch);
+        }
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(JsonToken.BOOLEAN);
+        if (readByte() == 't') {
+            expectLiteral("rue");
+            return true;
+        }
+        expectLiteral("alse");
+        return false;
+    }
+
+    public void nextNull() throws IOException {
+        expect(JsonToken.NULL);
+        readByte();
+        expectLiteral("ull");
+    }
+
+    /**
+     * Skips the next value, including everything nested in it, without decoding strings.
+     * When positioned before a member name, the name and its value are skipped.
+     * @throws IOException if the stream fails or the JSON is malformed.
+     */
+    public void skipValue() throws IOException {
+        int nesting = 0;
+        do {
+            JsonToken token = peek();
+            peeked = null;
+            switch (token) {
+                case BEGIN_OBJECT -> {
+                    push(EMPTY_OBJECT);
+                    nesting++;
+                }
+                case BEGIN_ARRAY -> {
+                    push(EMPTY_ARRAY);
+                    nesting++;
+                }
+                case END_OBJECT, END_ARRAY -> {
+                    depth--;
+                    nesting--;
+                }
+                case NAME, STRING -> skipString();
+                case NUMBER -> readNumber();
+                case BOOLEAN, NULL -> {
+                    while (position < limit || fill()) {
+                        byte b = buffer[position];
+                        if (b < 'a' || b > 'z') {
+                            break;
+                        }
+                        position++;
+                    }
+                }
+                case END_DOCUMENT -> throw syntaxError("Unexpected end of document");
+            }
+            // a skipped name leaves the scope dangling, so its value is skipped too
+        } while (nesting > 0 || stack[depth - 1] == DANGLING_NAME);
+    }
+
+    /**
+     * Skips to the member with the given name in the current object.
+     * @param name member name.
+     * @return true if found, positioned before its value; false if the object ended, positioned before its end.
+     * @throws IOException if the stream fails or the JSON is malformed.
+     */
+    public boolean skipToName(String name) throws IOException {
+        while (hasNext()) {
+            if (nextName().equals(name)) {
+                return true;
+            }
+            skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * @return number of bytes consumed from the stream so far.
+     */
+    public long getBytesRead() {
+        return bufferStart + position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private JsonToken doPeek() throws IOException {
+        int scope = stack[depth - 1];
+        switch (scope) {
+            case EMPTY_ARRAY -> {
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                if (nextNonWhitespace() == ']') {
+                    return JsonToken.END_ARRAY;
+                }
+                position--;
+            }
+            case NONEMPTY_ARRAY -> {
+                int c = nextNonWhitespace();
+                if (c == ']') {
+                    return JsonToken.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw syntaxError("Unterminated array");
+                }
+            }
+            case EMPTY_OBJECT, NONEMPTY_OBJECT -> {
+                int c = nextNonWhitespace();
+                if (c == '}') {
+                    return JsonToken.END_OBJECT;
+                }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Unterminated object");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a name");
+                }
+                stack[depth - 1] = DANGLING_NAME;
+                return JsonToken.NAME;
+            }
+            case DANGLING_NAME -> {
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                stack[depth - 1] = NONEMPTY_OBJECT;
+            }
+            case EMPTY_DOCUMENT -> stack[depth - 1] = NONEMPTY_DOCUMENT;
+            case NONEMPTY_DOCUMENT -> {
+                if (nextNonWhitespaceOrEnd() < 0) {
+                    return JsonToken.END_DOCUMENT;
+                }
+                throw syntaxError("Multiple top-level values");
+            }
+            default -> throw new IllegalStateException("Unknown scope " + scope);
+        }
+
+        int c = nextNonWhitespace();
+        switch (c) {
+            case '{' -> {
+                return JsonToken.BEGIN_OBJECT;
+            }
+            case '[' -> {
+                return JsonToken.BEGIN_ARRAY;
+            }
+            case '"' -> {
+                return JsonToken.STRING;
+            }
+            case 't', 'f' -> {
+                position--;
+                return JsonToken.BOOLEAN;
+            }
+            case 'n' -> {
+                position--;
+                return JsonToken.NULL;
+            }
+            default -> {
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    position--;
+                    return JsonToken.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+            }
+        }
+    }
+
+    private void expect(JsonToken token) throws IOException {
+        JsonToken actual = peek();
+        if (actual != token) {
+            throw syntaxError("Expected " + token + " but was " + actual);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    private boolean fill() throws IOException {
+        bufferStart += limit;
+        position = 0;
+        limit = 0;
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit && !fill()) {
+            throw syntaxError("Unexpected end of input");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c = nextNonWhitespaceOrEnd();
+        if (c < 0) {
+            throw syntaxError("Unexpected end of input");
+        }
+        return c;
+    }
+
+    private int nextNonWhitespaceOrEnd() throws IOException {
+        while (position < limit || fill()) {
+            int c = buffer[position++] & 0xFF;
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private void expectLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (readByte() != rest.charAt(i)) {
+                throw syntaxError("Invalid literal");
+            }
+        }
+    }
+
+    /**
+     * Reads number characters into the scratch buffer.
+     */
+    private void readNumber() throws IOException {
+        scratch.setLength(0);
+        while (position < limit || fill()) {
+            int c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                scratch.append((char) c);
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (scratch.length() == 0) {
+            throw syntaxError("Expected a number");
+        }
+    }
+
+    /**
+     * Reads a string whose opening quote was consumed, decoding escapes and UTF-8.
+     */
+    private String readString() throws IOException {
+        scratch.setLength(0);
+        while (true) {
+            int c = readByte();
+            if (c == '"') {
+                return scratch.toString();
+            }
+            if (c == '\\') {
+                int escaped = readByte();
+                switch (escaped) {
+                    case '"', '\\', '/' -> scratch.append((char) escaped);
+                    case 'b' -> scratch.append('\b');
+                    case 'f' -> scratch.append('\f');
+                    case 'n' -> scratch.append('\n');
+                    case 'r' -> scratch.append('\r');
+                    case 't' -> scratch.append('\t');
+                    case 'u' -> {
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(readByte(), 16);
+                            if (digit < 0) {
+                                throw syntaxError("Invalid unicode escape");
+                            }
+                            code = (code << 4) | digit;
+                        }
+                        scratch.append((char) code);
+                    }
+                    default -> throw syntaxError("Invalid escape '\\" + (char) escaped + "'");
+                }
+            } else if (c < 0x80) {
+                scratch.append((char) c);
+            } else {
+                scratch.appendCodePoint(readUtf8(c));
+            }
+        }
+    }
+
+    private int readUtf8(int lead) throws IOException {
+        int extra;
+        int codePoint;
+        if ((lead & 0xE0) == 0xC0) {
+            extra = 1;
+            codePoint = lead & 0x1F;
+        } else if ((lead & 0xF0) == 0xE0) {
+            extra = 2;
+            codePoint = lead & 0x0F;
+        } else if ((lead & 0xF8) == 0xF0) {
+            extra = 3;
+            codePoint = lead & 0x07;
+        } else {
+            return 0xFFFD;
+        }
+        for (int i = 0; i < extra; i++) {
+            int next = readByte();
+            if ((next & 0xC0) != 0x80) {
+                // truncated sequence: the byte may be the closing quote, leave it to the caller
+                position--;
+                return 0xFFFD;
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        return Character.isValidCodePoint(codePoint) ? codePoint : 0xFFFD;
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int c = readByte();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                readByte();
+            }
+        }
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at byte " + getBytesRead());
+    }
+}
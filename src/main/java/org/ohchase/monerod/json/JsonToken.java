@@ -0,0 +1,23 @@
+package org.ohchase.monerod.json;
+
+/**
+ * Enumeration of the tokens produced by {@link JsonReader}.
+ */
+public enum JsonToken {
+    BEGIN_OBJECT,
+    END_OBJECT,
+    BEGIN_ARRAY,
+    END_ARRAY,
+    /**
+     * Name of an object member.
+     */
+    NAME,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL,
+    /**
+     * End of the input, after the single top-level value.
+     */
+    END_DOCUMENT
+}
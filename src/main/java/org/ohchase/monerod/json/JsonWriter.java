@@ -0,0 +1,166 @@
+package org.ohchase.monerod.json;
+
+/**
+ * Minimal streaming JSON writer appending to a {@link StringBuilder}.
+ * Separators are inserted automatically, callers only describe the structure.
+ */
+public final class JsonWriter {
+
+    private final StringBuilder out;
+
+    /**
+     * One bit per nesting level, set once the level holds a value and needs a separator before the next one.
+     */
+    private long hasValue;
+
+    private int depth;
+
+    /**
+     * Whether a member name was just written and the next value must not be preceded by a separator.
+     */
+    private boolean afterName;
+
+    public JsonWriter(StringBuilder out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() {
+        beforeValue();
+        out.append('{');
+        push();
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        pop();
+        out.append('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        beforeValue();
+        out.append('[');
+        push();
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        pop();
+        out.append(']');
+        return this;
+    }
+
+    /**
+     * Writes an object member name, to be followed by exactly one value.
+     * @param name member name.
+     * @return this writer.
+     */
+    public JsonWriter name(String name) {
+        beforeValue();
+        writeString(name);
+        out.append(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        beforeValue();
+        out.append(value);
+        return this;
+    }
+
+    public JsonWriter value(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON does not allow " + value);
+        }
+        beforeValue();
+        out.append(value);
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        out.append(value);
+        return this;
+    }
+
+    public JsonWriter nullValue() {
+        beforeValue();
+        out.append("null");
+        return this;
+    }
+
+    /**
+     * Writes a pre-serialized JSON value verbatim.
+     * @param json valid JSON value.
+     * @return this writer.
+     */
+    public JsonWriter rawValue(CharSequence json) {
+        beforeValue();
+        out.append(json);
+        return this;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            long bit = 1L << (depth - 1);
+            if ((hasValue & bit) != 0) {
+                out.append(',');
+            } else {
+                hasValue |= bit;
+            }
+        }
+    }
+
+    private void push() {
+        if (depth == Long.SIZE) {
+            throw new IllegalStateException("JSON nesting too deep");
+        }
+        hasValue &= ~(1L << depth);
+        depth++;
+    }
+
+    private void pop() {
+        if (depth == 0) {
+            throw new IllegalStateException("Nothing to close");
+        }
+        depth--;
+    }
+
+    private void writeString(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                case '\b' -> out.append("\\b");
+                case '\f' -> out.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,18 @@
+package org.ohchase.monerod.lmdb;
+
+/**
+ * An LMDB {@code MDB_db} record, describing one B+tree.
+ * @param pad key size of fixed-size duplicate trees, the page size in the free list record.
+ * @param flags database flags.
+ * @param depth tree depth.
+ * @param entries number of entries.
+ * @param root page number of the root, {@link Lmdb#INVALID_PAGE} if empty.
+ */
+record DbInfo(int pad, int flags, int depth, long entries, long root) {
+
+    static final int SIZE = 48;
+
+    boolean isEmpty() {
+        return root == Lmdb.INVALID_PAGE;
+    }
+}
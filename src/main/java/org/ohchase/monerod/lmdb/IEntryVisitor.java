@@ -0,0 +1,18 @@
+package org.ohchase.monerod.lmdb;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the entries of an LMDB table scan.
+ */
+@FunctionalInterface
+public interface IEntryVisitor {
+
+    /**
+     * Called for every entry, and for every value of a key in tables with sorted duplicates.
+     * Parallel scans call it from several threads at once.
+     * @param key read-only little-endian slice of the mapped key.
+     * @param value read-only little-endian slice of the mapped value.
+     */
+    void visit(ByteBuffer key, ByteBuffer value);
+}
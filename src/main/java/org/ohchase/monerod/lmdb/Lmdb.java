@@ -0,0 +1,104 @@
+package org.ohchase.monerod.lmdb;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Comparator;
+
+/**
+ * LMDB on-disk layout, for 64-bit little-endian builds.
+ */
+final class Lmdb {
+
+    static final int MAGIC = 0xBEEFC0DE;
+    static final int DATA_VERSION = 1;
+
+    static final long INVALID_PAGE = -1L;
+
+    // page header: pgno u64, pad u16, flags u16, lower u16, upper u16
+    static final int PAGE_HEADER_SIZE = 16;
+    static final int PAGE_PAD = 8;
+    static final int PAGE_FLAGS = 10;
+    static final int PAGE_LOWER = 12;
+    static final int PAGE_OVERFLOW_COUNT = 12;
+
+    static final int P_BRANCH = 0x01;
+    static final int P_LEAF = 0x02;
+    static final int P_OVERFLOW = 0x04;
+    static final int P_META = 0x08;
+    static final int P_LEAF2 = 0x20;
+
+    // meta page body, after the page header
+    static final int META_MAGIC = PAGE_HEADER_SIZE;
+    static final int META_VERSION = PAGE_HEADER_SIZE + 4;
+    static final int META_FREE_DB = PAGE_HEADER_SIZE + 24;
+    static final int META_MAIN_DB = META_FREE_DB + DbInfo.SIZE;
+    static final int META_LAST_PAGE = META_MAIN_DB + DbInfo.SIZE;
+    static final int META_TXN_ID = META_LAST_PAGE + 8;
+    static final int META_SIZE = META_TXN_ID + 8;
+
+    // node header: lo u16, hi u16, flags u16, ksize u16
+    static final int NODE_HEADER_SIZE = 8;
+    static final int NODE_FLAGS = 4;
+    static final int NODE_KEY_SIZE = 6;
+
+    static final int F_BIGDATA = 0x01;
+    static final int F_SUBDATA = 0x02;
+    static final int F_DUPDATA = 0x04;
+
+    // database flags
+    static final int MDB_REVERSEKEY = 0x02;
+    static final int MDB_DUPSORT = 0x04;
+    static final int MDB_INTEGERKEY = 0x08;
+    static final int MDB_DUPFIXED = 0x10;
+    static final int MDB_INTEGERDUP = 0x20;
+    static final int MDB_REVERSEDUP = 0x40;
+
+    /**
+     * Unsigned byte-wise order, LMDB's default.
+     */
+    static final Comparator<ByteBuffer> LEXICOGRAPHIC = (a, b) -> {
+        int mismatch = a.mismatch(b);
+        if (mismatch < 0) {
+            return 0;
+        }
+        if (mismatch >= a.remaining() || mismatch >= b.remaining()) {
+            return Integer.compare(a.remaining(), b.remaining());
+        }
+        return Integer.compare(Byte.toUnsignedInt(a.get(a.position() + mismatch)), Byte.toUnsignedInt(b.get(b.position() + mismatch)));
+    };
+
+    /**
+     * Order of {@code MDB_INTEGERKEY} keys: native unsigned integers of 4 or 8 bytes, whatever the order
+     * the buffers are set to.
+     */
+    static final Comparator<ByteBuffer> INTEGER = (a, b) -> {
+        if (a.remaining() == 8 && b.remaining() == 8) {
+            return Long.compareUnsigned(littleEndian(a.getLong(a.position()), a), littleEndian(b.getLong(b.position()), b));
+        }
+        if (a.remaining() == 4 && b.remaining() == 4) {
+            return Integer.compareUnsigned(littleEndian(a.getInt(a.position()), a), littleEndian(b.getInt(b.position()), b));
+        }
+        throw new IllegalArgumentException("Integer keys must both be 4 or 8 bytes");
+    };
+
+    private Lmdb() {
+    }
+
+    private static long littleEndian(long value, ByteBuffer buffer) {
+        return buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    private static int littleEndian(int value, ByteBuffer buffer) {
+        return buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Integer.reverseBytes(value);
+    }
+
+    /**
+     * @return the order of a tree's keys given its flags, null if LMDB reverses it.
+     */
+    static Comparator<ByteBuffer> keyOrder(int flags, boolean duplicates) {
+        if ((flags & (duplicates ? MDB_REVERSEDUP : MDB_REVERSEKEY)) != 0) {
+            return null;
+        }
+        return (flags & (duplicates ? MDB_INTEGERDUP : MDB_INTEGERKEY)) != 0 ? INTEGER : LEXICOGRAPHIC;
+    }
+}
@@ -0,0 +1,131 @@
+package org.ohchase.monerod.lmdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Walks the entries of a table in key order, and the values of a key in tables with sorted duplicates.
+ * Keys and values are slices of the mapping and stay valid, after moving on, until the environment is closed.
+ * Not thread-safe, parallel scans use a cursor per thread.
+ */
+public final class LmdbCursor {
+
+    private final LmdbEnvironment environment;
+
+    private final LmdbTable table;
+
+    private final long root;
+
+    private final PageStack entries;
+
+    private final PageStack duplicates;
+
+    private boolean inDuplicates;
+
+    private ByteBuffer key;
+
+    private ByteBuffer value;
+
+    LmdbCursor(LmdbEnvironment environment, LmdbTable table, long root) {
+        this.environment = environment;
+        this.table = table;
+        this.root = root;
+        this.entries = new PageStack(environment);
+        this.duplicates = new PageStack(environment);
+    }
+
+    /**
+     * Moves to the first entry.
+     * @return false if the table is empty.
+     * @throws IOException if the snapshot is corrupt, or was overwritten by a running daemon.
+     */
+    public boolean first() throws IOException {
+        return load(entries.first(root, 0));
+    }
+
+    /**
+     * Moves to the first entry whose key is not below the given one.
+     * @param key key to look for, in the table's key format.
+     * @return false if every key is below.
+     * @throws IOException if the snapshot is corrupt, or was overwritten by a running daemon.
+     */
+    public boolean seek(ByteBuffer key) throws IOException {
+        return load(entries.seek(root, 0, key, table.keyOrder()));
+    }
+
+    /**
+     * Moves to the next value of the current key, or the first value of the next key.
+     * @return false past the last entry.
+     * @throws IOException if the snapshot is corrupt, or was overwritten by a running daemon.
+     */
+    public boolean next() throws IOException {
+        if (key == null) {
+            return false;
+        }
+        if (inDuplicates && duplicates.next()) {
+            value = duplicates.key();
+            return true;
+        }
+        return load(entries.next());
+    }
+
+    /**
+     * @return key of the current entry.
+     * @throws IllegalStateException if the cursor is not on an entry.
+     */
+    public ByteBuffer key() {
+        if (key == null) {
+            throw new IllegalStateException("Cursor not on an entry");
+        }
+        return key;
+    }
+
+    /**
+     * @return value of the current entry.
+     * @throws IllegalStateException if the cursor is not on an entry.
+     */
+    public ByteBuffer value() {
+        if (key == null) {
+            throw new IllegalStateException("Cursor not on an entry");
+        }
+        return value;
+    }
+
+    /**
+     * Reads the node the entries stack is on, skipping keys without duplicates left.
+     */
+    private boolean load(boolean found) throws IOException {
+        while (found) {
+            long node = entries.node();
+            int flags = environment.u16(node + Lmdb.NODE_FLAGS);
+            int keySize = environment.u16(node + Lmdb.NODE_KEY_SIZE);
+            long data = node + Lmdb.NODE_HEADER_SIZE + keySize;
+            int dataSize = environment.u16(node) | environment.u16(node + 2) << 16;
+            if ((flags & Lmdb.F_DUPDATA) != 0) {
+                if ((flags & Lmdb.F_SUBDATA) != 0) {
+                    DbInfo tree = environment.readDb(data);
+                    inDuplicates = duplicates.first(tree.root(), tree.pad());
+                } else {
+                    inDuplicates = duplicates.firstEmbedded(data);
+                }
+                if (!inDuplicates) {
+                    found = entries.next();
+                    continue;
+                }
+                value = duplicates.key();
+            } else if ((flags & Lmdb.F_BIGDATA) != 0) {
+                inDuplicates = false;
+                value = environment.slice(environment.pageOffset(environment.u64(data)) + Lmdb.PAGE_HEADER_SIZE, dataSize);
+            } else {
+                inDuplicates = false;
+                value = environment.slice(data, dataSize);
+            }
+            key = environment.slice(node + Lmdb.NODE_HEADER_SIZE, keySize);
+            return true;
+        }
+        key = null;
+        value = null;
+        inDuplicates = false;
+        return false;
+    }
+}
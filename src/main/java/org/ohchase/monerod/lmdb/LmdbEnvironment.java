@@ -0,0 +1,262 @@
+package org.ohchase.monerod.lmdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only view of an LMDB environment, such as the daemon's {@code lmdb/data.mdb}, without native code.
+ * <p>
+ * The file is memory-mapped in 1 GiB segments, overlapping by 16 MiB so that keys and ordinary values never
+ * straddle two segments, and the B+trees are read straight from the mapping: keys and values handed out are
+ * slices of it, nothing is copied. The environment reads the snapshot of the last transaction committed when
+ * it was opened and never changes afterwards.
+ * <p>
+ * Opening a database a daemon is writing to is possible, but unlike a native reader this one takes no slot in
+ * the reader table of {@code lock.mdb}, so the daemon does not know about the snapshot and may reuse pages that
+ * were freed after it. Pages of the snapshot are only safe until the daemon has committed twice more: check
+ * {@link #isSnapshotValid()} after reading, and reopen to follow the chain. Reading a stopped daemon's database
+ * has no such limit.
+ */
+public final class LmdbEnvironment implements AutoCloseable {
+
+    private static final int SEGMENT_SHIFT = 30;
+
+    private static final long SEGMENT_BYTES = 1L << SEGMENT_SHIFT;
+
+    private static final long SEGMENT_OVERLAP = 16L * 1024 * 1024;
+
+    private static final int MIN_PAGE_SIZE = 512;
+
+    private static final int MAX_PAGE_SIZE = 65536;
+
+    private final Path dataFile;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer[] segments;
+
+    private final long fileBytes;
+
+    private final int pageSize;
+
+    private final long lastPage;
+
+    private final long txnId;
+
+    private final Map<String, LmdbTable> tables;
+
+    private LmdbEnvironment(Path dataFile, FileChannel channel) throws IOException {
+        this.dataFile = dataFile;
+        this.channel = channel;
+        this.fileBytes = channel.size();
+
+        ByteBuffer first = readMeta(0);
+        pageSize = first.getInt(Lmdb.META_FREE_DB);
+        if (pageSize < MIN_PAGE_SIZE || pageSize > MAX_PAGE_SIZE || Integer.bitCount(pageSize) != 1) {
+            throw new IOException("Invalid page size " + pageSize + " in " + dataFile);
+        }
+        ByteBuffer second = readMeta(pageSize);
+        ByteBuffer meta = second.getLong(Lmdb.META_TXN_ID) > first.getLong(Lmdb.META_TXN_ID) ? second : first;
+        txnId = meta.getLong(Lmdb.META_TXN_ID);
+        lastPage = meta.getLong(Lmdb.META_LAST_PAGE);
+        if (lastPage < 1 || (lastPage + 1) * pageSize > fileBytes) {
+            throw new IOException("Last page " + lastPage + " beyond the end of " + dataFile);
+        }
+
+        segments = new ByteBuffer[(int) ((fileBytes + SEGMENT_BYTES - 1) >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            long from = (long) i << SEGMENT_SHIFT;
+            long length = Math.min(fileBytes - from, SEGMENT_BYTES + SEGMENT_OVERLAP);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, from, length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        DbInfo main = readDb(meta, Lmdb.META_MAIN_DB);
+        Map<String, LmdbTable> named = new LinkedHashMap<>();
+        named.put("", new LmdbTable(this, "", main));
+        // named databases are the main database's entries flagged as sub-databases
+        PageStack stack = new PageStack(this);
+        boolean found = stack.first(main.root(), 0);
+        while (found) {
+            long node = stack.node();
+            int flags = u16(node + Lmdb.NODE_FLAGS);
+            if ((flags & Lmdb.F_SUBDATA) != 0 && (flags & Lmdb.F_DUPDATA) == 0) {
+                int keySize = u16(node + Lmdb.NODE_KEY_SIZE);
+                ByteBuffer name = slice(node + Lmdb.NODE_HEADER_SIZE, keySize);
+                byte[] bytes = new byte[name.remaining()];
+                name.get(bytes);
+                // names are stored with their terminating zero
+                int length = bytes.length > 0 && bytes[bytes.length - 1] == 0 ? bytes.length - 1 : bytes.length;
+                String tableName = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                named.put(tableName, new LmdbTable(this, tableName, readDb(node + Lmdb.NODE_HEADER_SIZE + keySize)));
+            }
+            found = stack.next();
+        }
+        tables = Collections.unmodifiableMap(named);
+    }
+
+    /**
+     * Opens an environment read-only.
+     * @param path the {@code data.mdb} file, or a daemon data directory holding {@code lmdb/data.mdb}.
+     * @return the environment, at the last committed transaction.
+     * @throws IOException if the file cannot be read or is not an LMDB environment.
+     */
+    public static LmdbEnvironment open(Path path) throws IOException {
+        Path dataFile = Files.isDirectory(path) ? path.resolve("lmdb").resolve("data.mdb") : path;
+        FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ);
+        try {
+            return new LmdbEnvironment(dataFile, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the opened {@code data.mdb} file.
+     */
+    public Path getDataFile() {
+        return dataFile;
+    }
+
+    /**
+     * @return id of the transaction whose snapshot is read.
+     */
+    public long getTxnId() {
+        return txnId;
+    }
+
+    /**
+     * @return page size the environment was created with.
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return names of the named databases, the daemon's tables.
+     */
+    public Set<String> getTableNames() {
+        Set<String> names = new LinkedHashSet<>(tables.keySet());
+        names.remove("");
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * @param name table name, such as {@code blocks}, {@code block_info} or {@code txs_pruned}, or the empty
+     *             string for the main database.
+     * @return the table.
+     * @throws IllegalArgumentException if there is no such table.
+     */
+    public LmdbTable table(String name) {
+        LmdbTable table = tables.get(name);
+        if (table == null) {
+            throw new IllegalArgumentException("No table " + name + " in " + dataFile);
+        }
+        return table;
+    }
+
+    /**
+     * Tells whether the pages of the snapshot can still be trusted when a daemon is writing to the database.
+     * A writer only reuses pages freed by transactions older than its oldest reader, and this reader is not
+     * registered, so a snapshot is safe while at most one transaction was committed after it.
+     * @return true if data read so far was consistent.
+     * @throws IOException if the meta pages cannot be read.
+     */
+    public boolean isSnapshotValid() throws IOException {
+        long current = Math.max(readMeta(0).getLong(Lmdb.META_TXN_ID), readMeta(pageSize).getLong(Lmdb.META_TXN_ID));
+        return current <= txnId + 1;
+    }
+
+    /**
+     * Unmaps nothing, mappings are released once unreachable, but slices must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    long pageOffset(long pgno) throws IOException {
+        if (pgno < 2 || pgno > lastPage) {
+            throw new IOException("Page " + pgno + " outside the snapshot, last page " + lastPage);
+        }
+        return pgno * pageSize;
+    }
+
+    int u16(long offset) {
+        return segment(offset).getShort(index(offset)) & 0xFFFF;
+    }
+
+    long u64(long offset) {
+        return segment(offset).getLong(index(offset));
+    }
+
+    /**
+     * @return read-only little-endian slice of the mapping, copied only if it crosses into the next segment.
+     */
+    ByteBuffer slice(long offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > fileBytes) {
+            throw new IOException("Range of " + length + " bytes at " + offset + " outside " + dataFile);
+        }
+        ByteBuffer segment = segment(offset);
+        int index = index(offset);
+        if (index + length <= segment.limit()) {
+            return segment.slice(index, length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        ByteBuffer copy = ByteBuffer.allocate(length);
+        for (long at = offset; copy.hasRemaining(); ) {
+            ByteBuffer from = segment(at);
+            int fromIndex = index(at);
+            int count = Math.min(copy.remaining(), from.limit() - fromIndex);
+            copy.put(from.slice(fromIndex, count));
+            at += count;
+        }
+        return copy.flip().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return the database record at a file offset.
+     */
+    DbInfo readDb(long offset) {
+        return new DbInfo(segment(offset).getInt(index(offset)), u16(offset + 4), u16(offset + 6),
+                u64(offset + 32), u64(offset + 40));
+    }
+
+    private static DbInfo readDb(ByteBuffer meta, int offset) {
+        return new DbInfo(meta.getInt(offset), meta.getShort(offset + 4) & 0xFFFF, meta.getShort(offset + 6) & 0xFFFF,
+                meta.getLong(offset + 32), meta.getLong(offset + 40));
+    }
+
+    private ByteBuffer readMeta(long offset) throws IOException {
+        ByteBuffer meta = ByteBuffer.allocate(Lmdb.META_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (meta.hasRemaining() && channel.read(meta, offset + meta.position()) >= 0) {
+            // fill
+        }
+        if (meta.hasRemaining() || meta.getInt(Lmdb.META_MAGIC) != Lmdb.MAGIC
+                || (meta.getShort(Lmdb.PAGE_FLAGS) & Lmdb.P_META) == 0) {
+            throw new IOException("No LMDB meta page at offset " + offset + " of " + dataFile);
+        }
+        if (meta.getInt(Lmdb.META_VERSION) != Lmdb.DATA_VERSION) {
+            throw new IOException("Unsupported LMDB version " + meta.getInt(Lmdb.META_VERSION) + " in " + dataFile);
+        }
+        return meta;
+    }
+
+    private ByteBuffer segment(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)];
+    }
+
+    private static int index(long offset) {
+        return (int) (offset & (SEGMENT_BYTES - 1));
+    }
+}
@@ -0,0 +1,301 @@
+package org.ohchase.monerod.lmdb;
+
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One named database of an {@link LmdbEnvironment}, a table of the daemon such as {@code blocks} (height to
+ * block blob), {@code block_info} or {@code txs_pruned} (transaction id to pruned blob; older databases kept
+ * whole transactions in {@code txs}).
+ * <p>
+ * Keys are ordered as LMDB orders them from the table flags: unsigned integers for integer keys, bytes
+ * otherwise. The daemon orders some tables with its own comparators, which are not recorded in the file;
+ * seeking and range scans on those need the matching order, full scans do not. The daemon's tables indexed by
+ * height or id keep all their records as sorted duplicates of a single zero key, full parallel scans split
+ * those across threads as well.
+ */
+public final class LmdbTable {
+
+    private static final int PARTITIONS_PER_THREAD = 8;
+
+    private final LmdbEnvironment environment;
+
+    private final String name;
+
+    private final DbInfo db;
+
+    LmdbTable(LmdbEnvironment environment, String name, DbInfo db) {
+        this.environment = environment;
+        this.name = name;
+        this.db = db;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of entries, counting every duplicate.
+     */
+    public long getEntries() {
+        return db.entries();
+    }
+
+    /**
+     * @return depth of the B+tree.
+     */
+    public int getDepth() {
+        return db.depth();
+    }
+
+    public boolean isIntegerKey() {
+        return (db.flags() & Lmdb.MDB_INTEGERKEY) != 0;
+    }
+
+    /**
+     * @return true if keys hold several sorted values.
+     */
+    public boolean isDuplicateSort() {
+        return (db.flags() & Lmdb.MDB_DUPSORT) != 0;
+    }
+
+    /**
+     * @return a cursor before the first entry.
+     */
+    public LmdbCursor cursor() {
+        return new LmdbCursor(environment, this, db.root());
+    }
+
+    /**
+     * Looks up a key.
+     * @param key key to look for.
+     * @return its first value, null if absent.
+     * @throws IOException if the snapshot is corrupt, or was overwritten by a running daemon.
+     */
+    public ByteBuffer get(ByteBuffer key) throws IOException {
+        LmdbCursor cursor = cursor();
+        return cursor.seek(key) && keyOrder().compare(cursor.key(), key) == 0 ? cursor.value() : null;
+    }
+
+    /**
+     * Visits every entry in key order.
+     * @param visitor receives the entries.
+     * @return entries visited.
+     * @throws IOException if the snapshot is corrupt, or was overwritten by a running daemon.
+     */
+    public long forEach(IEntryVisitor visitor) throws IOException {
+        return scan(null, null, visitor);
+    }
+
+    /**
+     * Visits the entries of a key range in key order.
+     * @param from lowest key included, null to start at the first.
+     * @param to key excluded, null to go to the end.
+     * @param visitor receives the entries.
+     * @return entries visited.
+     * @throws IOException if the snapshot is corrupt, or was overwritten by a running daemon.
+     */
+    public long scan(ByteBuffer from, ByteBuffer to, IEntryVisitor visitor) throws IOException {
+        return scan(cursor(), from, to, visitor);
+    }
+
+    /**
+     * Visits every entry, spread over threads in no particular order.
+     * @param parallelism threads to scan with.
+     * @param visitor receives the entries, from several threads at once.
+     * @return entries visited.
+     * @throws IOException if the snapshot is corrupt, or was overwritten by a running daemon.
+     */
+    public long scanParallel(int parallelism, IEntryVisitor visitor) throws IOException {
+        return scanParallel(null, null, parallelism, visitor);
+    }
+
+    /**
+     * Visits the entries of a key range, spread over threads in no particular order. The range is split along
+     * the subtrees of the B+tree, so threads read disjoint pages.
+     * @param from lowest key included, null to start at the first.
+     * @param to key excluded, null to go to the end.
+     * @param parallelism threads to scan with.
+     * @param visitor receives the entries, from several threads at once.
+     * @return entries visited.
+     * @throws IOException if the snapshot is corrupt, or was overwritten by a running daemon.
+     */
+    public long scanParallel(ByteBuffer from, ByteBuffer to, int parallelism, IEntryVisitor visitor) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        if (db.isEmpty()) {
+            return 0;
+        }
+        int wanted = parallelism * PARTITIONS_PER_THREAD;
+        long rootPage = environment.pageOffset(db.root());
+        DbInfo single = singleKeyDuplicates(rootPage);
+        List<Subtree> partitions;
+        ByteBuffer singleKey;
+        if (single != null) {
+            singleKey = environment.slice(node(rootPage, 0) + Lmdb.NODE_HEADER_SIZE,
+                    environment.u16(node(rootPage, 0) + Lmdb.NODE_KEY_SIZE));
+            if (from != null && keyOrder().compare(singleKey, from) < 0 || to != null && keyOrder().compare(singleKey, to) >= 0) {
+                return 0;
+            }
+            partitions = split(single.root(), wanted);
+        } else {
+            singleKey = null;
+            partitions = select(split(db.root(), wanted), from, to);
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        LongAdder visited = new LongAdder();
+        int threads = Math.min(parallelism, partitions.size());
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, threads), DaemonExecutors.threadFactory("monerod-lmdb-scan"));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(workers.submit(() -> {
+                    PageStack duplicates = new PageStack(environment);
+                    int index;
+                    while ((index = next.getAndIncrement()) < partitions.size()) {
+                        Subtree partition = partitions.get(index);
+                        if (singleKey != null) {
+                            long count = 0;
+                            for (boolean found = duplicates.first(partition.pgno, single.pad()); found; found = duplicates.next()) {
+                                visitor.visit(singleKey.duplicate().order(ByteOrder.LITTLE_ENDIAN), duplicates.key());
+                                count++;
+                            }
+                            visited.add(count);
+                        } else {
+                            visited.add(scan(new LmdbCursor(environment, this, partition.pgno), from, to, visitor));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e.getCause() instanceof IOException io ? io : new IOException("Failed to scan " + name, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning " + name, e);
+        } finally {
+            workers.shutdownNow();
+        }
+        return visited.sum();
+    }
+
+    /**
+     * @return the order of the table's keys.
+     * @throws IllegalStateException if the table orders keys in reverse, which is not supported.
+     */
+    Comparator<ByteBuffer> keyOrder() {
+        Comparator<ByteBuffer> order = Lmdb.keyOrder(db.flags(), false);
+        if (order == null) {
+            throw new IllegalStateException("Reverse key order of table " + name + " is not supported");
+        }
+        return order;
+    }
+
+    private long scan(LmdbCursor cursor, ByteBuffer from, ByteBuffer to, IEntryVisitor visitor) throws IOException {
+        long count = 0;
+        boolean found = from != null ? cursor.seek(from) : cursor.first();
+        Comparator<ByteBuffer> order = to != null ? keyOrder() : null;
+        while (found && (to == null || order.compare(cursor.key(), to) < 0)) {
+            visitor.visit(cursor.key(), cursor.value());
+            count++;
+            found = cursor.next();
+        }
+        return count;
+    }
+
+    /**
+     * @return the duplicate tree of the only key, if the table is a single key with a duplicate tree.
+     */
+    private DbInfo singleKeyDuplicates(long rootPage) {
+        if ((environment.u16(rootPage + Lmdb.PAGE_FLAGS) & Lmdb.P_LEAF) == 0 || numKeys(rootPage) != 1) {
+            return null;
+        }
+        long node = node(rootPage, 0);
+        int flags = environment.u16(node + Lmdb.NODE_FLAGS);
+        if ((flags & (Lmdb.F_DUPDATA | Lmdb.F_SUBDATA)) != (Lmdb.F_DUPDATA | Lmdb.F_SUBDATA)) {
+            return null;
+        }
+        DbInfo tree = environment.readDb(node + Lmdb.NODE_HEADER_SIZE + environment.u16(node + Lmdb.NODE_KEY_SIZE));
+        return tree.isEmpty() ? null : tree;
+    }
+
+    /**
+     * Descends the tree level by level until it has enough subtrees, or reaches the leaves.
+     * @return subtrees in key order, with the lowest key each may hold.
+     */
+    private List<Subtree> split(long root, int wanted) throws IOException {
+        List<Subtree> level = List.of(new Subtree(root, null));
+        while (level.size() < wanted) {
+            List<Subtree> children = new ArrayList<>();
+            for (Subtree subtree : level) {
+                long page = environment.pageOffset(subtree.pgno);
+                if ((environment.u16(page + Lmdb.PAGE_FLAGS) & Lmdb.P_BRANCH) == 0) {
+                    return level;
+                }
+                for (int i = 0; i < numKeys(page); i++) {
+                    long node = node(page, i);
+                    long child = environment.u16(node) | (long) environment.u16(node + 2) << 16
+                            | (long) environment.u16(node + Lmdb.NODE_FLAGS) << 32;
+                    // the first separator of a branch page is empty, its lower bound is the parent's
+                    ByteBuffer lower = i == 0 ? subtree.lower
+                            : environment.slice(node + Lmdb.NODE_HEADER_SIZE, environment.u16(node + Lmdb.NODE_KEY_SIZE));
+                    children.add(new Subtree(child, lower));
+                }
+            }
+            level = children;
+        }
+        return level;
+    }
+
+    /**
+     * @return the subtrees that may hold keys of the range.
+     */
+    private List<Subtree> select(List<Subtree> subtrees, ByteBuffer from, ByteBuffer to) {
+        if (from == null && to == null) {
+            return subtrees;
+        }
+        Comparator<ByteBuffer> order = keyOrder();
+        List<Subtree> selected = new ArrayList<>();
+        for (int i = 0; i < subtrees.size(); i++) {
+            ByteBuffer lower = subtrees.get(i).lower;
+            ByteBuffer upper = i + 1 < subtrees.size() ? subtrees.get(i + 1).lower : null;
+            boolean belowRange = from != null && upper != null && order.compare(upper, from) <= 0;
+            boolean aboveRange = to != null && lower != null && order.compare(lower, to) >= 0;
+            if (!belowRange && !aboveRange) {
+                selected.add(subtrees.get(i));
+            }
+        }
+        return selected;
+    }
+
+    private int numKeys(long page) {
+        return (environment.u16(page + Lmdb.PAGE_LOWER) - Lmdb.PAGE_HEADER_SIZE) >> 1;
+    }
+
+    private long node(long page, int index) {
+        return page + environment.u16(page + Lmdb.PAGE_HEADER_SIZE + 2L * index);
+    }
+
+    private record Subtree(long pgno, ByteBuffer lower) {
+    }
+}
@@ -0,0 +1,190 @@
+package org.ohchase.monerod.lmdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+/**
+ * Path from the root of one B+tree down to a leaf, walking its entries in key order.
+ * Pages are kept as absolute file offsets, nothing is allocated while walking. Not thread-safe.
+ */
+final class PageStack {
+
+    private static final int MAX_DEPTH = 32;
+
+    private final LmdbEnvironment environment;
+
+    private final long[] pages = new long[MAX_DEPTH];
+
+    private final int[] indexes = new int[MAX_DEPTH];
+
+    private final int[] counts = new int[MAX_DEPTH];
+
+    private int top = -1;
+
+    // key size of LEAF2 pages, which store fixed-size keys without nodes
+    private int leaf2KeySize;
+
+    PageStack(LmdbEnvironment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Positions on the first entry of the tree rooted at a page.
+     * @param root root page number.
+     * @param leaf2KeySize key size of fixed-size duplicate trees.
+     * @return false if the tree is empty.
+     */
+    boolean first(long root, int leaf2KeySize) throws IOException {
+        this.leaf2KeySize = leaf2KeySize;
+        top = -1;
+        if (root == Lmdb.INVALID_PAGE) {
+            return false;
+        }
+        push(environment.pageOffset(root));
+        return descend();
+    }
+
+    /**
+     * Positions on the first entry whose key is not below the given one.
+     * @return false if there is none.
+     */
+    boolean seek(long root, int leaf2KeySize, ByteBuffer key, Comparator<ByteBuffer> order) throws IOException {
+        this.leaf2KeySize = leaf2KeySize;
+        top = -1;
+        if (root == Lmdb.INVALID_PAGE) {
+            return false;
+        }
+        push(environment.pageOffset(root));
+        while (isBranch()) {
+            // last child whose separator is not above the key, the first separator is implicitly the lowest key
+            int low = 1;
+            int high = counts[top] - 1;
+            int child = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (order.compare(key(mid), key) <= 0) {
+                    child = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            indexes[top] = child;
+            push(environment.pageOffset(childPage()));
+        }
+        int low = 0;
+        int high = counts[top] - 1;
+        int found = counts[top];
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (order.compare(key(mid), key) >= 0) {
+                found = mid;
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        if (found < counts[top]) {
+            indexes[top] = found;
+            return true;
+        }
+        indexes[top] = counts[top] - 1;
+        return next();
+    }
+
+    /**
+     * Moves to the next entry.
+     * @return false past the last entry.
+     */
+    boolean next() throws IOException {
+        if (top < 0) {
+            return false;
+        }
+        if (++indexes[top] < counts[top]) {
+            return true;
+        }
+        do {
+            top--;
+        } while (top >= 0 && indexes[top] + 1 >= counts[top]);
+        if (top < 0) {
+            return false;
+        }
+        indexes[top]++;
+        push(environment.pageOffset(childPage()));
+        return descend();
+    }
+
+    /**
+     * @return offset of the current leaf node, meaningless on LEAF2 pages.
+     */
+    long node() {
+        return node(indexes[top]);
+    }
+
+    boolean isLeaf2() {
+        return (environment.u16(pages[top] + Lmdb.PAGE_FLAGS) & Lmdb.P_LEAF2) != 0;
+    }
+
+    /**
+     * @return the current key.
+     */
+    ByteBuffer key() throws IOException {
+        return key(indexes[top]);
+    }
+
+    private ByteBuffer key(int index) throws IOException {
+        if (isLeaf2()) {
+            return environment.slice(pages[top] + Lmdb.PAGE_HEADER_SIZE + (long) index * leaf2KeySize, leaf2KeySize);
+        }
+        long node = node(index);
+        return environment.slice(node + Lmdb.NODE_HEADER_SIZE, environment.u16(node + Lmdb.NODE_KEY_SIZE));
+    }
+
+    private long node(int index) {
+        return pages[top] + environment.u16(pages[top] + Lmdb.PAGE_HEADER_SIZE + 2L * index);
+    }
+
+    private long childPage() {
+        long node = node();
+        return environment.u16(node) | (long) environment.u16(node + 2) << 16
+                | (long) environment.u16(node + Lmdb.NODE_FLAGS) << 32;
+    }
+
+    private boolean isBranch() {
+        return (environment.u16(pages[top] + Lmdb.PAGE_FLAGS) & Lmdb.P_BRANCH) != 0;
+    }
+
+    private boolean descend() throws IOException {
+        while (isBranch()) {
+            push(environment.pageOffset(childPage()));
+        }
+        return counts[top] > 0;
+    }
+
+    private void push(long page) throws IOException {
+        if (top + 1 == MAX_DEPTH) {
+            throw new IOException("B+tree deeper than " + MAX_DEPTH + " pages");
+        }
+        int flags = environment.u16(page + Lmdb.PAGE_FLAGS);
+        if ((flags & (Lmdb.P_BRANCH | Lmdb.P_LEAF)) == 0 || (flags & (Lmdb.P_OVERFLOW | Lmdb.P_META)) != 0) {
+            throw new IOException("Unexpected page flags 0x" + Integer.toHexString(flags) + " at offset " + page);
+        }
+        top++;
+        pages[top] = page;
+        indexes[top] = 0;
+        counts[top] = (environment.u16(page + Lmdb.PAGE_LOWER) - Lmdb.PAGE_HEADER_SIZE) >> 1;
+    }
+
+    /**
+     * Sub-pages of duplicates are embedded in a leaf node rather than addressed by page number.
+     * @param page offset of the sub-page.
+     * @return false if it holds no entries.
+     */
+    boolean firstEmbedded(long page) throws IOException {
+        top = -1;
+        push(page);
+        leaf2KeySize = environment.u16(page + Lmdb.PAGE_PAD);
+        return counts[top] > 0;
+    }
+}
@@ -0,0 +1,124 @@
+package org.ohchase.monerod.logstore;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer, single-consumer ring of timestamped lines.
+ * Each record is a 4-byte length, an 8-byte timestamp and the line bytes, wrapping around the end of the array.
+ * The producer never waits: a record that does not fit is rejected.
+ */
+final class LogRing {
+
+    static final int HEADER_SIZE = 12;
+
+    private final byte[] buffer;
+
+    private final int mask;
+
+    /**
+     * Position of the next record to consume, written by the consumer only.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Position after the last published record, written by the producer only.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    // producer-local
+    private long producerTail;
+    private long cachedHead;
+
+    /**
+     * @param capacity capacity in bytes, rounded up to a power of two.
+     */
+    LogRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(HEADER_SIZE * 2, capacity - 1)) << 1;
+        this.buffer = new byte[size];
+        this.mask = size - 1;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Appends a record. Producer only.
+     * @return false if the ring has no room for the record.
+     */
+    boolean offer(byte[] line, int offset, int length, long timestamp) {
+        long size = HEADER_SIZE + (long) length;
+        if (producerTail + size - cachedHead > buffer.length) {
+            cachedHead = head.get();
+            if (producerTail + size - cachedHead > buffer.length) {
+                return false;
+            }
+        }
+        long position = producerTail;
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[(int) (position++ & mask)] = (byte) (length >>> shift);
+        }
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[(int) (position++ & mask)] = (byte) (timestamp >>> shift);
+        }
+        int start = (int) (position & mask);
+        int first = Math.min(length, buffer.length - start);
+        System.arraycopy(line, offset, buffer, start, first);
+        System.arraycopy(line, offset + first, buffer, 0, length - first);
+
+        producerTail = position + length;
+        tail.set(producerTail);
+        return true;
+    }
+
+    /**
+     * @return true if nothing is waiting to be consumed.
+     */
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Hands every published record to the handler, then frees their space. Consumer only.
+     * @return number of records consumed.
+     */
+    <E extends Exception> int drain(RecordHandler<E> handler) throws E {
+        long position = head.get();
+        long end = tail.get();
+        int records = 0;
+        while (position < end) {
+            int length = 0;
+            for (int i = 0; i < 4; i++) {
+                length = (length << 8) | (buffer[(int) (position++ & mask)] & 0xFF);
+            }
+            long timestamp = 0;
+            for (int i = 0; i < 8; i++) {
+                timestamp = (timestamp << 8) | (buffer[(int) (position++ & mask)] & 0xFF);
+            }
+            handler.onRecord(position, length, timestamp);
+            position += length;
+            records++;
+        }
+        head.set(position);
+        return records;
+    }
+
+    /**
+     * Copies line bytes of a record being handled.
+     * @param position position handed to the handler.
+     * @param length length of the line.
+     * @param target buffer receiving the bytes.
+     */
+    void copyTo(long position, int length, ByteBuffer target) {
+        int start = (int) (position & mask);
+        int first = Math.min(length, buffer.length - start);
+        target.put(buffer, start, first);
+        target.put(buffer, 0, length - first);
+    }
+
+    @FunctionalInterface
+    interface RecordHandler<E extends Exception> {
+        void onRecord(long position, int length, long timestamp) throws E;
+    }
+}
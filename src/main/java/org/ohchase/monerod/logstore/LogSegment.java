@@ -0,0 +1,307 @@
+package org.ohchase.monerod.logstore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * One segment of the log store: a file of newline terminated lines and a sparse index of
+ * {@code (timestamp, position)} pairs, each pointing at the start of a line.
+ * The writer appends through a memory mapping, readers use positional reads of the committed length.
+ */
+final class LogSegment {
+
+    static final String LOG_SUFFIX = ".log";
+
+    static final String INDEX_SUFFIX = ".idx";
+
+    private static final int INDEX_ENTRY_SIZE = 16;
+
+    /**
+     * Offset of the segment's first byte within the whole store, also its file name.
+     */
+    final long baseOffset;
+
+    final Path logPath;
+
+    final Path indexPath;
+
+    /**
+     * Bytes readable by queries.
+     */
+    private volatile int length;
+
+    // guarded by this
+    private long[] timestamps = new long[64];
+    private int[] positions = new int[64];
+    private int indexCount;
+
+    /**
+     * Timestamp of the last record, for retention and range pruning.
+     */
+    private volatile long lastTimestamp = Long.MIN_VALUE;
+
+    // writer only
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private FileChannel indexChannel;
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+
+    private LogSegment(Path directory, long baseOffset) {
+        this.baseOffset = baseOffset;
+        this.logPath = directory.resolve(String.format("%020d", baseOffset) + LOG_SUFFIX);
+        this.indexPath = directory.resolve(String.format("%020d", baseOffset) + INDEX_SUFFIX);
+    }
+
+    /**
+     * Creates a new, writable segment.
+     * @param size size of the mapping.
+     */
+    static LogSegment create(Path directory, long baseOffset, long size) throws IOException {
+        LogSegment segment = new LogSegment(directory, baseOffset);
+        segment.channel = FileChannel.open(segment.logPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            segment.map = segment.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            segment.indexChannel = FileChannel.open(segment.indexPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            segment.channel.close();
+            throw e;
+        }
+        return segment;
+    }
+
+    /**
+     * Opens a segment left by an earlier run, read-only.
+     * A segment that was not closed cleanly is still mapped to full size, its trailing zero bytes are ignored.
+     */
+    static LogSegment recover(Path directory, long baseOffset) throws IOException {
+        LogSegment segment = new LogSegment(directory, baseOffset);
+        try (FileChannel channel = FileChannel.open(segment.logPath, StandardOpenOption.READ)) {
+            segment.length = (int) contentLength(channel);
+        }
+        if (Files.exists(segment.indexPath)) {
+            ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(segment.indexPath));
+            while (entries.remaining() >= INDEX_ENTRY_SIZE) {
+                long timestamp = entries.getLong();
+                long position = entries.getLong();
+                if (position < segment.length) {
+                    segment.addIndexEntry(timestamp, (int) position);
+                }
+            }
+        }
+        if (segment.indexCount > 0) {
+            segment.lastTimestamp = segment.timestamps[segment.indexCount - 1];
+        }
+        return segment;
+    }
+
+    private static long contentLength(FileChannel channel) throws IOException {
+        long end = channel.size();
+        ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+        while (end > 0) {
+            long start = Math.max(0, end - chunk.capacity());
+            chunk.clear().limit((int) (end - start));
+            while (chunk.hasRemaining() && channel.read(chunk, start + chunk.position()) >= 0) {
+                // keep reading
+            }
+            for (int i = chunk.position() - 1; i >= 0; i--) {
+                if (chunk.get(i) != 0) {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    synchronized long getFirstTimestamp() {
+        return indexCount > 0 ? timestamps[0] : Long.MIN_VALUE;
+    }
+
+    /**
+     * @return bytes left in the mapping. Writer only.
+     */
+    int remaining() {
+        return map.remaining();
+    }
+
+    /**
+     * @return bytes written, including those not yet committed. Writer only.
+     */
+    int position() {
+        return map.position();
+    }
+
+    MappedByteBuffer getMap() {
+        return map;
+    }
+
+    /**
+     * Records that the line starting at the current position was read at the given time. Writer only.
+     */
+    void index(long timestamp) throws IOException {
+        int position = map.position();
+        addIndexEntry(timestamp, position);
+        indexEntry.clear();
+        indexEntry.putLong(timestamp).putLong(position).flip();
+        while (indexEntry.hasRemaining()) {
+            indexChannel.write(indexEntry);
+        }
+    }
+
+    /**
+     * Makes everything written so far readable. Writer only.
+     */
+    void commit(long timestamp) {
+        lastTimestamp = timestamp;
+        length = map.position();
+    }
+
+    /**
+     * Flushes the mapping and trims the file to its content. Writer only.
+     */
+    void seal() throws IOException {
+        commit(lastTimestamp);
+        map.force();
+        map = null;
+        try {
+            channel.truncate(length);
+        } catch (IOException e) {
+            // some platforms refuse to truncate a mapped file, recovery skips the zero tail
+        }
+        channel.close();
+        indexChannel.close();
+    }
+
+    private synchronized void addIndexEntry(long timestamp, int position) {
+        if (indexCount == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, indexCount * 2);
+            positions = Arrays.copyOf(positions, indexCount * 2);
+        }
+        timestamps[indexCount] = timestamp;
+        positions[indexCount] = position;
+        indexCount++;
+    }
+
+    /**
+     * Finds where lines read at or after the timestamp may start.
+     * Lines between two index entries were read within one interval of the first entry,
+     * so a bucket that ended before the timestamp is skipped.
+     * @param timestamp start of the range.
+     * @param intervalMillis index interval.
+     * @return position of the first line to read, or -1 if every indexed line is older.
+     */
+    synchronized int startPosition(long timestamp, long intervalMillis) {
+        int index = search(timestamp);
+        if (index < 0) {
+            return 0;
+        }
+        if (timestamps[index] + intervalMillis > timestamp) {
+            return positions[index];
+        }
+        return index + 1 < indexCount ? positions[index + 1] : -1;
+    }
+
+    /**
+     * @return position of the first indexed line read after the timestamp, or -1 if none.
+     */
+    synchronized int higherPosition(long timestamp) {
+        int index = search(timestamp) + 1;
+        return index < indexCount ? positions[index] : -1;
+    }
+
+    /**
+     * @return index of the last entry with a timestamp at or before the given one, -1 if none.
+     */
+    private int search(long timestamp) {
+        int low = 0;
+        int high = indexCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Copies committed bytes to a stream.
+     * @return false if the segment was deleted meanwhile.
+     */
+    boolean copy(int from, int to, OutputStream out) throws IOException {
+        try (FileChannel reader = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocate(Math.min(64 * 1024, Math.max(1, to - from)));
+            long position = from;
+            while (position < to) {
+                chunk.clear().limit((int) Math.min(chunk.capacity(), to - position));
+                int read = reader.read(chunk, position);
+                if (read < 0) {
+                    break;
+                }
+                out.write(chunk.array(), 0, read);
+                position += read;
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Finds where the last lines of the committed bytes begin, scanning backwards.
+     * @param lines number of lines wanted.
+     * @param end committed length to scan back from.
+     * @return start position of the lines, and in the upper half the number of lines found.
+     */
+    long findLastLines(int lines, int end) throws IOException {
+        int found = 0;
+        try (FileChannel reader = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+            // skip the terminator of the last line
+            int scanEnd = end - 1;
+            while (scanEnd > 0) {
+                int start = Math.max(0, scanEnd - chunk.capacity());
+                chunk.clear().limit(scanEnd - start);
+                while (chunk.hasRemaining() && reader.read(chunk, start + chunk.position()) >= 0) {
+                    // keep reading
+                }
+                for (int i = chunk.position() - 1; i >= 0; i--) {
+                    if (chunk.get(i) == '\n') {
+                        found++;
+                        if (found == lines) {
+                            return ((long) found << 32) | (start + i + 1);
+                        }
+                    }
+                }
+                scanEnd = start;
+            }
+            found = end > 0 ? found + 1 : 0;
+            return ((long) Math.min(found, lines) << 32);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(logPath);
+        Files.deleteIfExists(indexPath);
+    }
+}
@@ -0,0 +1,353 @@
+package org.ohchase.monerod.logstore;
+
+import lombok.Getter;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.LogStoreConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Persists daemon output to size-capped, memory-mapped segment files, keeping it off the heap.
+ * <p>
+ * {@link #append} is called by the output reader and never blocks: lines are copied into a bounded ring
+ * and written out by a dedicated thread. When the ring is full the line is dropped and counted.
+ * A sparse index maps read times to line positions, so time range and last lines reads only touch the bytes they return.
+ * Segments beyond the configured total size or age are deleted. Segments of earlier runs in the same directory
+ * are kept, subject to the same retention, and can be queried alongside the current run.
+ */
+public class LogStore implements Closeable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final long RETENTION_CHECK_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Getter
+    private final Path directory;
+
+    private final LogStoreConfig config;
+
+    private final long indexIntervalMillis;
+
+    private final LogRing ring;
+
+    private final Thread writer;
+
+    /**
+     * Segments from oldest to newest, the last one is being written. Guarded by itself.
+     */
+    private final List<LogSegment> segments = new ArrayList<>();
+
+    private final AtomicLong droppedLines = new AtomicLong();
+
+    private final AtomicLong droppedBytes = new AtomicLong();
+
+    private volatile boolean writerWaiting;
+
+    private volatile boolean closed;
+
+    private volatile boolean failed;
+
+    // writer only
+    private LogSegment active;
+    private long lastIndexed = Long.MIN_VALUE;
+    private long lastTimestamp;
+    private long lastRetentionCheck;
+
+    private LogStore(Path directory, LogStoreConfig config) {
+        this.directory = directory;
+        this.config = config;
+        this.indexIntervalMillis = Math.max(1, config.getIndexInterval().toMillis());
+        this.ring = new LogRing(config.getBufferSize());
+        this.writer = DaemonExecutors.threadFactory("monerod-log-writer").newThread(this::runWriter);
+    }
+
+    /**
+     * Opens a store, recovering segments of earlier runs, and starts its writer thread.
+     * @param directory directory holding the segments, created if missing.
+     * @param config store configuration.
+     * @return open store.
+     * @throws IOException if the directory or the first segment cannot be created.
+     * @throws IllegalArgumentException if the segment size is below {@link LogStoreConfig#MIN_SEGMENT_SIZE}.
+     */
+    public static LogStore open(Path directory, LogStoreConfig config) throws IOException {
+        if (config.getSegmentSize() < LogStoreConfig.MIN_SEGMENT_SIZE || config.getSegmentSize() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must be between " + LogStoreConfig.MIN_SEGMENT_SIZE
+                    + " and " + Integer.MAX_VALUE + " bytes: " + config.getSegmentSize());
+        }
+        Files.createDirectories(directory);
+        LogStore store = new LogStore(directory, config);
+
+        List<Long> baseOffsets = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + LogSegment.LOG_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    baseOffsets.add(Long.parseLong(name.substring(0, name.length() - LogSegment.LOG_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        baseOffsets.sort(null);
+        long nextOffset = 0;
+        for (long baseOffset : baseOffsets) {
+            LogSegment segment = LogSegment.recover(directory, baseOffset);
+            store.segments.add(segment);
+            nextOffset = baseOffset + Math.max(1, segment.getLength());
+        }
+
+        store.active = LogSegment.create(directory, nextOffset, config.getSegmentSize());
+        store.segments.add(store.active);
+        store.applyRetention(System.currentTimeMillis());
+        store.writer.start();
+        return store;
+    }
+
+    /**
+     * Queues a line for writing, without blocking. Called by a single thread.
+     * @param line buffer holding the line, without terminator.
+     * @param offset start of the line.
+     * @param length length of the line.
+     * @return false if the line was dropped because the buffer is full or the store is closed.
+     */
+    public boolean append(byte[] line, int offset, int length) {
+        if (closed || failed || !ring.offer(line, offset, length, System.currentTimeMillis())) {
+            droppedLines.incrementAndGet();
+            droppedBytes.addAndGet(length);
+            return false;
+        }
+        if (writerWaiting) {
+            writerWaiting = false;
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * @return lines dropped because the buffer was full.
+     */
+    public long getDroppedLines() {
+        return droppedLines.get();
+    }
+
+    /**
+     * @return true if the writer stopped on an error, lines are dropped from then on.
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * @return bytes dropped because the buffer was full.
+     */
+    public long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    /**
+     * Writes the lines read between two instants to a stream, as stored.
+     * Boundaries are resolved through the sparse index, so lines read up to one index interval outside the range may be included.
+     * @param from start of the range.
+     * @param to end of the range, inclusive.
+     * @param out stream receiving the lines.
+     * @throws IOException if reading a segment or writing the stream fails.
+     */
+    public void read(Instant from, Instant to, OutputStream out) throws IOException {
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        for (LogSegment segment : snapshot()) {
+            int length = segment.getLength();
+            if (length == 0 || segment.getLastTimestamp() < fromMillis - indexIntervalMillis) {
+                continue;
+            }
+            if (segment.getFirstTimestamp() > toMillis) {
+                break;
+            }
+            int start = segment.startPosition(fromMillis, indexIntervalMillis);
+            int end = segment.higherPosition(toMillis);
+            if (end < 0 || end > length) {
+                end = length;
+            }
+            if (start >= 0 && start < end) {
+                segment.copy(start, end, out);
+            }
+        }
+    }
+
+    /**
+     * @param from start of the range.
+     * @param to end of the range, inclusive.
+     * @return lines read between the instants, see {@link #read(Instant, Instant, OutputStream)}.
+     * @throws IOException if reading a segment fails.
+     */
+    public List<String> range(Instant from, Instant to) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        read(from, to, out);
+        return split(out);
+    }
+
+    /**
+     * Reads the most recent lines, scanning backwards from the end of the store.
+     * @param count number of lines wanted.
+     * @return up to {@code count} lines, oldest first.
+     * @throws IOException if reading a segment fails.
+     */
+    public List<String> lastLines(int count) throws IOException {
+        List<LogSegment> snapshot = snapshot();
+        int[] starts = new int[snapshot.size()];
+        int[] ends = new int[snapshot.size()];
+        int first = snapshot.size();
+        int remaining = count;
+        for (int i = snapshot.size() - 1; i >= 0 && remaining > 0; i--) {
+            LogSegment segment = snapshot.get(i);
+            ends[i] = segment.getLength();
+            long found = segment.findLastLines(remaining, ends[i]);
+            starts[i] = (int) found;
+            remaining -= (int) (found >>> 32);
+            first = i;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = first; i < snapshot.size(); i++) {
+            if (ends[i] > starts[i]) {
+                snapshot.get(i).copy(starts[i], ends[i], out);
+            }
+        }
+        return split(out);
+    }
+
+    /**
+     * Stops accepting lines, writes out what is buffered and seals the current segment.
+     * The store can still be read afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<LogSegment> snapshot() {
+        synchronized (segments) {
+            return List.copyOf(segments);
+        }
+    }
+
+    private static List<String> split(ByteArrayOutputStream out) {
+        List<String> lines = new ArrayList<>();
+        String text = out.toString(StandardCharsets.UTF_8);
+        int start = 0;
+        int end;
+        while ((end = text.indexOf('\n', start)) >= 0) {
+            lines.add(text.substring(start, end));
+            start = end + 1;
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines;
+    }
+
+    private void runWriter() {
+        try {
+            while (true) {
+                if (ring.drain(this::write) > 0) {
+                    active.commit(lastTimestamp);
+                    continue;
+                }
+                if (closed) {
+                    break;
+                }
+                writerWaiting = true;
+                if (ring.isEmpty() && !closed) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                writerWaiting = false;
+
+                long now = System.currentTimeMillis();
+                if (config.getMaxAge() != null && now - lastRetentionCheck >= RETENTION_CHECK_MILLIS) {
+                    applyRetention(now);
+                }
+            }
+            active.seal();
+        } catch (IOException | RuntimeException e) {
+            // a line the segment cannot hold included, fail the store rather than lose the writer silently
+            failed = true;
+            System.out.println("Warning. Log store " + directory + " stopped writing: " + e);
+        }
+    }
+
+    private void write(long position, int length, long timestamp) throws IOException {
+        if (active.remaining() < length + 1) {
+            roll();
+        }
+        if (timestamp >= lastIndexed + indexIntervalMillis) {
+            active.index(timestamp);
+            lastIndexed = timestamp;
+        }
+        ring.copyTo(position, length, active.getMap());
+        active.getMap().put((byte) '\n');
+        lastTimestamp = timestamp;
+    }
+
+    private void roll() throws IOException {
+        active.seal();
+        LogSegment next = LogSegment.create(directory, active.baseOffset + Math.max(1, active.getLength()), config.getSegmentSize());
+        synchronized (segments) {
+            segments.add(next);
+        }
+        active = next;
+        // every segment starts with an index entry
+        lastIndexed = Long.MIN_VALUE;
+        applyRetention(System.currentTimeMillis());
+    }
+
+    private void applyRetention(long now) {
+        lastRetentionCheck = now;
+        List<LogSegment> expired = new ArrayList<>();
+        synchronized (segments) {
+            long total = 0;
+            for (LogSegment segment : segments) {
+                total += segment == active ? config.getSegmentSize() : segment.getLength();
+            }
+            while (segments.size() > 1) {
+                LogSegment oldest = segments.get(0);
+                boolean tooOld = config.getMaxAge() != null
+                        && oldest.getLastTimestamp() != Long.MIN_VALUE
+                        && now - oldest.getLastTimestamp() > config.getMaxAge().toMillis();
+                if (total <= config.getMaxTotalSize() && !tooOld) {
+                    break;
+                }
+                total -= oldest.getLength();
+                expired.add(segments.remove(0));
+            }
+        }
+        for (LogSegment segment : expired) {
+            try {
+                segment.delete();
+            } catch (IOException e) {
+                System.out.println("Warning. Could not delete log segment " + segment.logPath + ": " + e);
+            }
+        }
+    }
+}
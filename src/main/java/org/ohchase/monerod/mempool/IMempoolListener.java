@@ -0,0 +1,22 @@
+package org.ohchase.monerod.mempool;
+
+/**
+ * Listener for changes of the transaction pool seen by a {@link MempoolMirror}.
+ * Called on the I/O executor, never concurrently.
+ */
+public interface IMempoolListener {
+
+    /**
+     * Called when a transaction entered the pool.
+     * @param transaction the transaction.
+     */
+    default void onTransactionAdded(MempoolTransaction transaction) {
+    }
+
+    /**
+     * Called when a transaction left the pool, mined or dropped.
+     * @param hash 32-byte transaction hash.
+     */
+    default void onTransactionRemoved(byte[] hash) {
+    }
+}
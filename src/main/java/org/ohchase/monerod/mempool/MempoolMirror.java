@@ -0,0 +1,392 @@
+package org.ohchase.monerod.mempool;
+
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.MempoolConfig;
+import org.ohchase.monerod.epee.EpeeReader;
+import org.ohchase.monerod.epee.EpeeWriter;
+import org.ohchase.monerod.json.JsonReader;
+import org.ohchase.monerod.json.JsonWriter;
+import org.ohchase.monerod.rpc.DaemonRpcClient;
+import org.ohchase.monerod.rpc.RpcException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a local view of the daemon's transaction pool.
+ * <p>
+ * Every poll fetches only the pool's hashes through {@code /get_transaction_pool_hashes.bin}, a packed blob of
+ * 32 bytes per transaction, and diffs it against a {@link TxHashSet} without allocating per listed hash.
+ * Bodies are then fetched through {@code /get_transactions} for the added hashes only, so the JSON traffic
+ * scales with the pool's churn rather than its size. Transactions that left the pool before their body was
+ * fetched are dropped silently, and hashes whose bodies could not be fetched are retried on the next poll.
+ */
+public class MempoolMirror implements AutoCloseable {
+
+    private static final String HASHES_PATH = "/get_transaction_pool_hashes.bin";
+
+    private static final String TRANSACTIONS_PATH = "/get_transactions";
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final URI endpoint;
+
+    private final HttpClient httpClient;
+
+    private final MempoolConfig config;
+
+    private final IMempoolListener listener;
+
+    // guarded by this
+    private final TxHashSet hashes;
+    private ScheduledFuture<?> task;
+    private boolean closed;
+    private long polls;
+
+    /**
+     * @param endpoint base URI of the RPC interface.
+     * @param httpClient client to send requests through.
+     * @param config mirror configuration.
+     * @param listener listener of pool changes.
+     */
+    public MempoolMirror(URI endpoint, HttpClient httpClient, MempoolConfig config, IMempoolListener listener) {
+        if (config.getBodyBatchSize() < 1) {
+            throw new IllegalArgumentException("Body batch size must be positive: " + config.getBodyBatchSize());
+        }
+        this.endpoint = endpoint;
+        this.httpClient = httpClient;
+        this.config = config;
+        this.listener = listener;
+        this.hashes = new TxHashSet(config.getInitialCapacity());
+    }
+
+    /**
+     * Creates and starts a mirror of a running daemon's pool, preferring the unrestricted RPC interface.
+     * @param daemonProcess daemon to mirror.
+     * @param config mirror configuration.
+     * @param listener listener of pool changes.
+     * @return started mirror.
+     */
+    public static MempoolMirror forDaemon(DaemonProcess daemonProcess, MempoolConfig config, IMempoolListener listener) {
+        MempoolMirror mirror = new MempoolMirror(DaemonRpcClient.forDaemon(daemonProcess).getEndpoint(),
+                DaemonRpcClient.sharedHttpClient(), config, listener);
+        mirror.start();
+        return mirror;
+    }
+
+    /**
+     * Starts polling, the first poll reports the whole pool as added.
+     */
+    public synchronized void start() {
+        if (task == null && !closed) {
+            task = DaemonExecutors.scheduler().schedule(this::pollAndReschedule, 0, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops polling. A poll in progress still delivers its changes.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Safe to call from any thread.
+     * @param hash 32-byte transaction hash.
+     * @return true if the transaction was in the pool at the last poll.
+     */
+    public synchronized boolean contains(byte[] hash) {
+        if (hash.length != TxHashSet.HASH_SIZE) {
+            throw new IllegalArgumentException("Transaction hashes are 32 bytes: " + hash.length);
+        }
+        return hashes.contains(hash);
+    }
+
+    /**
+     * @return transactions in the pool at the last poll.
+     */
+    public synchronized int size() {
+        return hashes.size();
+    }
+
+    /**
+     * @return bytes held by the hash set.
+     */
+    public synchronized long getTableBytes() {
+        return hashes.getTableBytes();
+    }
+
+    /**
+     * @return completed polls.
+     */
+    public synchronized long getPolls() {
+        return polls;
+    }
+
+    private void pollAndReschedule() {
+        poll().whenComplete((ignored, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                System.out.println("Warning. Failed to poll the transaction pool: " + cause);
+            }
+            synchronized (this) {
+                if (!closed) {
+                    task = DaemonExecutors.scheduler().schedule(this::pollAndReschedule,
+                            config.getInterval().toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs one poll: diffs the pool's hashes, reports removals, then fetches and reports additions.
+     * @return future completed once every change was delivered.
+     */
+    CompletableFuture<Void> poll() {
+        HttpRequest request = HttpRequest.newBuilder(endpoint.resolve(HASHES_PATH))
+                .timeout(config.getTimeout())
+                .header("Content-Type", "application/octet-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(new EpeeWriter().beginObject(0).toByteArray()))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenComposeAsync(response -> {
+                    List<byte[]> added;
+                    try {
+                        if (response.statusCode() != 200) {
+                            throw new RpcException(response.statusCode(), "HTTP status " + response.statusCode() + " from " + response.uri());
+                        }
+                        ByteBuffer pool = readHashes(ByteBuffer.wrap(response.body()));
+                        added = diff(pool);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                    if (added.isEmpty()) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    if (!config.isFetchBodies()) {
+                        for (byte[] hash : added) {
+                            notifyAdded(new MempoolTransaction(hash, null, 0, false));
+                        }
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return fetchBodies(added, 0);
+                }, DaemonExecutors.ioExecutor());
+    }
+
+    /**
+     * Marks every listed hash and sweeps the rest, reporting the removed ones.
+     * @param pool little-endian buffer of packed 32-byte hashes.
+     * @return hashes that were not in the set.
+     */
+    private List<byte[]> diff(ByteBuffer pool) {
+        List<byte[]> added = new ArrayList<>();
+        List<byte[]> removed;
+        synchronized (this) {
+            hashes.nextEpoch();
+            int start = pool.position();
+            for (int offset = start; offset < pool.limit(); offset += TxHashSet.HASH_SIZE) {
+                if (hashes.mark(pool, offset)) {
+                    byte[] hash = new byte[TxHashSet.HASH_SIZE];
+                    pool.get(offset, hash);
+                    added.add(hash);
+                }
+            }
+            removed = hashes.sweep();
+            polls++;
+        }
+        for (byte[] hash : removed) {
+            try {
+                listener.onTransactionRemoved(hash);
+            } catch (RuntimeException e) {
+                System.out.println("Warning. Mempool listener failed: " + e);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Fetches the bodies of added transactions one batch at a time and reports them.
+     */
+    private CompletableFuture<Void> fetchBodies(List<byte[]> added, int from) {
+        if (from >= added.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<byte[]> batch = added.subList(from, Math.min(added.size(), from + config.getBodyBatchSize()));
+        StringBuilder body = new StringBuilder();
+        JsonWriter writer = new JsonWriter(body).beginObject().name("txs_hashes").beginArray();
+        for (byte[] hash : batch) {
+            writer.value(HEX.formatHex(hash));
+        }
+        writer.endArray().name("decode_as_json").value(false).endObject();
+        HttpRequest request = HttpRequest.newBuilder(endpoint.resolve(TRANSACTIONS_PATH))
+                .timeout(config.getTimeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handleAsync((response, error) -> {
+                    List<MempoolTransaction> transactions;
+                    try {
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                            throw cause instanceof IOException io ? io : new IOException(cause);
+                        }
+                        if (response.statusCode() != 200) {
+                            throw new RpcException(response.statusCode(), "HTTP status " + response.statusCode() + " from " + response.uri());
+                        }
+                        transactions = readTransactions(response.body());
+                    } catch (IOException e) {
+                        // forget the unreported hashes so the next poll picks them up again
+                        synchronized (this) {
+                            for (byte[] hash : added.subList(from, added.size())) {
+                                hashes.remove(hash);
+                            }
+                        }
+                        throw new CompletionException(e);
+                    }
+                    deliver(batch, transactions);
+                    return null;
+                }, DaemonExecutors.ioExecutor())
+                .thenCompose(ignored -> fetchBodies(added, from + batch.size()));
+    }
+
+    /**
+     * Reports the fetched transactions still in the pool, forgets the requested ones that left it meanwhile.
+     */
+    private void deliver(List<byte[]> batch, List<MempoolTransaction> transactions) {
+        List<MempoolTransaction> inPool = new ArrayList<>(transactions.size());
+        synchronized (this) {
+            for (byte[] hash : batch) {
+                hashes.remove(hash);
+            }
+            ByteBuffer hash = ByteBuffer.allocate(TxHashSet.HASH_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (MempoolTransaction transaction : transactions) {
+                hash.clear();
+                hash.put(transaction.getHash());
+                hashes.mark(hash, 0);
+                inPool.add(transaction);
+            }
+        }
+        for (MempoolTransaction transaction : inPool) {
+            notifyAdded(transaction);
+        }
+    }
+
+    private void notifyAdded(MempoolTransaction transaction) {
+        try {
+            listener.onTransactionAdded(transaction);
+        } catch (RuntimeException e) {
+            System.out.println("Warning. Mempool listener failed: " + e);
+        }
+    }
+
+    /**
+     * Decodes a {@code get_transaction_pool_hashes.bin} response.
+     * @param document response body.
+     * @return little-endian buffer of the packed hashes.
+     * @throws IOException if the response is malformed or reports a failure.
+     */
+    static ByteBuffer readHashes(ByteBuffer document) throws IOException {
+        EpeeReader reader = new EpeeReader(document);
+        ByteBuffer pool = ByteBuffer.allocate(0);
+        String status = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "tx_hashes" -> pool = reader.nextBlob();
+                case "status" -> status = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!"OK".equals(status)) {
+            throw new RpcException(-1, "Daemon returned status " + status);
+        }
+        if (pool.remaining() % TxHashSet.HASH_SIZE != 0) {
+            throw new IOException("Transaction hash blob of " + pool.remaining() + " bytes");
+        }
+        return pool.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Decodes a {@code get_transactions} response, keeping the transactions still in the pool.
+     */
+    private static List<MempoolTransaction> readTransactions(byte[] body) throws IOException {
+        JsonReader reader = JsonReader.of(body);
+        List<MempoolTransaction> transactions = new ArrayList<>();
+        String status = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "status" -> status = reader.nextString();
+                case "txs" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        MempoolTransaction transaction = readTransaction(reader);
+                        if (transaction != null) {
+                            transactions.add(transaction);
+                        }
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!"OK".equals(status)) {
+            throw new RpcException(-1, "Daemon returned status " + status);
+        }
+        return transactions;
+    }
+
+    /**
+     * @return the transaction, or null if it was mined meanwhile.
+     */
+    private static MempoolTransaction readTransaction(JsonReader reader) throws IOException {
+        String hash = null;
+        String hex = null;
+        boolean inPool = false;
+        boolean doubleSpendSeen = false;
+        long receivedTimestamp = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "tx_hash" -> hash = reader.nextString();
+                case "as_hex" -> hex = reader.nextString();
+                case "in_pool" -> inPool = reader.nextBoolean();
+                case "double_spend_seen" -> doubleSpendSeen = reader.nextBoolean();
+                case "received_timestamp" -> receivedTimestamp = reader.nextLong();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (hash == null || hash.length() != TxHashSet.HASH_SIZE * 2) {
+            throw new IOException("Transaction entry without valid hash: " + hash);
+        }
+        if (!inPool) {
+            return null;
+        }
+        try {
+            return new MempoolTransaction(HEX.parseHex(hash), hex != null ? HEX.parseHex(hex) : null, receivedTimestamp, doubleSpendSeen);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed transaction " + hash, e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.ohchase.monerod.mempool;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.HexFormat;
+
+/**
+ * Transaction that entered the pool.
+ */
+@Getter
+@AllArgsConstructor
+public class MempoolTransaction {
+
+    /**
+     * 32-byte transaction hash.
+     */
+    private final byte[] hash;
+
+    /**
+     * Serialized transaction, null when bodies are not fetched.
+     */
+    private final byte[] blob;
+
+    /**
+     * Unix time the daemon received the transaction, 0 when unknown.
+     */
+    private final long receivedTimestamp;
+
+    /**
+     * Whether the daemon saw another transaction spending the same outputs.
+     */
+    private final boolean doubleSpendSeen;
+
+    /**
+     * @return the hash in hex, as the RPC interface prints it.
+     */
+    public String getHashHex() {
+        return HexFormat.of().formatHex(hash);
+    }
+}
@@ -0,0 +1,219 @@
+package org.ohchase.monerod.mempool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Open addressing set of 32-byte transaction hashes, stored as four {@code long}s per slot in one flat array.
+ * Each slot also carries the epoch it was last marked in, so a full listing can be diffed against the set
+ * by marking every listed hash and sweeping the unmarked ones. Linear probing with backward-shift deletion;
+ * the table doubles at a load factor of one half. About 36 bytes per slot, no object per entry. Not thread-safe.
+ */
+final class TxHashSet {
+
+    static final int HASH_SIZE = 32;
+
+    private static final int EMPTY = 0;
+
+    private long[] keys;
+
+    private int[] marks;
+
+    private int mask;
+
+    private int size;
+
+    private int epoch = 1;
+
+    private int marked;
+
+    /**
+     * @param expectedSize hashes the set must hold without growing.
+     */
+    TxHashSet(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1);
+    }
+
+    /**
+     * Starts a new epoch, every hash is unmarked until {@link #mark} sees it again.
+     */
+    void nextEpoch() {
+        if (epoch == Integer.MAX_VALUE) {
+            // keep marks distinct from the empty slot value
+            for (int i = 0; i < marks.length; i++) {
+                if (marks[i] != EMPTY) {
+                    marks[i] = 1;
+                }
+            }
+            epoch = 1;
+        }
+        epoch++;
+        marked = 0;
+    }
+
+    /**
+     * Marks a hash as seen in the current epoch, adding it if absent.
+     * @param hashes little-endian buffer holding the hash.
+     * @param offset absolute offset of the hash.
+     * @return true if the hash was added.
+     */
+    boolean mark(ByteBuffer hashes, int offset) {
+        long k0 = hashes.getLong(offset);
+        long k1 = hashes.getLong(offset + 8);
+        long k2 = hashes.getLong(offset + 16);
+        long k3 = hashes.getLong(offset + 24);
+        int index = find(k0, k1, k2, k3);
+        if (marks[index] != EMPTY) {
+            if (marks[index] != epoch) {
+                marks[index] = epoch;
+                marked++;
+            }
+            return false;
+        }
+        if (size + 1 > (mask + 1) / 2) {
+            allocate((mask + 1) * 2);
+            index = find(k0, k1, k2, k3);
+        }
+        int slot = index * 4;
+        keys[slot] = k0;
+        keys[slot + 1] = k1;
+        keys[slot + 2] = k2;
+        keys[slot + 3] = k3;
+        marks[index] = epoch;
+        size++;
+        marked++;
+        return true;
+    }
+
+    /**
+     * Removes the hashes not marked in the current epoch.
+     * Free when every hash was marked, a pass over the table otherwise.
+     * @return the removed hashes.
+     */
+    List<byte[]> sweep() {
+        if (marked == size) {
+            return List.of();
+        }
+        List<byte[]> removed = new ArrayList<>(size - marked);
+        int index = 0;
+        while (index <= mask) {
+            if (marks[index] != EMPTY && marks[index] != epoch) {
+                removed.add(hashAt(index));
+                shiftBack(index);
+                size--;
+                // a later entry may have moved into this slot
+                continue;
+            }
+            index++;
+        }
+        return removed;
+    }
+
+    boolean contains(byte[] hash) {
+        ByteBuffer buffer = ByteBuffer.wrap(hash).order(ByteOrder.LITTLE_ENDIAN);
+        return marks[find(buffer.getLong(0), buffer.getLong(8), buffer.getLong(16), buffer.getLong(24))] != EMPTY;
+    }
+
+    /**
+     * @return true if the hash was present.
+     */
+    boolean remove(byte[] hash) {
+        ByteBuffer buffer = ByteBuffer.wrap(hash).order(ByteOrder.LITTLE_ENDIAN);
+        int index = find(buffer.getLong(0), buffer.getLong(8), buffer.getLong(16), buffer.getLong(24));
+        if (marks[index] == EMPTY) {
+            return false;
+        }
+        if (marks[index] == epoch) {
+            marked--;
+        }
+        shiftBack(index);
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return bytes held by the table.
+     */
+    long getTableBytes() {
+        return (long) keys.length * Long.BYTES + (long) marks.length * Integer.BYTES;
+    }
+
+    /**
+     * @return the slot holding the hash, or the empty slot ending its probe sequence.
+     */
+    private int find(long k0, long k1, long k2, long k3) {
+        for (int index = index(k0); ; index = (index + 1) & mask) {
+            if (marks[index] == EMPTY) {
+                return index;
+            }
+            int slot = index * 4;
+            if (keys[slot] == k0 && keys[slot + 1] == k1 && keys[slot + 2] == k2 && keys[slot + 3] == k3) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * Moves later entries of the probe sequence into the freed index, so lookups never stop early.
+     */
+    private void shiftBack(int freed) {
+        int index = freed;
+        while (true) {
+            index = (index + 1) & mask;
+            if (marks[index] == EMPTY) {
+                break;
+            }
+            int home = index(keys[index * 4]);
+            // move the entry unless its home lies cyclically within (freed, index]
+            boolean stays = freed <= index ? freed < home && home <= index : freed < home || home <= index;
+            if (!stays) {
+                System.arraycopy(keys, index * 4, keys, freed * 4, 4);
+                marks[freed] = marks[index];
+                freed = index;
+            }
+        }
+        marks[freed] = EMPTY;
+    }
+
+    private byte[] hashAt(int index) {
+        byte[] hash = new byte[HASH_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(hash).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 4; i++) {
+            buffer.putLong(i * 8, keys[index * 4 + i]);
+        }
+        return hash;
+    }
+
+    private void allocate(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldMarks = marks;
+        keys = new long[capacity * 4];
+        marks = new int[capacity];
+        mask = capacity - 1;
+        if (oldMarks == null) {
+            return;
+        }
+        for (int i = 0; i < oldMarks.length; i++) {
+            if (oldMarks[i] != EMPTY) {
+                int s = i * 4;
+                int index = find(oldKeys[s], oldKeys[s + 1], oldKeys[s + 2], oldKeys[s + 3]);
+                System.arraycopy(oldKeys, s, keys, index * 4, 4);
+                marks[index] = oldMarks[i];
+            }
+        }
+    }
+
+    /**
+     * Hashes are uniformly distributed already, mixing only spreads the low bits of the first word.
+     */
+    private int index(long k0) {
+        long hash = k0 * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,39 @@
+package org.ohchase.monerod.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Monotonic counter, incremented or read from a supplier at scrape time.
+ */
+public final class Counter extends Metric {
+
+    private final byte[] prefix;
+
+    private final LongAdder value = new LongAdder();
+
+    private final LongSupplier supplier;
+
+    Counter(MetricFamily family, String[] labelValues, LongSupplier supplier) {
+        super(family);
+        this.prefix = prefix(family.getName() + "_total", family.getLabelNames(), labelValues, null);
+        this.supplier = supplier;
+    }
+
+    public void inc() {
+        value.increment();
+    }
+
+    public void inc(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return supplier != null ? supplier.getAsLong() : value.sum();
+    }
+
+    @Override
+    void render(MetricsWriter writer) {
+        writer.write(prefix).write(get()).write('\n');
+    }
+}
@@ -0,0 +1,237 @@
+package org.ohchase.monerod.metrics;
+
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.IDaemonListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Metrics of one daemon, labelled with its name.
+ * Heights, restarts and listener dispatch latency come from the listener returned by {@link #instrument},
+ * uptime, sync rate and output line rate from the process passed to {@link #bind}.
+ */
+public final class DaemonMetrics implements AutoCloseable {
+
+    private static final String DAEMON = "daemon";
+
+    private static final String[] EVENTS = {
+            "rpc_ready", "p2p_ready", "daemon_started", "daemon_killed", "daemon_exited", "new_top_block_candidate", "sync_progress"
+    };
+
+    private static final int RPC_READY = 0;
+    private static final int P2P_READY = 1;
+    private static final int DAEMON_STARTED = 2;
+    private static final int DAEMON_KILLED = 3;
+    private static final int DAEMON_EXITED = 4;
+    private static final int NEW_TOP_BLOCK_CANDIDATE = 5;
+    private static final int SYNC_PROGRESS = 6;
+
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    private final Gauge currentHeight;
+
+    private final Gauge targetHeight;
+
+    private final Counter restarts;
+
+    private final Histogram[] dispatch = new Histogram[EVENTS.length];
+
+    private final AtomicInteger starts = new AtomicInteger();
+
+    private volatile DaemonProcess daemonProcess;
+
+    private volatile long startMillis;
+
+    // guarded by this
+    private long lastLines;
+    private long lastLinesNanos;
+    private double linesPerSecond;
+
+    private DaemonMetrics(MetricsRegistry registry, String name) {
+        metrics.add(registry.gaugeFamily("monerod_up", "Whether the daemon process is running", DAEMON)
+                .gauge(() -> daemonProcess != null && daemonProcess.isAlive() ? 1 : 0, name));
+        currentHeight = add(registry.gaugeFamily("monerod_current_height", "Current blockchain height", DAEMON).gauge(name));
+        targetHeight = add(registry.gaugeFamily("monerod_target_height", "Target blockchain height", DAEMON).gauge(name));
+        metrics.add(registry.gaugeFamily("monerod_sync_rate_blocks_per_second", "Smoothed sync rate", DAEMON)
+                .gauge(() -> daemonProcess != null ? daemonProcess.getSyncStats().getEwmaRate() : Double.NaN, name));
+        metrics.add(registry.gaugeFamily("monerod_uptime_seconds", "Time since the daemon process started", DAEMON)
+                .gauge(this::uptimeSeconds, name));
+        restarts = add(registry.counterFamily("monerod_restarts", "Daemon starts after the first", DAEMON).counter(name));
+        metrics.add(registry.counterFamily("monerod_output_lines", "Output lines read from the daemon", DAEMON)
+                .counter(() -> daemonProcess != null ? daemonProcess.getLinesRead() : 0, name));
+        metrics.add(registry.gaugeFamily("monerod_output_lines_per_second", "Output lines read per second since the previous scrape", DAEMON)
+                .gauge(this::linesPerSecond, name));
+        MetricFamily dispatchFamily = registry.histogramFamily("monerod_listener_dispatch_seconds",
+                "Time spent in listener callbacks", MetricsRegistry.DEFAULT_BUCKETS, DAEMON, "event");
+        for (int i = 0; i < EVENTS.length; i++) {
+            dispatch[i] = add(dispatchFamily.histogram(name, EVENTS[i]));
+        }
+    }
+
+    /**
+     * Registers the metrics of a daemon.
+     * @param registry registry to add the metrics to.
+     * @param name daemon name, used as the {@code daemon} label.
+     * @return the daemon's metrics.
+     */
+    public static DaemonMetrics register(MetricsRegistry registry, String name) {
+        return new DaemonMetrics(registry, name);
+    }
+
+    /**
+     * Wraps a listener to record heights, restarts and how long each callback takes.
+     * @param delegate listener to wrap.
+     * @return listener to start the daemon with.
+     */
+    public IDaemonListener instrument(IDaemonListener delegate) {
+        return new InstrumentedListener(delegate);
+    }
+
+    /**
+     * Binds the running process, replacing the previous one after a restart.
+     * @param daemonProcess running daemon.
+     */
+    public void bind(DaemonProcess daemonProcess) {
+        long start;
+        try {
+            start = System.currentTimeMillis() - daemonProcess.getUptime().toMillis();
+        } catch (RuntimeException e) {
+            start = System.currentTimeMillis();
+        }
+        synchronized (this) {
+            lastLines = 0;
+            lastLinesNanos = System.nanoTime();
+            linesPerSecond = 0;
+        }
+        startMillis = start;
+        this.daemonProcess = daemonProcess;
+    }
+
+    /**
+     * Removes the daemon's metrics from the registry.
+     */
+    @Override
+    public void close() {
+        for (Metric metric : metrics) {
+            metric.remove();
+        }
+    }
+
+    private <M extends Metric> M add(M metric) {
+        metrics.add(metric);
+        return metric;
+    }
+
+    private double uptimeSeconds() {
+        DaemonProcess current = daemonProcess;
+        if (current == null || !current.isAlive()) {
+            return 0;
+        }
+        return (System.currentTimeMillis() - startMillis) / 1000.0;
+    }
+
+    private synchronized double linesPerSecond() {
+        DaemonProcess current = daemonProcess;
+        if (current == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        // scrapes close together reuse the last rate rather than dividing by a tiny interval
+        if (now - lastLinesNanos >= TimeUnit.SECONDS.toNanos(1)) {
+            long lines = current.getLinesRead();
+            linesPerSecond = (lines - lastLines) * 1e9 / (now - lastLinesNanos);
+            lastLines = lines;
+            lastLinesNanos = now;
+        }
+        return linesPerSecond;
+    }
+
+    private final class InstrumentedListener implements IDaemonListener {
+
+        private final IDaemonListener delegate;
+
+        private InstrumentedListener(IDaemonListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onRpcReady() {
+            long start = System.nanoTime();
+            try {
+                delegate.onRpcReady();
+            } finally {
+                dispatch[RPC_READY].observeNanos(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onP2PReady() {
+            long start = System.nanoTime();
+            try {
+                delegate.onP2PReady();
+            } finally {
+                dispatch[P2P_READY].observeNanos(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onDaemonStarted() {
+            if (starts.incrementAndGet() > 1) {
+                restarts.inc();
+            }
+            long start = System.nanoTime();
+            try {
+                delegate.onDaemonStarted();
+            } finally {
+                dispatch[DAEMON_STARTED].observeNanos(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onDaemonKilled() {
+            long start = System.nanoTime();
+            try {
+                delegate.onDaemonKilled();
+            } finally {
+                dispatch[DAEMON_KILLED].observeNanos(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onDaemonExited(int exitCode) {
+            long start = System.nanoTime();
+            try {
+                delegate.onDaemonExited(exitCode);
+            } finally {
+                dispatch[DAEMON_EXITED].observeNanos(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onNewTopBlockCandidate(long current, long candidate) {
+            currentHeight.set(current);
+            targetHeight.set(Math.max(targetHeight.get(), candidate));
+            long start = System.nanoTime();
+            try {
+                delegate.onNewTopBlockCandidate(current, candidate);
+            } finally {
+                dispatch[NEW_TOP_BLOCK_CANDIDATE].observeNanos(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onSyncProgress(long current, long target) {
+            currentHeight.set(current);
+            targetHeight.set(target);
+            long start = System.nanoTime();
+            try {
+                delegate.onSyncProgress(current, target);
+            } finally {
+                dispatch[SYNC_PROGRESS].observeNanos(System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.ohchase.monerod.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Gauge holding a value that is set, or read from a supplier at scrape time.
+ */
+public final class Gauge extends Metric {
+
+    private final byte[] prefix;
+
+    private final AtomicLong bits = new AtomicLong(Double.doubleToRawLongBits(0));
+
+    private final DoubleSupplier supplier;
+
+    Gauge(MetricFamily family, String[] labelValues, DoubleSupplier supplier) {
+        super(family);
+        this.prefix = prefix(family.getName(), family.getLabelNames(), labelValues, null);
+        this.supplier = supplier;
+    }
+
+    public void set(double value) {
+        bits.set(Double.doubleToRawLongBits(value));
+    }
+
+    public double get() {
+        return supplier != null ? supplier.getAsDouble() : Double.longBitsToDouble(bits.get());
+    }
+
+    @Override
+    void render(MetricsWriter writer) {
+        writer.write(prefix).write(get()).write('\n');
+    }
+}
@@ -0,0 +1,76 @@
+package org.ohchase.monerod.metrics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations with fixed buckets, exported in seconds.
+ */
+public final class Histogram extends Metric {
+
+    private final long[] upperBoundsNanos;
+
+    private final LongAdder[] counts;
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    private final byte[][] bucketPrefixes;
+
+    private final byte[] countPrefix;
+
+    private final byte[] sumPrefix;
+
+    Histogram(MetricFamily family, String[] labelValues) {
+        super(family);
+        double[] bounds = family.getBuckets();
+        upperBoundsNanos = new long[bounds.length];
+        counts = new LongAdder[bounds.length + 1];
+        bucketPrefixes = new byte[bounds.length + 1][];
+        for (int i = 0; i < bounds.length; i++) {
+            upperBoundsNanos[i] = Math.round(bounds[i] * TimeUnit.SECONDS.toNanos(1));
+            bucketPrefixes[i] = prefix(family.getName() + "_bucket", family.getLabelNames(), labelValues, "le=\"" + BigDecimal.valueOf(bounds[i]).stripTrailingZeros().toPlainString() + "\"");
+        }
+        bucketPrefixes[bounds.length] = prefix(family.getName() + "_bucket", family.getLabelNames(), labelValues, "le=\"+Inf\"");
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        countPrefix = prefix(family.getName() + "_count", family.getLabelNames(), labelValues, null);
+        sumPrefix = prefix(family.getName() + "_sum", family.getLabelNames(), labelValues, null);
+    }
+
+    /**
+     * Records a duration.
+     * @param nanos duration in nanoseconds.
+     */
+    public void observeNanos(long nanos) {
+        int bucket = 0;
+        while (bucket < upperBoundsNanos.length && nanos > upperBoundsNanos[bucket]) {
+            bucket++;
+        }
+        counts[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return number of recorded durations.
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override
+    void render(MetricsWriter writer) {
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i].sum();
+            writer.write(bucketPrefixes[i]).write(cumulative).write('\n');
+        }
+        writer.write(countPrefix).write(cumulative).write('\n');
+        writer.write(sumPrefix).write(sumNanos.sum() / 1e9).write('\n');
+    }
+}
@@ -0,0 +1,64 @@
+package org.ohchase.monerod.metrics;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One labelled child of a {@link MetricFamily}.
+ * The sample names and labels are rendered to bytes once, scrapes only append the values.
+ */
+public abstract class Metric {
+
+    private final MetricFamily family;
+
+    Metric(MetricFamily family) {
+        this.family = family;
+    }
+
+    /**
+     * Removes this metric from its family, for example when its daemon is gone.
+     */
+    public void remove() {
+        family.remove(this);
+    }
+
+    abstract void render(MetricsWriter writer);
+
+    /**
+     * Renders {@code name{labels,extra} } as bytes.
+     */
+    static byte[] prefix(String name, String[] labelNames, String[] labelValues, String extraLabel) {
+        StringBuilder sb = new StringBuilder(name);
+        if (labelNames.length > 0 || extraLabel != null) {
+            sb.append('{');
+            for (int i = 0; i < labelNames.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(labelNames[i]).append("=\"");
+                escape(sb, labelValues[i]);
+                sb.append('"');
+            }
+            if (extraLabel != null) {
+                if (labelNames.length > 0) {
+                    sb.append(',');
+                }
+                sb.append(extraLabel);
+            }
+            sb.append('}');
+        }
+        sb.append(' ');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '"' -> sb.append("\\\"");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.ohchase.monerod.metrics;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics sharing a name, type and label names, rendered under one header.
+ */
+public final class MetricFamily {
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final MetricType type;
+
+    private final String[] labelNames;
+
+    private final double[] buckets;
+
+    private final byte[] textHeader;
+
+    private final byte[] openMetricsHeader;
+
+    private final List<Metric> children = new CopyOnWriteArrayList<>();
+
+    MetricFamily(String name, String help, MetricType type, String[] labelNames, double[] buckets) {
+        this.name = name;
+        this.type = type;
+        this.labelNames = labelNames.clone();
+        this.buckets = buckets;
+        // counters are typed under their sample name in the text format and under the family name in OpenMetrics
+        String textName = type == MetricType.COUNTER ? name + "_total" : name;
+        this.textHeader = header(textName, help, type);
+        this.openMetricsHeader = header(name, help, type);
+    }
+
+    private static byte[] header(String name, String help, MetricType type) {
+        return ("# HELP " + name + " " + help.replace("\\", "\\\\").replace("\n", "\\n") + "\n"
+                + "# TYPE " + name + " " + type.getName() + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    String[] getLabelNames() {
+        return labelNames;
+    }
+
+    double[] getBuckets() {
+        return buckets;
+    }
+
+    public Gauge gauge(String... labelValues) {
+        return add(new Gauge(this, check(MetricType.GAUGE, labelValues), null));
+    }
+
+    public Gauge gauge(DoubleSupplier supplier, String... labelValues) {
+        return add(new Gauge(this, check(MetricType.GAUGE, labelValues), supplier));
+    }
+
+    public Counter counter(String... labelValues) {
+        return add(new Counter(this, check(MetricType.COUNTER, labelValues), null));
+    }
+
+    public Counter counter(LongSupplier supplier, String... labelValues) {
+        return add(new Counter(this, check(MetricType.COUNTER, labelValues), supplier));
+    }
+
+    public Histogram histogram(String... labelValues) {
+        return add(new Histogram(this, check(MetricType.HISTOGRAM, labelValues)));
+    }
+
+    void remove(Metric metric) {
+        children.remove(metric);
+    }
+
+    void render(MetricsWriter writer, boolean openMetrics) {
+        if (children.isEmpty()) {
+            return;
+        }
+        writer.write(openMetrics ? openMetricsHeader : textHeader);
+        for (Metric child : children) {
+            child.render(writer);
+        }
+    }
+
+    private String[] check(MetricType expected, String[] labelValues) {
+        if (type != expected) {
+            throw new IllegalArgumentException(name + " is a " + type.getName() + ", not a " + expected.getName());
+        }
+        if (labelValues.length != labelNames.length) {
+            throw new IllegalArgumentException(name + " expects labels " + String.join(", ", labelNames));
+        }
+        return labelValues;
+    }
+
+    private <M extends Metric> M add(M metric) {
+        children.add(metric);
+        return metric;
+    }
+}
@@ -0,0 +1,20 @@
+package org.ohchase.monerod.metrics;
+
+/**
+ * Enumeration of metric types of the exposition format.
+ */
+public enum MetricType {
+    GAUGE("gauge"),
+    COUNTER("counter"),
+    HISTOGRAM("histogram");
+
+    private final String name;
+
+    MetricType(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,69 @@
+package org.ohchase.monerod.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dependency-free registry of metrics, rendered in the Prometheus text format or OpenMetrics.
+ * Families are created once and shared, each daemon adds its own labelled children.
+ */
+public final class MetricsRegistry {
+
+    /**
+     * Default duration buckets in seconds, from a microsecond to a second.
+     */
+    public static final double[] DEFAULT_BUCKETS = {
+            0.000001, 0.000005, 0.00001, 0.00005, 0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1
+    };
+
+    private static final byte[] EOF = {'#', ' ', 'E', 'O', 'F', '\n'};
+
+    private final List<MetricFamily> families = new CopyOnWriteArrayList<>();
+
+    public MetricFamily gaugeFamily(String name, String help, String... labelNames) {
+        return family(name, help, MetricType.GAUGE, labelNames, null);
+    }
+
+    /**
+     * @param name family name, without the {@code _total} suffix of its samples.
+     */
+    public MetricFamily counterFamily(String name, String help, String... labelNames) {
+        return family(name, help, MetricType.COUNTER, labelNames, null);
+    }
+
+    /**
+     * @param buckets upper bounds in seconds, ascending.
+     */
+    public MetricFamily histogramFamily(String name, String help, double[] buckets, String... labelNames) {
+        return family(name, help, MetricType.HISTOGRAM, labelNames, buckets.clone());
+    }
+
+    /**
+     * Renders every metric.
+     * @param writer buffer receiving the exposition, not reset first.
+     * @param openMetrics whether to render OpenMetrics instead of the Prometheus text format.
+     */
+    public void render(MetricsWriter writer, boolean openMetrics) {
+        for (MetricFamily family : families) {
+            family.render(writer, openMetrics);
+        }
+        if (openMetrics) {
+            writer.write(EOF);
+        }
+    }
+
+    private synchronized MetricFamily family(String name, String help, MetricType type, String[] labelNames, double[] buckets) {
+        for (MetricFamily family : families) {
+            if (family.getName().equals(name)) {
+                if (family.getType() != type || !Arrays.equals(family.getLabelNames(), labelNames)) {
+                    throw new IllegalArgumentException("Metric " + name + " already registered with another type or labels");
+                }
+                return family;
+            }
+        }
+        MetricFamily family = new MetricFamily(name, help, type, labelNames, buckets);
+        families.add(family);
+        return family;
+    }
+}
@@ -0,0 +1,91 @@
+package org.ohchase.monerod.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves a {@link MetricsRegistry} on {@code /metrics} with the JDK's built-in HTTP server.
+ * Scrapes are handled one at a time on a single thread, rendering into one reused buffer.
+ * OpenMetrics is served to scrapers that accept it, the Prometheus text format otherwise.
+ */
+public final class MetricsServer implements AutoCloseable {
+
+    private static final String TEXT_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String OPEN_METRICS_CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final MetricsRegistry registry;
+
+    private final MetricsWriter writer = new MetricsWriter();
+
+    private MetricsServer(HttpServer server, ExecutorService executor, MetricsRegistry registry) {
+        this.server = server;
+        this.executor = executor;
+        this.registry = registry;
+    }
+
+    /**
+     * Starts serving the registry.
+     * @param address address to bind, port 0 picks a free port.
+     * @param registry registry to serve.
+     * @return running server.
+     * @throws IOException if the address cannot be bound.
+     */
+    public static MetricsServer start(InetSocketAddress address, MetricsRegistry registry) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        ExecutorService executor = Executors.newSingleThreadExecutor(DaemonExecutors.threadFactory("monerod-metrics"));
+        MetricsServer metricsServer = new MetricsServer(server, executor, registry);
+        server.createContext("/metrics", metricsServer::handle);
+        server.setExecutor(executor);
+        server.start();
+        return metricsServer;
+    }
+
+    /**
+     * @return bound address, with the actual port.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            boolean openMetrics = accept != null && accept.contains("application/openmetrics-text");
+
+            writer.reset();
+            registry.render(writer, openMetrics);
+
+            exchange.getResponseHeaders().set("Content-Type", openMetrics ? OPEN_METRICS_CONTENT_TYPE : TEXT_CONTENT_TYPE);
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, writer.length());
+            try (OutputStream body = exchange.getResponseBody()) {
+                writer.writeTo(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.ohchase.monerod.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer for the text exposition format, reused across scrapes.
+ * Numbers are formatted straight into the buffer, so rendering a warmed-up registry allocates nothing.
+ * Not thread-safe.
+ */
+public final class MetricsWriter {
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L
+    };
+
+    private static final int FRACTION_DIGITS = 6;
+
+    private byte[] buffer = new byte[16 * 1024];
+
+    private int length;
+
+    /**
+     * Empties the buffer, keeping its capacity.
+     */
+    public void reset() {
+        length = 0;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    MetricsWriter write(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+        return this;
+    }
+
+    MetricsWriter write(char c) {
+        ensure(1);
+        buffer[length++] = (byte) c;
+        return this;
+    }
+
+    MetricsWriter write(long value) {
+        if (value == Long.MIN_VALUE) {
+            return write(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    /**
+     * Writes a double with up to six fraction digits.
+     */
+    MetricsWriter write(double value) {
+        if (Double.isNaN(value)) {
+            return write((byte) 'N', (byte) 'a', (byte) 'N');
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? write((byte) '+', (byte) 'I', (byte) 'n', (byte) 'f') : write((byte) '-', (byte) 'I', (byte) 'n', (byte) 'f');
+        }
+        if (Math.abs(value) >= 1e12) {
+            // beyond fixed-point range, rare enough to format the slow way
+            return write(Double.toString(value).getBytes(StandardCharsets.US_ASCII));
+        }
+        long scaled = Math.round(value * POWERS_OF_TEN[FRACTION_DIGITS]);
+        if (scaled < 0) {
+            write('-');
+            scaled = -scaled;
+        }
+        write(scaled / POWERS_OF_TEN[FRACTION_DIGITS]);
+        long fraction = scaled % POWERS_OF_TEN[FRACTION_DIGITS];
+        if (fraction != 0) {
+            int digits = FRACTION_DIGITS;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            ensure(digits + 1);
+            buffer[length++] = '.';
+            for (int i = length + digits - 1; i >= length; i--) {
+                buffer[i] = (byte) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            length += digits;
+        }
+        return this;
+    }
+
+    private MetricsWriter write(byte a, byte b, byte c) {
+        ensure(3);
+        buffer[length++] = a;
+        buffer[length++] = b;
+        buffer[length++] = c;
+        return this;
+    }
+
+    private MetricsWriter write(byte a, byte b, byte c, byte d) {
+        write(a, b, c);
+        ensure(1);
+        buffer[length++] = d;
+        return this;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(length + extra, buffer.length * 2));
+        }
+    }
+}
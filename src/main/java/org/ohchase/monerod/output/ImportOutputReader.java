@@ -0,0 +1,169 @@
+package org.ohchase.monerod.output;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads monero-blockchain-import output into a reusable buffer.
+ * The import redraws its progress in place with carriage returns, so both {@code '\r'} and {@code '\n'} end a segment.
+ * Segments holding {@code block <height> / <target>} are reported as progress.
+ * Not thread-safe, a reader is owned by a single thread.
+ */
+public final class ImportOutputReader {
+
+    /**
+     * Segments longer than this are split.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] BLOCK = "block ".getBytes(StandardCharsets.US_ASCII);
+
+    private final InputStream in;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int position;
+
+    private int limit;
+
+    private int segmentOffset;
+    private int segmentLength;
+
+    private long height;
+    private long targetHeight;
+
+    public ImportOutputReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next non-empty segment, blocking until it is complete or the stream ends.
+     * @return true if a segment was read, false at the end of the stream.
+     * @throws IOException if the stream fails.
+     */
+    public boolean readSegment() throws IOException {
+        while (true) {
+            for (int i = position; i < limit; i++) {
+                byte b = buffer[i];
+                if (b == '\r' || b == '\n') {
+                    int start = position;
+                    position = i + 1;
+                    if (i > start) {
+                        segment(start, i);
+                        return true;
+                    }
+                }
+            }
+            if (position == limit) {
+                position = 0;
+                limit = 0;
+            } else if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            } else if (limit == buffer.length) {
+                // no terminator in a full buffer, hand it out as is
+                segment(0, limit);
+                position = limit;
+                return true;
+            }
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                if (limit > position) {
+                    segment(position, limit);
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+            limit += read;
+        }
+    }
+
+    /**
+     * @return true if the last segment reported import progress.
+     */
+    public boolean isProgress() {
+        return height >= 0;
+    }
+
+    /**
+     * @return height of the last progress segment, -1 if the segment was no progress.
+     */
+    public long getHeight() {
+        return height;
+    }
+
+    /**
+     * @return target height of the last progress segment.
+     */
+    public long getTargetHeight() {
+        return targetHeight;
+    }
+
+    /**
+     * @return the last segment, decoded.
+     */
+    public String getSegment() {
+        return new String(buffer, segmentOffset, segmentLength, StandardCharsets.UTF_8);
+    }
+
+    private void segment(int from, int to) {
+        segmentOffset = from;
+        segmentLength = to - from;
+        height = -1;
+        targetHeight = -1;
+        for (int start = from; start <= to - BLOCK.length; start++) {
+            if (matches(start) && parseProgress(start + BLOCK.length, to)) {
+                return;
+            }
+        }
+    }
+
+    private boolean matches(int start) {
+        for (int i = 0; i < BLOCK.length; i++) {
+            if (buffer[start + i] != BLOCK[i]) {
+                return false;
+            }
+        }
+        return start == segmentOffset || buffer[start - 1] == ' ';
+    }
+
+    /**
+     * Parses {@code <height> / <target>}, spaces around the slash optional.
+     */
+    private boolean parseProgress(int from, int to) {
+        int cursor = from;
+        long first = 0;
+        int digits = 0;
+        while (cursor < to && digits < 18 && buffer[cursor] >= '0' && buffer[cursor] <= '9') {
+            first = first * 10 + (buffer[cursor++] - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            return false;
+        }
+        while (cursor < to && buffer[cursor] == ' ') {
+            cursor++;
+        }
+        if (cursor == to || buffer[cursor++] != '/') {
+            return false;
+        }
+        while (cursor < to && buffer[cursor] == ' ') {
+            cursor++;
+        }
+        long second = 0;
+        digits = 0;
+        while (cursor < to && digits < 18 && buffer[cursor] >= '0' && buffer[cursor] <= '9') {
+            second = second * 10 + (buffer[cursor++] - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            return false;
+        }
+        height = first;
+        targetHeight = second;
+        return true;
+    }
+}
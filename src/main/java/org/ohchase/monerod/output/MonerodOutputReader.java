@@ -0,0 +1,315 @@
+package org.ohchase.monerod.output;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads monerod output line by line straight from the process stream into a reusable byte buffer.
+ * Every line is classified in a single pass with a {@link MultiPatternMatcher},
+ * and heights are parsed as primitive longs, so steady-state reading creates no garbage.
+ * Not thread-safe, a reader is owned by a single thread at a time.
+ */
+public final class MonerodOutputReader {
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    /**
+     * Lines longer than this are split, so that a runaway line cannot grow the buffer without bound.
+     */
+    private static final int MAX_LINE_LENGTH = 1 << 20;
+
+    private static final int PATTERN_SYNCED = 0;
+    private static final int PATTERN_NEW_TOP_BLOCK_CANDIDATE = 1;
+    private static final int PATTERN_P2P_READY = 2;
+    private static final int PATTERN_RPC_READY = 3;
+    private static final int PATTERN_DAEMON_STARTED = 4;
+
+    private static final MultiPatternMatcher MATCHER = new MultiPatternMatcher(
+            "Synced ",
+            "Sync data returned a new top block candidate: ",
+            "p2p server initialized OK",
+            "core RPC server started ok",
+            "Starting p2p net loop"
+    );
+
+    private final InputStream in;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    /**
+     * Start of unconsumed data in the buffer.
+     */
+    private int position;
+
+    /**
+     * End of valid data in the buffer.
+     */
+    private int limit;
+
+    /**
+     * Offset from which the next newline search continues, so refills never rescan bytes.
+     */
+    private int searchFrom;
+
+    private boolean endOfStream;
+
+    private int lineOffset;
+    private int lineLength;
+
+    private long firstHeight;
+    private long secondHeight;
+
+    // Scratch cursor for the height parsers
+    private int cursor;
+
+    public MonerodOutputReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads and classifies the next line, blocking until a full line or the end of the stream is reached.
+     * @return marker of the line, or null at the end of the stream.
+     * @throws IOException if the stream fails.
+     */
+    public OutputMarker readLine() throws IOException {
+        return nextLine(true);
+    }
+
+    /**
+     * Classifies the next line if it can be read without blocking, using {@link InputStream#available()}.
+     * The end of the stream is not detected by polling, use {@link #readLine()} once the writer is known to be gone.
+     * @return marker of the line, or null if no complete line is available yet.
+     * @throws IOException if the stream fails.
+     */
+    public OutputMarker pollLine() throws IOException {
+        return nextLine(false);
+    }
+
+    /**
+     * @return true once {@link #readLine()} reached the end of the stream.
+     */
+    public boolean isEndOfStream() {
+        return endOfStream && position == limit;
+    }
+
+    private OutputMarker nextLine(boolean blocking) throws IOException {
+        while (true) {
+            for (int i = searchFrom; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    return consumeLine(i, i + 1);
+                }
+            }
+            searchFrom = limit;
+
+            if (limit - position >= MAX_LINE_LENGTH) {
+                // split a runaway line rather than growing the buffer any further
+                return consumeLine(limit, limit);
+            }
+
+            if (!endOfStream) {
+                int maxRead = Integer.MAX_VALUE;
+                if (!blocking) {
+                    maxRead = in.available();
+                    if (maxRead <= 0) {
+                        return null;
+                    }
+                }
+                endOfStream = !fill(maxRead);
+            }
+            if (endOfStream) {
+                if (position < limit) {
+                    return consumeLine(limit, limit);
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @return buffer holding the current line, valid until the next read.
+     */
+    public byte[] getLineBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return offset of the current line in {@link #getLineBuffer()}.
+     */
+    public int getLineOffset() {
+        return lineOffset;
+    }
+
+    /**
+     * @return length of the current line, excluding the line terminator.
+     */
+    public int getLineLength() {
+        return lineLength;
+    }
+
+    /**
+     * @return current height for {@link OutputMarker#SYNC_PROGRESS} and {@link OutputMarker#NEW_TOP_BLOCK_CANDIDATE} lines.
+     */
+    public long getFirstHeight() {
+        return firstHeight;
+    }
+
+    /**
+     * @return target height for {@link OutputMarker#SYNC_PROGRESS}, candidate height for {@link OutputMarker#NEW_TOP_BLOCK_CANDIDATE} lines.
+     */
+    public long getSecondHeight() {
+        return secondHeight;
+    }
+
+    private OutputMarker consumeLine(int end, int next) {
+        lineOffset = position;
+        lineLength = end - position;
+        if (lineLength > 0 && buffer[end - 1] == '\r') {
+            lineLength--;
+        }
+        position = next;
+        searchFrom = next;
+        return classify(buffer, lineOffset, lineOffset + lineLength);
+    }
+
+    /**
+     * Refills the buffer, compacting or growing it as needed.
+     * @param maxRead maximum number of bytes to read.
+     * @return false on end of stream.
+     */
+    private boolean fill(int maxRead) throws IOException {
+        if (position > 0) {
+            int remaining = limit - position;
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+            searchFrom -= position;
+            limit = remaining;
+            position = 0;
+        }
+
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_LINE_LENGTH));
+        }
+
+        int read = in.read(buffer, limit, Math.min(maxRead, buffer.length - limit));
+        if (read < 0) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    private OutputMarker classify(byte[] line, int from, int to) {
+        int state = 0;
+        for (int i = from; i < to; i++) {
+            state = MATCHER.step(state, line[i]);
+            int pattern = MATCHER.match(state);
+            if (pattern == MultiPatternMatcher.NO_MATCH) {
+                continue;
+            }
+
+            switch (pattern) {
+                case PATTERN_SYNCED -> {
+                    if (parseSyncProgress(line, i + 1, to)) {
+                        return OutputMarker.SYNC_PROGRESS;
+                    }
+                }
+                case PATTERN_NEW_TOP_BLOCK_CANDIDATE -> {
+                    if (parseNewTopBlockCandidate(line, i + 1, to)) {
+                        return OutputMarker.NEW_TOP_BLOCK_CANDIDATE;
+                    }
+                }
+                case PATTERN_P2P_READY -> {
+                    return OutputMarker.P2P_READY;
+                }
+                case PATTERN_RPC_READY -> {
+                    return OutputMarker.RPC_READY;
+                }
+                case PATTERN_DAEMON_STARTED -> {
+                    return OutputMarker.DAEMON_STARTED;
+                }
+                default -> throw new IllegalStateException("Unknown pattern " + pattern);
+            }
+        }
+        return OutputMarker.NONE;
+    }
+
+    /**
+     * Parses the remainder of "Synced 372056/2020778 (18%, 1648722 left)".
+     */
+    private boolean parseSyncProgress(byte[] line, int from, int to) {
+        cursor = from;
+        long current = parseNumber(line, to);
+        if (current < 0 || !expect(line, to, "/")) {
+            return false;
+        }
+        long target = parseNumber(line, to);
+        if (target < 0 || !expect(line, to, " (")) {
+            return false;
+        }
+        if (parseNumber(line, to) < 0 || !expect(line, to, "%, ")) {
+            return false;
+        }
+        if (parseNumber(line, to) < 0 || !expect(line, to, " left)")) {
+            return false;
+        }
+        firstHeight = current;
+        secondHeight = target;
+        return true;
+    }
+
+    /**
+     * Parses the remainder of "Sync data returned a new top block candidate: 371876 -> 2020778".
+     */
+    private boolean parseNewTopBlockCandidate(byte[] line, int from, int to) {
+        cursor = from;
+        long current = parseNumber(line, to);
+        if (current < 0 || !expect(line, to, " -> ")) {
+            return false;
+        }
+        long candidate = parseNumber(line, to);
+        if (candidate < 0) {
+            return false;
+        }
+        firstHeight = current;
+        secondHeight = candidate;
+        return true;
+    }
+
+    /**
+     * Consumes the ASCII literal at the cursor.
+     * @return false if the line does not continue with the literal.
+     */
+    private boolean expect(byte[] line, int to, String literal) {
+        int length = literal.length();
+        if (to - cursor < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line[cursor + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        cursor += length;
+        return true;
+    }
+
+    /**
+     * @return parsed decimal at the cursor, or -1 if there are no digits or the value overflows.
+     */
+    private long parseNumber(byte[] line, int to) {
+        int start = cursor;
+        long value = 0;
+        while (cursor < to) {
+            int digit = line[cursor] - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (cursor - start >= 18) {
+                return -1;
+            }
+            value = value * 10 + digit;
+            cursor++;
+        }
+        return cursor == start ? -1 : value;
+    }
+}
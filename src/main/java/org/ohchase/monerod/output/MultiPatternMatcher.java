@@ -0,0 +1,117 @@
+package org.ohchase.monerod.output;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton over raw bytes.
+ * Finds every occurrence of a fixed set of ASCII patterns in a single pass without allocating.
+ * The automaton is immutable once built and may be shared between threads.
+ */
+public final class MultiPatternMatcher {
+
+    /**
+     * Returned by {@link #match(int)} when no pattern ends at a state.
+     */
+    public static final int NO_MATCH = -1;
+
+    private static final int ALPHABET = 256;
+
+    /**
+     * Dense transition table, indexed by {@code state * 256 + (b & 0xFF)}.
+     */
+    private final int[] transitions;
+
+    /**
+     * Pattern index ending at each state (including through suffix links), or {@link #NO_MATCH}.
+     */
+    private final int[] matches;
+
+    /**
+     * Builds an automaton for the given patterns.
+     * When one pattern is a suffix of another, the longer pattern is reported for the shared state.
+     * @param patterns ASCII patterns, the index of each pattern is reported on match.
+     */
+    public MultiPatternMatcher(String... patterns) {
+        byte[][] encoded = new byte[patterns.length][];
+        int maxStates = 1;
+        for (int i = 0; i < patterns.length; i++) {
+            encoded[i] = patterns[i].getBytes(StandardCharsets.US_ASCII);
+            if (encoded[i].length == 0) {
+                throw new IllegalArgumentException("Empty pattern at index " + i);
+            }
+            maxStates += encoded[i].length;
+        }
+
+        int[] trie = new int[maxStates * ALPHABET];
+        Arrays.fill(trie, -1);
+        int[] output = new int[maxStates];
+        Arrays.fill(output, NO_MATCH);
+        int stateCount = 1;
+
+        // build the trie
+        for (int i = 0; i < encoded.length; i++) {
+            int state = 0;
+            for (byte b : encoded[i]) {
+                int index = state * ALPHABET + (b & 0xFF);
+                if (trie[index] < 0) {
+                    trie[index] = stateCount++;
+                }
+                state = trie[index];
+            }
+            output[state] = i;
+        }
+
+        // breadth-first fill of failure transitions, turning the trie into a DFA
+        int[] fail = new int[stateCount];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = trie[c];
+            if (next < 0) {
+                trie[c] = 0;
+            } else {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            if (output[state] == NO_MATCH) {
+                output[state] = output[fail[state]];
+            }
+            for (int c = 0; c < ALPHABET; c++) {
+                int index = state * ALPHABET + c;
+                int next = trie[index];
+                if (next < 0) {
+                    trie[index] = trie[fail[state] * ALPHABET + c];
+                } else {
+                    fail[next] = trie[fail[state] * ALPHABET + c];
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.transitions = Arrays.copyOf(trie, stateCount * ALPHABET);
+        this.matches = Arrays.copyOf(output, stateCount);
+    }
+
+    /**
+     * Advances the automaton by one byte.
+     * @param state current state, start with 0.
+     * @param b next input byte.
+     * @return next state.
+     */
+    public int step(int state, byte b) {
+        return transitions[state * ALPHABET + (b & 0xFF)];
+    }
+
+    /**
+     * @param state automaton state.
+     * @return index of the pattern ending at this state, or {@link #NO_MATCH}.
+     */
+    public int match(int state) {
+        return matches[state];
+    }
+}
@@ -0,0 +1,34 @@
+package org.ohchase.monerod.output;
+
+/**
+ * Enumeration of the monerod output lines recognized by {@link MonerodOutputReader}.
+ */
+public enum OutputMarker {
+    /**
+     * Line carries no known marker.
+     */
+    NONE,
+    /**
+     * "p2p server initialized OK"
+     */
+    P2P_READY,
+    /**
+     * "core RPC server started ok"
+     */
+    RPC_READY,
+    /**
+     * "Starting p2p net loop"
+     * The daemon is up and running.
+     */
+    DAEMON_STARTED,
+    /**
+     * "Synced 372056/2020778 (18%, 1648722 left)"
+     * First height is the current height, second height is the target height.
+     */
+    SYNC_PROGRESS,
+    /**
+     * "Sync data returned a new top block candidate: 371876 -> 2020778"
+     * First height is the current height, second height is the candidate height.
+     */
+    NEW_TOP_BLOCK_CANDIDATE
+}
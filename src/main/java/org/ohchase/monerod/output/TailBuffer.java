@@ -0,0 +1,71 @@
+package org.ohchase.monerod.output;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keeps the last bytes written to it, so capturing output for an error message cannot grow without bound.
+ */
+public final class TailBuffer {
+
+    private final byte[] buffer;
+
+    private long written;
+
+    /**
+     * @param capacity number of trailing bytes kept.
+     */
+    public TailBuffer(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    public void write(byte[] bytes, int offset, int length) {
+        if (length >= buffer.length) {
+            System.arraycopy(bytes, offset + length - buffer.length, buffer, 0, buffer.length);
+            written += length;
+            // realign so the oldest byte is at written % capacity
+            rotate((int) (written % buffer.length));
+            return;
+        }
+        int start = (int) (written % buffer.length);
+        int first = Math.min(length, buffer.length - start);
+        System.arraycopy(bytes, offset, buffer, start, first);
+        System.arraycopy(bytes, offset + first, buffer, 0, length - first);
+        written += length;
+    }
+
+    public void write(int b) {
+        buffer[(int) (written++ % buffer.length)] = (byte) b;
+    }
+
+    /**
+     * @return total number of bytes written, including those no longer kept.
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * @return the kept bytes as UTF-8, prefixed with a marker when earlier bytes were discarded.
+     */
+    @Override
+    public String toString() {
+        if (written <= buffer.length) {
+            return new String(buffer, 0, (int) written, StandardCharsets.UTF_8);
+        }
+        int start = (int) (written % buffer.length);
+        byte[] ordered = new byte[buffer.length];
+        System.arraycopy(buffer, start, ordered, 0, buffer.length - start);
+        System.arraycopy(buffer, 0, ordered, buffer.length - start, start);
+        return "[" + (written - buffer.length) + " earlier bytes omitted]\n" + new String(ordered, StandardCharsets.UTF_8);
+    }
+
+    private void rotate(int distance) {
+        if (distance == 0) {
+            return;
+        }
+        byte[] copy = buffer.clone();
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[(i + distance) % buffer.length] = copy[i];
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.ohchase.monerod.prewarm;
+
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.PrewarmConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads the daemon's LMDB database into the page cache, so the first queries after a reboot do not hit the disk.
+ * <p>
+ * {@code lmdb/data.mdb} is mapped read-only in chunks, which workers load newest first, from the end of the
+ * file where LMDB appends, until the hot set is loaded or the time budget runs out. Before that, the reader
+ * table of {@code lock.mdb} is inspected for slots of processes that are gone, left by a daemon that did not
+ * shut down cleanly, and of processes still using the database.
+ */
+public final class DatabasePrewarmer {
+
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private static final int PAGE_SIZE = 4096;
+
+    private static final int MAX_LOCK_BYTES = 16 * 1024 * 1024;
+
+    // lock.mdb layout of LMDB on x86_64 Linux: the reader table offsets follow from the cache line padding and
+    // the pthread mutex sizes of that ABI, other architectures lay it out differently
+    private static final int LOCK_MAGIC = 0xBEEFC0DE;
+    private static final int NUM_READERS_OFFSET = 56;
+    private static final int READERS_OFFSET = 128;
+    private static final int READER_SIZE = 64;
+    private static final int READER_PID_OFFSET = 8;
+
+    private static final boolean KNOWN_LOCK_LAYOUT = Set.of("amd64", "x86_64").contains(System.getProperty("os.arch"));
+
+    private DatabasePrewarmer() {
+    }
+
+    /**
+     * Inspects the lock file and loads the hot set of a daemon's database.
+     * @param dataDirectory data directory of the daemon.
+     * @param config prewarm configuration.
+     * @return what was found and loaded.
+     * @throws IOException if the database cannot be read.
+     */
+    public static PrewarmReport prewarm(Path dataDirectory, PrewarmConfig config) throws IOException {
+        if (config.getChunkBytes() < PAGE_SIZE || config.getChunkBytes() > MAX_CHUNK_BYTES || config.getWorkers() < 1) {
+            throw new IllegalArgumentException("Chunks must be 4 KiB to 1 GiB and workers positive");
+        }
+        Path lmdb = dataDirectory.resolve("lmdb");
+        LockStatus lockStatus = inspectLock(lmdb.resolve("lock.mdb"));
+        IPrewarmListener listener = config.getListener() != null ? config.getListener() : new IPrewarmListener() {
+        };
+        listener.onLockInspected(lockStatus);
+
+        Path dataFile = lmdb.resolve("data.mdb");
+        if (!Files.exists(dataFile)) {
+            return new PrewarmReport(lockStatus, 0, 0, 0, Duration.ZERO, false);
+        }
+
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            long fileBytes = channel.size();
+            long hotSet = config.getHotSetBytes() <= 0 ? fileBytes : Math.min(config.getHotSetBytes(), fileBytes);
+            long start = (fileBytes - hotSet) / PAGE_SIZE * PAGE_SIZE;
+            long totalBytes = fileBytes - start;
+            int chunks = (int) ((totalBytes + config.getChunkBytes() - 1) / config.getChunkBytes());
+
+            long startNanos = System.nanoTime();
+            long deadline = startNanos + config.getTimeBudget().toNanos();
+            AtomicInteger nextChunk = new AtomicInteger();
+            AtomicLong loaded = new AtomicLong();
+            ScheduledFuture<?> progress = DaemonExecutors.scheduler().scheduleAtFixedRate(
+                    () -> notifyProgress(listener, loaded.get(), totalBytes),
+                    config.getProgressInterval().toNanos(), config.getProgressInterval().toNanos(), TimeUnit.NANOSECONDS);
+            ExecutorService workers = Executors.newFixedThreadPool(Math.min(config.getWorkers(), Math.max(1, chunks)),
+                    DaemonExecutors.threadFactory("monerod-prewarm"));
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < Math.min(config.getWorkers(), chunks); i++) {
+                    futures.add(workers.submit(() -> {
+                        int chunk;
+                        while ((chunk = nextChunk.getAndIncrement()) < chunks && System.nanoTime() - deadline < 0) {
+                            // newest first
+                            long end = fileBytes - (long) chunk * config.getChunkBytes();
+                            long from = Math.max(start, end - config.getChunkBytes());
+                            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, end - from);
+                            mapped.load();
+                            loaded.addAndGet(end - from);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException("Failed to load " + dataFile, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading " + dataFile, e);
+            } finally {
+                workers.shutdownNow();
+                progress.cancel(false);
+            }
+            notifyProgress(listener, loaded.get(), totalBytes);
+            return new PrewarmReport(lockStatus, fileBytes, totalBytes, loaded.get(),
+                    Duration.ofNanos(System.nanoTime() - startNanos), loaded.get() < totalBytes);
+        }
+    }
+
+    /**
+     * Reads the reader table of an LMDB lock file.
+     * @param lockFile path of {@code lock.mdb}.
+     * @return processes found in the reader slots, {@link LockStatus#ABSENT} if there is no lock file,
+     * {@link LockStatus#NOT_INSPECTED} on architectures other than x86_64.
+     * @throws IOException if the lock file cannot be read.
+     */
+    public static LockStatus inspectLock(Path lockFile) throws IOException {
+        if (!KNOWN_LOCK_LAYOUT) {
+            return LockStatus.NOT_INSPECTED;
+        }
+        ByteBuffer lock;
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.READ)) {
+            lock = ByteBuffer.allocate((int) Math.min(channel.size(), MAX_LOCK_BYTES)).order(ByteOrder.nativeOrder());
+            while (lock.hasRemaining() && channel.read(lock) >= 0) {
+                // fill
+            }
+            lock.flip();
+        } catch (NoSuchFileException e) {
+            return LockStatus.ABSENT;
+        }
+        if (lock.limit() < READERS_OFFSET || lock.getInt(0) != LOCK_MAGIC) {
+            return new LockStatus(true, true, false, List.of(), List.of());
+        }
+        int slots = Math.min(lock.getInt(NUM_READERS_OFFSET), (lock.limit() - READERS_OFFSET) / READER_SIZE);
+        Set<Long> stale = new LinkedHashSet<>();
+        Set<Long> live = new LinkedHashSet<>();
+        for (int slot = 0; slot < slots; slot++) {
+            long pid = Integer.toUnsignedLong(lock.getInt(READERS_OFFSET + slot * READER_SIZE + READER_PID_OFFSET));
+            if (pid == 0) {
+                continue;
+            }
+            if (ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false)) {
+                live.add(pid);
+            } else {
+                stale.add(pid);
+            }
+        }
+        return new LockStatus(true, true, true, List.copyOf(stale), List.copyOf(live));
+    }
+
+    private static void notifyProgress(IPrewarmListener listener, long loadedBytes, long totalBytes) {
+        try {
+            listener.onProgress(loadedBytes, totalBytes);
+        } catch (RuntimeException e) {
+            System.out.println("Warning. Prewarm listener failed: " + e);
+        }
+    }
+}
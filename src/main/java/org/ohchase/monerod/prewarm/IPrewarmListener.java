@@ -0,0 +1,22 @@
+package org.ohchase.monerod.prewarm;
+
+/**
+ * Listener for a {@link DatabasePrewarmer} run.
+ */
+public interface IPrewarmListener {
+
+    /**
+     * Called once the lock file was inspected, before anything is loaded.
+     * @param lockStatus state left behind in {@code lock.mdb}.
+     */
+    default void onLockInspected(LockStatus lockStatus) {
+    }
+
+    /**
+     * Called periodically while loading, from the scheduler thread, and once at the end.
+     * @param loadedBytes bytes loaded so far.
+     * @param totalBytes bytes to load.
+     */
+    default void onProgress(long loadedBytes, long totalBytes) {
+    }
+}
@@ -0,0 +1,58 @@
+package org.ohchase.monerod.prewarm;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Reader table of an LMDB {@code lock.mdb} as found before the daemon starts.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class LockStatus {
+
+    /**
+     * Status of a database without a lock file, as after a clean first start.
+     */
+    public static final LockStatus ABSENT = new LockStatus(true, false, true, List.of(), List.of());
+
+    /**
+     * Status when the reader table was not read, on architectures whose {@code lock.mdb} layout is not known.
+     */
+    public static final LockStatus NOT_INSPECTED = new LockStatus(false, false, true, List.of(), List.of());
+
+    /**
+     * Whether the reader table layout is known on this architecture, and the lock file was looked for.
+     */
+    private final boolean inspected;
+
+    /**
+     * Whether {@code lock.mdb} exists.
+     */
+    private final boolean present;
+
+    /**
+     * Whether the lock file carries the LMDB magic and could be read.
+     */
+    private final boolean readable;
+
+    /**
+     * Processes holding reader slots that no longer run, left behind by a daemon that did not shut down cleanly.
+     */
+    private final List<Long> stalePids;
+
+    /**
+     * Running processes holding reader slots, another process uses the database.
+     */
+    private final List<Long> livePids;
+
+    /**
+     * @return true if nothing was left behind and nothing else uses the database, false if unknown.
+     */
+    public boolean isClean() {
+        return inspected && readable && stalePids.isEmpty() && livePids.isEmpty();
+    }
+}
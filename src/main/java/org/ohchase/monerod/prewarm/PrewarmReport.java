@@ -0,0 +1,46 @@
+package org.ohchase.monerod.prewarm;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a {@link DatabasePrewarmer} run.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PrewarmReport {
+
+    /**
+     * State left behind in {@code lock.mdb}.
+     */
+    private final LockStatus lockStatus;
+
+    /**
+     * Size of {@code data.mdb}, 0 if it does not exist yet.
+     */
+    private final long fileBytes;
+
+    /**
+     * Bytes selected for loading.
+     */
+    private final long totalBytes;
+
+    /**
+     * Bytes loaded.
+     */
+    private final long loadedBytes;
+
+    /**
+     * Time spent loading.
+     */
+    private final Duration duration;
+
+    /**
+     * Whether loading stopped at the time budget.
+     */
+    private final boolean budgetExhausted;
+}
@@ -0,0 +1,37 @@
+package org.ohchase.monerod.proxy;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Upstream response as served to clients.
+ * For JSON-RPC calls only the result or error value is kept, so it can be served under any request id.
+ */
+@Getter
+@AllArgsConstructor
+final class CachedResponse {
+
+    private final int statusCode;
+
+    private final String contentType;
+
+    /**
+     * Whole body, or the raw result or error value of a JSON-RPC response.
+     */
+    private final byte[] payload;
+
+    /**
+     * Whether the payload is a JSON-RPC result or error value, to be wrapped with the id of each request.
+     */
+    private final boolean jsonRpcValue;
+
+    /**
+     * Whether the payload is a JSON-RPC error value rather than a result.
+     */
+    private final boolean error;
+
+    /**
+     * {@link System#nanoTime()} after which the response is stale.
+     */
+    private final long expiresNanos;
+}
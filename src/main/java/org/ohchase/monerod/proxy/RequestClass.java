@@ -0,0 +1,19 @@
+package org.ohchase.monerod.proxy;
+
+/**
+ * How long the response to an RPC request may be served from the cache.
+ */
+public enum RequestClass {
+    /**
+     * Data that no longer changes, such as a block buried under enough confirmations. Cached until evicted.
+     */
+    IMMUTABLE,
+    /**
+     * Data describing the chain tip, cached for the short TTL.
+     */
+    SHORT_TTL,
+    /**
+     * Everything else, always forwarded.
+     */
+    UNCACHEABLE
+}
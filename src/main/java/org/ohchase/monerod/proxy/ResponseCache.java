@@ -0,0 +1,71 @@
+package org.ohchase.monerod.proxy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Byte-bounded LRU cache of upstream responses, with per-entry expiry.
+ */
+final class ResponseCache {
+
+    /**
+     * Bytes accounted per entry on top of its payload and key.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long maxBytes;
+
+    // guarded by this
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+
+    ResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the response, or null if absent or expired.
+     */
+    synchronized CachedResponse get(String key, long nowNanos) {
+        CachedResponse response = entries.get(key);
+        if (response == null) {
+            return null;
+        }
+        if (response.getExpiresNanos() - nowNanos <= 0) {
+            entries.remove(key);
+            bytes -= size(key, response);
+            return null;
+        }
+        return response;
+    }
+
+    synchronized void put(String key, CachedResponse response) {
+        long size = size(key, response);
+        if (size > maxBytes) {
+            return;
+        }
+        CachedResponse previous = entries.put(key, response);
+        if (previous != null) {
+            bytes -= size(key, previous);
+        }
+        bytes += size;
+        for (Iterator<Map.Entry<String, CachedResponse>> iterator = entries.entrySet().iterator(); bytes > maxBytes && iterator.hasNext(); ) {
+            Map.Entry<String, CachedResponse> eldest = iterator.next();
+            bytes -= size(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+        }
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static long size(String key, CachedResponse response) {
+        return ENTRY_OVERHEAD + 2L * key.length() + response.getPayload().length;
+    }
+}
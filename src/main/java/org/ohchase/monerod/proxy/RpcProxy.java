@@ -0,0 +1,652 @@
+package org.ohchase.monerod.proxy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.RpcProxyConfig;
+import org.ohchase.monerod.json.JsonReader;
+import org.ohchase.monerod.json.JsonToken;
+import org.ohchase.monerod.metrics.Histogram;
+import org.ohchase.monerod.metrics.Metric;
+import org.ohchase.monerod.metrics.MetricFamily;
+import org.ohchase.monerod.metrics.MetricsRegistry;
+import org.ohchase.monerod.rpc.DaemonRpcClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caching HTTP front proxy for the restricted RPC interface of a daemon.
+ * <p>
+ * Requests are classified by {@link RequestClass}: blocks and transactions buried under
+ * {@link RpcProxyConfig#getConfirmations()} are cached until evicted, responses describing the chain tip
+ * for {@link RpcProxyConfig#getShortTtl()}, and everything else is forwarded untouched.
+ * Concurrent identical cacheable requests share one upstream call.
+ * JSON-RPC responses are cached without their id and served under the id of each request.
+ * <p>
+ * Tip-relative fields of immutable responses, such as the {@code depth} of a block header,
+ * are as of the upstream call that filled the cache.
+ */
+public final class RpcProxy implements AutoCloseable {
+
+    private static final String JSON_RPC = "/json_rpc";
+
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    /**
+     * JSON-RPC methods cached for the short TTL, unless their result proves immutable.
+     */
+    private static final Set<String> CACHED_METHODS = Set.of(
+            "get_info", "get_block_count", "getblockcount", "get_last_block_header", "getlastblockheader",
+            "get_block", "getblock", "get_block_header_by_hash", "getblockheaderbyhash",
+            "get_block_header_by_height", "getblockheaderbyheight", "get_block_headers_range", "getblockheadersrange",
+            "hard_fork_info", "get_version", "get_fee_estimate");
+
+    /**
+     * JSON-RPC methods whose result is immutable once every block it covers is buried deep enough.
+     */
+    private static final Set<String> BLOCK_METHODS = Set.of(
+            "get_block", "getblock", "get_block_header_by_hash", "getblockheaderbyhash",
+            "get_block_header_by_height", "getblockheaderbyheight", "get_block_headers_range", "getblockheadersrange");
+
+    /**
+     * Other endpoints cached for the short TTL, unless their result proves immutable.
+     */
+    private static final Set<String> CACHED_PATHS = Set.of(
+            "/get_info", "/getinfo", "/get_height", "/getheight", "/get_transactions", "/gettransactions");
+
+    private static final String[] OUTCOMES = {"hit", "miss", "coalesced", "pass_through"};
+
+    private static final int HIT = 0;
+    private static final int MISS = 1;
+    private static final int COALESCED = 2;
+    private static final int PASS_THROUGH = 3;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final URI upstream;
+
+    private final HttpClient httpClient;
+
+    private final RpcProxyConfig config;
+
+    private final ResponseCache cache;
+
+    private final ConcurrentHashMap<String, CompletableFuture<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder[] requests = new LongAdder[OUTCOMES.length];
+
+    private final LongAdder[] latencyNanos = new LongAdder[OUTCOMES.length];
+
+    private final LongAdder upstreamErrors = new LongAdder();
+
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    private volatile Histogram[] latencyHistograms;
+
+    /**
+     * Chain height seen in the latest response carrying it, 0 until one was seen.
+     */
+    private volatile long chainHeight;
+
+    private RpcProxy(HttpServer server, ExecutorService executor, URI upstream, HttpClient httpClient, RpcProxyConfig config) {
+        this.server = server;
+        this.executor = executor;
+        this.upstream = upstream;
+        this.httpClient = httpClient;
+        this.config = config;
+        this.cache = new ResponseCache(config.getMaxCacheBytes());
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            requests[i] = new LongAdder();
+            latencyNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Starts proxying to a restricted RPC interface.
+     * @param config proxy configuration.
+     * @param upstream base URI of the restricted RPC interface.
+     * @return running proxy.
+     * @throws IOException if the address cannot be bound.
+     */
+    public static RpcProxy start(RpcProxyConfig config, URI upstream) throws IOException {
+        return start(config, upstream, DaemonRpcClient.sharedHttpClient());
+    }
+
+    /**
+     * Starts proxying to a restricted RPC interface.
+     * @param config proxy configuration.
+     * @param upstream base URI of the restricted RPC interface.
+     * @param httpClient client to send upstream calls through.
+     * @return running proxy.
+     * @throws IOException if the address cannot be bound.
+     */
+    public static RpcProxy start(RpcProxyConfig config, URI upstream, HttpClient httpClient) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(config.getAddress(), config.getPort()), 0);
+        ExecutorService executor = Executors.newFixedThreadPool(config.getThreads(), DaemonExecutors.threadFactory("monerod-rpc-proxy"));
+        RpcProxy proxy = new RpcProxy(server, executor, upstream, httpClient, config);
+        server.createContext("/", proxy::handle);
+        server.setExecutor(executor);
+        server.start();
+        return proxy;
+    }
+
+    /**
+     * @return bound address, with the actual port.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * @return base URI clients reach the proxy at.
+     */
+    public URI getEndpoint() {
+        return DaemonRpcClient.endpoint(server.getAddress().getAddress().getHostAddress(), server.getAddress().getPort());
+    }
+
+    /**
+     * @return requests served from the cache.
+     */
+    public long getHits() {
+        return requests[HIT].sum();
+    }
+
+    /**
+     * @return cacheable requests that called upstream.
+     */
+    public long getMisses() {
+        return requests[MISS].sum();
+    }
+
+    /**
+     * @return cacheable requests that waited for the upstream call of an identical request.
+     */
+    public long getCoalesced() {
+        return requests[COALESCED].sum();
+    }
+
+    /**
+     * @return uncacheable requests, forwarded untouched.
+     */
+    public long getPassThrough() {
+        return requests[PASS_THROUGH].sum();
+    }
+
+    /**
+     * @return requests answered with 502 because their upstream call failed.
+     */
+    public long getUpstreamErrors() {
+        return upstreamErrors.sum();
+    }
+
+    /**
+     * @return share of cacheable requests answered without an upstream call of their own, NaN before any.
+     */
+    public double getHitRatio() {
+        long saved = getHits() + getCoalesced();
+        long total = saved + getMisses();
+        return total == 0 ? Double.NaN : (double) saved / total;
+    }
+
+    /**
+     * @return mean time to answer a cache hit.
+     */
+    public Duration getMeanHitLatency() {
+        return meanLatency(HIT);
+    }
+
+    /**
+     * @return mean time to answer a cache miss, including the upstream call.
+     */
+    public Duration getMeanMissLatency() {
+        return meanLatency(MISS);
+    }
+
+    /**
+     * @return bytes held by the cache.
+     */
+    public long getCacheBytes() {
+        return cache.getBytes();
+    }
+
+    /**
+     * Exports request counts, hit ratio, cache size and latency histograms, removed again on {@link #close()}.
+     * @param registry registry to add the metrics to.
+     * @param name proxy name, used as the {@code proxy} label.
+     */
+    public void bindMetrics(MetricsRegistry registry, String name) {
+        MetricFamily requestFamily = registry.counterFamily("monerod_rpc_proxy_requests", "Requests handled by the RPC proxy", "proxy", "outcome");
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            LongAdder adder = requests[i];
+            metrics.add(requestFamily.counter(adder::sum, name, OUTCOMES[i]));
+        }
+        metrics.add(registry.counterFamily("monerod_rpc_proxy_upstream_errors", "Requests the RPC proxy answered with 502", "proxy")
+                .counter(upstreamErrors::sum, name));
+        metrics.add(registry.gaugeFamily("monerod_rpc_proxy_hit_ratio", "Share of cacheable requests answered without an upstream call", "proxy")
+                .gauge(this::getHitRatio, name));
+        metrics.add(registry.gaugeFamily("monerod_rpc_proxy_cache_bytes", "Bytes held by the RPC proxy cache", "proxy")
+                .gauge(cache::getBytes, name));
+        MetricFamily latencyFamily = registry.histogramFamily("monerod_rpc_proxy_latency_seconds",
+                "Time to answer a request through the RPC proxy", MetricsRegistry.DEFAULT_BUCKETS, "proxy", "outcome");
+        Histogram[] histograms = new Histogram[OUTCOMES.length];
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            histograms[i] = latencyFamily.histogram(name, OUTCOMES[i]);
+            metrics.add(histograms[i]);
+        }
+        latencyHistograms = histograms;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        latencyHistograms = null;
+        for (Metric metric : metrics) {
+            metric.remove();
+        }
+        metrics.clear();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long startNanos = System.nanoTime();
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readAllBytes();
+        }
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getRawQuery();
+
+        // only idempotent lookups are cached, keyed without the JSON-RPC id
+        String key = null;
+        String id = null;
+        if (path.equals(JSON_RPC)) {
+            JsonRpcRequest request = JsonRpcRequest.parse(body);
+            if (request != null && CACHED_METHODS.contains(request.method)) {
+                key = JSON_RPC + '\n' + request.method + '\n' + request.params;
+                id = request.id;
+            }
+        } else if (CACHED_PATHS.contains(path) && query == null) {
+            key = path + '\n' + new String(body, StandardCharsets.UTF_8);
+        }
+
+        if (key == null) {
+            forward(exchange, body).whenComplete((response, error) ->
+                    respond(exchange, response, error, null, PASS_THROUGH, startNanos));
+            return;
+        }
+
+        CachedResponse cached = cache.get(key, startNanos);
+        if (cached != null) {
+            respond(exchange, cached, null, id, HIT, startNanos);
+            return;
+        }
+
+        // the first miss calls upstream, identical ones arriving meanwhile wait for it
+        CompletableFuture<CachedResponse> call = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> existing = inFlight.putIfAbsent(key, call);
+        String requestId = id;
+        if (existing != null) {
+            existing.whenComplete((response, error) -> respond(exchange, response, error, requestId, COALESCED, startNanos));
+            return;
+        }
+        String cacheKey = key;
+        boolean jsonRpc = path.equals(JSON_RPC);
+        forward(exchange, body).whenComplete((response, error) -> {
+            CachedResponse result = null;
+            if (response != null) {
+                result = store(cacheKey, jsonRpc, path, response);
+            }
+            inFlight.remove(cacheKey, call);
+            if (error != null) {
+                call.completeExceptionally(error);
+            } else {
+                call.complete(result);
+            }
+        });
+        call.whenComplete((response, error) -> respond(exchange, response, error, requestId, MISS, startNanos));
+    }
+
+    private CompletableFuture<CachedResponse> forward(HttpExchange exchange, byte[] body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(upstream.resolve(exchange.getRequestURI().getRawPath()
+                        + (exchange.getRequestURI().getRawQuery() != null ? "?" + exchange.getRequestURI().getRawQuery() : "")))
+                .timeout(config.getUpstreamTimeout())
+                .method(exchange.getRequestMethod(), body.length > 0
+                        ? HttpRequest.BodyPublishers.ofByteArray(body)
+                        : HttpRequest.BodyPublishers.noBody());
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null) {
+            request.header("Content-Type", contentType);
+        }
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> new CachedResponse(response.statusCode(),
+                        response.headers().firstValue("Content-Type").orElse(null), response.body(), false, false, 0));
+    }
+
+    /**
+     * Classifies an upstream response and caches it when allowed.
+     * @return the response as served to the waiting requests.
+     */
+    private CachedResponse store(String key, boolean jsonRpc, String path, CachedResponse response) {
+        if (response.getStatusCode() != 200) {
+            return response;
+        }
+        try {
+            byte[] payload = response.getPayload();
+            boolean error = false;
+            String method = null;
+            if (jsonRpc) {
+                method = key.substring(JSON_RPC.length() + 1, key.indexOf('\n', JSON_RPC.length() + 1));
+                JsonRpcResponse parsed = JsonRpcResponse.parse(payload);
+                if (parsed == null) {
+                    return response;
+                }
+                payload = parsed.value;
+                error = parsed.error;
+            }
+            RequestClass requestClass = error ? RequestClass.UNCACHEABLE : classify(method, path, payload);
+            long nowNanos = System.nanoTime();
+            long expiresNanos = switch (requestClass) {
+                case IMMUTABLE -> nowNanos + Long.MAX_VALUE / 2;
+                case SHORT_TTL -> nowNanos + config.getShortTtl().toNanos();
+                case UNCACHEABLE -> nowNanos;
+            };
+            CachedResponse result = new CachedResponse(200, response.getContentType(), payload, jsonRpc, error, expiresNanos);
+            if (requestClass != RequestClass.UNCACHEABLE) {
+                cache.put(key, result);
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            // not the JSON we expected, hand it over untouched
+            return response;
+        }
+    }
+
+    /**
+     * @param method JSON-RPC method, null for other endpoints.
+     * @param payload JSON-RPC result, or the whole response of other endpoints.
+     */
+    private RequestClass classify(String method, String path, byte[] payload) throws IOException {
+        ResultSummary summary = ResultSummary.read(payload);
+        if (!"OK".equals(summary.status)) {
+            return RequestClass.UNCACHEABLE;
+        }
+        if (summary.height > 0) {
+            chainHeight = summary.height;
+        } else if (summary.count > 0) {
+            chainHeight = summary.count;
+        }
+
+        if (method != null) {
+            if (BLOCK_METHODS.contains(method)) {
+                return summary.headers > 0 && !summary.orphan && summary.minDepth >= config.getConfirmations()
+                        ? RequestClass.IMMUTABLE
+                        : RequestClass.SHORT_TTL;
+            }
+            return RequestClass.SHORT_TTL;
+        }
+        // confirmations of transactions are counted against the chain height seen passing through
+        if (path.equals("/get_transactions") || path.equals("/gettransactions")) {
+            long height = chainHeight;
+            return summary.txs > 0 && !summary.inPool && !summary.missed && height > 0
+                    && height - 1 - summary.maxBlockHeight >= config.getConfirmations()
+                    ? RequestClass.IMMUTABLE
+                    : RequestClass.SHORT_TTL;
+        }
+        return RequestClass.SHORT_TTL;
+    }
+
+    private void respond(HttpExchange exchange, CachedResponse response, Throwable error, String id, int outcome, long startNanos) {
+        try (exchange) {
+            if (error != null || response == null) {
+                upstreamErrors.increment();
+                exchange.sendResponseHeaders(502, -1);
+                return;
+            }
+            byte[] body = response.getPayload();
+            if (response.isJsonRpcValue()) {
+                body = envelope(id, response.getPayload(), response.isError());
+            }
+            if (response.getContentType() != null) {
+                exchange.getResponseHeaders().set("Content-Type", response.getContentType());
+            } else if (response.isJsonRpcValue()) {
+                exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+            }
+            boolean head = exchange.getRequestMethod().equals("HEAD");
+            exchange.sendResponseHeaders(response.getStatusCode(), head || body.length == 0 ? -1 : body.length);
+            if (!head && body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } catch (IOException e) {
+            // the client went away, nothing to answer
+        } finally {
+            long nanos = System.nanoTime() - startNanos;
+            requests[outcome].increment();
+            latencyNanos[outcome].add(nanos);
+            Histogram[] histograms = latencyHistograms;
+            if (histograms != null) {
+                histograms[outcome].observeNanos(nanos);
+            }
+        }
+    }
+
+    private Duration meanLatency(int outcome) {
+        long count = requests[outcome].sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(latencyNanos[outcome].sum() / count);
+    }
+
+    /**
+     * Wraps a cached result or error value into a JSON-RPC response for one request id.
+     */
+    private static byte[] envelope(String id, byte[] value, boolean error) {
+        byte[] head = ("{\"jsonrpc\":\"2.0\",\"id\":" + id + (error ? ",\"error\":" : ",\"result\":")).getBytes(StandardCharsets.UTF_8);
+        byte[] body = Arrays.copyOf(head, head.length + value.length + 1);
+        System.arraycopy(value, 0, body, head.length, value.length);
+        body[body.length - 1] = '}';
+        return body;
+    }
+
+    /**
+     * Raw text of the value following a name, as read by {@link JsonReader#skipValue()}.
+     */
+    private static String rawValue(byte[] json, long from, long to) {
+        int start = (int) from;
+        while (start < to && (json[start] == ':' || json[start] == ' ' || json[start] == '\t'
+                || json[start] == '\r' || json[start] == '\n')) {
+            start++;
+        }
+        return new String(json, start, (int) to - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Method, id and parameters of a single JSON-RPC request, each id and parameters as raw JSON text.
+     */
+    private static final class JsonRpcRequest {
+
+        private String method;
+
+        private String id = "null";
+
+        private String params = "";
+
+        /**
+         * @return the request, or null for batches and malformed requests.
+         */
+        static JsonRpcRequest parse(byte[] body) {
+            try {
+                JsonReader reader = JsonReader.of(body);
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    return null;
+                }
+                JsonRpcRequest request = new JsonRpcRequest();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    switch (name) {
+                        case "method" -> request.method = reader.nextString();
+                        case "id" -> {
+                            long from = reader.getBytesRead();
+                            reader.skipValue();
+                            request.id = rawValue(body, from, reader.getBytesRead());
+                        }
+                        case "params" -> {
+                            long from = reader.getBytesRead();
+                            reader.skipValue();
+                            request.params = rawValue(body, from, reader.getBytesRead());
+                        }
+                        default -> reader.skipValue();
+                    }
+                }
+                return request.method != null ? request : null;
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Raw result or error value of a JSON-RPC response.
+     */
+    private static final class JsonRpcResponse {
+
+        private byte[] value;
+
+        private boolean error;
+
+        static JsonRpcResponse parse(byte[] body) throws IOException {
+            JsonReader reader = JsonReader.of(body);
+            JsonRpcResponse response = new JsonRpcResponse();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("result") || name.equals("error")) {
+                    long from = reader.getBytesRead();
+                    reader.skipValue();
+                    response.value = rawValue(body, from, reader.getBytesRead()).getBytes(StandardCharsets.UTF_8);
+                    response.error = name.equals("error");
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return response.value != null ? response : null;
+        }
+    }
+
+    /**
+     * The fields of a result that decide how long it may be cached.
+     */
+    private static final class ResultSummary {
+
+        private String status;
+
+        private long height;
+
+        private long count;
+
+        private int headers;
+
+        private long minDepth = Long.MAX_VALUE;
+
+        private boolean orphan;
+
+        private int txs;
+
+        private long maxBlockHeight;
+
+        private boolean inPool;
+
+        private boolean missed;
+
+        static ResultSummary read(byte[] result) throws IOException {
+            JsonReader reader = JsonReader.of(result);
+            ResultSummary summary = new ResultSummary();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "status" -> summary.status = reader.nextString();
+                    case "height" -> summary.height = reader.nextLong();
+                    case "count" -> summary.count = reader.nextLong();
+                    case "block_header" -> summary.readHeader(reader);
+                    case "headers" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            summary.readHeader(reader);
+                        }
+                        reader.endArray();
+                    }
+                    case "txs" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            summary.readTx(reader);
+                        }
+                        reader.endArray();
+                    }
+                    case "missed_tx" -> {
+                        reader.beginArray();
+                        summary.missed = reader.hasNext();
+                        while (reader.hasNext()) {
+                            reader.skipValue();
+                        }
+                        reader.endArray();
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            return summary;
+        }
+
+        private void readHeader(JsonReader reader) throws IOException {
+            headers++;
+            boolean hasDepth = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "depth" -> {
+                        minDepth = Math.min(minDepth, reader.nextLong());
+                        hasDepth = true;
+                    }
+                    case "orphan_status" -> orphan |= reader.nextBoolean();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (!hasDepth) {
+                minDepth = 0;
+            }
+        }
+
+        private void readTx(JsonReader reader) throws IOException {
+            txs++;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "in_pool" -> inPool |= reader.nextBoolean();
+                    case "block_height" -> maxBlockHeight = Math.max(maxBlockHeight, reader.nextLong());
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+    }
+}
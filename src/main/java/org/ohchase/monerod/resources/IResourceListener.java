@@ -0,0 +1,13 @@
+package org.ohchase.monerod.resources;
+
+/**
+ * Listener for resource samples.
+ */
+public interface IResourceListener {
+
+    /**
+     * Called after every sample, on a thread of the shared I/O executor.
+     * @param snapshot latest sample and derived rates
+     */
+    void onResourceSample(ResourceSnapshot snapshot);
+}
@@ -0,0 +1,146 @@
+package org.ohchase.monerod.resources;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A {@code /proc} file kept open and re-read from the start on every sample, into a reusable buffer.
+ * Procfs regenerates the content on each read from offset 0, so no reopen is needed.
+ */
+final class ProcFile implements Closeable {
+
+    private final RandomAccessFile file;
+
+    private byte[] buffer = new byte[4096];
+
+    private int length;
+
+    ProcFile(Path path) throws IOException {
+        this.file = new RandomAccessFile(path.toFile(), "r");
+    }
+
+    /**
+     * Reads the whole file.
+     * @return number of bytes read.
+     */
+    int read() throws IOException {
+        file.seek(0);
+        length = 0;
+        int read;
+        while ((read = file.read(buffer, length, buffer.length - length)) > 0) {
+            length += read;
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        return length;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * Reads space separated fields of {@code stat}, counting from 1 as in proc(5).
+     * The command name may contain spaces and parentheses, so counting starts after its last {@code ')'}.
+     * @param fields ascending field numbers, all above 2.
+     * @param values receives the field values, -1 when missing.
+     */
+    void parseStat(int[] fields, long[] values) {
+        Arrays.fill(values, -1);
+        int position = length - 1;
+        while (position >= 0 && buffer[position] != ')') {
+            position--;
+        }
+        if (position < 0) {
+            return;
+        }
+        position += 2;
+        int field = 3;
+        int next = 0;
+        while (position < length && next < fields.length) {
+            int end = position;
+            while (end < length && buffer[end] != ' ' && buffer[end] != '\n') {
+                end++;
+            }
+            if (field == fields[next]) {
+                values[next++] = parseLong(position, end);
+            }
+            field++;
+            position = end + 1;
+        }
+    }
+
+    /**
+     * Reads {@code key: value} lines such as those of {@code status} and {@code io}.
+     * A trailing {@code kB} unit is converted to bytes.
+     * @param keys keys including the colon.
+     * @param values receives the values, -1 when missing.
+     */
+    void parseKeyed(byte[][] keys, long[] values) {
+        Arrays.fill(values, -1);
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && buffer[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            for (int k = 0; k < keys.length; k++) {
+                if (startsWith(lineStart, lineEnd, keys[k])) {
+                    int position = lineStart + keys[k].length;
+                    while (position < lineEnd && (buffer[position] == ' ' || buffer[position] == '\t')) {
+                        position++;
+                    }
+                    int end = position;
+                    while (end < lineEnd && buffer[end] >= '0' && buffer[end] <= '9') {
+                        end++;
+                    }
+                    long value = parseLong(position, end);
+                    boolean kilobytes = end + 3 <= lineEnd && buffer[end + 1] == 'k' && buffer[end + 2] == 'B';
+                    values[k] = kilobytes && value >= 0 ? value * 1024 : value;
+                    break;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private boolean startsWith(int from, int to, byte[] key) {
+        if (to - from < key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer[from + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long parseLong(int from, int to) {
+        if (from >= to || to - from > 19) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buffer[i];
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
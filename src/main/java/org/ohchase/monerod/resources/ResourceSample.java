@@ -0,0 +1,62 @@
+package org.ohchase.monerod.resources;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Resource usage of a process at one point in time. Values that could not be read are -1.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ResourceSample {
+
+    /**
+     * Wall clock time of the sample, in milliseconds since the epoch.
+     */
+    private final long timestamp;
+
+    /**
+     * User plus system CPU time in clock ticks.
+     */
+    private final long cpuTicks;
+
+    /**
+     * Resident set size in bytes.
+     */
+    private final long rssBytes;
+
+    /**
+     * Peak resident set size in bytes.
+     */
+    private final long peakRssBytes;
+
+    private final long threads;
+
+    /**
+     * Bytes read from storage.
+     */
+    private final long readBytes;
+
+    /**
+     * Bytes written to storage.
+     */
+    private final long writeBytes;
+
+    /**
+     * Bytes read through read-like system calls, including sockets and the page cache.
+     */
+    private final long readChars;
+
+    /**
+     * Bytes written through write-like system calls.
+     */
+    private final long writeChars;
+
+    private final long openFileDescriptors;
+
+    private final long voluntaryContextSwitches;
+
+    private final long involuntaryContextSwitches;
+}
@@ -0,0 +1,292 @@
+package org.ohchase.monerod.resources;
+
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.ResourceSamplerConfig;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Periodically samples a process' resource usage from {@code /proc/<pid>/stat}, {@code status}, {@code io}
+ * and the {@code fd} directory.
+ * <p>
+ * The proc files are kept open and re-read into reusable buffers, parsed byte by byte, and samples are kept
+ * in a fixed-size ring of primitive columns, so a sample allocates only the published {@link ResourceSnapshot}
+ * and, if enabled, the fd directory listing. Sampling stops on its own once the process is gone.
+ * The shared scheduler only triggers samples; reading the files and calling the listener happen on the shared
+ * I/O executor, and a tick is skipped while the previous sample is still running.
+ * {@code io} is only readable by the process owner; its values are -1 otherwise.
+ */
+public class ResourceSampler implements AutoCloseable {
+
+    private static final int[] STAT_FIELDS = {14, 15};
+
+    private static final byte[][] STATUS_KEYS = keys("VmRSS:", "VmHWM:", "Threads:", "voluntary_ctxt_switches:", "nonvoluntary_ctxt_switches:");
+
+    private static final byte[][] IO_KEYS = keys("rchar:", "wchar:", "read_bytes:", "write_bytes:");
+
+    // ring columns
+    private static final int TIMESTAMP = 0;
+    private static final int NANOS = 1;
+    private static final int CPU_TICKS = 2;
+    private static final int RSS = 3;
+    private static final int READ_BYTES = 4;
+    private static final int WRITE_BYTES = 5;
+    private static final int COLUMNS = 6;
+
+    private final long pid;
+
+    private final ResourceSamplerConfig config;
+
+    private final IResourceListener listener;
+
+    private final Path fdDirectory;
+
+    private final long[][] ring;
+
+    private final long[] statValues = new long[STAT_FIELDS.length];
+
+    private final long[] statusValues = new long[STATUS_KEYS.length];
+
+    private final long[] ioValues = new long[IO_KEYS.length];
+
+    // accessed by one sample at a time, ordered through sampling
+    private ProcFile stat;
+    private ProcFile status;
+    private ProcFile io;
+    private boolean ioUnavailable;
+    private long samples;
+
+    private final AtomicBoolean sampling = new AtomicBoolean();
+
+    private volatile boolean closed;
+
+    private ScheduledFuture<?> task;
+
+    private volatile ResourceSnapshot snapshot = ResourceSnapshot.EMPTY;
+
+    /**
+     * @param pid process to sample.
+     * @param config sampler configuration.
+     * @param listener listener called after every sample, may be null.
+     */
+    public ResourceSampler(long pid, ResourceSamplerConfig config, IResourceListener listener) {
+        if (config.getHistorySize() < 2) {
+            throw new IllegalArgumentException("At least two samples must be kept: " + config.getHistorySize());
+        }
+        this.pid = pid;
+        this.config = config;
+        this.listener = listener;
+        this.fdDirectory = config.getProcRoot().resolve(Long.toString(pid)).resolve("fd");
+        this.ring = new long[COLUMNS][config.getHistorySize()];
+    }
+
+    /**
+     * Creates and starts a sampler for a running daemon.
+     * @param daemonProcess daemon to sample.
+     * @param config sampler configuration.
+     * @param listener listener called after every sample, may be null.
+     * @return started sampler.
+     */
+    public static ResourceSampler forDaemon(DaemonProcess daemonProcess, ResourceSamplerConfig config, IResourceListener listener) {
+        ResourceSampler sampler = new ResourceSampler(daemonProcess.getPid(), config, listener);
+        sampler.start();
+        return sampler;
+    }
+
+    /**
+     * Starts sampling on the shared scheduler.
+     */
+    public synchronized void start() {
+        if (task == null) {
+            long interval = config.getInterval().toNanos();
+            task = DaemonExecutors.scheduler().scheduleAtFixedRate(this::tick, 0, interval, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops sampling. The last snapshot stays available.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+        closed = true;
+        // a running sample closes the files itself once done
+        if (sampling.compareAndSet(false, true)) {
+            closeFiles();
+        }
+    }
+
+    /**
+     * Gets the latest sample and the rates derived from the kept samples.
+     * Safe to call from any thread.
+     * @return immutable snapshot.
+     */
+    public ResourceSnapshot snapshot() {
+        return snapshot;
+    }
+
+    private void tick() {
+        if (sampling.compareAndSet(false, true)) {
+            DaemonExecutors.ioExecutor().execute(this::sampleSafely);
+        }
+    }
+
+    private void sampleSafely() {
+        try {
+            if (!closed) {
+                notifyListener(sample(System.currentTimeMillis(), System.nanoTime()));
+            }
+        } catch (IOException e) {
+            // the process exited, keep the last snapshot
+            synchronized (this) {
+                task.cancel(false);
+            }
+            closed = true;
+        } catch (RuntimeException e) {
+            System.out.println("Warning. Resource sampling failed: " + e);
+        } finally {
+            sampling.set(false);
+            if (closed && sampling.compareAndSet(false, true)) {
+                closeFiles();
+            }
+        }
+    }
+
+    private void notifyListener(ResourceSnapshot next) {
+        if (listener != null) {
+            try {
+                listener.onResourceSample(next);
+            } catch (RuntimeException e) {
+                System.out.println("Warning. Resource listener failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * Takes one sample and records it.
+     * @param timestamp wall clock time in milliseconds.
+     * @param nowNanos current {@link System#nanoTime()}.
+     * @return the new snapshot.
+     * @throws IOException if the process' stat or status can no longer be read.
+     */
+    ResourceSnapshot sample(long timestamp, long nowNanos) throws IOException {
+        if (stat == null) {
+            Path processDirectory = config.getProcRoot().resolve(Long.toString(pid));
+            stat = new ProcFile(processDirectory.resolve("stat"));
+            status = new ProcFile(processDirectory.resolve("status"));
+            try {
+                io = new ProcFile(processDirectory.resolve("io"));
+            } catch (IOException e) {
+                ioUnavailable = true;
+                Arrays.fill(ioValues, -1);
+            }
+        }
+
+        stat.read();
+        stat.parseStat(STAT_FIELDS, statValues);
+        status.read();
+        status.parseKeyed(STATUS_KEYS, statusValues);
+        if (!ioUnavailable) {
+            try {
+                io.read();
+                io.parseKeyed(IO_KEYS, ioValues);
+            } catch (IOException e) {
+                // not permitted
+                ioUnavailable = true;
+                Arrays.fill(ioValues, -1);
+            }
+        }
+        long openFds = config.isCountFileDescriptors() ? countFileDescriptors() : -1;
+
+        long cpuTicks = statValues[0] < 0 || statValues[1] < 0 ? -1 : statValues[0] + statValues[1];
+        int capacity = ring[0].length;
+        int slot = (int) (samples % capacity);
+        ring[TIMESTAMP][slot] = timestamp;
+        ring[NANOS][slot] = nowNanos;
+        ring[CPU_TICKS][slot] = cpuTicks;
+        ring[RSS][slot] = statusValues[0];
+        ring[READ_BYTES][slot] = ioValues[2];
+        ring[WRITE_BYTES][slot] = ioValues[3];
+        samples++;
+
+        ResourceSample latest = new ResourceSample(timestamp, cpuTicks, statusValues[0], statusValues[1], statusValues[2],
+                ioValues[2], ioValues[3], ioValues[0], ioValues[1], openFds, statusValues[3], statusValues[4]);
+        ResourceSnapshot next = derive(latest, slot);
+        snapshot = next;
+        return next;
+    }
+
+    private ResourceSnapshot derive(ResourceSample latest, int slot) {
+        int capacity = ring[0].length;
+        int count = (int) Math.min(samples, capacity);
+        if (count < 2) {
+            return new ResourceSnapshot(latest, count, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+        int previous = (slot + capacity - 1) % capacity;
+        int oldest = samples <= capacity ? 0 : (slot + 1) % capacity;
+
+        double seconds = (ring[NANOS][slot] - ring[NANOS][previous]) / 1e9;
+        double cpuPercent = rate(CPU_TICKS, previous, slot, seconds) * 100.0 / config.getClockTicksPerSecond();
+        double readRate = rate(READ_BYTES, previous, slot, seconds);
+        double writeRate = rate(WRITE_BYTES, previous, slot, seconds);
+        double windowSeconds = (ring[NANOS][slot] - ring[NANOS][oldest]) / 1e9;
+        double rssGrowth = ring[RSS][slot] < 0 || ring[RSS][oldest] < 0 || windowSeconds <= 0
+                ? Double.NaN
+                : (ring[RSS][slot] - ring[RSS][oldest]) / windowSeconds;
+        return new ResourceSnapshot(latest, count, cpuPercent, readRate, writeRate, rssGrowth);
+    }
+
+    private double rate(int column, int from, int to, double seconds) {
+        long start = ring[column][from];
+        long end = ring[column][to];
+        if (start < 0 || end < 0 || seconds <= 0) {
+            return Double.NaN;
+        }
+        return Math.max(0, end - start) / seconds;
+    }
+
+    private long countFileDescriptors() {
+        long count = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(fdDirectory)) {
+            for (Path ignored : entries) {
+                count++;
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+        return count;
+    }
+
+    private void closeFiles() {
+        for (ProcFile file : new ProcFile[]{stat, status, io}) {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    // nothing left to release
+                }
+            }
+        }
+    }
+
+    private static byte[][] keys(String... keys) {
+        byte[][] bytes = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            bytes[i] = keys[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return bytes;
+    }
+}
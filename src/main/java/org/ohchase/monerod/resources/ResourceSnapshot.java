@@ -0,0 +1,47 @@
+package org.ohchase.monerod.resources;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Latest resource sample of a process with rates derived from the recent samples.
+ * Rates are NaN until two samples were taken, or when their inputs could not be read.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ResourceSnapshot {
+
+    public static final ResourceSnapshot EMPTY = new ResourceSnapshot(null, 0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+
+    /**
+     * Latest sample, null before the first.
+     */
+    private final ResourceSample latest;
+
+    /**
+     * Number of samples kept.
+     */
+    private final int sampleCount;
+
+    /**
+     * CPU usage over the last interval, in percent of one core, so it can exceed 100 on several cores.
+     */
+    private final double cpuPercent;
+
+    /**
+     * Storage read rate over the last interval.
+     */
+    private final double readBytesPerSecond;
+
+    /**
+     * Storage write rate over the last interval.
+     */
+    private final double writeBytesPerSecond;
+
+    /**
+     * Resident set size growth over all kept samples, negative when shrinking.
+     */
+    private final double rssGrowthBytesPerSecond;
+}
@@ -0,0 +1,105 @@
+package org.ohchase.monerod.rpc;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.ohchase.monerod.json.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Header of a block, as returned by the {@code get_block_header_*} RPC methods.
+ */
+@Builder
+@ToString
+public class BlockHeader {
+
+    @Getter
+    private final long height;
+
+    /**
+     * Block hash as hex.
+     */
+    @Getter
+    private final String hash;
+
+    /**
+     * Previous block hash as hex.
+     */
+    @Getter
+    private final String prevHash;
+
+    /**
+     * Unix timestamp of the block.
+     */
+    @Getter
+    private final long timestamp;
+
+    @Getter
+    private final int majorVersion;
+
+    @Getter
+    private final int minorVersion;
+
+    @Getter
+    private final long nonce;
+
+    @Getter
+    private final int numTxes;
+
+    /**
+     * Block reward in atomic units.
+     */
+    @Getter
+    private final long reward;
+
+    @Getter
+    private final long blockSize;
+
+    @Getter
+    private final long blockWeight;
+
+    @Getter
+    private final long difficulty;
+
+    /**
+     * Number of blocks on top of this one when it was fetched.
+     */
+    @Getter
+    private final long depth;
+
+    @Getter
+    private final boolean orphanStatus;
+
+    /**
+     * Reads a block header object, ignoring unknown members.
+     * @param reader reader positioned before the object.
+     * @return decoded header.
+     * @throws IOException if the object is malformed.
+     */
+    public static BlockHeader read(JsonReader reader) throws IOException {
+        BlockHeaderBuilder builder = builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "height" -> builder.height(reader.nextLong());
+                case "hash" -> builder.hash(reader.nextString());
+                case "prev_hash" -> builder.prevHash(reader.nextString());
+                case "timestamp" -> builder.timestamp(reader.nextLong());
+                case "major_version" -> builder.majorVersion(reader.nextInt());
+                case "minor_version" -> builder.minorVersion(reader.nextInt());
+                case "nonce" -> builder.nonce(reader.nextLong());
+                case "num_txes" -> builder.numTxes(reader.nextInt());
+                case "reward" -> builder.reward(reader.nextLong());
+                case "block_size" -> builder.blockSize(reader.nextLong());
+                case "block_weight" -> builder.blockWeight(reader.nextLong());
+                case "difficulty" -> builder.difficulty(reader.nextLong());
+                case "depth" -> builder.depth(reader.nextLong());
+                case "orphan_status" -> builder.orphanStatus(reader.nextBoolean());
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+}
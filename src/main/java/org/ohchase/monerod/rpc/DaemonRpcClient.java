@@ -0,0 +1,388 @@
+package org.ohchase.monerod.rpc;
+
+import lombok.Getter;
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.json.JsonReader;
+import org.ohchase.monerod.json.JsonToken;
+import org.ohchase.monerod.json.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous client for the daemon's RPC interface.
+ * Requests go through a shared {@link HttpClient}, so connections are kept alive and pooled across clients.
+ * Responses are decoded straight from the response stream with a {@link JsonReader}, off the HTTP client's threads.
+ */
+public class DaemonRpcClient {
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    @Getter
+    private final URI endpoint;
+
+    private final HttpClient httpClient;
+
+    @Getter
+    private final Duration timeout;
+
+    private final AtomicLong nextId = new AtomicLong();
+
+    /**
+     * @param endpoint base URI of the RPC interface, for example {@code http://127.0.0.1:18081}.
+     */
+    public DaemonRpcClient(URI endpoint) {
+        this(endpoint, sharedHttpClient(), DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param endpoint base URI of the RPC interface.
+     * @param httpClient client to send requests through.
+     * @param timeout timeout of each request.
+     */
+    public DaemonRpcClient(URI endpoint, HttpClient httpClient, Duration timeout) {
+        this.endpoint = endpoint;
+        this.httpClient = httpClient;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Creates a client for the unrestricted RPC interface of a daemon, or the restricted one if that is all it binds.
+     * @param daemonProcess daemon to talk to.
+     * @return client bound to the daemon.
+     * @throws IllegalStateException if the daemon binds no RPC interface.
+     */
+    public static DaemonRpcClient forDaemon(DaemonProcess daemonProcess) {
+        DaemonConfig daemonConfig = daemonProcess.getDaemonConfig();
+        if (daemonConfig.getRpcConfig() != null) {
+            return new DaemonRpcClient(endpoint(daemonConfig.getRpcConfig().getAddress(), daemonConfig.getRpcConfig().getPort()));
+        }
+        return forRestricted(daemonProcess);
+    }
+
+    /**
+     * Creates a client for the restricted RPC interface of a daemon.
+     * @param daemonProcess daemon to talk to.
+     * @return client bound to the daemon.
+     * @throws IllegalStateException if the daemon binds no restricted RPC interface.
+     */
+    public static DaemonRpcClient forRestricted(DaemonProcess daemonProcess) {
+        DaemonConfig daemonConfig = daemonProcess.getDaemonConfig();
+        if (daemonConfig.getRestrictedRpcConfig() == null) {
+            throw new IllegalStateException("Daemon has no RPC interface configured");
+        }
+        return new DaemonRpcClient(endpoint(daemonConfig.getRestrictedRpcConfig().getAddress(), daemonConfig.getRestrictedRpcConfig().getPort()));
+    }
+
+    /**
+     * Builds the URI to reach a bound address, mapping wildcard addresses to loopback.
+     * @param address bind address.
+     * @param port bind port.
+     * @return base URI.
+     */
+    public static URI endpoint(String address, int port) {
+        String host = switch (address) {
+            case "0.0.0.0" -> "127.0.0.1";
+            case "::", "[::]" -> "[::1]";
+            default -> address.contains(":") && !address.startsWith("[") ? "[" + address + "]" : address;
+        };
+        return URI.create("http://" + host + ":" + port);
+    }
+
+    /**
+     * @return HTTP client shared by every RPC client, pooling keep-alive connections.
+     */
+    public static HttpClient sharedHttpClient() {
+        return HttpClientHolder.HTTP_CLIENT;
+    }
+
+    /**
+     * Calls a JSON-RPC method on {@code /json_rpc}.
+     * @param method method name.
+     * @param params parameters of the call.
+     * @param decoder decoder of the result.
+     * @param <T> result type.
+     * @return future completed with the decoded result, or exceptionally with an {@link IOException}.
+     */
+    public <T> CompletableFuture<T> call(String method, RpcParams params, ResultDecoder<T> decoder) {
+        StringBuilder body = new StringBuilder();
+        writeRequest(new JsonWriter(body), nextId(), method, params);
+        return post("/json_rpc", body.toString(), reader -> readResponse(reader, decoder));
+    }
+
+    /**
+     * Starts a JSON-RPC 2.0 batch, sending many calls in one round trip.
+     * @return empty batch.
+     */
+    public RpcBatch batch() {
+        return new RpcBatch(this);
+    }
+
+    /**
+     * Calls one of the daemon's plain JSON endpoints, such as {@code /get_height}.
+     * @param path endpoint path.
+     * @param params request body.
+     * @param decoder decoder of the whole response object.
+     * @param <T> result type.
+     * @return future completed with the decoded response, or exceptionally with an {@link IOException}.
+     */
+    public <T> CompletableFuture<T> callEndpoint(String path, RpcParams params, ResultDecoder<T> decoder) {
+        StringBuilder body = new StringBuilder();
+        params.write(new JsonWriter(body));
+        return post(path, body.toString(), decoder);
+    }
+
+    /**
+     * @param height height of the block.
+     * @return header of the block at the height in the main chain.
+     */
+    public CompletableFuture<BlockHeader> getBlockHeaderByHeight(long height) {
+        return call("get_block_header_by_height",
+                writer -> writer.beginObject().name("height").value(height).endObject(),
+                member("block_header", BlockHeader::read));
+    }
+
+    /**
+     * @param hash block hash as hex.
+     * @return header of the block, which may be an orphan.
+     */
+    public CompletableFuture<BlockHeader> getBlockHeaderByHash(String hash) {
+        return call("get_block_header_by_hash",
+                writer -> writer.beginObject().name("hash").value(hash).endObject(),
+                member("block_header", BlockHeader::read));
+    }
+
+    /**
+     * @param startHeight first height, inclusive.
+     * @param endHeight last height, inclusive.
+     * @return headers of the range, in height order.
+     */
+    public CompletableFuture<List<BlockHeader>> getBlockHeadersRange(long startHeight, long endHeight) {
+        return call("get_block_headers_range",
+                writer -> writer.beginObject().name("start_height").value(startHeight).name("end_height").value(endHeight).endObject(),
+                member("headers", reader -> {
+                    List<BlockHeader> headers = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        headers.add(BlockHeader.read(reader));
+                    }
+                    reader.endArray();
+                    return headers;
+                }));
+    }
+
+    /**
+     * @return current blockchain height of the daemon.
+     */
+    public CompletableFuture<Long> getHeight() {
+        return callEndpoint("/get_height", RpcParams.NONE, member("height", JsonReader::nextLong));
+    }
+
+    /**
+     * Asks the daemon to exit. Unrestricted RPC only.
+     * @return future completed once the daemon accepted the request, it exits shortly after.
+     */
+    public CompletableFuture<Void> stopDaemon() {
+        return callEndpoint("/stop_daemon", RpcParams.NONE, status());
+    }
+
+    /**
+     * Sets the maximum number of outgoing peers. Unrestricted RPC only.
+     * @param outPeers maximum outgoing peers.
+     * @return future completed once the daemon applied the limit.
+     */
+    public CompletableFuture<Void> setOutPeers(int outPeers) {
+        return callEndpoint("/out_peers", writer -> writer.beginObject().name("out_peers").value(outPeers).endObject(), status());
+    }
+
+    /**
+     * Sets the maximum number of incoming peers. Unrestricted RPC only.
+     * @param inPeers maximum incoming peers.
+     * @return future completed once the daemon applied the limit.
+     */
+    public CompletableFuture<Void> setInPeers(int inPeers) {
+        return callEndpoint("/in_peers", writer -> writer.beginObject().name("in_peers").value(inPeers).endObject(), status());
+    }
+
+    /**
+     * Sets the bandwidth limits. Unrestricted RPC only.
+     * @param limitUp upload limit in kB/s, -1 to reset to the default, 0 to leave unchanged.
+     * @param limitDown download limit in kB/s, -1 to reset to the default, 0 to leave unchanged.
+     * @return future completed once the daemon applied the limits.
+     */
+    public CompletableFuture<Void> setLimit(long limitUp, long limitDown) {
+        return callEndpoint("/set_limit",
+                writer -> writer.beginObject().name("limit_down").value(limitDown).name("limit_up").value(limitUp).endObject(),
+                status());
+    }
+
+    /**
+     * Creates a decoder for a result object that only carries a status.
+     * Fails with an {@link RpcException} if the status is present and not {@code OK}.
+     * @return decoder of the result object.
+     */
+    public static ResultDecoder<Void> status() {
+        return reader -> {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("status")) {
+                    checkStatus(reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return null;
+        };
+    }
+
+    /**
+     * Creates a decoder for a status-carrying result object that extracts one member.
+     * Fails with an {@link RpcException} if the status is present and not {@code OK}.
+     * @param name member to extract.
+     * @param decoder decoder of the member value.
+     * @param <T> member type.
+     * @return decoder of the result object.
+     */
+    public static <T> ResultDecoder<T> member(String name, ResultDecoder<T> decoder) {
+        return reader -> {
+            T value = null;
+            boolean found = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String member = reader.nextName();
+                if (member.equals(name)) {
+                    value = decoder.decode(reader);
+                    found = true;
+                } else if (member.equals("status")) {
+                    checkStatus(reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (!found) {
+                throw new IOException("Missing member '" + name + "' in result");
+            }
+            return value;
+        };
+    }
+
+    /**
+     * @param status status member of a result.
+     * @throws RpcException if the status is not {@code OK}.
+     */
+    static void checkStatus(String status) throws RpcException {
+        if (!"OK".equals(status)) {
+            throw new RpcException(-1, "Daemon returned status " + status);
+        }
+    }
+
+    long nextId() {
+        return nextId.getAndIncrement();
+    }
+
+    static void writeRequest(JsonWriter writer, long id, String method, RpcParams params) {
+        writer.beginObject()
+                .name("jsonrpc").value("2.0")
+                .name("id").value(id)
+                .name("method").value(method)
+                .name("params");
+        params.write(writer);
+        writer.endObject();
+    }
+
+    /**
+     * Reads a single JSON-RPC response object.
+     */
+    static <T> T readResponse(JsonReader reader, ResultDecoder<T> decoder) throws IOException {
+        T result = null;
+        boolean hasResult = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "result" -> {
+                    result = decoder.decode(reader);
+                    hasResult = true;
+                }
+                case "error" -> throw readError(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!hasResult) {
+            throw new IOException("JSON-RPC response without result");
+        }
+        return result;
+    }
+
+    /**
+     * Reads a JSON-RPC error object.
+     */
+    static RpcException readError(JsonReader reader) throws IOException {
+        int code = 0;
+        String message = "Unknown error";
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return new RpcException(code, message);
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "code" -> code = reader.nextInt();
+                case "message" -> message = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new RpcException(code, message);
+    }
+
+    /**
+     * Posts a JSON body and decodes the response stream on the I/O executor.
+     */
+    <T> CompletableFuture<T> post(String path, String body, ResultDecoder<T> decoder) {
+        HttpRequest request = HttpRequest.newBuilder(endpoint.resolve(path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApplyAsync(response -> decode(response, decoder), DaemonExecutors.ioExecutor());
+    }
+
+    private static <T> T decode(HttpResponse<InputStream> response, ResultDecoder<T> decoder) {
+        try (InputStream in = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new RpcException(response.statusCode(), "HTTP status " + response.statusCode() + " from " + response.uri());
+            }
+            T result = decoder.decode(new JsonReader(in));
+            // drain trailing whitespace so the connection returns to the pool
+            in.transferTo(OutputStream.nullOutputStream());
+            return result;
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static final class HttpClientHolder {
+        private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(DaemonExecutors.ioExecutor())
+                .build();
+    }
+}
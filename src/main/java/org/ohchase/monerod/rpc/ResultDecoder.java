@@ -0,0 +1,32 @@
+package org.ohchase.monerod.rpc;
+
+import org.ohchase.monerod.json.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Decodes the result of an RPC call straight from the response stream.
+ * @param <T> decoded type.
+ */
+@FunctionalInterface
+public interface ResultDecoder<T> {
+
+    /**
+     * Decodes one value, the reader must be left after it.
+     * @param reader reader positioned before the result value.
+     * @return decoded result.
+     * @throws IOException if the result is malformed.
+     */
+    T decode(JsonReader reader) throws IOException;
+
+    /**
+     * Decoder that skips the result.
+     * @return decoder returning null.
+     */
+    static ResultDecoder<Void> ignore() {
+        return reader -> {
+            reader.skipValue();
+            return null;
+        };
+    }
+}
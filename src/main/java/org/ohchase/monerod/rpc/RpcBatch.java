@@ -0,0 +1,186 @@
+package org.ohchase.monerod.rpc;
+
+import org.ohchase.monerod.json.JsonReader;
+import org.ohchase.monerod.json.JsonToken;
+import org.ohchase.monerod.json.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * JSON-RPC 2.0 batch: calls are collected with {@link #add} and sent in a single request by {@link #send()}.
+ * Daemons that reject batches are detected from the response, and the calls are then sent individually
+ * over the same pooled connections.
+ */
+public class RpcBatch {
+
+    private final DaemonRpcClient client;
+
+    private final List<Call<?>> calls = new ArrayList<>();
+
+    private boolean sent;
+
+    RpcBatch(DaemonRpcClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Adds a call to the batch.
+     * @param method method name.
+     * @param params parameters of the call.
+     * @param decoder decoder of the result.
+     * @param <T> result type.
+     * @return future completed with the result once the batch response arrives.
+     */
+    public synchronized <T> CompletableFuture<T> add(String method, RpcParams params, ResultDecoder<T> decoder) {
+        if (sent) {
+            throw new IllegalStateException("Batch already sent");
+        }
+        Call<T> call = new Call<>(client.nextId(), method, params, decoder);
+        calls.add(call);
+        return call.future;
+    }
+
+    /**
+     * @return number of calls in the batch.
+     */
+    public synchronized int size() {
+        return calls.size();
+    }
+
+    /**
+     * Sends every call of the batch.
+     * @return future completed once every call completed, exceptionally if any failed.
+     */
+    public synchronized CompletableFuture<Void> send() {
+        if (sent) {
+            throw new IllegalStateException("Batch already sent");
+        }
+        sent = true;
+        if (calls.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        StringBuilder body = new StringBuilder();
+        JsonWriter writer = new JsonWriter(body);
+        writer.beginArray();
+        for (Call<?> call : calls) {
+            DaemonRpcClient.writeRequest(writer, call.id, call.method, call.params);
+        }
+        writer.endArray();
+
+        client.post("/json_rpc", body.toString(), this::readBatchResponse)
+                .whenComplete((batched, error) -> {
+                    if (error != null) {
+                        calls.forEach(call -> call.future.completeExceptionally(unwrap(error)));
+                    } else if (!batched) {
+                        calls.forEach(this::sendIndividually);
+                    } else {
+                        calls.forEach(call -> call.future.completeExceptionally(
+                                new IOException("Call " + call.id + " (" + call.method + ") missing from batch response")));
+                    }
+                });
+
+        return CompletableFuture.allOf(calls.stream().map(call -> call.future).toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Reads the response array, completing calls as their results are decoded.
+     * @return false if the daemon answered with a single object, meaning batches are not supported.
+     */
+    private Boolean readBatchResponse(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return false;
+        }
+
+        reader.beginArray();
+        int index = 0;
+        while (reader.hasNext()) {
+            readElement(reader, index++);
+        }
+        reader.endArray();
+        return true;
+    }
+
+    private void readElement(JsonReader reader, int index) throws IOException {
+        // the id usually precedes the result; if not, fall back to the position in the batch
+        Call<?> call = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> {
+                    if (reader.peek() == JsonToken.NULL) {
+                        // errors for calls the daemon could not parse carry a null id
+                        reader.nextNull();
+                        call = null;
+                    } else {
+                        call = find(reader.nextString());
+                    }
+                }
+                case "result" -> {
+                    Call<?> target = call != null ? call : calls.get(Math.min(index, calls.size() - 1));
+                    target.complete(reader);
+                }
+                case "error" -> {
+                    RpcException error = DaemonRpcClient.readError(reader);
+                    Call<?> target = call != null ? call : calls.get(Math.min(index, calls.size() - 1));
+                    target.future.completeExceptionally(error);
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private Call<?> find(String id) throws IOException {
+        if (id == null) {
+            return null;
+        }
+        for (Call<?> call : calls) {
+            if (Long.toString(call.id).equals(id)) {
+                return call;
+            }
+        }
+        throw new IOException("Unknown id in batch response: " + id);
+    }
+
+    private <T> void sendIndividually(Call<T> call) {
+        client.call(call.method, call.params, call.decoder).whenComplete((result, error) -> {
+            if (error != null) {
+                call.future.completeExceptionally(unwrap(error));
+            } else {
+                call.future.complete(result);
+            }
+        });
+    }
+
+    /**
+     * Fails calls with the cause of a failed request, the same on the batch and the individual path.
+     */
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static final class Call<T> {
+        private final long id;
+        private final String method;
+        private final RpcParams params;
+        private final ResultDecoder<T> decoder;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Call(long id, String method, RpcParams params, ResultDecoder<T> decoder) {
+            this.id = id;
+            this.method = method;
+            this.params = params;
+            this.decoder = decoder;
+        }
+
+        private void complete(JsonReader reader) throws IOException {
+            future.complete(decoder.decode(reader));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.ohchase.monerod.rpc;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the daemon answers an RPC call with an error.
+ */
+public class RpcException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Code of the JSON-RPC error, or the HTTP status code for transport errors.
+     */
+    @Getter
+    private final int code;
+
+    public RpcException(int code, String message) {
+        super(message + " (code " + code + ")");
+        this.code = code;
+    }
+}
@@ -0,0 +1,21 @@
+package org.ohchase.monerod.rpc;
+
+import org.ohchase.monerod.json.JsonWriter;
+
+/**
+ * Writes the parameters of an RPC call.
+ */
+@FunctionalInterface
+public interface RpcParams {
+
+    /**
+     * Parameters of a call that takes none.
+     */
+    RpcParams NONE = writer -> writer.beginObject().endObject();
+
+    /**
+     * Writes the parameters as a single JSON value, usually an object.
+     * @param writer writer positioned where the parameters go.
+     */
+    void write(JsonWriter writer);
+}
@@ -0,0 +1,195 @@
+package org.ohchase.monerod.stats;
+
+import org.ohchase.monerod.configuration.SyncStatsConfig;
+
+import java.time.Duration;
+
+/**
+ * Sync statistics engine fed by parsed sync progress lines.
+ * Updates come from a single writer, the stdout reader thread, and are published as an immutable state
+ * through a volatile field, so readers never take a lock and never contend with the writer.
+ */
+public class SyncStatistics {
+
+    /**
+     * Capacity of the sample ring, bounds the samples kept for the sliding window.
+     */
+    private static final int MAX_SAMPLES = 512;
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final long windowNanos;
+
+    /**
+     * EWMA time constant, half-life divided by ln 2.
+     */
+    private final double ewmaTauNanos;
+
+    private final long stallTimeoutNanos;
+
+    // Writer state, only touched by the writer thread
+    private final long[] sampleTimes = new long[MAX_SAMPLES];
+    private final long[] sampleHeights = new long[MAX_SAMPLES];
+    private int head;
+    private int size;
+    private long sampleCount;
+    private boolean ewmaInitialized;
+    private double ewmaRate;
+    private double peakRate;
+    private double troughRate = Double.NaN;
+    private long lastChangeNanos;
+
+    private volatile State state;
+
+    public SyncStatistics(SyncStatsConfig config) {
+        this.windowNanos = config.getWindow().toNanos();
+        this.ewmaTauNanos = config.getEwmaHalfLife().toNanos() / Math.log(2);
+        this.stallTimeoutNanos = config.getStallTimeout().toNanos();
+        if (windowNanos <= 0 || ewmaTauNanos <= 0 || stallTimeoutNanos <= 0) {
+            throw new IllegalArgumentException("Sync statistics durations must be positive");
+        }
+    }
+
+    /**
+     * Records a sync progress line. Must only be called from the single writer thread.
+     * @param currentHeight current blockchain height.
+     * @param targetHeight target blockchain height.
+     * @param nanoTime {@link System#nanoTime()} at which the line was read.
+     */
+    public void onSyncProgress(long currentHeight, long targetHeight, long nanoTime) {
+        State previous = state;
+        if (previous != null && currentHeight == previous.currentHeight) {
+            // height unchanged: refresh the target only, the stall clock keeps running
+            if (targetHeight != previous.targetHeight) {
+                state = previous.withTarget(targetHeight, ++sampleCount);
+            }
+            return;
+        }
+
+        // moving average over the instantaneous rate since the last sample
+        if (previous != null && nanoTime > previous.updateNanos) {
+            long elapsed = nanoTime - previous.updateNanos;
+            double instantRate = (currentHeight - previous.currentHeight) * NANOS_PER_SECOND / elapsed;
+            double alpha = 1 - Math.exp(-elapsed / ewmaTauNanos);
+            ewmaRate = ewmaInitialized ? ewmaRate + alpha * (instantRate - ewmaRate) : instantRate;
+            ewmaInitialized = true;
+        }
+        addSample(nanoTime, currentHeight);
+        lastChangeNanos = nanoTime;
+        sampleCount++;
+
+        double windowRate = windowRate();
+        if (size > 1) {
+            peakRate = Math.max(peakRate, windowRate);
+            // only take troughs over a filled window, not from the first few noisy samples
+            if (nanoTime - sampleTimes[head] >= windowNanos / 2) {
+                troughRate = Double.isNaN(troughRate) ? windowRate : Math.min(troughRate, windowRate);
+            }
+        }
+
+        state = new State(currentHeight, targetHeight, sampleCount, windowRate, ewmaRate, peakRate,
+                Double.isNaN(troughRate) ? 0 : troughRate, nanoTime, lastChangeNanos);
+    }
+
+    /**
+     * Records a new top block candidate, which raises the target height.
+     * Must only be called from the single writer thread.
+     * @param currentHeight current blockchain height.
+     * @param candidateHeight candidate blockchain height.
+     * @param nanoTime {@link System#nanoTime()} at which the line was read.
+     */
+    public void onNewTopBlockCandidate(long currentHeight, long candidateHeight, long nanoTime) {
+        State previous = state;
+        long targetHeight = previous == null ? candidateHeight : Math.max(previous.targetHeight, candidateHeight);
+        onSyncProgress(currentHeight, targetHeight, nanoTime);
+    }
+
+    /**
+     * Takes a snapshot of the statistics. Safe to call from any thread.
+     * @return immutable snapshot.
+     */
+    public SyncStats snapshot() {
+        State current = state;
+        if (current == null) {
+            return SyncStats.EMPTY;
+        }
+
+        long now = System.nanoTime();
+        long sinceChange = Math.max(0, now - current.lastChangeNanos);
+        boolean synced = current.targetHeight > 0 && current.currentHeight >= current.targetHeight;
+        boolean stalled = !synced && sinceChange >= stallTimeoutNanos;
+
+        Duration eta = null;
+        if (synced) {
+            eta = Duration.ZERO;
+        } else if (current.ewmaRate > 0 && !stalled) {
+            double seconds = (current.targetHeight - current.currentHeight) / current.ewmaRate;
+            eta = Duration.ofMillis((long) (seconds * 1000));
+        }
+
+        return new SyncStats(current.currentHeight, current.targetHeight, current.sampleCount,
+                current.windowRate, current.ewmaRate, current.peakRate, current.troughRate,
+                eta, stalled, Duration.ofNanos(sinceChange));
+    }
+
+    private void addSample(long nanoTime, long height) {
+        // evict samples that left the window, always keeping the newest one as the rate baseline
+        while (size > 1 && nanoTime - sampleTimes[(head + 1) % MAX_SAMPLES] >= windowNanos) {
+            head = (head + 1) % MAX_SAMPLES;
+            size--;
+        }
+        if (size == MAX_SAMPLES) {
+            head = (head + 1) % MAX_SAMPLES;
+            size--;
+        }
+        int tail = (head + size) % MAX_SAMPLES;
+        sampleTimes[tail] = nanoTime;
+        sampleHeights[tail] = height;
+        size++;
+    }
+
+    private double windowRate() {
+        if (size < 2) {
+            return 0;
+        }
+        int tail = (head + size - 1) % MAX_SAMPLES;
+        long elapsed = sampleTimes[tail] - sampleTimes[head];
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return (sampleHeights[tail] - sampleHeights[head]) * NANOS_PER_SECOND / elapsed;
+    }
+
+    /**
+     * Published state, immutable once constructed.
+     */
+    private static final class State {
+        private final long currentHeight;
+        private final long targetHeight;
+        private final long sampleCount;
+        private final double windowRate;
+        private final double ewmaRate;
+        private final double peakRate;
+        private final double troughRate;
+        private final long updateNanos;
+        private final long lastChangeNanos;
+
+        private State(long currentHeight, long targetHeight, long sampleCount, double windowRate, double ewmaRate,
+                      double peakRate, double troughRate, long updateNanos, long lastChangeNanos) {
+            this.currentHeight = currentHeight;
+            this.targetHeight = targetHeight;
+            this.sampleCount = sampleCount;
+            this.windowRate = windowRate;
+            this.ewmaRate = ewmaRate;
+            this.peakRate = peakRate;
+            this.troughRate = troughRate;
+            this.updateNanos = updateNanos;
+            this.lastChangeNanos = lastChangeNanos;
+        }
+
+        private State withTarget(long targetHeight, long sampleCount) {
+            return new State(currentHeight, targetHeight, sampleCount, windowRate, ewmaRate, peakRate, troughRate,
+                    updateNanos, lastChangeNanos);
+        }
+    }
+}
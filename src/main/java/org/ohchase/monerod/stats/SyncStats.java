@@ -0,0 +1,102 @@
+package org.ohchase.monerod.stats;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Immutable snapshot of the sync statistics of a daemon.
+ * Rates are in blocks per second.
+ */
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class SyncStats {
+
+    /**
+     * Snapshot of a daemon that has not reported any sync data yet.
+     */
+    public static final SyncStats EMPTY = new SyncStats(0, 0, 0, 0, 0, 0, 0, null, false, Duration.ZERO);
+
+    /**
+     * Latest reported blockchain height.
+     */
+    @Getter
+    private final long currentHeight;
+
+    /**
+     * Latest reported target blockchain height.
+     */
+    @Getter
+    private final long targetHeight;
+
+    /**
+     * Number of sync samples seen.
+     */
+    @Getter
+    private final long sampleCount;
+
+    /**
+     * Sync rate over the sliding window.
+     */
+    @Getter
+    private final double windowRate;
+
+    /**
+     * Exponentially weighted moving average sync rate.
+     */
+    @Getter
+    private final double ewmaRate;
+
+    /**
+     * Highest windowed sync rate seen.
+     */
+    @Getter
+    private final double peakRate;
+
+    /**
+     * Lowest windowed sync rate seen, once the window was filled.
+     */
+    @Getter
+    private final double troughRate;
+
+    @Getter(AccessLevel.NONE)
+    private final Duration eta;
+
+    /**
+     * Whether the height has not changed for longer than the stall timeout while not synced.
+     */
+    @Getter
+    private final boolean stalled;
+
+    /**
+     * Time since the height last changed.
+     */
+    @Getter
+    private final Duration timeSinceHeightChange;
+
+    /**
+     * @return number of blocks left to sync.
+     */
+    public long getRemainingBlocks() {
+        return Math.max(0, targetHeight - currentHeight);
+    }
+
+    /**
+     * @return true once the current height reached a known target height.
+     */
+    public boolean isSynced() {
+        return targetHeight > 0 && currentHeight >= targetHeight;
+    }
+
+    /**
+     * Estimated time until synced, at the moving average rate.
+     * @return time to sync, or empty while the rate is unknown.
+     */
+    public Optional<Duration> getEta() {
+        return Optional.ofNullable(eta);
+    }
+}
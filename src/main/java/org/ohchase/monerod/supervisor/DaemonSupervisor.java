@@ -0,0 +1,378 @@
+package org.ohchase.monerod.supervisor;
+
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.DaemonStartup;
+import org.ohchase.monerod.IDaemonListener;
+import org.ohchase.monerod.ReaderPool;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.configuration.SupervisorConfig;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a daemon running, restarting it when it exits or fails to start without being stopped.
+ * <p>
+ * Restarts are delayed by an exponential backoff with jitter, which starts over once an incarnation ran for
+ * the configured stable time. The supervisor gives up when the daemon crashes too often within the crash loop
+ * window, or when the restart budget is spent. Every incarnation is started with the same daemon listener,
+ * so listeners such as {@link org.ohchase.monerod.metrics.DaemonMetrics} see restarts as further
+ * {@link IDaemonListener#onDaemonStarted()} calls.
+ */
+public class DaemonSupervisor implements AutoCloseable {
+
+    /**
+     * Lifecycle of the supervised daemon.
+     */
+    public enum State {
+        /**
+         * An incarnation is starting.
+         */
+        STARTING,
+        /**
+         * An incarnation is up.
+         */
+        RUNNING,
+        /**
+         * Waiting to restart after a crash.
+         */
+        BACKOFF,
+        /**
+         * Stopped on request.
+         */
+        STOPPED,
+        /**
+         * Crash loop detected or restart budget spent, no further restarts.
+         */
+        GAVE_UP
+    }
+
+    private final Path monerodBinary;
+
+    private final IDaemonListener daemonListener;
+
+    private final DaemonConfig daemonConfig;
+
+    private final SupervisorConfig config;
+
+    private final ISupervisorListener supervisorListener;
+
+    private final ReaderPool readerPool;
+
+    // guarded by this
+    private final ArrayDeque<Long> crashNanos = new ArrayDeque<>();
+    private Incarnation current;
+    private ScheduledFuture<?> pendingRestart;
+    private int consecutiveCrashes;
+    private long crashDetectedNanos = -1;
+
+    private volatile State state = State.STOPPED;
+    private volatile int restarts;
+    private volatile Duration lastTimeToRecover;
+
+    /**
+     * @param monerodBinary Path for the monerod binary.
+     * @param daemonListener Listener for daemon events, shared by every incarnation.
+     * @param daemonConfig Configuration for the daemon.
+     * @param config Restart policy.
+     * @param supervisorListener Listener for restart decisions, may be null.
+     * @param readerPool Pool reading the daemon's output.
+     */
+    public DaemonSupervisor(Path monerodBinary, IDaemonListener daemonListener, DaemonConfig daemonConfig,
+                            SupervisorConfig config, ISupervisorListener supervisorListener, ReaderPool readerPool) {
+        this.monerodBinary = monerodBinary;
+        this.daemonListener = daemonListener;
+        this.daemonConfig = daemonConfig;
+        this.config = config;
+        this.supervisorListener = supervisorListener != null ? supervisorListener : new ISupervisorListener() {
+        };
+        this.readerPool = readerPool;
+    }
+
+    /**
+     * Creates a supervisor reading output on a dedicated thread per incarnation.
+     * @see #DaemonSupervisor(Path, IDaemonListener, DaemonConfig, SupervisorConfig, ISupervisorListener, ReaderPool)
+     */
+    public DaemonSupervisor(Path monerodBinary, IDaemonListener daemonListener, DaemonConfig daemonConfig,
+                            SupervisorConfig config, ISupervisorListener supervisorListener) {
+        this(monerodBinary, daemonListener, daemonConfig, config, supervisorListener, ReaderPool.dedicatedThreads());
+    }
+
+    /**
+     * Starts the first incarnation without blocking.
+     * @return progress of its start. A failed start is retried like a crash.
+     * @throws IllegalStateException if the supervisor is already running.
+     * @throws IllegalArgumentException if the configuration is invalid, checked before launching.
+     */
+    public synchronized DaemonStartup start() {
+        if (state != State.STOPPED && state != State.GAVE_UP) {
+            throw new IllegalStateException("Supervisor already running: " + state);
+        }
+        crashNanos.clear();
+        consecutiveCrashes = 0;
+        crashDetectedNanos = -1;
+        return launch();
+    }
+
+    /**
+     * Stops supervising and stops the current incarnation, if any.
+     * @return exit code of the daemon, or -1 if none was running.
+     */
+    public int stop() {
+        Incarnation stopping;
+        synchronized (this) {
+            state = State.STOPPED;
+            if (pendingRestart != null) {
+                pendingRestart.cancel(false);
+                pendingRestart = null;
+            }
+            stopping = current;
+            current = null;
+        }
+        if (stopping == null) {
+            return -1;
+        }
+        DaemonProcess daemonProcess = stopping.startup.getDaemonProcess();
+        if (daemonProcess == null) {
+            // not launched yet, make sure it never is
+            stopping.startup.cancel();
+            return -1;
+        }
+        if (!stopping.startup.getStarted().isDone()) {
+            // still starting, a started daemon is stopped gracefully instead of destroyed
+            stopping.startup.cancel();
+        }
+        return daemonProcess.stop();
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return restarts so far, not counting the first start.
+     */
+    public int getRestarts() {
+        return restarts;
+    }
+
+    /**
+     * @return time from detecting the last crash to the restarted daemon being up, if it recovered from one.
+     */
+    public Optional<Duration> getLastTimeToRecover() {
+        return Optional.ofNullable(lastTimeToRecover);
+    }
+
+    /**
+     * @return the current incarnation, once started.
+     */
+    public synchronized Optional<DaemonProcess> getDaemonProcess() {
+        if (current == null || state != State.RUNNING) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(current.startup.getDaemonProcess());
+    }
+
+    private DaemonStartup launch() {
+        state = State.STARTING;
+        Incarnation incarnation = new Incarnation();
+        current = incarnation;
+        DaemonStartup startup;
+        try {
+            startup = DaemonProcess.startAsync(monerodBinary, incarnation, daemonConfig, readerPool);
+        } catch (RuntimeException e) {
+            state = State.STOPPED;
+            current = null;
+            throw e;
+        }
+        incarnation.startup = startup;
+        startup.getStarted().whenComplete((process, error) -> {
+            if (error != null) {
+                exited(incarnation, startup.getDaemonProcess());
+            } else {
+                started(incarnation, process);
+            }
+        });
+        return startup;
+    }
+
+    private void started(Incarnation incarnation, DaemonProcess daemonProcess) {
+        Duration timeToRecover = null;
+        synchronized (this) {
+            if (current != incarnation) {
+                return;
+            }
+            state = State.RUNNING;
+            incarnation.startedNanos = System.nanoTime();
+            if (crashDetectedNanos >= 0) {
+                timeToRecover = Duration.ofNanos(incarnation.startedNanos - crashDetectedNanos);
+                lastTimeToRecover = timeToRecover;
+                crashDetectedNanos = -1;
+            }
+        }
+        if (timeToRecover != null) {
+            supervisorListener.onRecovered(daemonProcess, timeToRecover);
+        }
+    }
+
+    /**
+     * Handles an incarnation that exited or failed to start, once its exit code is known.
+     */
+    private void exited(Incarnation incarnation, DaemonProcess daemonProcess) {
+        if (daemonProcess == null) {
+            crashed(incarnation, -1);
+        } else {
+            daemonProcess.onExit().whenComplete((exitCode, error) -> crashed(incarnation, exitCode != null ? exitCode : -1));
+        }
+    }
+
+    private void crashed(Incarnation incarnation, int exitCode) {
+        String gaveUp = null;
+        Duration delay = null;
+        synchronized (this) {
+            if (current != incarnation || state == State.STOPPED || incarnation.crashed) {
+                return;
+            }
+            incarnation.crashed = true;
+            long now = System.nanoTime();
+            if (crashDetectedNanos < 0) {
+                crashDetectedNanos = now;
+            }
+
+            // a stable run starts the backoff over
+            if (incarnation.startedNanos >= 0 && now - incarnation.startedNanos >= config.getStableAfter().toNanos()) {
+                consecutiveCrashes = 0;
+            }
+            consecutiveCrashes++;
+
+            crashNanos.addLast(now);
+            long windowStart = now - config.getCrashLoopWindow().toNanos();
+            while (!crashNanos.isEmpty() && crashNanos.peekFirst() < windowStart) {
+                crashNanos.removeFirst();
+            }
+
+            if (crashNanos.size() >= config.getCrashLoopThreshold()) {
+                gaveUp = "Crash loop: " + crashNanos.size() + " crashes within " + config.getCrashLoopWindow() + ", last exit code " + exitCode;
+            } else if (config.getMaxRestarts() > 0 && restarts >= config.getMaxRestarts()) {
+                gaveUp = "Restart budget of " + config.getMaxRestarts() + " spent, last exit code " + exitCode;
+            }
+
+            if (gaveUp != null) {
+                state = State.GAVE_UP;
+                current = null;
+            } else {
+                state = State.BACKOFF;
+                delay = backoff(consecutiveCrashes);
+                pendingRestart = DaemonExecutors.scheduler().schedule(
+                        () -> DaemonExecutors.ioExecutor().execute(() -> restart(incarnation)),
+                        delay.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (gaveUp != null) {
+            System.out.println("Warning. " + gaveUp + ". Not restarting monerod.");
+            supervisorListener.onGaveUp(gaveUp);
+        } else {
+            supervisorListener.onRestartScheduled(exitCode, delay);
+        }
+    }
+
+    private void restart(Incarnation crashed) {
+        String gaveUp;
+        synchronized (this) {
+            if (current != crashed || state != State.BACKOFF) {
+                return;
+            }
+            pendingRestart = null;
+            restarts++;
+            try {
+                launch();
+                return;
+            } catch (RuntimeException e) {
+                // the configuration did not change, so this cannot succeed later either
+                gaveUp = "Could not restart monerod: " + e;
+                state = State.GAVE_UP;
+                current = null;
+            }
+        }
+        System.out.println("Warning. " + gaveUp + ".");
+        supervisorListener.onGaveUp(gaveUp);
+    }
+
+    /**
+     * @param crashes consecutive crashes, at least 1.
+     * @return delay before the next restart.
+     */
+    private Duration backoff(int crashes) {
+        double nanos = config.getInitialBackoff().toNanos() * Math.pow(config.getBackoffMultiplier(), crashes - 1);
+        nanos = Math.min(nanos, config.getMaxBackoff().toNanos());
+        double jitter = config.getJitter();
+        if (jitter > 0) {
+            nanos *= 1 - jitter + 2 * jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        return Duration.ofNanos((long) nanos);
+    }
+
+    /**
+     * Forwards the events of one incarnation to the daemon listener, and detects its unexpected exit.
+     */
+    private final class Incarnation implements IDaemonListener {
+
+        private volatile DaemonStartup startup;
+
+        private long startedNanos = -1;
+
+        private boolean crashed;
+
+        @Override
+        public void onRpcReady() {
+            daemonListener.onRpcReady();
+        }
+
+        @Override
+        public void onP2PReady() {
+            daemonListener.onP2PReady();
+        }
+
+        @Override
+        public void onDaemonStarted() {
+            daemonListener.onDaemonStarted();
+        }
+
+        @Override
+        public void onDaemonKilled() {
+            try {
+                daemonListener.onDaemonKilled();
+            } finally {
+                // a throwing listener must not keep the crash from being handled
+                DaemonProcess daemonProcess = startup != null ? startup.getDaemonProcess() : null;
+                exited(this, daemonProcess);
+            }
+        }
+
+        @Override
+        public void onDaemonExited(int exitCode) {
+            daemonListener.onDaemonExited(exitCode);
+        }
+
+        @Override
+        public void onNewTopBlockCandidate(long currentHeight, long candidateHeight) {
+            daemonListener.onNewTopBlockCandidate(currentHeight, candidateHeight);
+        }
+
+        @Override
+        public void onSyncProgress(long currentHeight, long targetHeight) {
+            daemonListener.onSyncProgress(currentHeight, targetHeight);
+        }
+    }
+}
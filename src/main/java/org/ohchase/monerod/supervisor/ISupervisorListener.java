@@ -0,0 +1,35 @@
+package org.ohchase.monerod.supervisor;
+
+import org.ohchase.monerod.DaemonProcess;
+
+import java.time.Duration;
+
+/**
+ * Listener for restart decisions of a {@link DaemonSupervisor}.
+ * Daemon events keep going to the daemon listener, which stays the same across incarnations.
+ */
+public interface ISupervisorListener {
+
+    /**
+     * Called when the daemon exited or failed to start without being stopped.
+     * @param exitCode exit code of the daemon, -1 if it could not be launched.
+     * @param delay time until the restart.
+     */
+    default void onRestartScheduled(int exitCode, Duration delay) {
+    }
+
+    /**
+     * Called once a restarted daemon reported it started.
+     * @param daemonProcess the new incarnation.
+     * @param timeToRecover time from detecting the exit to the restarted daemon being up.
+     */
+    default void onRecovered(DaemonProcess daemonProcess, Duration timeToRecover) {
+    }
+
+    /**
+     * Called when the supervisor stops restarting the daemon.
+     * @param reason why it gave up.
+     */
+    default void onGaveUp(String reason) {
+    }
+}
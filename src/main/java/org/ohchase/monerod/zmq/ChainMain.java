@@ -0,0 +1,72 @@
+package org.ohchase.monerod.zmq;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.ohchase.monerod.json.JsonReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Blocks added to the main chain, as published on {@code json-minimal-chain_main}.
+ */
+@Builder
+@ToString
+public class ChainMain {
+
+    /**
+     * Height of the first added block.
+     */
+    @Getter
+    private final long firstHeight;
+
+    /**
+     * Hash of the block preceding the first added block, as hex.
+     */
+    @Getter
+    private final String firstPrevId;
+
+    /**
+     * Hashes of the added blocks in chain order, as hex.
+     */
+    @Getter
+    private final List<String> ids;
+
+    /**
+     * @return height of the last added block.
+     */
+    public long getLastHeight() {
+        return firstHeight + Math.max(0, ids.size() - 1);
+    }
+
+    /**
+     * Reads a chain_main object, ignoring unknown members.
+     * @param reader reader positioned before the object.
+     * @return decoded event.
+     * @throws IOException if the object is malformed.
+     */
+    public static ChainMain read(JsonReader reader) throws IOException {
+        ChainMainBuilder builder = builder().ids(List.of());
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "first_height" -> builder.firstHeight(reader.nextLong());
+                case "first_prev_id" -> builder.firstPrevId(reader.nextString());
+                case "ids" -> {
+                    List<String> ids = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        ids.add(reader.nextString());
+                    }
+                    reader.endArray();
+                    builder.ids(ids);
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+}
@@ -0,0 +1,36 @@
+package org.ohchase.monerod.zmq;
+
+import java.util.List;
+
+/**
+ * Listener for events published by the daemon over ZMQ.
+ * Events are delivered on the subscriber's thread as soon as they are decoded,
+ * so implementations should hand off anything slow.
+ */
+public interface IZmqListener {
+
+    /**
+     * Called when blocks are added to the main chain.
+     * @param chainMain added blocks.
+     */
+    void onChainMain(ChainMain chainMain);
+
+    /**
+     * Called when transactions enter the pool.
+     * @param transactions added transactions.
+     */
+    void onTxPoolAdd(List<TxPoolTransaction> transactions);
+
+    /**
+     * Called when the subscription is established, including after a reconnect.
+     */
+    default void onConnected() {
+    }
+
+    /**
+     * Called when the connection fails or drops, before reconnecting.
+     * @param cause failure.
+     */
+    default void onDisconnected(Exception cause) {
+    }
+}
@@ -0,0 +1,56 @@
+package org.ohchase.monerod.zmq;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.ohchase.monerod.json.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Transaction added to the pool, as published on {@code json-minimal-txpool_add}.
+ */
+@Builder
+@ToString
+public class TxPoolTransaction {
+
+    /**
+     * Transaction hash as hex.
+     */
+    @Getter
+    private final String id;
+
+    @Getter
+    private final long blobSize;
+
+    @Getter
+    private final long weight;
+
+    /**
+     * Fee in atomic units.
+     */
+    @Getter
+    private final long fee;
+
+    /**
+     * Reads a transaction object, ignoring unknown members.
+     * @param reader reader positioned before the object.
+     * @return decoded transaction.
+     * @throws IOException if the object is malformed.
+     */
+    public static TxPoolTransaction read(JsonReader reader) throws IOException {
+        TxPoolTransactionBuilder builder = builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> builder.id(reader.nextString());
+                case "blob_size" -> builder.blobSize(reader.nextLong());
+                case "weight" -> builder.weight(reader.nextLong());
+                case "fee" -> builder.fee(reader.nextLong());
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+}
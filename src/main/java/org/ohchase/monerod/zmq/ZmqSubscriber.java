@@ -0,0 +1,180 @@
+package org.ohchase.monerod.zmq;
+
+import lombok.Getter;
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.concurrent.DaemonExecutors;
+import org.ohchase.monerod.configuration.ZmqConfig;
+import org.ohchase.monerod.json.JsonReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Subscribes to the daemon's ZMQ publisher and decodes the {@code json-minimal-chain_main}
+ * and {@code json-minimal-txpool_add} topics into typed events.
+ * Speaks ZMTP directly, so no native ZMQ library is needed.
+ * Events are decoded and delivered on the subscriber's own thread as soon as they arrive,
+ * and the connection is re-established with backoff whenever it drops, so the subscriber
+ * can be started before the daemon is up.
+ */
+public class ZmqSubscriber implements Closeable {
+
+    static final String CHAIN_MAIN_TOPIC = "json-minimal-chain_main";
+
+    static final String TXPOOL_ADD_TOPIC = "json-minimal-txpool_add";
+
+    private static final byte[] CHAIN_MAIN = CHAIN_MAIN_TOPIC.getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] TXPOOL_ADD = TXPOOL_ADD_TOPIC.getBytes(StandardCharsets.US_ASCII);
+
+    private static final long MIN_BACKOFF_NANOS = 100_000_000L;
+
+    private static final long MAX_BACKOFF_NANOS = 5_000_000_000L;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    @Getter
+    private final InetSocketAddress address;
+
+    @Getter
+    private final IZmqListener listener;
+
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    private volatile ZmtpConnection connection;
+
+    /**
+     * @param address address of the daemon's ZMQ publisher.
+     * @param listener listener for decoded events.
+     */
+    public ZmqSubscriber(InetSocketAddress address, IZmqListener listener) {
+        this.address = address;
+        this.listener = listener;
+        this.thread = DaemonExecutors.threadFactory("monerod-zmq-" + address.getPort()).newThread(this::run);
+    }
+
+    /**
+     * Creates a subscriber for the ZMQ publisher of a daemon.
+     * @param daemonProcess daemon to subscribe to.
+     * @param listener listener for decoded events.
+     * @return subscriber, not yet started.
+     * @throws IllegalStateException if the daemon has no ZMQ publisher configured.
+     */
+    public static ZmqSubscriber forDaemon(DaemonProcess daemonProcess, IZmqListener listener) {
+        ZmqConfig zmqConfig = daemonProcess.getDaemonConfig().getZmqConfig();
+        if (zmqConfig == null) {
+            throw new IllegalStateException("Daemon has no ZMQ publisher configured");
+        }
+        String host = switch (zmqConfig.getAddress()) {
+            case "0.0.0.0" -> "127.0.0.1";
+            case "::", "[::]" -> "::1";
+            default -> zmqConfig.getAddress();
+        };
+        return new ZmqSubscriber(new InetSocketAddress(host, zmqConfig.getPubPort()), listener);
+    }
+
+    /**
+     * Starts connecting and delivering events.
+     * @return this subscriber.
+     */
+    public ZmqSubscriber start() {
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Stops delivering events and closes the connection.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ZmtpConnection current = connection;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        long backoffNanos = MIN_BACKOFF_NANOS;
+        while (!closed) {
+            try (ZmtpConnection current = ZmtpConnection.connect(address, CONNECT_TIMEOUT_MILLIS, "SUB")) {
+                connection = current;
+                if (closed) {
+                    return;
+                }
+                current.subscribe(CHAIN_MAIN);
+                current.subscribe(TXPOOL_ADD);
+                current.flush();
+                backoffNanos = MIN_BACKOFF_NANOS;
+                try {
+                    listener.onConnected();
+                } catch (RuntimeException e) {
+                    System.out.println("Warning. ZMQ listener failed: " + e);
+                }
+
+                while (!closed) {
+                    current.readMessage();
+                    try {
+                        dispatch(current.getMessage(), current.getMessageLength());
+                    } catch (RuntimeException e) {
+                        // a failing listener must not end the subscription
+                        System.out.println("Warning. ZMQ listener failed: " + e);
+                    }
+                }
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+                try {
+                    listener.onDisconnected(e);
+                } catch (RuntimeException listenerError) {
+                    System.out.println("Warning. ZMQ listener failed: " + listenerError);
+                }
+            } finally {
+                connection = null;
+            }
+
+            LockSupport.parkNanos(backoffNanos);
+            backoffNanos = Math.min(MAX_BACKOFF_NANOS, backoffNanos * 2);
+        }
+    }
+
+    /**
+     * Decodes one {@code <topic>:<json>} message and hands it to the listener.
+     * Messages of other topics are ignored.
+     */
+    void dispatch(byte[] message, int length) throws IOException {
+        if (startsWith(message, length, CHAIN_MAIN)) {
+            JsonReader reader = JsonReader.of(message, CHAIN_MAIN.length + 1, length - CHAIN_MAIN.length - 1);
+            listener.onChainMain(ChainMain.read(reader));
+        } else if (startsWith(message, length, TXPOOL_ADD)) {
+            JsonReader reader = JsonReader.of(message, TXPOOL_ADD.length + 1, length - TXPOOL_ADD.length - 1);
+            List<TxPoolTransaction> transactions = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                transactions.add(TxPoolTransaction.read(reader));
+            }
+            reader.endArray();
+            listener.onTxPoolAdd(transactions);
+        }
+    }
+
+    private static boolean startsWith(byte[] message, int length, byte[] topic) {
+        return length > topic.length
+                && message[topic.length] == ':'
+                && Arrays.equals(message, 0, topic.length, topic, 0, topic.length);
+    }
+}
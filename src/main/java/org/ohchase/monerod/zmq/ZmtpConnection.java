@@ -0,0 +1,218 @@
+package org.ohchase.monerod.zmq;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal ZMTP 3.0 client connection using the NULL security mechanism, enough to act as a SUB socket.
+ * Not thread safe, one thread reads and writes.
+ */
+final class ZmtpConnection implements Closeable {
+
+    private static final int FLAG_MORE = 0x01;
+    private static final int FLAG_LONG = 0x02;
+    private static final int FLAG_COMMAND = 0x04;
+
+    /**
+     * Largest message accepted, guards against a corrupt size field.
+     */
+    static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+
+    /**
+     * Body of the last message read, valid until the next read.
+     */
+    private byte[] message = new byte[4096];
+    private int messageLength;
+
+    private ZmtpConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 65536));
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    /**
+     * Connects and completes the handshake as the given socket type.
+     * @param address peer address.
+     * @param connectTimeoutMillis connect timeout.
+     * @param socketType ZMQ socket type to announce, such as {@code SUB}.
+     * @return ready connection.
+     * @throws IOException if connecting fails or the peer rejects the handshake.
+     */
+    static ZmtpConnection connect(InetSocketAddress address, int connectTimeoutMillis, String socketType) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(address, connectTimeoutMillis);
+            ZmtpConnection connection = new ZmtpConnection(socket);
+            connection.handshake(socketType);
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private void handshake(String socketType) throws IOException {
+        byte[] greeting = new byte[64];
+        greeting[0] = (byte) 0xFF;
+        greeting[9] = 0x7F;
+        greeting[10] = 3;
+        greeting[11] = 0;
+        byte[] mechanism = "NULL".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(mechanism, 0, greeting, 12, mechanism.length);
+        out.write(greeting);
+        out.flush();
+
+        byte[] peer = new byte[64];
+        in.readFully(peer);
+        if ((peer[0] & 0xFF) != 0xFF || (peer[9] & 0xFF) != 0x7F) {
+            throw new IOException("Peer did not send a ZMTP greeting");
+        }
+        if (peer[10] < 3) {
+            throw new IOException("Unsupported ZMTP version " + peer[10] + "." + peer[11]);
+        }
+        if (!Arrays.equals(peer, 12, 16, mechanism, 0, 4) || peer[16] != 0) {
+            throw new IOException("Unsupported ZMTP security mechanism");
+        }
+
+        byte[] name = "Socket-Type".getBytes(StandardCharsets.US_ASCII);
+        byte[] value = socketType.getBytes(StandardCharsets.US_ASCII);
+        byte[] ready = new byte[1 + 5 + 1 + name.length + 4 + value.length];
+        int position = 0;
+        ready[position++] = 5;
+        System.arraycopy("READY".getBytes(StandardCharsets.US_ASCII), 0, ready, position, 5);
+        position += 5;
+        ready[position++] = (byte) name.length;
+        System.arraycopy(name, 0, ready, position, name.length);
+        position += name.length;
+        position += 3;
+        ready[position++] = (byte) value.length;
+        System.arraycopy(value, 0, ready, position, value.length);
+        writeFrame(FLAG_COMMAND, ready, 0, ready.length);
+        out.flush();
+
+        // wait for the peer's READY, an ERROR means it refused us
+        while (true) {
+            int flags = in.readUnsignedByte();
+            int length = readSize(flags);
+            byte[] body = new byte[length];
+            in.readFully(body);
+            if ((flags & FLAG_COMMAND) == 0) {
+                throw new IOException("Peer sent a message before READY");
+            }
+            String command = commandName(body);
+            if (command.equals("READY")) {
+                return;
+            }
+            if (command.equals("ERROR")) {
+                int reasonOffset = 1 + (body[0] & 0xFF) + 1;
+                int reasonLength = reasonOffset <= body.length ? body[reasonOffset - 1] & 0xFF : 0;
+                throw new IOException("Peer refused handshake: "
+                        + new String(body, reasonOffset, Math.min(reasonLength, body.length - reasonOffset), StandardCharsets.US_ASCII));
+            }
+        }
+    }
+
+    /**
+     * Subscribes to messages starting with the given prefix.
+     * @param prefix topic prefix.
+     * @throws IOException if writing fails.
+     */
+    void subscribe(byte[] prefix) throws IOException {
+        byte[] body = new byte[prefix.length + 1];
+        body[0] = 1;
+        System.arraycopy(prefix, 0, body, 1, prefix.length);
+        writeFrame(0, body, 0, body.length);
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Reads the next message, joining multi-part messages into one body.
+     * Commands such as heartbeats are skipped.
+     * @throws EOFException if the peer closed the connection.
+     * @throws IOException if reading fails.
+     */
+    void readMessage() throws IOException {
+        messageLength = 0;
+        while (true) {
+            int flags = in.readUnsignedByte();
+            int length = readSize(flags);
+            if ((flags & FLAG_COMMAND) != 0) {
+                in.skipNBytes(length);
+                continue;
+            }
+            if (messageLength + length > MAX_MESSAGE_SIZE) {
+                throw new IOException("Message of " + (messageLength + (long) length) + " bytes exceeds the limit");
+            }
+            if (messageLength + length > message.length) {
+                message = Arrays.copyOf(message, Math.max(messageLength + length, message.length * 2));
+            }
+            in.readFully(message, messageLength, length);
+            messageLength += length;
+            if ((flags & FLAG_MORE) == 0) {
+                return;
+            }
+        }
+    }
+
+    byte[] getMessage() {
+        return message;
+    }
+
+    int getMessageLength() {
+        return messageLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private int readSize(int flags) throws IOException {
+        if ((flags & FLAG_LONG) == 0) {
+            return in.readUnsignedByte();
+        }
+        long size = in.readLong();
+        if (size < 0 || size > MAX_MESSAGE_SIZE) {
+            throw new IOException("Frame of " + Long.toUnsignedString(size) + " bytes exceeds the limit");
+        }
+        return (int) size;
+    }
+
+    private void writeFrame(int flags, byte[] body, int offset, int length) throws IOException {
+        if (length > 255) {
+            out.write(flags | FLAG_LONG);
+            long size = length;
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (size >>> shift));
+            }
+        } else {
+            out.write(flags);
+            out.write(length);
+        }
+        out.write(body, offset, length);
+    }
+
+    private static String commandName(byte[] body) throws IOException {
+        if (body.length == 0 || (body[0] & 0xFF) + 1 > body.length) {
+            throw new IOException("Malformed ZMTP command");
+        }
+        return new String(body, 1, body[0] & 0xFF, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,115 @@
+package org.ohchase.monerod;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.configuration.NetworkType;
+import org.ohchase.monerod.configuration.ShutdownConfig;
+import org.ohchase.monerod.fake.FakeMonerod;
+import org.ohchase.monerod.fake.FakeScenario;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link DaemonProcess} end to end against a {@link FakeMonerod}, launched through its generated script.
+ * The fake prints the monerod v0.18 startup markers, then one "Synced" line per height from
+ * {@link FakeScenario#START_HEIGHT}, and exits the way its scenario says.
+ */
+class DaemonProcessTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reportsStartupAndSyncProgress() throws Exception {
+        RecordingDaemonListener listener = new RecordingDaemonListener();
+        DaemonStartup startup = DaemonProcess.startAsync(FakeMonerod.install(directory, FakeScenario.synthetic(20)),
+                listener, config(Duration.ofSeconds(10)));
+
+        DaemonProcess daemonProcess = startup.getStarted().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        assertTrue(startup.getP2pReady().isDone());
+        assertTrue(startup.getRpcReady().isDone());
+        long last = FakeScenario.START_HEIGHT + 19;
+        assertTrue(listener.await("syncProgress " + last + " " + (last + 1), TIMEOUT));
+
+        List<String> expected = new ArrayList<>(List.of("p2pReady", "rpcReady", "daemonStarted"));
+        for (long height = FakeScenario.START_HEIGHT; height <= last; height++) {
+            expected.add("syncProgress " + height + " " + (last + 1));
+        }
+        assertEquals(expected, listener.getEvents());
+        assertEquals(5 + 20, daemonProcess.getLinesRead());
+        assertEquals(last, daemonProcess.getSyncStats().getCurrentHeight());
+
+        ShutdownReport report = daemonProcess.shutdown();
+        assertEquals(ShutdownTier.GRACEFUL, report.getTier());
+        assertEquals(0, report.getExitCode());
+        assertEquals("daemonExited 0", listener.getEvents().get(listener.getEvents().size() - 1));
+    }
+
+    @Test
+    void terminatesDaemonSlowToExit() throws Exception {
+        DaemonProcess daemonProcess = start(FakeScenario.synthetic(0).exitDelay(Duration.ofSeconds(20)), Duration.ofMillis(500));
+
+        ShutdownReport report = daemonProcess.shutdown();
+
+        assertEquals(ShutdownTier.TERMINATED, report.getTier());
+        assertEquals(143, report.getExitCode());
+        assertTrue(report.getDuration().compareTo(Duration.ofMillis(500)) >= 0);
+    }
+
+    @Test
+    void killsDaemonIgnoringTermination() throws Exception {
+        DaemonProcess daemonProcess = start(FakeScenario.synthetic(0).ignoreExit().ignoreTerminate(), Duration.ofMillis(300));
+
+        ShutdownReport report = daemonProcess.shutdown();
+
+        assertEquals(ShutdownTier.KILLED, report.getTier());
+        assertEquals(137, report.getExitCode());
+        assertFalse(daemonProcess.isAlive());
+    }
+
+    @Test
+    void reportsDaemonExitingOnItsOwn() throws Exception {
+        RecordingDaemonListener listener = new RecordingDaemonListener();
+        DaemonStartup startup = DaemonProcess.startAsync(FakeMonerod.install(directory, FakeScenario.synthetic(10).crash(5, 139)),
+                listener, config(Duration.ofSeconds(10)));
+        DaemonProcess daemonProcess = startup.getStarted().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        assertEquals(139, daemonProcess.onExit().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+        assertTrue(listener.await("daemonKilled", TIMEOUT));
+        assertEquals(5, listener.getEvents().stream().filter(event -> event.startsWith("syncProgress")).count());
+
+        ShutdownReport report = daemonProcess.shutdown();
+        assertEquals(ShutdownTier.ALREADY_EXITED, report.getTier());
+        assertEquals(139, report.getExitCode());
+    }
+
+    private DaemonProcess start(FakeScenario scenario, Duration gracefulTimeout) throws Exception {
+        DaemonStartup startup = DaemonProcess.startAsync(FakeMonerod.install(directory, scenario),
+                new RecordingDaemonListener(), config(gracefulTimeout));
+        return startup.getStarted().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    private DaemonConfig config(Duration gracefulTimeout) throws IOException {
+        return DaemonConfig.builder()
+                .networkType(NetworkType.MAIN_NET)
+                .dataDirectory(directory.resolve("data"))
+                .shutdownConfig(ShutdownConfig.builder()
+                        .gracefulTimeout(gracefulTimeout)
+                        .terminateTimeout(Duration.ofSeconds(1))
+                        .killTimeout(Duration.ofSeconds(5))
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,151 @@
+package org.ohchase.monerod;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.configuration.NetworkType;
+import org.ohchase.monerod.configuration.PrewarmConfig;
+import org.ohchase.monerod.fake.FakeMonerod;
+import org.ohchase.monerod.fake.FakeScenario;
+import org.ohchase.monerod.prewarm.IPrewarmListener;
+import org.ohchase.monerod.prewarm.LockStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives {@link DaemonProcess#startAsync} against a {@link FakeMonerod}, and against shell scripts where the start
+ * must fail or must never happen.
+ */
+class DaemonStartupTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void completesEveryStageOnStart() throws Exception {
+        RecordingDaemonListener listener = new RecordingDaemonListener();
+        DaemonStartup startup = DaemonProcess.startAsync(FakeMonerod.install(directory, FakeScenario.synthetic(0)),
+                listener, config().build());
+
+        DaemonProcess daemonProcess = startup.getStarted().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        assertSame(startup.getDaemonProcess(), daemonProcess);
+        assertTrue(startup.getP2pReady().isDone() && !startup.getP2pReady().isCompletedExceptionally());
+        assertTrue(startup.getRpcReady().isDone() && !startup.getRpcReady().isCompletedExceptionally());
+        daemonProcess.shutdown();
+    }
+
+    @Test
+    void failsWithOutputWhenDaemonExitsDuringStartup() throws Exception {
+        Path binary = script("echo 'Error: Failed to initialize core'\nexit 1\n");
+        DaemonStartup startup = DaemonProcess.startAsync(binary, new RecordingDaemonListener(), config().build());
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> startup.getStarted().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+
+        assertInstanceOf(IOException.class, error.getCause());
+        assertTrue(error.getCause().getMessage().contains("Failed to initialize core"), error.getCause().getMessage());
+        assertTrue(startup.getP2pReady().isCompletedExceptionally());
+        assertTrue(startup.getRpcReady().isCompletedExceptionally());
+        IOException blocking = assertThrows(IOException.class, () -> DaemonProcess.start(binary, new RecordingDaemonListener(), config().build()));
+        assertTrue(blocking.getMessage().contains("Failed to initialize core"));
+    }
+
+    @Test
+    void cancelsStartThatTakesTooLong() throws Exception {
+        DaemonStartup startup = DaemonProcess.startAsync(
+                FakeMonerod.install(directory, FakeScenario.synthetic(0).startupDelay(Duration.ofSeconds(30))),
+                new RecordingDaemonListener(), config().build());
+
+        startup.getP2pReady().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        assertThrows(TimeoutException.class, () -> startup.getStarted().get(300, TimeUnit.MILLISECONDS));
+        startup.cancel();
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> startup.getStarted().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, error.getCause());
+        assertEquals(143, startup.getDaemonProcess().onExit().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+    }
+
+    @Test
+    void neverLaunchesWhenCancelledDuringPrewarm() throws Exception {
+        Path launched = directory.resolve("launched");
+        Path binary = script("touch '" + launched + "'\n");
+        Files.createDirectories(directory.resolve("data").resolve("lmdb"));
+        Files.write(directory.resolve("data").resolve("lmdb").resolve("data.mdb"), new byte[64 * 1024]);
+        CountDownLatch prewarming = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IPrewarmListener blocking = new IPrewarmListener() {
+            @Override
+            public void onLockInspected(LockStatus lockStatus) {
+                prewarming.countDown();
+                try {
+                    release.await(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        DaemonStartup startup = DaemonProcess.startAsync(binary, new RecordingDaemonListener(),
+                config().prewarmConfig(PrewarmConfig.builder().listener(blocking).build()).build());
+        assertTrue(prewarming.await(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+        assertNull(startup.getDaemonProcess());
+        startup.cancel();
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> startup.getStarted().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+        assertEquals("Start of monerod cancelled", error.getCause().getMessage());
+        release.countDown();
+        // the prewarm finishes and the launch is skipped
+        Thread.sleep(1000);
+        assertNull(startup.getDaemonProcess());
+        assertFalse(Files.exists(launched));
+    }
+
+    @Test
+    void launchesAfterPrewarm() throws Exception {
+        Files.createDirectories(directory.resolve("data").resolve("lmdb"));
+        Files.write(directory.resolve("data").resolve("lmdb").resolve("data.mdb"), new byte[64 * 1024]);
+
+        DaemonStartup startup = DaemonProcess.startAsync(FakeMonerod.install(directory, FakeScenario.synthetic(0)),
+                new RecordingDaemonListener(), config().prewarmConfig(PrewarmConfig.defaults()).build());
+        DaemonProcess daemonProcess = startup.getStarted().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        assertNotNull(daemonProcess.getPrewarmReport().orElse(null));
+        assertEquals(64 * 1024, daemonProcess.getPrewarmReport().get().getLoadedBytes());
+        daemonProcess.shutdown();
+    }
+
+    private DaemonConfig.DaemonConfigBuilder config() {
+        return DaemonConfig.builder()
+                .networkType(NetworkType.MAIN_NET)
+                .dataDirectory(directory.resolve("data"));
+    }
+
+    private Path script(String body) throws IOException {
+        Path binary = directory.resolve("monerod");
+        Files.writeString(binary, "#!/bin/sh\n" + body);
+        Files.setPosixFilePermissions(binary, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return binary;
+    }
+}
@@ -0,0 +1,67 @@
+package org.ohchase.monerod;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.configuration.NetworkType;
+import org.ohchase.monerod.fake.FakeMonerod;
+import org.ohchase.monerod.fake.FakeScenario;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs two {@link FakeMonerod}s on a {@link ReaderPool#shared(int) shared pool} of one thread.
+ * Each prints more output than an OS pipe holds, so a daemon whose output is no longer read cannot exit.
+ */
+class ReaderPoolTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private static final int LINES = 2000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void throwingListenerDoesNotStopOtherDaemons() throws Exception {
+        RecordingDaemonListener failing = new RecordingDaemonListener();
+        failing.failWith(new IllegalStateException("listener bug"));
+        RecordingDaemonListener healthy = new RecordingDaemonListener();
+
+        try (ReaderPool pool = ReaderPool.shared(1)) {
+            DaemonStartup failingStartup = start("failing", failing, pool);
+            DaemonStartup healthyStartup = start("healthy", healthy, pool);
+
+            // the failing listener threw on every startup marker, the start still completed
+            DaemonProcess failingProcess = failingStartup.getStarted().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+            assertTrue(failingStartup.getP2pReady().isDone());
+            assertTrue(failingStartup.getRpcReady().isDone());
+            DaemonProcess healthyProcess = healthyStartup.getStarted().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+            assertEquals(0, failingProcess.onExit().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+            assertEquals(0, healthyProcess.onExit().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+            assertTrue(failing.await("daemonKilled", TIMEOUT));
+            assertTrue(healthy.await("daemonKilled", TIMEOUT));
+
+            assertEquals(LINES, failing.getEvents().stream().filter(event -> event.startsWith("syncProgress")).count());
+            assertEquals(LINES, healthy.getEvents().stream().filter(event -> event.startsWith("syncProgress")).count());
+            assertEquals(healthyProcess.getLinesRead(), failingProcess.getLinesRead());
+        }
+    }
+
+    private DaemonStartup start(String name, IDaemonListener listener, ReaderPool pool) throws Exception {
+        Path home = Files.createDirectories(directory.resolve(name));
+        DaemonConfig config = DaemonConfig.builder()
+                .networkType(NetworkType.MAIN_NET)
+                .dataDirectory(home.resolve("data"))
+                .build();
+        return DaemonProcess.startAsync(FakeMonerod.install(home, FakeScenario.synthetic(LINES).exitWhenDone()),
+                listener, config, pool);
+    }
+}
@@ -0,0 +1,89 @@
+package org.ohchase.monerod;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records every callback as a line such as {@code syncProgress 100 200}, and throws from each once told to.
+ */
+public class RecordingDaemonListener implements IDaemonListener {
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    private volatile RuntimeException failure;
+
+    /**
+     * @return callbacks received so far, oldest first.
+     */
+    public List<String> getEvents() {
+        return events;
+    }
+
+    /**
+     * @param failure thrown from every callback after recording it, null to stop throwing.
+     */
+    public void failWith(RuntimeException failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * Waits until a callback was recorded.
+     * @param event callback line to wait for.
+     * @param timeout how long to wait.
+     * @return true if it was recorded in time.
+     */
+    public boolean await(String event, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!events.contains(event)) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    @Override
+    public void onRpcReady() {
+        record("rpcReady");
+    }
+
+    @Override
+    public void onP2PReady() {
+        record("p2pReady");
+    }
+
+    @Override
+    public void onDaemonStarted() {
+        record("daemonStarted");
+    }
+
+    @Override
+    public void onDaemonKilled() {
+        record("daemonKilled");
+    }
+
+    @Override
+    public void onDaemonExited(int exitCode) {
+        record("daemonExited " + exitCode);
+    }
+
+    @Override
+    public void onNewTopBlockCandidate(long currentHeight, long candidateHeight) {
+        record("newTopBlockCandidate " + currentHeight + " " + candidateHeight);
+    }
+
+    @Override
+    public void onSyncProgress(long currentHeight, long targetHeight) {
+        record("syncProgress " + currentHeight + " " + targetHeight);
+    }
+
+    private void record(String event) {
+        events.add(event);
+        RuntimeException current = failure;
+        if (current != null) {
+            throw current;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package org.ohchase.monerod.balancer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.ohchase.monerod.configuration.BalancerConfig;
+import org.ohchase.monerod.rpc.DaemonRpcClient;
+import org.ohchase.monerod.rpc.RpcException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the balancer against local stub daemons answering {@code /get_height} after an injected delay.
+ * Each stub reports its own height, so results tell which node answered. Reads start while only the first node is
+ * added and the second node joins right after, which makes the first pick deterministic.
+ */
+class RpcBalancerTest {
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private final List<StubNode> stubs = new ArrayList<>();
+
+    @AfterEach
+    void stopStubs() {
+        stubs.forEach(StubNode::stop);
+    }
+
+    @Test
+    void hedgesSlowReadOnSecondNode() throws Exception {
+        StubNode slow = stub(100, 2000, 200);
+        StubNode fast = stub(200, 0, 200);
+        RpcBalancer balancer = new RpcBalancer(config(Duration.ofMillis(100)));
+
+        balancer.addNode("slow", slow.client());
+        CompletableFuture<Long> read = balancer.read(DaemonRpcClient::getHeight);
+        balancer.addNode("fast", fast.client());
+
+        assertEquals(200, read.get(1, TimeUnit.SECONDS));
+        assertEquals(1, balancer.getHedges());
+        assertEquals(1, balancer.getHedgeWins());
+        assertEquals(1, slow.calls.get());
+        assertEquals(1, fast.calls.get());
+    }
+
+    @Test
+    void doesNotHedgeFastRead() throws Exception {
+        StubNode fast = stub(100, 0, 200);
+        StubNode other = stub(200, 0, 200);
+        RpcBalancer balancer = new RpcBalancer(config(Duration.ofMillis(500)));
+
+        balancer.addNode("fast", fast.client());
+        CompletableFuture<Long> read = balancer.read(DaemonRpcClient::getHeight);
+        balancer.addNode("other", other.client());
+
+        assertEquals(100, read.get(5, TimeUnit.SECONDS));
+        assertEquals(0, balancer.getHedges());
+        assertEquals(0, other.calls.get());
+    }
+
+    @Test
+    void hedgesFailedReadAtOnce() throws Exception {
+        StubNode failing = stub(100, 200, 500);
+        StubNode healthy = stub(200, 0, 200);
+        RpcBalancer balancer = new RpcBalancer(config(Duration.ofSeconds(10)));
+
+        balancer.addNode("failing", failing.client());
+        CompletableFuture<Long> read = balancer.read(DaemonRpcClient::getHeight);
+        balancer.addNode("healthy", healthy.client());
+
+        // long before the hedge delay of 10 seconds
+        assertEquals(200, read.get(2, TimeUnit.SECONDS));
+        assertEquals(1, balancer.getHedges());
+        assertEquals(1, balancer.getHedgeWins());
+        assertEquals(1, balancer.getNodes().get(0).getFailures());
+    }
+
+    @Test
+    void waitsForFirstAttemptWhenHedgeFails() throws Exception {
+        StubNode slow = stub(100, 800, 200);
+        StubNode failing = stub(200, 0, 500);
+        RpcBalancer balancer = new RpcBalancer(config(Duration.ofMillis(100)));
+
+        balancer.addNode("slow", slow.client());
+        CompletableFuture<Long> read = balancer.read(DaemonRpcClient::getHeight);
+        balancer.addNode("failing", failing.client());
+
+        // the hedge failing first must not give up while the first attempt is still running
+        assertEquals(100, read.get(5, TimeUnit.SECONDS));
+        assertEquals(1, balancer.getHedges());
+        assertEquals(0, balancer.getHedgeWins());
+        assertEquals(1, failing.calls.get());
+    }
+
+    @Test
+    void givesUpOnceEveryAttemptFailed() throws Exception {
+        StubNode first = stub(100, 600, 503);
+        StubNode second = stub(200, 100, 500);
+        RpcBalancer balancer = new RpcBalancer(config(Duration.ofMillis(100)));
+
+        balancer.addNode("first", first.client());
+        long startNanos = System.nanoTime();
+        CompletableFuture<Long> read = balancer.read(DaemonRpcClient::getHeight);
+        balancer.addNode("second", second.client());
+
+        // the hedge fails at ~200ms, the read only fails with the first attempt at ~600ms, with its error
+        ExecutionException error = assertThrows(ExecutionException.class, () -> read.get(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(550));
+        assertEquals(503, assertInstanceOf(RpcException.class, error.getCause()).getCode());
+        assertEquals(1, balancer.getHedges());
+        assertEquals(0, balancer.getHedgeWins());
+        assertEquals(1, first.calls.get());
+        assertEquals(1, second.calls.get());
+    }
+
+    @Test
+    void givesUpWithoutSecondNode() throws Exception {
+        StubNode failing = stub(100, 0, 500);
+        RpcBalancer balancer = new RpcBalancer(config(Duration.ofMillis(100)));
+        balancer.addNode("failing", failing.client());
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> balancer.read(DaemonRpcClient::getHeight).get(5, TimeUnit.SECONDS));
+        assertEquals(500, assertInstanceOf(RpcException.class, error.getCause()).getCode());
+        assertEquals(0, balancer.getHedges());
+        assertEquals(0, balancer.getNodes().get(0).getOutstanding());
+    }
+
+    @Test
+    void neverHedgesWhenDisabled() throws Exception {
+        StubNode slow = stub(100, 300, 200);
+        StubNode fast = stub(200, 0, 200);
+        RpcBalancer balancer = new RpcBalancer(BalancerConfig.builder()
+                .hedging(false)
+                .minHedgeDelay(Duration.ofMillis(10))
+                .build());
+
+        balancer.addNode("slow", slow.client());
+        CompletableFuture<Long> read = balancer.read(DaemonRpcClient::getHeight);
+        balancer.addNode("fast", fast.client());
+
+        assertEquals(100, read.get(5, TimeUnit.SECONDS));
+        assertEquals(0, balancer.getHedges());
+        assertEquals(0, fast.calls.get());
+    }
+
+    @Test
+    void skipsLaggingNodes() throws Exception {
+        StubNode behind = stub(100, 0, 200);
+        StubNode ahead = stub(200, 0, 200);
+        RpcBalancer balancer = new RpcBalancer(BalancerConfig.builder().maxLag(10).build());
+        balancer.addNode("behind", behind.client()).setHeight(100);
+        balancer.addNode("ahead", ahead.client()).setHeight(200);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(200, balancer.call(DaemonRpcClient::getHeight).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(0, behind.calls.get());
+    }
+
+    @Test
+    void failsWhenEveryNodeIsAtItsLimit() throws Exception {
+        StubNode slow = stub(100, 500, 200);
+        RpcBalancer balancer = new RpcBalancer(BalancerConfig.builder().maxOutstanding(1).hedging(false).build());
+        balancer.addNode("slow", slow.client());
+
+        CompletableFuture<Long> first = balancer.read(DaemonRpcClient::getHeight);
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> balancer.read(DaemonRpcClient::getHeight).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(IOException.class, error.getCause());
+        assertEquals(100, first.get(5, TimeUnit.SECONDS));
+    }
+
+    private static BalancerConfig config(Duration hedgeDelay) {
+        return BalancerConfig.builder()
+                .minHedgeDelay(hedgeDelay)
+                .build();
+    }
+
+    private StubNode stub(long height, long delayMillis, int status) throws IOException {
+        StubNode stub = new StubNode(height, delayMillis, status);
+        stubs.add(stub);
+        return stub;
+    }
+
+    /**
+     * Answers {@code /get_height} with a fixed height or HTTP status, after a delay.
+     */
+    private final class StubNode {
+
+        private final HttpServer server;
+
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final long height;
+
+        private final long delayMillis;
+
+        private final int status;
+
+        private StubNode(long height, long delayMillis, int status) throws IOException {
+            this.height = height;
+            this.delayMillis = delayMillis;
+            this.status = status;
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.setExecutor(executor);
+            server.createContext("/get_height", this::answer);
+            server.start();
+        }
+
+        private DaemonRpcClient client() {
+            URI endpoint = URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+            return new DaemonRpcClient(endpoint, httpClient, Duration.ofSeconds(10));
+        }
+
+        private void answer(HttpExchange exchange) throws IOException {
+            calls.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (status != 200) {
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = ("{\"height\":" + height + ",\"status\":\"OK\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+
+        private void stop() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package org.ohchase.monerod.blocks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ohchase.monerod.configuration.BlockFetchConfig;
+import org.ohchase.monerod.epee.EpeeReader;
+import org.ohchase.monerod.epee.EpeeType;
+import org.ohchase.monerod.epee.EpeeWriter;
+import org.ohchase.monerod.rpc.RpcException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockFetcherTest {
+
+    /**
+     * Response to a request for heights 1000 to 1003, laid out as monerod v0.18 writes it: the access fields
+     * ({@code credits}, {@code top_hash}, {@code status}, {@code untrusted}) before {@code blocks}, each block with
+     * {@code pruned}, {@code block}, {@code block_weight} and {@code txs}, empty {@code txs} left out, and pruned
+     * transactions as objects with {@code blob} and {@code prunable_hash}. The blobs are deterministic random bytes,
+     * the last transaction is long enough to need a 4 byte length.
+     */
+    private static final String FIXTURE = "/blocks/get_blocks_by_height.bin";
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void readsFixture() throws IOException {
+        List<BlockEntry> blocks = BlockFetcher.readBlocks(fixture(), new long[]{1000, 1001, 1002, 1003});
+
+        assertEquals(4, blocks.size());
+        assertEquals(List.of(1000L, 1001L, 1002L, 1003L), blocks.stream().map(BlockEntry::getHeight).toList());
+        assertEquals(List.of(203, 171, 235, 203), blocks.stream().map(block -> block.getBlock().remaining()).toList());
+        assertEquals(List.of(2, 0, 1, 1), blocks.stream().map(block -> block.getTransactions().size()).toList());
+        assertEquals(List.of(false, false, true, false), blocks.stream().map(BlockEntry::isPruned).toList());
+        assertEquals(5761, blocks.get(2).getBlockWeight());
+
+        assertEquals(0x0e, blocks.get(0).getBlock().get(0));
+        assertEquals(List.of(1514, 2890), blocks.get(0).getTransactions().stream().map(ByteBuffer::remaining).toList());
+        assertEquals(412, blocks.get(2).getTransactions().get(0).remaining());
+        assertEquals(17000, blocks.get(3).getTransactions().get(0).remaining());
+        assertTrue(blocks.get(0).getBlock().isReadOnly());
+    }
+
+    @Test
+    void rejectsMissingBlocks() {
+        IOException error = assertThrows(IOException.class,
+                () -> BlockFetcher.readBlocks(fixture(), new long[]{1000, 1001, 1002}));
+        assertEquals("Requested 3 blocks, got 4", error.getMessage());
+    }
+
+    @Test
+    void rejectsFailedStatus() {
+        byte[] document = new EpeeWriter()
+                .beginObject(1)
+                .name("status").value("BUSY")
+                .toByteArray();
+        assertThrows(RpcException.class, () -> BlockFetcher.readBlocks(ByteBuffer.wrap(document), new long[0]));
+    }
+
+    @Test
+    void deliversInOrderWhenBatchesCompleteOutOfOrder() throws Exception {
+        // the first batch is only answered once every later batch in flight was answered
+        CountDownLatch laterBatchesAnswered = new CountDownLatch(3);
+        AtomicInteger concurrentRequests = new AtomicInteger();
+        AtomicInteger maxConcurrentRequests = new AtomicInteger();
+        server.createContext("/get_blocks_by_height.bin", exchange -> {
+            int concurrent = concurrentRequests.incrementAndGet();
+            maxConcurrentRequests.accumulateAndGet(concurrent, Math::max);
+            try {
+                long[] heights = readHeights(exchange);
+                if (heights[0] == 0) {
+                    await(laterBatchesAnswered);
+                }
+                concurrentRequests.decrementAndGet();
+                respond(exchange, heights);
+                if (heights[0] != 0) {
+                    laterBatchesAnswered.countDown();
+                }
+            } catch (IOException | RuntimeException e) {
+                concurrentRequests.decrementAndGet();
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+            }
+        });
+
+        List<Long> delivered = new ArrayList<>();
+        AtomicBoolean overlapping = new AtomicBoolean();
+        AtomicBoolean inConsumer = new AtomicBoolean();
+        CompletableFuture<Void> done = fetcher(10, 4).fetch(0, 95, block -> {
+            if (!inConsumer.compareAndSet(false, true)) {
+                overlapping.set(true);
+            }
+            delivered.add(block.getBlock().order(ByteOrder.LITTLE_ENDIAN).getLong(0));
+            inConsumer.set(false);
+        });
+        done.get(30, TimeUnit.SECONDS);
+
+        List<Long> expected = new ArrayList<>();
+        for (long height = 0; height < 95; height++) {
+            expected.add(height);
+        }
+        assertEquals(expected, delivered);
+        assertFalse(overlapping.get());
+        assertTrue(maxConcurrentRequests.get() <= 4);
+    }
+
+    @Test
+    void consumerFailureFailsFetch() throws IOException {
+        server.createContext("/get_blocks_by_height.bin", exchange -> respond(exchange, readHeights(exchange)));
+
+        IllegalStateException failure = new IllegalStateException("consumer failed");
+        CompletableFuture<Void> done = fetcher(5, 2).fetch(0, 50, block -> {
+            if (block.getHeight() == 12) {
+                throw failure;
+            }
+        });
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> done.get(30, TimeUnit.SECONDS));
+        assertEquals(failure, error.getCause());
+    }
+
+    @Test
+    void httpErrorFailsFetch() {
+        server.createContext("/get_blocks_by_height.bin", exchange -> {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+
+        CompletableFuture<Void> done = fetcher(10, 2).fetch(0, 20, block -> {
+        });
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> done.get(30, TimeUnit.SECONDS));
+        RpcException rpcError = assertInstanceOf(RpcException.class, error.getCause());
+        assertEquals(503, rpcError.getCode());
+    }
+
+    @Test
+    void sendsHeightsAsUint64Array() throws Exception {
+        List<long[]> requests = new ArrayList<>();
+        server.createContext("/get_blocks_by_height.bin", exchange -> {
+            long[] heights = readHeights(exchange);
+            synchronized (requests) {
+                requests.add(heights);
+            }
+            respond(exchange, heights);
+        });
+
+        fetcher(3, 1).fetchBatch(new long[]{7, 8, 9}).get(30, TimeUnit.SECONDS);
+
+        assertEquals(1, requests.size());
+        assertArrayEquals(new long[]{7, 8, 9}, requests.get(0));
+    }
+
+    private BlockFetcher fetcher(int batchSize, int maxInFlight) {
+        URI endpoint = URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        return new BlockFetcher(endpoint, httpClient, BlockFetchConfig.builder()
+                .batchSize(batchSize)
+                .maxInFlight(maxInFlight)
+                .build());
+    }
+
+    private static ByteBuffer fixture() throws IOException {
+        try (InputStream in = BlockFetcherTest.class.getResourceAsStream(FIXTURE)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + FIXTURE);
+            }
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+
+    private static long[] readHeights(HttpExchange exchange) throws IOException {
+        EpeeReader reader = new EpeeReader(ByteBuffer.wrap(exchange.getRequestBody().readAllBytes()));
+        long[] heights = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("heights")) {
+                heights = new long[reader.beginArray()];
+                for (int i = 0; i < heights.length; i++) {
+                    heights[i] = reader.nextLong();
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (heights == null) {
+            throw new IOException("Request without heights");
+        }
+        return heights;
+    }
+
+    /**
+     * Answers with one block per height, whose blob is the height as 8 little-endian bytes.
+     */
+    private static void respond(HttpExchange exchange, long[] heights) throws IOException {
+        EpeeWriter writer = new EpeeWriter()
+                .beginObject(2)
+                .name("status").value("OK")
+                .name("blocks").beginArray(EpeeType.OBJECT, heights.length);
+        for (long height : heights) {
+            byte[] block = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(height).array();
+            writer.beginObject(1).name("block").blob(block);
+        }
+        byte[] body = writer.toByteArray();
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IOException("Later batches were not requested");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
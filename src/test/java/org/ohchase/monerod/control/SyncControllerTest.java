@@ -0,0 +1,223 @@
+package org.ohchase.monerod.control;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ohchase.monerod.configuration.SyncControlConfig;
+import org.ohchase.monerod.configuration.SyncStatsConfig;
+import org.ohchase.monerod.json.JsonReader;
+import org.ohchase.monerod.rpc.DaemonRpcClient;
+import org.ohchase.monerod.stats.SyncStatistics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Drives the controller through {@link SyncController#tick(long)} on a synthetic clock.
+ * Sync progress lines are fed to a {@link SyncStatistics} one per second, as monerod would print them, and the
+ * stub daemon records every setting it is sent in the form {@code out_peers 32}.
+ */
+class SyncControllerTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private static final long TARGET_HEIGHT = 1_000_000;
+
+    private static final Duration SETTLE_TIME = Duration.ofSeconds(60);
+
+    private final List<String> settings = new CopyOnWriteArrayList<>();
+
+    private final SyncStatistics syncStatistics = new SyncStatistics(SyncStatsConfig.defaults());
+
+    private long now;
+
+    private long height = 1000;
+
+    private long targetHeight = TARGET_HEIGHT;
+
+    private HttpServer daemon;
+
+    private ExecutorService daemonExecutor;
+
+    private DaemonRpcClient client;
+
+    @BeforeEach
+    void startDaemon() throws IOException {
+        daemon = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        daemonExecutor = Executors.newCachedThreadPool();
+        daemon.setExecutor(daemonExecutor);
+        daemon.createContext("/", this::answer);
+        daemon.start();
+        client = new DaemonRpcClient(URI.create("http://127.0.0.1:" + daemon.getAddress().getPort()),
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(), Duration.ofSeconds(TIMEOUT_SECONDS));
+    }
+
+    @AfterEach
+    void stop() {
+        daemon.stop(0);
+        daemonExecutor.shutdownNow();
+    }
+
+    @Test
+    void climbsToTheFastestPeerCount() throws Exception {
+        SyncController controller = controller(config().build());
+        // the sync rate peaks at 48 outgoing peers
+        IntToLongFunction rate = peers -> 100 - 2L * Math.abs(peers - 48);
+
+        progress(1, 10);
+        tick(controller);
+        assertEquals(SyncController.State.CATCHING_UP, controller.getState());
+        assertEquals(32, controller.getOutPeers());
+
+        // 32 -> 40 -> 48 -> 56 helped until the last step, which is undone
+        for (int i = 0; i < 4; i++) {
+            progress(SETTLE_TIME.toSeconds(), rate.applyAsLong(controller.getOutPeers()));
+            tick(controller);
+        }
+        assertEquals(List.of("out_peers 32", "out_peers 40", "out_peers 48", "out_peers 56", "out_peers 48"), outPeers());
+
+        // no change for a few evaluations, then a probe downwards that is undone as well
+        for (int i = 0; i < SyncController.REPROBE_AFTER - 1; i++) {
+            progress(SETTLE_TIME.toSeconds(), rate.applyAsLong(controller.getOutPeers()));
+            tick(controller);
+        }
+        assertEquals(48, controller.getOutPeers());
+        for (int i = 0; i < 2; i++) {
+            progress(SETTLE_TIME.toSeconds(), rate.applyAsLong(controller.getOutPeers()));
+            tick(controller);
+        }
+        assertEquals(List.of("out_peers 32", "out_peers 40", "out_peers 48", "out_peers 56", "out_peers 48",
+                "out_peers 40", "out_peers 48"), outPeers());
+        assertEquals(7, controller.getAdjustments());
+    }
+
+    @Test
+    void waitsForTheSettleTimeBeforeJudging() throws Exception {
+        SyncController controller = controller(config().build());
+        progress(1, 10);
+        tick(controller);
+
+        progress(SETTLE_TIME.toSeconds() - 1, 10);
+        tick(controller);
+        assertEquals(32, controller.getOutPeers());
+
+        progress(1, 10);
+        tick(controller);
+        assertEquals(40, controller.getOutPeers());
+    }
+
+    @Test
+    void leavesSteadyStateOnlyPastTheExitThreshold() throws Exception {
+        SyncController controller = controller(config().build());
+        height = TARGET_HEIGHT - 100;
+        progress(1, 10);
+        tick(controller);
+        assertEquals(SyncController.State.CATCHING_UP, controller.getState());
+
+        height = TARGET_HEIGHT - 3;
+        progress(1, 1);
+        tick(controller);
+        assertEquals(SyncController.State.STEADY, controller.getState());
+        assertEquals(12, controller.getOutPeers());
+        assertEquals(Set.of("out_peers 12", "in_peers 48", "set_limit 8192 2048"),
+                Set.copyOf(settings.subList(2, settings.size())));
+
+        // new blocks on the network, still within the exit threshold
+        int applied = settings.size();
+        targetHeight = height + 30;
+        progress(1, 0);
+        tick(controller);
+        assertEquals(SyncController.State.STEADY, controller.getState());
+        assertEquals(applied, settings.size());
+
+        targetHeight = height + 31;
+        progress(1, 0);
+        tick(controller);
+        assertEquals(SyncController.State.CATCHING_UP, controller.getState());
+        assertEquals(Set.of("out_peers 32", "set_limit 65536 2048"), Set.copyOf(settings.subList(applied, settings.size())));
+
+        // back within the enter threshold
+        height = targetHeight - 2;
+        progress(1, 1);
+        tick(controller);
+        assertEquals(SyncController.State.STEADY, controller.getState());
+    }
+
+    @Test
+    void rejectsOutOfOrderBounds() {
+        assertThrows(IllegalArgumentException.class,
+                () -> controller(config().minOutPeers(16).maxOutPeers(8).build()));
+        assertThrows(IllegalArgumentException.class,
+                () -> controller(config().syncedEnterBlocks(10).syncedExitBlocks(10).build()));
+    }
+
+    private SyncController controller(SyncControlConfig config) {
+        return new SyncController(syncStatistics::snapshot, client, config);
+    }
+
+    private static SyncControlConfig.SyncControlConfigBuilder config() {
+        return SyncControlConfig.builder().settleTime(SETTLE_TIME);
+    }
+
+    /**
+     * Feeds one sync progress line per second.
+     * @param seconds seconds to advance the clock by.
+     * @param blocksPerSecond blocks synced per second.
+     */
+    private void progress(long seconds, long blocksPerSecond) {
+        for (long i = 0; i < seconds; i++) {
+            now += SECOND;
+            height += blocksPerSecond;
+            syncStatistics.onSyncProgress(height, targetHeight, now);
+        }
+    }
+
+    private void tick(SyncController controller) throws Exception {
+        controller.tick(now);
+        controller.pending().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private List<String> outPeers() {
+        return settings.stream().filter(setting -> setting.startsWith("out_peers")).toList();
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        JsonReader reader = JsonReader.of(exchange.getRequestBody().readAllBytes());
+        List<String> values = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            reader.nextName();
+            values.add(Long.toString(reader.nextLong()));
+        }
+        reader.endObject();
+        settings.add(exchange.getRequestURI().getPath().substring(1) + " " + String.join(" ", values));
+
+        byte[] body = "{\"status\":\"OK\"}".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
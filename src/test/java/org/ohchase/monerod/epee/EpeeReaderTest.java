@@ -0,0 +1,150 @@
+package org.ohchase.monerod.epee;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EpeeReaderTest {
+
+    @Test
+    void readsWhatTheWriterWrote() throws IOException {
+        byte[] document = new EpeeWriter()
+                .beginObject(4)
+                .name("height").uint64(3_000_000)
+                .name("count").uint32(0xFFFFFFFFL)
+                .name("untrusted").value(true)
+                .name("nested").beginObject(1)
+                .name("hash").value("abc")
+                .toByteArray();
+
+        EpeeReader reader = new EpeeReader(ByteBuffer.wrap(document));
+        reader.beginObject();
+        assertEquals("height", reader.nextName());
+        assertEquals(EpeeType.UINT64, reader.peek());
+        assertEquals(3_000_000, reader.nextLong());
+        assertEquals("count", reader.nextName());
+        assertEquals(0xFFFFFFFFL, reader.nextLong());
+        assertEquals("untrusted", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        assertEquals("nested", reader.nextName());
+        reader.beginObject();
+        assertEquals("hash", reader.nextName());
+        assertEquals("abc", reader.nextString());
+        reader.endObject();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertEquals(document.length, reader.getPosition());
+    }
+
+    @Test
+    void readsArraysOfEveryCountWidth() throws IOException {
+        for (int length : new int[]{0, 63, 64, 16383, 16384}) {
+            long[] values = new long[length];
+            Arrays.setAll(values, i -> i * 7L);
+            byte[] document = new EpeeWriter()
+                    .beginObject(1)
+                    .name("values").uint64Array(values)
+                    .toByteArray();
+
+            EpeeReader reader = new EpeeReader(ByteBuffer.wrap(document));
+            reader.beginObject();
+            reader.nextName();
+            assertEquals(EpeeType.ARRAY, reader.peek());
+            assertEquals(length, reader.beginArray());
+            for (long value : values) {
+                assertEquals(value, reader.nextLong());
+            }
+            reader.endArray();
+            reader.endObject();
+        }
+    }
+
+    @Test
+    void skipsUnreadValues() throws IOException {
+        byte[] blob = new byte[100];
+        byte[] document = new EpeeWriter()
+                .beginObject(4)
+                .name("blob").blob(blob)
+                .name("heights").uint64Array(new long[]{1, 2, 3})
+                .name("entries").beginArray(EpeeType.OBJECT, 2)
+                .beginObject(1).name("a").uint64(1)
+                .beginObject(1).name("b").value("x")
+                .name("status").value("OK")
+                .toByteArray();
+
+        EpeeReader reader = new EpeeReader(ByteBuffer.wrap(document));
+        reader.beginObject();
+        reader.skipValue();
+        reader.skipValue();
+        assertEquals("entries", reader.nextName());
+        reader.skipValue();
+        assertEquals("status", reader.nextName());
+        assertEquals("OK", reader.nextString());
+        reader.endObject();
+    }
+
+    @Test
+    void returnsBlobsAsReadOnlySlices() throws IOException {
+        byte[] blob = "block".getBytes(StandardCharsets.US_ASCII);
+        byte[] document = new EpeeWriter()
+                .beginObject(1)
+                .name("block").blob(blob)
+                .toByteArray();
+
+        ByteBuffer buffer = ByteBuffer.wrap(document);
+        EpeeReader reader = new EpeeReader(buffer);
+        reader.beginObject();
+        reader.nextName();
+        ByteBuffer slice = reader.nextBlob();
+        assertTrue(slice.isReadOnly());
+        assertEquals(ByteBuffer.wrap(blob), slice);
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void rejectsWrongTypes() throws IOException {
+        byte[] document = new EpeeWriter()
+                .beginObject(1)
+                .name("status").value("OK")
+                .toByteArray();
+
+        EpeeReader reader = new EpeeReader(ByteBuffer.wrap(document));
+        reader.beginObject();
+        reader.nextName();
+        assertThrows(IOException.class, reader::nextLong);
+    }
+
+    @Test
+    void rejectsMissingSignature() {
+        assertThrows(IOException.class, () -> new EpeeReader(ByteBuffer.wrap(new byte[]{'{', '}'})));
+    }
+
+    @Test
+    void rejectsTruncatedDocuments() throws IOException {
+        byte[] document = new EpeeWriter()
+                .beginObject(2)
+                .name("block").blob(new byte[64])
+                .name("height").uint64(1)
+                .toByteArray();
+
+        for (int length = 9; length < document.length; length++) {
+            EpeeReader reader = new EpeeReader(ByteBuffer.wrap(document, 0, length));
+            assertThrows(IOException.class, () -> {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    reader.nextName();
+                    reader.skipValue();
+                }
+                reader.endObject();
+            }, "truncated at " + length);
+        }
+    }
+}
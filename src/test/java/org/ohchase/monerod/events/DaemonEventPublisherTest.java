@@ -0,0 +1,243 @@
+package org.ohchase.monerod.events;
+
+import org.junit.jupiter.api.Test;
+import org.ohchase.monerod.RecordingDaemonListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Subscribers are drained on the publishing thread, so every delivery has happened once a call returns.
+ */
+class DaemonEventPublisherTest {
+
+    private final RecordingDaemonListener delegate = new RecordingDaemonListener();
+
+    private final DaemonEventPublisher publisher = new DaemonEventPublisher(delegate, Runnable::run);
+
+    @Test
+    void deliversOnlyRequestedEvents() {
+        RecordingSubscriber subscriber = subscribe(2, 16, OverflowPolicy.BLOCK);
+        for (int exitCode = 1; exitCode <= 5; exitCode++) {
+            publisher.onDaemonExited(exitCode);
+        }
+        assertEquals(List.of("exited 1", "exited 2"), subscriber.events());
+
+        subscriber.subscription.request(2);
+        assertEquals(List.of("exited 1", "exited 2", "exited 3", "exited 4"), subscriber.events());
+
+        // completion waits for the queued event and its demand
+        publisher.complete();
+        assertFalse(subscriber.completed);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(5, subscriber.received.size());
+        assertTrue(subscriber.completed);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    void dropsOldestProgressButNeverLifecycleEvents() {
+        RecordingSubscriber subscriber = subscribe(0, 3, OverflowPolicy.DROP_OLDEST);
+        publisher.onSyncProgress(1, 100);
+        publisher.onDaemonStarted();
+        for (long height = 2; height <= 5; height++) {
+            publisher.onSyncProgress(height, 100);
+        }
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(List.of("started", "sync 4", "sync 5"), subscriber.events());
+        assertEquals(3, publisher.getDroppedEvents());
+    }
+
+    @Test
+    void keepsLatestProgressAsideWhileQueueIsFull() {
+        RecordingSubscriber subscriber = subscribe(0, 2, OverflowPolicy.BLOCK);
+        for (long height = 1; height <= 5; height++) {
+            publisher.onSyncProgress(height, 100);
+        }
+        publisher.onNewTopBlockCandidate(5, 200);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(List.of("sync 1", "sync 2", "sync 5", "candidate 5 200"), subscriber.events());
+        assertEquals(2, publisher.getDroppedEvents());
+    }
+
+    @Test
+    void conflatesProgressBeforeLifecycleEvents() {
+        RecordingSubscriber subscriber = subscribe(0, 16, OverflowPolicy.CONFLATE);
+        publisher.onSyncProgress(1, 100);
+        publisher.onSyncProgress(2, 100);
+        publisher.onSyncProgress(3, 100);
+        publisher.onDaemonKilled();
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(List.of("sync 3", "killed"), subscriber.events());
+        assertEquals(2, publisher.getDroppedEvents());
+    }
+
+    @Test
+    void stopsDeliveringOnceCancelled() {
+        RecordingSubscriber cancelled = subscribe(Long.MAX_VALUE, 16, OverflowPolicy.BLOCK);
+        RecordingSubscriber other = subscribe(Long.MAX_VALUE, 16, OverflowPolicy.BLOCK);
+        publisher.onSyncProgress(1, 100);
+
+        cancelled.subscription.cancel();
+        publisher.onSyncProgress(2, 100);
+        publisher.complete();
+
+        assertEquals(List.of("sync 1"), cancelled.events());
+        assertFalse(cancelled.completed);
+        assertEquals(List.of("sync 1", "sync 2"), other.events());
+        assertTrue(other.completed);
+    }
+
+    @Test
+    void rejectsNonPositiveRequests() {
+        RecordingSubscriber subscriber = subscribe(0, 16, OverflowPolicy.BLOCK);
+        subscriber.subscription.request(0);
+
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+        publisher.onSyncProgress(1, 100);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    void publishesEventsTheDelegateFailedOn() {
+        RecordingSubscriber subscriber = subscribe(Long.MAX_VALUE, 16, OverflowPolicy.BLOCK);
+        delegate.failWith(new IllegalStateException("listener bug"));
+
+        publisher.onP2PReady();
+        publisher.onSyncProgress(1, 100);
+
+        assertEquals(List.of("p2pReady", "syncProgress 1 100"), delegate.getEvents());
+        assertEquals(List.of("p2pReady", "sync 1"), subscriber.events());
+    }
+
+    @Test
+    void timestampsEventsBeforeTheDelegateRuns() {
+        long[] delegateStart = new long[1];
+        DaemonEventPublisher slow = new DaemonEventPublisher(new RecordingDaemonListener() {
+            @Override
+            public void onSyncProgress(long currentHeight, long targetHeight) {
+                delegateStart[0] = System.nanoTime();
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        slow.subscribe(subscriber);
+
+        slow.onSyncProgress(1, 100);
+
+        assertTrue(subscriber.received.get(0).nanoTime() <= delegateStart[0]);
+    }
+
+    @Test
+    void completesOtherSubscribersWhenOneThrowsOnCompletion() {
+        RecordingSubscriber throwing = new RecordingSubscriber(Long.MAX_VALUE) {
+            @Override
+            public void onComplete() {
+                throw new IllegalStateException("subscriber bug");
+            }
+        };
+        publisher.subscribe(throwing);
+        RecordingSubscriber other = subscribe(Long.MAX_VALUE, 16, OverflowPolicy.BLOCK);
+
+        publisher.complete();
+
+        assertTrue(other.completed);
+        assertNull(other.error);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    void completesLateSubscribersRightAway() {
+        publisher.complete();
+        RecordingSubscriber subscriber = subscribe(1, 16, OverflowPolicy.BLOCK);
+        publisher.onSyncProgress(1, 100);
+
+        assertTrue(subscriber.completed);
+        assertTrue(subscriber.received.isEmpty());
+    }
+
+    private RecordingSubscriber subscribe(long initialDemand, int capacity, OverflowPolicy policy) {
+        RecordingSubscriber subscriber = new RecordingSubscriber(initialDemand);
+        publisher.subscribe(subscriber, capacity, policy);
+        return subscriber;
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<DaemonEvent> {
+
+        private final long initialDemand;
+
+        private final List<DaemonEvent> received = new CopyOnWriteArrayList<>();
+
+        private Flow.Subscription subscription;
+
+        private volatile boolean completed;
+
+        private volatile Throwable error;
+
+        private RecordingSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+        }
+
+        @Override
+        public void onNext(DaemonEvent item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        /**
+         * @return received events in the form {@code sync 3}.
+         */
+        private List<String> events() {
+            return received.stream().map(event -> {
+                if (event instanceof DaemonEvent.SyncProgress sync) {
+                    return "sync " + sync.currentHeight();
+                } else if (event instanceof DaemonEvent.NewTopBlockCandidate candidate) {
+                    return "candidate " + candidate.currentHeight() + " " + candidate.candidateHeight();
+                } else if (event instanceof DaemonEvent.DaemonExited exited) {
+                    return "exited " + exited.exitCode();
+                } else if (event instanceof DaemonEvent.DaemonStarted) {
+                    return "started";
+                } else if (event instanceof DaemonEvent.DaemonKilled) {
+                    return "killed";
+                } else if (event instanceof DaemonEvent.P2PReady) {
+                    return "p2pReady";
+                }
+                return event.toString();
+            }).toList();
+        }
+    }
+}
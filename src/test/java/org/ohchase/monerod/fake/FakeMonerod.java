@@ -0,0 +1,431 @@
+package org.ohchase.monerod.fake;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.ohchase.monerod.json.JsonReader;
+import org.ohchase.monerod.json.JsonToken;
+import sun.misc.Signal;
+import sun.misc.SignalHandler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stands in for monerod, so {@link org.ohchase.monerod.DaemonProcess} can be driven without the real binary or
+ * a network. {@link #install} writes a launcher script to pass as the {@code monerodBinary}; the script runs
+ * this class with a {@link FakeScenario} and the monerod arguments, of which only the RPC binds are used.
+ * <p>
+ * The fake prints the startup markers, then sync lines at the scenario's rate, hundreds of thousands of lines
+ * per second when unthrottled, and then waits for {@code exit} on stdin or {@code /stop_daemon} like the daemon.
+ */
+public final class FakeMonerod {
+
+    private static final byte[] SYNC_PREFIX = ("2024-05-14 10:21:33.448\t7f3b9c5fa6c0\tINFO\tglobal\t"
+            + "src/cryptonote_protocol/cryptonote_protocol_handler.inl:1618\tSynced ").getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] NOISE = ("2024-05-14 10:21:33.451\t7f3b9c5fa6c0\tINFO\tnet.p2p\t"
+            + "src/p2p/net_node.inl:2414\t[203.0.113.71:18080 OUT] NOTIFY_NEW_FLUFFY_BLOCK (1 txes)\n").getBytes(StandardCharsets.US_ASCII);
+
+    private static final String[] STARTUP = {
+            "2024-05-14 10:21:33.010\t7f3b9c5fa6c0\tINFO\tglobal\tsrc/daemon/main.cpp:297\tMonero 'Fluorine Fermi' (v0.18.3.3-release)",
+            "2024-05-14 10:21:33.051\t7f3b9c5fa6c0\tINFO\tglobal\tsrc/daemon/p2p.h:63\tInitializing p2p server...",
+            "2024-05-14 10:21:33.071\t7f3b9c5fa6c0\tINFO\tglobal\tsrc/daemon/p2p.h:68\tp2p server initialized OK",
+            "2024-05-14 10:21:33.343\t7f3b9c5fa6c0\tINFO\tglobal\tsrc/daemon/rpc.h:85\tcore RPC server started ok",
+            "2024-05-14 10:21:33.440\t7f3b9c5fa6c0\tINFO\tglobal\tsrc/daemon/p2p.h:83\tStarting p2p net loop..."
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FakeScenario scenario;
+
+    private final OutputStream out = new FileOutputStream(FileDescriptor.out);
+
+    // guarded by out
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int buffered;
+    private boolean exiting;
+
+    // lines printed after startup
+    private volatile long written;
+
+    private MappedByteBuffer timestamps;
+
+    // first line index whose timestamp is not written yet
+    private long unstamped;
+
+    private FakeMonerod(FakeScenario scenario) {
+        this.scenario = scenario;
+    }
+
+    /**
+     * Writes an executable script launching the fake with this JVM and class path.
+     * @param directory directory to write {@code monerod} to.
+     * @param scenario what the fake does.
+     * @return path of the script, to pass as the monerod binary.
+     * @throws IOException if the script cannot be written.
+     */
+    public static Path install(Path directory, FakeScenario scenario) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        // the fake only moves bytes, start fast rather than peak
+        command.add("-XX:+UseSerialGC");
+        command.add("-XX:TieredStopAtLevel=1");
+        command.add("-cp");
+        // absolute, the script may run from any directory
+        StringBuilder classPath = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (classPath.length() > 0) {
+                classPath.append(File.pathSeparatorChar);
+            }
+            classPath.append(Path.of(entry).toAbsolutePath());
+        }
+        command.add(classPath.toString());
+        command.add(FakeMonerod.class.getName());
+        command.addAll(scenario.toArguments());
+        command.add("--");
+
+        StringBuilder script = new StringBuilder("#!/bin/sh\nexec");
+        for (String argument : command) {
+            script.append(" '").append(argument.replace("'", "'\\''")).append('\'');
+        }
+        script.append(" \"$@\"\n");
+
+        Files.createDirectories(directory);
+        Path binary = directory.resolve("monerod");
+        Files.writeString(binary, script);
+        Files.setPosixFilePermissions(binary, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return binary;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int separator = List.of(args).indexOf("--");
+        List<String> scenarioArguments = List.of(args).subList(0, separator < 0 ? args.length : separator);
+        List<String> monerodArguments = separator < 0 ? List.of() : List.of(args).subList(separator + 1, args.length);
+        new FakeMonerod(FakeScenario.parse(scenarioArguments)).run(monerodArguments);
+    }
+
+    private void run(List<String> monerodArguments) throws IOException {
+        if (scenario.timestamps != null) {
+            // not truncated, the harness may have mapped it already
+            try (FileChannel channel = FileChannel.open(scenario.timestamps, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                timestamps = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(8, scenario.lines * 8));
+                timestamps.order(ByteOrder.nativeOrder());
+            }
+        }
+        if (scenario.ignoreTerminate) {
+            Signal.handle(new Signal("TERM"), SignalHandler.SIG_IGN);
+        }
+        if (scenario.stubRpc) {
+            serveRpc(monerodArguments, "--rpc-bind-ip", "--rpc-bind-port");
+            serveRpc(monerodArguments, "--rpc-restricted-bind-ip", "--rpc-restricted-bind-port");
+        }
+        Thread stdin = new Thread(this::readCommands, "fake-monerod-stdin");
+        stdin.setDaemon(true);
+        stdin.start();
+
+        if (scenario.replay != null) {
+            replay();
+        } else {
+            startup(List.of(STARTUP));
+            synthetic();
+        }
+
+        synchronized (out) {
+            flush();
+        }
+        if (scenario.exitWhenDone) {
+            requestExit();
+        }
+        while (true) {
+            // until asked to exit
+            LockSupport.park();
+        }
+    }
+
+    private void startup(List<String> lines) throws IOException {
+        for (String line : lines) {
+            if (line.contains("Starting p2p net loop")) {
+                synchronized (out) {
+                    flush();
+                }
+                sleep(scenario.startupDelay.toNanos());
+            }
+            byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            synchronized (out) {
+                append(bytes, bytes.length);
+            }
+        }
+        synchronized (out) {
+            flush();
+        }
+    }
+
+    private void synthetic() throws IOException {
+        long target = FakeScenario.START_HEIGHT + scenario.lines;
+        byte[] line = new byte[SYNC_PREFIX.length + 80];
+        System.arraycopy(SYNC_PREFIX, 0, line, 0, SYNC_PREFIX.length);
+        long startNanos = System.nanoTime();
+        for (long i = 0; i < scenario.lines; i++) {
+            pace(i, startNanos);
+            boolean noise = scenario.noiseEvery > 0 && i % scenario.noiseEvery == scenario.noiseEvery - 1 && i + 1 < scenario.lines;
+            int length;
+            if (noise) {
+                System.arraycopy(NOISE, 0, line, 0, NOISE.length);
+                length = NOISE.length;
+            } else {
+                // "Synced 372056/2020778 (18%, 1648722 left)"
+                long current = FakeScenario.START_HEIGHT + i;
+                System.arraycopy(SYNC_PREFIX, 0, line, 0, SYNC_PREFIX.length);
+                length = putLong(line, SYNC_PREFIX.length, current);
+                line[length++] = '/';
+                length = putLong(line, length, target);
+                line[length++] = ' ';
+                line[length++] = '(';
+                length = putLong(line, length, current * 100 / target);
+                line[length++] = '%';
+                line[length++] = ',';
+                line[length++] = ' ';
+                length = putLong(line, length, target - current);
+                for (byte b : " left)\n".getBytes(StandardCharsets.US_ASCII)) {
+                    line[length++] = b;
+                }
+            }
+            synchronized (out) {
+                if (exiting) {
+                    return;
+                }
+                append(line, length);
+                written++;
+            }
+        }
+    }
+
+    private void replay() throws IOException {
+        List<String> log = Files.readAllLines(scenario.replay, StandardCharsets.UTF_8);
+        int started = 0;
+        while (started < log.size() && !log.get(started).contains("Starting p2p net loop")) {
+            started++;
+        }
+        if (started == log.size()) {
+            throw new IOException("No startup section in " + scenario.replay);
+        }
+        startup(log.subList(0, started + 1));
+        List<byte[]> body = new ArrayList<>();
+        for (String line : log.subList(started + 1, log.size())) {
+            body.add((line + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        if (body.isEmpty()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        for (long i = 0; i < scenario.lines; i++) {
+            pace(i, startNanos);
+            byte[] line = body.get((int) (i % body.size()));
+            synchronized (out) {
+                if (exiting) {
+                    return;
+                }
+                append(line, line.length);
+                written++;
+            }
+        }
+    }
+
+    /**
+     * Holds line {@code i} back until it is due, and plays the stall and crash of the scenario.
+     */
+    private void pace(long i, long startNanos) throws IOException {
+        if (i == scenario.stallAfter) {
+            synchronized (out) {
+                flush();
+            }
+            sleep(scenario.stall.toNanos());
+        }
+        if (i == scenario.crashAfter) {
+            synchronized (out) {
+                flush();
+            }
+            Runtime.getRuntime().halt(scenario.crashExitCode);
+        }
+        if (scenario.rate > 0) {
+            long due = startNanos + (long) (i * (1e9 / scenario.rate));
+            if (due - System.nanoTime() > 0) {
+                synchronized (out) {
+                    flush();
+                }
+                sleep(due - System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Buffers a line, writing the buffer out first if the line does not fit.
+     */
+    private void append(byte[] line, int length) throws IOException {
+        if (buffered + length > buffer.length) {
+            flush();
+        }
+        System.arraycopy(line, 0, buffer, buffered, length);
+        buffered += length;
+    }
+
+    /**
+     * Writes the buffer to the pipe, stamping its lines just before.
+     */
+    private void flush() throws IOException {
+        if (buffered == 0) {
+            return;
+        }
+        if (timestamps != null && written > unstamped) {
+            long now = System.nanoTime();
+            for (long i = unstamped; i < written; i++) {
+                timestamps.putLong((int) (i * 8), now);
+            }
+            unstamped = written;
+        }
+        out.write(buffer, 0, buffered);
+        buffered = 0;
+    }
+
+    private void readCommands() {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            String command;
+            while ((command = in.readLine()) != null) {
+                if (command.trim().equals("exit")) {
+                    requestExit();
+                }
+            }
+        } catch (IOException e) {
+            // nobody to take commands from
+        }
+    }
+
+    /**
+     * Exits the way the daemon does, after closing the database.
+     */
+    private void requestExit() {
+        if (scenario.ignoreExit) {
+            return;
+        }
+        try {
+            synchronized (out) {
+                if (exiting) {
+                    return;
+                }
+                exiting = true;
+                byte[] stopping = "2024-05-14 10:22:01.102\t7f3b9c5fa6c0\tINFO\tglobal\tsrc/daemon/daemon.cpp:239\tStopping cryptonote protocol...\n"
+                        .getBytes(StandardCharsets.US_ASCII);
+                append(stopping, stopping.length);
+                flush();
+            }
+            sleep(scenario.exitDelay.toNanos());
+        } catch (IOException e) {
+            // the reader is gone, exit anyway
+        }
+        Runtime.getRuntime().halt(scenario.exitCode);
+    }
+
+    private void serveRpc(List<String> monerodArguments, String addressOption, String portOption) throws IOException {
+        int port = monerodArguments.indexOf(portOption);
+        if (port < 0) {
+            return;
+        }
+        int address = monerodArguments.indexOf(addressOption);
+        HttpServer server = HttpServer.create(new InetSocketAddress(address < 0 ? "127.0.0.1" : monerodArguments.get(address + 1),
+                Integer.parseInt(monerodArguments.get(port + 1))), 0);
+        server.setExecutor(Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "fake-monerod-rpc");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.createContext("/get_height", exchange -> respond(exchange, "{\"height\":" + height() + ",\"status\":\"OK\",\"untrusted\":false}"));
+        server.createContext("/get_info", exchange -> respond(exchange, info()));
+        server.createContext("/stop_daemon", exchange -> {
+            respond(exchange, "{\"status\":\"OK\"}");
+            new Thread(this::requestExit, "fake-monerod-stop").start();
+        });
+        server.createContext("/json_rpc", exchange -> {
+            String id = "0";
+            String method = "";
+            JsonReader request = JsonReader.of(exchange.getRequestBody().readAllBytes());
+            request.beginObject();
+            while (request.hasNext()) {
+                switch (request.nextName()) {
+                    case "id" -> id = request.peek() == JsonToken.STRING ? "\"" + request.nextString() + "\"" : String.valueOf(request.nextLong());
+                    case "method" -> method = request.nextString();
+                    default -> request.skipValue();
+                }
+            }
+            String result = switch (method) {
+                case "get_info" -> "\"result\":" + info();
+                case "get_block_count" -> "\"result\":{\"count\":" + height() + ",\"status\":\"OK\"}";
+                default -> "\"error\":{\"code\":-32601,\"message\":\"Method not found\"}";
+            };
+            respond(exchange, "{\"jsonrpc\":\"2.0\",\"id\":" + id + "," + result + "}");
+        });
+        server.start();
+    }
+
+    private long height() {
+        return FakeScenario.START_HEIGHT + written;
+    }
+
+    private String info() {
+        long height = height();
+        long target = FakeScenario.START_HEIGHT + scenario.lines;
+        return "{\"height\":" + height + ",\"target_height\":" + target + ",\"synchronized\":" + (height >= target)
+                + ",\"status\":\"OK\",\"untrusted\":false}";
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream response = exchange.getResponseBody()) {
+            response.write(body);
+        }
+    }
+
+    /**
+     * Writes a non-negative number in decimal.
+     * @return offset after the digits.
+     */
+    private static int putLong(byte[] line, int offset, long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            line[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+
+    private static void sleep(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long left;
+        while ((left = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(left);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package org.ohchase.monerod.fake;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a {@link FakeMonerod} does once launched: how it starts, what it prints and how fast, and how it ends.
+ * Carried to the fake as command line arguments baked into its launcher script.
+ */
+public final class FakeScenario {
+
+    /**
+     * Height of the first synthetic sync line, the line at index {@code i} reports {@code START_HEIGHT + i}.
+     */
+    public static final long START_HEIGHT = 1_000_000;
+
+    Path replay;
+    long lines;
+    long rate;
+    int noiseEvery;
+    Duration startupDelay = Duration.ZERO;
+    long stallAfter = -1;
+    Duration stall = Duration.ZERO;
+    long crashAfter = -1;
+    int crashExitCode = 134;
+    boolean exitWhenDone;
+    int exitCode;
+    Duration exitDelay = Duration.ZERO;
+    boolean ignoreExit;
+    boolean ignoreTerminate;
+    boolean stubRpc;
+    Path timestamps;
+
+    private FakeScenario() {
+    }
+
+    /**
+     * Prints the startup markers, then generated sync progress lines.
+     * @param lines sync lines to print after startup.
+     * @return the scenario.
+     */
+    public static FakeScenario synthetic(long lines) {
+        FakeScenario scenario = new FakeScenario();
+        scenario.lines = lines;
+        return scenario;
+    }
+
+    /**
+     * Prints a recorded log, its startup section once and the rest over and over.
+     * @param log recorded monerod output, holding the startup markers.
+     * @param lines lines to print after the startup section.
+     * @return the scenario.
+     */
+    public static FakeScenario replay(Path log, long lines) {
+        FakeScenario scenario = synthetic(lines);
+        scenario.replay = log;
+        return scenario;
+    }
+
+    /**
+     * @param linesPerSecond output rate after startup, 0 to print as fast as the pipe takes it.
+     */
+    public FakeScenario rate(long linesPerSecond) {
+        this.rate = linesPerSecond;
+        return this;
+    }
+
+    /**
+     * @param every makes every n-th synthetic line one without a marker, 0 for none.
+     */
+    public FakeScenario noiseEvery(int every) {
+        this.noiseEvery = every;
+        return this;
+    }
+
+    /**
+     * @param delay time between "p2p server initialized OK" and the RPC server and net loop starting.
+     */
+    public FakeScenario startupDelay(Duration delay) {
+        this.startupDelay = delay;
+        return this;
+    }
+
+    /**
+     * Goes silent for a while, as a daemon stuck on disk or peers would.
+     * @param afterLines lines printed before the stall.
+     * @param duration how long no output comes.
+     */
+    public FakeScenario stall(long afterLines, Duration duration) {
+        this.stallAfter = afterLines;
+        this.stall = duration;
+        return this;
+    }
+
+    /**
+     * Dies mid-sync without shutting down.
+     * @param afterLines lines printed before dying.
+     * @param exitCode exit code, 134 for an abort, 139 for a segmentation fault.
+     */
+    public FakeScenario crash(long afterLines, int exitCode) {
+        this.crashAfter = afterLines;
+        this.crashExitCode = exitCode;
+        return this;
+    }
+
+    /**
+     * Exits once every line is printed, instead of waiting to be asked to.
+     */
+    public FakeScenario exitWhenDone() {
+        this.exitWhenDone = true;
+        return this;
+    }
+
+    /**
+     * @param exitCode exit code of a requested or finished exit.
+     */
+    public FakeScenario exitCode(int exitCode) {
+        this.exitCode = exitCode;
+        return this;
+    }
+
+    /**
+     * @param delay time spent closing the database once asked to exit.
+     */
+    public FakeScenario exitDelay(Duration delay) {
+        this.exitDelay = delay;
+        return this;
+    }
+
+    /**
+     * Ignores the {@code exit} command and {@code /stop_daemon}, so only a signal stops the fake.
+     */
+    public FakeScenario ignoreExit() {
+        this.ignoreExit = true;
+        return this;
+    }
+
+    /**
+     * Ignores SIGTERM, so only a kill stops the fake.
+     */
+    public FakeScenario ignoreTerminate() {
+        this.ignoreTerminate = true;
+        return this;
+    }
+
+    /**
+     * Serves {@code /get_height}, {@code /get_info}, {@code /stop_daemon} and the {@code get_info} and
+     * {@code get_block_count} methods on the RPC ports the daemon is launched with.
+     */
+    public FakeScenario stubRpc() {
+        this.stubRpc = true;
+        return this;
+    }
+
+    /**
+     * Records when each synthetic line was written to the pipe, as {@link System#nanoTime()} in native order at
+     * eight bytes per line index, for measuring latency from the output to the listeners. Only comparable
+     * within the same machine, where the JVM reads the same monotonic clock in every process.
+     * @param file file mapped by the fake, created if absent; stale stamps of an existing file are not cleared.
+     */
+    public FakeScenario timestamps(Path file) {
+        this.timestamps = file;
+        return this;
+    }
+
+    /**
+     * @return the scenario as arguments of {@link FakeMonerod#main}.
+     */
+    List<String> toArguments() {
+        List<String> arguments = new ArrayList<>();
+        if (replay != null) {
+            arguments.add("--replay=" + replay.toAbsolutePath());
+        }
+        arguments.add("--lines=" + lines);
+        arguments.add("--rate=" + rate);
+        arguments.add("--noise-every=" + noiseEvery);
+        arguments.add("--startup-delay=" + startupDelay.toMillis());
+        arguments.add("--stall-after=" + stallAfter);
+        arguments.add("--stall=" + stall.toMillis());
+        arguments.add("--crash-after=" + crashAfter);
+        arguments.add("--crash-exit-code=" + crashExitCode);
+        arguments.add("--exit-when-done=" + exitWhenDone);
+        arguments.add("--exit-code=" + exitCode);
+        arguments.add("--exit-delay=" + exitDelay.toMillis());
+        arguments.add("--ignore-exit=" + ignoreExit);
+        arguments.add("--ignore-terminate=" + ignoreTerminate);
+        arguments.add("--stub-rpc=" + stubRpc);
+        if (timestamps != null) {
+            arguments.add("--timestamps=" + timestamps.toAbsolutePath());
+        }
+        return arguments;
+    }
+
+    /**
+     * @param arguments arguments made by {@link #toArguments()}.
+     * @return the scenario.
+     */
+    static FakeScenario parse(List<String> arguments) {
+        FakeScenario scenario = new FakeScenario();
+        for (String argument : arguments) {
+            int equals = argument.indexOf('=');
+            if (!argument.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Unknown scenario argument: " + argument);
+            }
+            String value = argument.substring(equals + 1);
+            switch (argument.substring(2, equals)) {
+                case "replay" -> scenario.replay = Path.of(value);
+                case "lines" -> scenario.lines = Long.parseLong(value);
+                case "rate" -> scenario.rate = Long.parseLong(value);
+                case "noise-every" -> scenario.noiseEvery = Integer.parseInt(value);
+                case "startup-delay" -> scenario.startupDelay = Duration.ofMillis(Long.parseLong(value));
+                case "stall-after" -> scenario.stallAfter = Long.parseLong(value);
+                case "stall" -> scenario.stall = Duration.ofMillis(Long.parseLong(value));
+                case "crash-after" -> scenario.crashAfter = Long.parseLong(value);
+                case "crash-exit-code" -> scenario.crashExitCode = Integer.parseInt(value);
+                case "exit-when-done" -> scenario.exitWhenDone = Boolean.parseBoolean(value);
+                case "exit-code" -> scenario.exitCode = Integer.parseInt(value);
+                case "exit-delay" -> scenario.exitDelay = Duration.ofMillis(Long.parseLong(value));
+                case "ignore-exit" -> scenario.ignoreExit = Boolean.parseBoolean(value);
+                case "ignore-terminate" -> scenario.ignoreTerminate = Boolean.parseBoolean(value);
+                case "stub-rpc" -> scenario.stubRpc = Boolean.parseBoolean(value);
+                case "timestamps" -> scenario.timestamps = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown scenario argument: " + argument);
+            }
+        }
+        return scenario;
+    }
+}
@@ -0,0 +1,152 @@
+package org.ohchase.monerod.fleet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ohchase.monerod.RecordingDaemonListener;
+import org.ohchase.monerod.ReaderPool;
+import org.ohchase.monerod.configuration.NetworkType;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives fleet members through their listener callbacks, without launching daemons,
+ * and checks the {@link FleetStatus} kept up to date on the way and the ports of {@link PortAllocator}.
+ */
+class DaemonFleetTest {
+
+    @TempDir
+    Path directory;
+
+    private DaemonFleet fleet;
+
+    @BeforeEach
+    void createFleet() throws Exception {
+        fleet = DaemonFleet.builder()
+                .monerodBinary(directory.resolve("monerod"))
+                .rootDirectory(directory)
+                .readerPool(ReaderPool.dedicatedThreads())
+                .build();
+    }
+
+    @AfterEach
+    void closeFleet() {
+        fleet.close();
+    }
+
+    @Test
+    void tracksStartedSyncedAndSlowestDaemons() {
+        DaemonFleet.Member a = fleet.join("a", NetworkType.STAGE_NET, new RecordingDaemonListener());
+        DaemonFleet.Member b = fleet.join("b", NetworkType.STAGE_NET, new RecordingDaemonListener());
+        assertStatus(2, 0, 0, null, 0, 0);
+
+        a.onDaemonStarted();
+        b.onDaemonStarted();
+        a.onDaemonStarted();
+        assertStatus(2, 2, 0, null, 0, 0);
+
+        a.onSyncProgress(100, 1000);
+        assertStatus(2, 2, 0, "a", 100, 900);
+        b.onSyncProgress(500, 2000);
+        assertStatus(2, 2, 0, "b", 500, 1500);
+
+        // the slowest catching up hands over to the one now furthest behind
+        b.onSyncProgress(1900, 2000);
+        assertStatus(2, 2, 0, "a", 100, 900);
+        a.onNewTopBlockCandidate(1000, 1000);
+        assertStatus(2, 2, 1, "b", 1900, 100);
+
+        // a lower target never lowers the known one
+        a.onSyncProgress(1000, 900);
+        assertStatus(2, 2, 1, "b", 1900, 100);
+        b.onSyncProgress(2000, 2000);
+        assertStatus(2, 2, 2, "a", 1000, 0);
+
+        a.onNewTopBlockCandidate(1000, 1100);
+        assertStatus(2, 2, 1, "a", 1000, 100);
+
+        a.onDaemonKilled();
+        assertStatus(1, 1, 1, "b", 2000, 0);
+        assertEquals(List.of("b"), fleet.getNames());
+        b.onDaemonKilled();
+        assertStatus(0, 0, 0, null, 0, 0);
+    }
+
+    @Test
+    void removesKilledDaemonWhenListenerThrows() {
+        RecordingDaemonListener listener = new RecordingDaemonListener();
+        DaemonFleet.Member member = fleet.join("a", NetworkType.STAGE_NET, listener);
+        member.onDaemonStarted();
+        member.onSyncProgress(10, 20);
+        PortAssignment ports = fleet.getPorts("a").orElseThrow();
+
+        listener.failWith(new IllegalStateException("listener bug"));
+        assertThrows(IllegalStateException.class, member::onDaemonKilled);
+
+        assertTrue(fleet.getNames().isEmpty());
+        assertStatus(0, 0, 0, null, 0, 0);
+        // the name and the ports are free again
+        DaemonFleet.Member again = fleet.join("a", NetworkType.STAGE_NET, new RecordingDaemonListener());
+        assertEquals(ports.getSlot(), fleet.getPorts("a").orElseThrow().getSlot());
+        again.onDaemonKilled();
+    }
+
+    @Test
+    void rejectsDuplicateNames() {
+        fleet.join("a", NetworkType.STAGE_NET, new RecordingDaemonListener());
+        assertThrows(IllegalArgumentException.class, () -> fleet.join("a", NetworkType.MAIN_NET, new RecordingDaemonListener()));
+        assertEquals(1, fleet.getStatus().getNodeCount());
+    }
+
+    @Test
+    void allocatesPortsPerSlotAndReusesReleasedSlots() throws Exception {
+        PortAllocator allocator = new PortAllocator(InetAddress.getLoopbackAddress());
+
+        PortAssignment first = allocator.allocate(NetworkType.TEST_NET);
+        PortAssignment second = allocator.allocate(NetworkType.TEST_NET);
+        assertNotEquals(first.getSlot(), second.getSlot());
+        for (PortAssignment ports : List.of(first, second)) {
+            assertEquals(28080 + ports.getSlot() * PortAllocator.SLOT_SIZE, ports.getP2pPort());
+            assertEquals(ports.getP2pPort() + 1, ports.getRpcPort());
+            assertEquals(ports.getP2pPort() + 9, ports.getRestrictedRpcPort());
+        }
+
+        PortAssignment stagenet = allocator.allocate(NetworkType.STAGE_NET);
+        assertEquals(38080 + stagenet.getSlot() * PortAllocator.SLOT_SIZE, stagenet.getP2pPort());
+
+        allocator.release(NetworkType.TEST_NET, first);
+        assertEquals(first.getSlot(), allocator.allocate(NetworkType.TEST_NET).getSlot());
+
+        // a slot with any of its ports taken by another process is skipped
+        allocator.release(NetworkType.TEST_NET, first);
+        try (ServerSocket taken = new ServerSocket(first.getRestrictedRpcPort(), 1, InetAddress.getLoopbackAddress())) {
+            PortAssignment third = allocator.allocate(NetworkType.TEST_NET);
+            assertNotEquals(first.getSlot(), third.getSlot());
+            assertNotEquals(second.getSlot(), third.getSlot());
+        }
+    }
+
+    private void assertStatus(int nodes, int started, int synced, String slowest, long slowestHeight, long remaining) {
+        FleetStatus status = fleet.getStatus();
+        assertEquals(nodes, status.getNodeCount(), status.toString());
+        assertEquals(started, status.getStartedCount(), status.toString());
+        assertEquals(synced, status.getSyncedCount(), status.toString());
+        if (slowest == null) {
+            assertNull(status.getSlowestNode(), status.toString());
+        } else {
+            assertEquals(slowest, status.getSlowestNode(), status.toString());
+            assertEquals(slowestHeight, status.getSlowestHeight(), status.toString());
+            assertEquals(remaining, status.getSlowestRemainingBlocks(), status.toString());
+        }
+    }
+}
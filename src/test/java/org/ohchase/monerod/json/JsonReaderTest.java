@@ -0,0 +1,161 @@
+package org.ohchase.monerod.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Most documents are read through a 16 byte buffer, so tokens and multi-byte characters straddle refills.
+ */
+class JsonReaderTest {
+
+    @Test
+    void decodesEscapes() throws IOException {
+        JsonReader reader = reader("[\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\", \"\\u00e9\\u20AC\"]");
+        reader.beginArray();
+        assertEquals("a\"b\\c/d\b\f\n\r\t", reader.nextString());
+        assertEquals("\u00e9\u20ac", reader.nextString());
+        reader.endArray();
+        assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    void joinsEscapedSurrogatePairs() throws IOException {
+        JsonReader reader = reader("\"x\\uD83D\\uDE00y\"");
+        String value = reader.nextString();
+        assertEquals("x\uD83D\uDE00y", value);
+        assertEquals(0x1F600, value.codePointAt(1));
+    }
+
+    @Test
+    void decodesMultiByteUtf8() throws IOException {
+        String text = "caf\u00e9 \u20ac \u4e2d\u6587 \uD83D\uDE00";
+        JsonReader reader = reader("{\"n\u00e4me\":\"" + text + "\"}");
+        reader.beginObject();
+        assertEquals("n\u00e4me", reader.nextName());
+        assertEquals(text, reader.nextString());
+        reader.endObject();
+    }
+
+    @Test
+    void replacesMalformedUtf8WithoutLosingTheClosingQuote() throws IOException {
+        byte[] json = {'[', '"', 'a', (byte) 0xC3, '"', ',', '"', (byte) 0xFF, '"', ']'};
+        JsonReader reader = JsonReader.of(json);
+        reader.beginArray();
+        assertEquals("a\uFFFD", reader.nextString());
+        assertEquals("\uFFFD", reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    void readsUnsignedLongsAboveLongMax() throws IOException {
+        JsonReader reader = reader("[18446744073709551615, 9223372036854775808, -9223372036854775808, 18446744073709551616]");
+        reader.beginArray();
+        assertEquals("18446744073709551615", Long.toUnsignedString(reader.nextLong()));
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+        assertThrows(IOException.class, reader::nextLong);
+    }
+
+    @Test
+    void readsQuotedNumbers() throws IOException {
+        JsonReader reader = reader("{\"difficulty\":\"340282366920938463463374607431768211455\",\"height\":\"3100000\",\"size\":42}");
+        reader.beginObject();
+        assertEquals("difficulty", reader.nextName());
+        assertEquals("340282366920938463463374607431768211455", reader.nextString());
+        assertEquals("height", reader.nextName());
+        assertEquals(3_100_000, reader.nextLong());
+        assertEquals("size", reader.nextName());
+        // numbers read as strings keep their literal text
+        assertEquals("42", reader.nextString());
+        reader.endObject();
+    }
+
+    @Test
+    void rejectsIntegersOutOfRange() throws IOException {
+        JsonReader reader = reader("[2147483648, 1.5]");
+        reader.beginArray();
+        assertThrows(IOException.class, reader::nextInt);
+        assertEquals(1.5, reader.nextDouble());
+    }
+
+    @Test
+    void skipsNestedValues() throws IOException {
+        JsonReader reader = reader("{\"a\":{\"b\":[1,{\"c\":\"x\\\"}]\"},[],{}],\"d\":null,\"e\":-1.5e3},"
+                + "\"f\":true,\"g\":{\"h\":false},\"i\":7}");
+        reader.beginObject();
+        assertEquals("a", reader.nextName());
+        reader.skipValue();
+        assertEquals("f", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        // positioned before a name, the name and its value are skipped
+        reader.skipValue();
+        assertEquals("i", reader.nextName());
+        assertEquals(7, reader.nextInt());
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    void skipsToName() throws IOException {
+        JsonReader reader = reader("{\"skipped\":[{\"height\":1}],\"height\":2}");
+        reader.beginObject();
+        assertTrue(reader.skipToName("height"));
+        assertEquals(2, reader.nextLong());
+        assertFalse(reader.skipToName("height"));
+        reader.endObject();
+    }
+
+    @Test
+    void readsNullIds() throws IOException {
+        JsonReader reader = reader("[{\"id\":null,\"error\":{\"code\":-32700}},{\"id\":\"3\",\"result\":{}}]");
+        reader.beginArray();
+        reader.beginObject();
+        assertEquals("id", reader.nextName());
+        assertEquals(JsonToken.NULL, reader.peek());
+        reader.nextNull();
+        assertEquals("error", reader.nextName());
+        reader.skipValue();
+        reader.endObject();
+        reader.beginObject();
+        assertEquals("id", reader.nextName());
+        assertEquals("3", reader.nextString());
+        assertEquals("result", reader.nextName());
+        reader.skipValue();
+        reader.endObject();
+        reader.endArray();
+    }
+
+    @Test
+    void rejectsMalformedDocuments() {
+        assertThrows(IOException.class, () -> reader("{\"a\" 1}").skipValue());
+        assertThrows(IOException.class, () -> reader("[1 2]").skipValue());
+        assertThrows(IOException.class, () -> reader("\"\\x\"").nextString());
+        assertThrows(IOException.class, () -> reader("\"unterminated").nextString());
+        assertThrows(IOException.class, () -> {
+            JsonReader reader = reader("{} {}");
+            reader.skipValue();
+            reader.peek();
+        });
+    }
+
+    @Test
+    void countsBytesRead() throws IOException {
+        byte[] json = "{\"name\":\"\u00e9\"}   ".getBytes(StandardCharsets.UTF_8);
+        JsonReader reader = JsonReader.of(json);
+        reader.skipValue();
+        assertEquals(json.length - 3, reader.getBytesRead());
+    }
+
+    private static JsonReader reader(String json) {
+        return new JsonReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), 16);
+    }
+}
@@ -0,0 +1,258 @@
+package org.ohchase.monerod.lmdb;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LmdbTableTest {
+
+    /**
+     * Environment written by liblmdb over seven transactions, with tables shaped like the daemon's:
+     * <ul>
+     *     <li>{@code blocks}: integer keys 0 to 2999, each value {@link #block(long)}, every 500th one on overflow pages.
+     *     The last 100 blocks were added by a later transaction than the others.</li>
+     *     <li>{@code block_info}: a single integer key 0 with 3000 sorted fixed-size duplicates, stored as a sub-database.
+     *     Each 48 byte record holds the height and three times the height, big-endian so they sort by height.</li>
+     *     <li>{@code small}: keys {@code k000} to {@code k299}, each with the duplicates {@code -v0} to {@code -v2}
+     *     appended to the key, small enough to stay on sub-pages.</li>
+     *     <li>{@code fixed}: keys {@code a} to {@code c}, each with five 4 byte duplicates, on fixed-size sub-pages.</li>
+     * </ul>
+     */
+    private static final String FIXTURE = "/lmdb/data.mdb";
+
+    private static final int BLOCKS = 3000;
+
+    private LmdbEnvironment environment;
+
+    @BeforeEach
+    void open() throws Exception {
+        environment = LmdbEnvironment.open(fixture());
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        environment.close();
+    }
+
+    @Test
+    void readsTables() {
+        assertEquals(7, environment.getTxnId());
+        assertEquals(4096, environment.getPageSize());
+        assertEquals(List.of("block_info", "blocks", "fixed", "small"), new ArrayList<>(environment.getTableNames()));
+
+        LmdbTable blocks = environment.table("blocks");
+        assertTrue(blocks.isIntegerKey());
+        assertFalse(blocks.isDuplicateSort());
+        assertEquals(BLOCKS, blocks.getEntries());
+        assertTrue(blocks.getDepth() > 1);
+        assertTrue(environment.table("block_info").isDuplicateSort());
+        assertThrows(IllegalArgumentException.class, () -> environment.table("missing"));
+    }
+
+    @Test
+    void getsValues() throws IOException {
+        LmdbTable blocks = environment.table("blocks");
+
+        assertArrayEquals(block(1234), bytes(blocks.get(height(1234))));
+        assertArrayEquals(block(2950), bytes(blocks.get(height(2950))));
+        // on overflow pages
+        assertArrayEquals(block(1500), bytes(blocks.get(height(1500))));
+        assertTrue(blocks.get(height(1500)).isReadOnly());
+        assertNull(blocks.get(height(BLOCKS)));
+    }
+
+    @Test
+    void visitsEveryEntryInKeyOrder() throws IOException {
+        AtomicLong expected = new AtomicLong();
+
+        long visited = environment.table("blocks").forEach((key, value) -> {
+            long height = key.order(ByteOrder.LITTLE_ENDIAN).getLong(0);
+            assertEquals(expected.getAndIncrement(), height);
+            assertArrayEquals(block(height), bytes(value));
+        });
+
+        assertEquals(BLOCKS, visited);
+    }
+
+    @Test
+    void scansRanges() throws IOException {
+        AtomicLong sum = new AtomicLong();
+
+        long visited = environment.table("blocks").scan(height(100), height(200),
+                (key, value) -> sum.addAndGet(key.order(ByteOrder.LITTLE_ENDIAN).getLong(0)));
+
+        assertEquals(100, visited);
+        assertEquals((100 + 199) * 100 / 2, sum.get());
+        assertEquals(0, environment.table("blocks").scan(height(BLOCKS), null, (key, value) -> { }));
+    }
+
+    @Test
+    void splitsParallelScans() throws IOException {
+        LmdbTable blocks = environment.table("blocks");
+        for (int parallelism : new int[]{1, 3, 8}) {
+            Set<Long> seen = Collections.synchronizedSet(new HashSet<>());
+            long visited = blocks.scanParallel(parallelism, (key, value) -> {
+                long height = key.order(ByteOrder.LITTLE_ENDIAN).getLong(0);
+                assertArrayEquals(block(height), bytes(value));
+                assertTrue(seen.add(height), "visited twice: " + height);
+            });
+            assertEquals(BLOCKS, visited);
+            assertEquals(BLOCKS, seen.size());
+
+            seen.clear();
+            visited = blocks.scanParallel(height(777), height(2555), parallelism,
+                    (key, value) -> assertTrue(seen.add(key.order(ByteOrder.LITTLE_ENDIAN).getLong(0))));
+            assertEquals(2555 - 777, visited);
+            assertEquals(2555 - 777, seen.size());
+            assertEquals(777, Collections.min(seen));
+            assertEquals(2554, Collections.max(seen));
+        }
+        assertThrows(IllegalArgumentException.class, () -> blocks.scanParallel(0, (key, value) -> { }));
+    }
+
+    @Test
+    void readsDuplicateSubDatabases() throws IOException {
+        LmdbTable info = environment.table("block_info");
+        AtomicLong expected = new AtomicLong();
+
+        long visited = info.forEach((key, value) -> {
+            assertEquals(0, key.order(ByteOrder.LITTLE_ENDIAN).getLong(0));
+            assertEquals(48, value.remaining());
+            long height = expected.getAndIncrement();
+            assertEquals(height, value.order(ByteOrder.BIG_ENDIAN).getLong(0));
+            assertEquals(height * 3, value.getLong(8));
+        });
+        assertEquals(BLOCKS, visited);
+        assertEquals(BLOCKS, info.getEntries());
+
+        Set<Long> seen = Collections.synchronizedSet(new HashSet<>());
+        assertEquals(BLOCKS, info.scanParallel(4, (key, value) -> seen.add(value.order(ByteOrder.BIG_ENDIAN).getLong(0))));
+        assertEquals(BLOCKS, seen.size());
+    }
+
+    @Test
+    void readsDuplicatesOnSubPages() throws IOException {
+        LmdbTable small = environment.table("small");
+        List<String> entries = new ArrayList<>();
+
+        small.forEach((key, value) -> entries.add(string(key) + "=" + string(value)));
+
+        assertEquals(900, entries.size());
+        assertEquals(List.of("k000=k000-v0", "k000=k000-v1", "k000=k000-v2", "k001=k001-v0"), entries.subList(0, 4));
+        assertEquals("k299=k299-v2", entries.get(899));
+        assertEquals("k042-v0", string(small.get(ascii("k042"))));
+
+        LmdbCursor cursor = small.cursor();
+        assertTrue(cursor.seek(ascii("k150x")));
+        assertEquals("k151", string(cursor.key()));
+        assertEquals("k151-v0", string(cursor.value()));
+        assertTrue(cursor.next());
+        assertEquals("k151-v1", string(cursor.value()));
+        assertFalse(cursor.seek(ascii("k300")));
+
+        Set<String> seen = Collections.synchronizedSet(new HashSet<>());
+        assertEquals(300, small.scanParallel(ascii("k100"), ascii("k200"), 4, (key, value) -> seen.add(string(value))));
+        assertEquals(300, seen.size());
+
+        List<String> fixed = new ArrayList<>();
+        environment.table("fixed").forEach((key, value) -> fixed.add(string(key) + value.get(3)));
+        assertEquals(List.of("a0", "a1", "a2", "a3", "a4", "b0", "b1", "b2", "b3", "b4", "c0", "c1", "c2", "c3", "c4"), fixed);
+    }
+
+    @Test
+    void invalidatesSnapshotAfterTwoCommits(@TempDir Path directory) throws Exception {
+        Path copy = Files.copy(fixture(), directory.resolve("data.mdb"));
+        try (LmdbEnvironment copied = LmdbEnvironment.open(copy)) {
+            assertTrue(copied.isSnapshotValid());
+
+            // a writer commits on the older meta page first, then on the other one
+            writeTxnId(copy, 0, 8);
+            assertTrue(copied.isSnapshotValid());
+            writeTxnId(copy, copied.getPageSize(), 9);
+            assertFalse(copied.isSnapshotValid());
+        }
+    }
+
+    @Test
+    void opensDaemonDataDirectories(@TempDir Path directory) throws Exception {
+        Files.createDirectories(directory.resolve("lmdb"));
+        Files.copy(fixture(), directory.resolve("lmdb").resolve("data.mdb"));
+
+        try (LmdbEnvironment opened = LmdbEnvironment.open(directory)) {
+            assertEquals(directory.resolve("lmdb").resolve("data.mdb"), opened.getDataFile());
+            assertEquals(BLOCKS, opened.table("blocks").getEntries());
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles(@TempDir Path directory) throws IOException {
+        byte[] noise = new byte[3 * 4096];
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = (byte) (i * 7);
+        }
+        Path file = Files.write(directory.resolve("data.mdb"), noise);
+
+        assertThrows(IOException.class, () -> LmdbEnvironment.open(file));
+        assertThrows(IOException.class, () -> LmdbEnvironment.open(directory.resolve("missing.mdb")));
+    }
+
+    private static byte[] block(long height) {
+        byte[] block = new byte[height % 500 == 0 ? 6000 + (int) (height % 7) : 10 + (int) (height % 40)];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = (byte) (height * 31 + i);
+        }
+        return block;
+    }
+
+    private static ByteBuffer height(long height) {
+        return ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, height);
+    }
+
+    private static ByteBuffer ascii(String key) {
+        return ByteBuffer.wrap(key.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        return new String(bytes(buffer), StandardCharsets.US_ASCII);
+    }
+
+    private static void writeTxnId(Path file, long metaPage, long txnId) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(height(txnId), metaPage + Lmdb.META_TXN_ID);
+        }
+    }
+
+    private static Path fixture() throws URISyntaxException {
+        return Path.of(LmdbTableTest.class.getResource(FIXTURE).toURI());
+    }
+}
@@ -0,0 +1,120 @@
+package org.ohchase.monerod.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.ohchase.monerod.IDaemonListener;
+import org.ohchase.monerod.RecordingDaemonListener;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRegistryTest {
+
+    @Test
+    void rendersTextFormat() {
+        assertEquals("""
+                # HELP requests_total Requests served
+                # TYPE requests_total counter
+                requests_total{path="/a"} 3
+                # HELP temperature Degrees \\\\ kelvin\\nor celsius
+                # TYPE temperature gauge
+                temperature{room="a\\"b"} 21.5
+                temperature{room="c"} -0.25
+                # HELP latency_seconds Request latency
+                # TYPE latency_seconds histogram
+                latency_seconds_bucket{le="0.001"} 1
+                latency_seconds_bucket{le="0.5"} 1
+                latency_seconds_bucket{le="+Inf"} 2
+                latency_seconds_count 2
+                latency_seconds_sum 2.0005
+                """, render(registry(), false));
+    }
+
+    @Test
+    void rendersOpenMetrics() {
+        assertEquals("""
+                # HELP requests Requests served
+                # TYPE requests counter
+                requests_total{path="/a"} 3
+                # HELP temperature Degrees \\\\ kelvin\\nor celsius
+                # TYPE temperature gauge
+                temperature{room="a\\"b"} 21.5
+                temperature{room="c"} -0.25
+                # HELP latency_seconds Request latency
+                # TYPE latency_seconds histogram
+                latency_seconds_bucket{le="0.001"} 1
+                latency_seconds_bucket{le="0.5"} 1
+                latency_seconds_bucket{le="+Inf"} 2
+                latency_seconds_count 2
+                latency_seconds_sum 2.0005
+                # EOF
+                """, render(registry(), true));
+    }
+
+    @Test
+    void skipsFamiliesWithoutMetrics() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Gauge gauge = registry.gaugeFamily("removed", "Removed gauge").gauge();
+        gauge.remove();
+
+        assertEquals("", render(registry, false));
+        assertEquals("# EOF\n", render(registry, true));
+    }
+
+    @Test
+    void formatsNumbers() {
+        MetricsWriter writer = new MetricsWriter();
+        for (double value : new double[]{0, 3, -7, 0.1, 1.0 / 3, 2.5e-7, 1e-7, 123456789.125, 1e13, Double.NaN,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            writer.write(value).write(' ');
+        }
+        writer.write(Long.MIN_VALUE).write(' ').write(Long.MAX_VALUE);
+
+        assertEquals("0 3 -7 0.1 0.333333 0 0 123456789.125 1.0E13 NaN +Inf -Inf "
+                + "-9223372036854775808 9223372036854775807", writer.toString());
+    }
+
+    @Test
+    void rejectsConflictingRegistrations() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counterFamily("events", "Events", "daemon");
+
+        assertThrows(IllegalArgumentException.class, () -> registry.gaugeFamily("events", "Events", "daemon"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counterFamily("events", "Events", "node"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counterFamily("events", "Events", "daemon").counter());
+    }
+
+    @Test
+    void recordsDispatchOfThrowingListeners() {
+        MetricsRegistry registry = new MetricsRegistry();
+        DaemonMetrics metrics = DaemonMetrics.register(registry, "main");
+        RecordingDaemonListener listener = new RecordingDaemonListener();
+        listener.failWith(new IllegalStateException("listener failed"));
+        IDaemonListener instrumented = metrics.instrument(listener);
+
+        assertThrows(IllegalStateException.class, () -> instrumented.onSyncProgress(100, 200));
+
+        String exposition = render(registry, false);
+        assertTrue(exposition.contains("monerod_listener_dispatch_seconds_count{daemon=\"main\",event=\"sync_progress\"} 1\n"), exposition);
+        assertTrue(exposition.contains("monerod_current_height{daemon=\"main\"} 100\n"), exposition);
+        assertTrue(exposition.contains("monerod_target_height{daemon=\"main\"} 200\n"), exposition);
+    }
+
+    private static MetricsRegistry registry() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counterFamily("requests", "Requests served", "path").counter("/a").inc(3);
+        MetricFamily temperature = registry.gaugeFamily("temperature", "Degrees \\ kelvin\nor celsius", "room");
+        temperature.gauge("a\"b").set(21.5);
+        temperature.gauge(() -> -0.25, "c");
+        Histogram latency = registry.histogramFamily("latency_seconds", "Request latency", new double[]{0.001, 0.5}).histogram();
+        latency.observeNanos(500_000);
+        latency.observeNanos(2_000_000_000);
+        return registry;
+    }
+
+    private static String render(MetricsRegistry registry, boolean openMetrics) {
+        MetricsWriter writer = new MetricsWriter();
+        registry.render(writer, openMetrics);
+        return writer.toString();
+    }
+}
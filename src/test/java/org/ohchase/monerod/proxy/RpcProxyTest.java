@@ -0,0 +1,302 @@
+package org.ohchase.monerod.proxy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ohchase.monerod.configuration.RpcProxyConfig;
+import org.ohchase.monerod.json.JsonReader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RpcProxyTest {
+
+    private static final String BURIED_HEADER = "{\"block_header\":{\"height\":900,\"hash\":\"aa\",\"depth\":100,\"orphan_status\":false},\"status\":\"OK\"}";
+
+    private static final String SHALLOW_HEADER = "{\"block_header\":{\"height\":998,\"hash\":\"bb\",\"depth\":2,\"orphan_status\":false},\"status\":\"OK\"}";
+
+    private static final String INFO = "{\"height\":1000,\"status\":\"OK\"}";
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    /**
+     * Result of each JSON-RPC method, or of each other path, answered by the stub upstream.
+     */
+    private final Map<String, String> results = new ConcurrentHashMap<>();
+
+    /**
+     * Methods and paths answered with a JSON-RPC error instead.
+     */
+    private final Map<String, String> errors = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> upstreamCalls = new ConcurrentHashMap<>();
+
+    private volatile CountDownLatch upstreamGate = new CountDownLatch(0);
+
+    private HttpServer upstream;
+
+    private ExecutorService upstreamExecutor;
+
+    private RpcProxy proxy;
+
+    @BeforeEach
+    void startUpstream() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        upstreamExecutor = Executors.newCachedThreadPool();
+        upstream.setExecutor(upstreamExecutor);
+        upstream.createContext("/", this::answer);
+        upstream.start();
+    }
+
+    @AfterEach
+    void stop() {
+        if (proxy != null) {
+            proxy.close();
+        }
+        upstream.stop(0);
+        upstreamExecutor.shutdownNow();
+    }
+
+    @Test
+    void cachesBuriedBlocksUntilEvicted() throws Exception {
+        results.put("get_block_header_by_height", BURIED_HEADER);
+        startProxy(Duration.ZERO);
+
+        String first = call(1, "get_block_header_by_height", "{\"height\":900}");
+        String second = call(2, "get_block_header_by_height", "{\"height\":900}");
+
+        assertEquals(envelope("1", BURIED_HEADER), first);
+        assertEquals(envelope("2", BURIED_HEADER), second);
+        assertEquals(1, upstreamCalls("get_block_header_by_height"));
+        assertEquals(1, proxy.getMisses());
+        assertEquals(1, proxy.getHits());
+    }
+
+    @Test
+    void keepsShallowBlocksForTheShortTtlOnly() throws Exception {
+        results.put("get_block_header_by_height", SHALLOW_HEADER);
+        startProxy(Duration.ZERO);
+
+        call(1, "get_block_header_by_height", "{\"height\":998}");
+        call(2, "get_block_header_by_height", "{\"height\":998}");
+
+        assertEquals(2, upstreamCalls("get_block_header_by_height"));
+        assertEquals(0, proxy.getHits());
+    }
+
+    @Test
+    void servesTipResponsesWithinTheShortTtl() throws Exception {
+        results.put("get_info", INFO);
+        startProxy(Duration.ofMinutes(1));
+
+        call(1, "get_info", "{}");
+        String cached = call("\"abc\"", "get_info", "{}");
+
+        assertEquals(envelope("\"abc\"", INFO), cached);
+        assertEquals(1, upstreamCalls("get_info"));
+    }
+
+    @Test
+    void keysOnParametersWithoutTheId() throws Exception {
+        results.put("get_block_header_by_height", BURIED_HEADER);
+        startProxy(Duration.ofMinutes(1));
+
+        call(1, "get_block_header_by_height", "{\"height\":900}");
+        call(1, "get_block_header_by_height", "{\"height\":901}");
+
+        assertEquals(2, upstreamCalls("get_block_header_by_height"));
+    }
+
+    @Test
+    void neverCachesErrors() throws Exception {
+        errors.put("get_block_header_by_height", "{\"code\":-2,\"message\":\"Too big height\"}");
+        startProxy(Duration.ofMinutes(1));
+
+        String first = call(7, "get_block_header_by_height", "{\"height\":5000000}");
+        call(8, "get_block_header_by_height", "{\"height\":5000000}");
+
+        assertEquals("{\"jsonrpc\":\"2.0\",\"id\":7,\"error\":{\"code\":-2,\"message\":\"Too big height\"}}", first);
+        assertEquals(2, upstreamCalls("get_block_header_by_height"));
+    }
+
+    @Test
+    void passesUncacheableRequestsThrough() throws Exception {
+        results.put("get_connections", "{\"connections\":[],\"status\":\"OK\"}");
+        results.put("/send_raw_transaction", "{\"status\":\"OK\"}");
+        startProxy(Duration.ofMinutes(1));
+
+        call(1, "get_connections", "{}");
+        call(2, "get_connections", "{}");
+        post("/send_raw_transaction", "{\"tx_as_hex\":\"00\"}");
+        post("/send_raw_transaction", "{\"tx_as_hex\":\"00\"}");
+
+        assertEquals(2, upstreamCalls("get_connections"));
+        assertEquals(2, upstreamCalls("/send_raw_transaction"));
+        assertEquals(4, proxy.getPassThrough());
+    }
+
+    @Test
+    void cachesConfirmedTransactionsAgainstTheSeenHeight() throws Exception {
+        results.put("get_info", INFO);
+        results.put("/get_transactions", "{\"txs\":[{\"tx_hash\":\"cc\",\"in_pool\":false,\"block_height\":900}],\"missed_tx\":[],\"status\":\"OK\"}");
+        startProxy(Duration.ZERO);
+
+        call(1, "get_info", "{}");
+        post("/get_transactions", "{\"txs_hashes\":[\"cc\"]}");
+        post("/get_transactions", "{\"txs_hashes\":[\"cc\"]}");
+
+        assertEquals(1, upstreamCalls("/get_transactions"));
+    }
+
+    @Test
+    void coalescesConcurrentIdenticalRequests() throws Exception {
+        results.put("get_info", INFO);
+        startProxy(Duration.ofMinutes(1));
+        upstreamGate = new CountDownLatch(1);
+
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        for (int id = 0; id < 5; id++) {
+            responses.add(callAsync(Integer.toString(id), "get_info", "{}"));
+        }
+        // the first call holds the upstream, the others queue behind it at the proxy
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (upstreamCalls("get_info") == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(300);
+        upstreamGate.countDown();
+
+        for (int id = 0; id < 5; id++) {
+            assertEquals(envelope(Integer.toString(id), INFO), responses.get(id).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, upstreamCalls("get_info"));
+        assertEquals(1, proxy.getMisses());
+        assertTrue(proxy.getCoalesced() >= 1);
+        assertEquals(4, proxy.getCoalesced() + proxy.getHits());
+    }
+
+    @Test
+    void answersUpstreamFailuresWith502() throws Exception {
+        startProxy(Duration.ofMinutes(1));
+        upstream.stop(0);
+
+        HttpResponse<String> response = send(HttpRequest.newBuilder(proxy.getEndpoint().resolve("/json_rpc"))
+                .POST(HttpRequest.BodyPublishers.ofString(request("1", "get_info", "{}"))));
+
+        assertEquals(502, response.statusCode());
+        assertEquals(1, proxy.getUpstreamErrors());
+    }
+
+    private void startProxy(Duration shortTtl) throws IOException {
+        URI upstreamUri = URI.create("http://" + upstream.getAddress().getHostString() + ":" + upstream.getAddress().getPort());
+        proxy = RpcProxy.start(RpcProxyConfig.builder()
+                .shortTtl(shortTtl)
+                .confirmations(10)
+                .build(), upstreamUri, httpClient);
+    }
+
+    private String call(Object id, String method, String params) throws Exception {
+        return callAsync(id.toString(), method, params).get(10, TimeUnit.SECONDS);
+    }
+
+    private CompletableFuture<String> callAsync(String id, String method, String params) {
+        HttpRequest request = HttpRequest.newBuilder(proxy.getEndpoint().resolve("/json_rpc"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(request(id, method, params)))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(HttpResponse::body);
+    }
+
+    private String post(String path, String body) throws Exception {
+        return send(HttpRequest.newBuilder(proxy.getEndpoint().resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))).body();
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return httpClient.send(request.timeout(Duration.ofSeconds(10)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private int upstreamCalls(String methodOrPath) {
+        AtomicInteger calls = upstreamCalls.get(methodOrPath);
+        return calls == null ? 0 : calls.get();
+    }
+
+    private static String request(String id, String method, String params) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"" + method + "\",\"params\":" + params + "}";
+    }
+
+    private static String envelope(String id, String result) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":" + result + "}";
+    }
+
+    /**
+     * Answers like a restricted RPC interface, always with id 0 so the proxy has to put the caller's id back.
+     */
+    private void answer(HttpExchange exchange) throws IOException {
+        byte[] request = exchange.getRequestBody().readAllBytes();
+        String path = exchange.getRequestURI().getPath();
+        String key = path.equals("/json_rpc") ? method(request) : path;
+        upstreamCalls.computeIfAbsent(key, ignored -> new AtomicInteger()).incrementAndGet();
+        try {
+            upstreamGate.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        String body;
+        if (errors.containsKey(key)) {
+            body = "{\"jsonrpc\":\"2.0\",\"id\":0,\"error\":" + errors.get(key) + "}";
+        } else if (results.containsKey(key)) {
+            body = path.equals("/json_rpc") ? envelope("0", results.get(key)) : results.get(key);
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String method(byte[] request) throws IOException {
+        JsonReader reader = JsonReader.of(request);
+        String method = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("method")) {
+                method = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return method;
+    }
+}
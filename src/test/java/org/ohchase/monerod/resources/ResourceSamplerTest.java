@@ -0,0 +1,180 @@
+package org.ohchase.monerod.resources;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ohchase.monerod.configuration.ResourceSamplerConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Samples a fake {@code /proc} tree holding one process, {@link #PID}, whose command name contains spaces and
+ * parentheses. Its files are rewritten between samples, as procfs regenerates them on every read.
+ */
+class ResourceSamplerTest {
+
+    private static final long PID = 4242;
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @TempDir
+    Path procRoot;
+
+    private Path processDirectory;
+
+    @BeforeEach
+    void createProcess() throws IOException {
+        processDirectory = Files.createDirectories(procRoot.resolve(Long.toString(PID)));
+        Path fd = Files.createDirectories(processDirectory.resolve("fd"));
+        for (int i = 0; i < 3; i++) {
+            Files.createFile(fd.resolve(Integer.toString(i)));
+        }
+        writeStat(250, 50);
+        writeStatus(1024);
+    }
+
+    @Test
+    void parsesProcFiles() throws IOException {
+        writeIo(4096, 8192);
+        ResourceSampler sampler = sampler(ResourceSamplerConfig.builder());
+
+        ResourceSample sample = sampler.sample(1_000, 0).getLatest();
+
+        assertEquals(1_000, sample.getTimestamp());
+        // utime and stime, counted after the last ')' of the name
+        assertEquals(300, sample.getCpuTicks());
+        assertEquals(1024 * 1024, sample.getRssBytes());
+        assertEquals(2048 * 1024, sample.getPeakRssBytes());
+        assertEquals(12, sample.getThreads());
+        assertEquals(5, sample.getVoluntaryContextSwitches());
+        assertEquals(7, sample.getInvoluntaryContextSwitches());
+        assertEquals(100, sample.getReadChars());
+        assertEquals(200, sample.getWriteChars());
+        assertEquals(4096, sample.getReadBytes());
+        assertEquals(8192, sample.getWriteBytes());
+        assertEquals(3, sample.getOpenFileDescriptors());
+        sampler.close();
+    }
+
+    @Test
+    void derivesRatesFromConsecutiveSamples() throws IOException {
+        writeIo(4096, 8192);
+        ResourceSampler sampler = sampler(ResourceSamplerConfig.builder());
+        ResourceSnapshot first = sampler.sample(1_000, 0);
+        assertEquals(1, first.getSampleCount());
+        assertTrue(Double.isNaN(first.getCpuPercent()));
+
+        writeStat(300, 100);
+        writeStatus(3072);
+        writeIo(4096 + 1000, 8192 + 500);
+        ResourceSnapshot second = sampler.sample(3_000, 2 * SECOND);
+
+        assertEquals(2, second.getSampleCount());
+        assertEquals(50.0, second.getCpuPercent(), 1e-9);
+        assertEquals(500.0, second.getReadBytesPerSecond(), 1e-9);
+        assertEquals(250.0, second.getWriteBytesPerSecond(), 1e-9);
+        assertEquals(1024 * 1024.0, second.getRssGrowthBytesPerSecond(), 1e-9);
+        assertSame(second, sampler.snapshot());
+        sampler.close();
+    }
+
+    @Test
+    void reportsMissingIoAsUnknown() throws IOException {
+        ResourceSampler sampler = sampler(ResourceSamplerConfig.builder().countFileDescriptors(false));
+        sampler.sample(1_000, 0);
+        ResourceSnapshot snapshot = sampler.sample(2_000, SECOND);
+
+        ResourceSample sample = snapshot.getLatest();
+        assertEquals(-1, sample.getReadBytes());
+        assertEquals(-1, sample.getWriteBytes());
+        assertEquals(-1, sample.getReadChars());
+        assertEquals(-1, sample.getWriteChars());
+        assertEquals(-1, sample.getOpenFileDescriptors());
+        assertTrue(Double.isNaN(snapshot.getReadBytesPerSecond()));
+        assertEquals(300, sample.getCpuTicks());
+        sampler.close();
+    }
+
+    @Test
+    void reportsUnreadableIoAsUnknown() throws IOException {
+        // opening a directory fails as reading another user's io does
+        Files.createDirectory(processDirectory.resolve("io"));
+        ResourceSampler sampler = sampler(ResourceSamplerConfig.builder());
+
+        ResourceSample sample = sampler.sample(1_000, 0).getLatest();
+
+        assertEquals(-1, sample.getReadBytes());
+        assertEquals(-1, sample.getWriteChars());
+        assertEquals(1024 * 1024, sample.getRssBytes());
+        sampler.close();
+    }
+
+    @Test
+    void failsOnceTheProcessIsGone() {
+        ResourceSampler sampler = new ResourceSampler(PID + 1, ResourceSamplerConfig.builder().procRoot(procRoot).build(), null);
+        assertThrows(IOException.class, () -> sampler.sample(1_000, 0));
+        sampler.close();
+    }
+
+    @Test
+    void notifiesListenerOffTheScheduler() throws Exception {
+        writeIo(4096, 8192);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        IResourceListener listener = snapshot -> {
+            threads.add(Thread.currentThread().getName());
+            throw new IllegalStateException("listener bug");
+        };
+        ResourceSampler sampler = new ResourceSampler(PID, ResourceSamplerConfig.builder()
+                .procRoot(procRoot)
+                .interval(Duration.ofMillis(10))
+                .build(), listener);
+        sampler.start();
+        try {
+            long deadline = System.nanoTime() + 10 * SECOND;
+            while (threads.size() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            sampler.close();
+        }
+
+        // sampling went on although the listener threw
+        assertTrue(threads.size() >= 3);
+        assertFalse(threads.stream().anyMatch(thread -> thread.startsWith("monerod-scheduler")));
+        assertTrue(sampler.snapshot().getSampleCount() >= 3);
+    }
+
+    private ResourceSampler sampler(ResourceSamplerConfig.ResourceSamplerConfigBuilder config) {
+        return new ResourceSampler(PID, config.procRoot(procRoot).build(), null);
+    }
+
+    private void writeStat(long utime, long stime) throws IOException {
+        Files.writeString(processDirectory.resolve("stat"), PID + " (mon erod (x) y) S 1 " + PID + " " + PID
+                + " 0 -1 4194560 100 0 0 0 " + utime + " " + stime + " 0 0 20 0 12 0 500 1000000 256\n");
+    }
+
+    private void writeStatus(long rssKilobytes) throws IOException {
+        Files.writeString(processDirectory.resolve("status"), "Name:\tmon erod (x) y\n"
+                + "VmHWM:\t    2048 kB\n"
+                + "VmRSS:\t    " + rssKilobytes + " kB\n"
+                + "Threads:\t12\n"
+                + "voluntary_ctxt_switches:\t5\n"
+                + "nonvoluntary_ctxt_switches:\t7\n");
+    }
+
+    private void writeIo(long readBytes, long writeBytes) throws IOException {
+        Files.writeString(processDirectory.resolve("io"), "rchar: 100\nwchar: 200\nsyscr: 10\nsyscw: 20\n"
+                + "read_bytes: " + readBytes + "\nwrite_bytes: " + writeBytes + "\ncancelled_write_bytes: 0\n");
+    }
+}
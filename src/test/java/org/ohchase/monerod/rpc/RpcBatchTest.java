@@ -0,0 +1,242 @@
+package org.ohchase.monerod.rpc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ohchase.monerod.json.JsonReader;
+import org.ohchase.monerod.json.JsonToken;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Sends batches to a stub daemon answering {@code get_block_header_by_height}.
+ * Heights above {@link #TOP_HEIGHT} are answered with an error, as monerod does, and the method {@code garbled}
+ * with an error carrying a null id, as for a request the daemon could not parse.
+ */
+class RpcBatchTest {
+
+    private static final long TOP_HEIGHT = 1000;
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final AtomicInteger posts = new AtomicInteger();
+
+    private volatile boolean batchesSupported = true;
+
+    /**
+     * Whether batch responses list the calls last to first, which JSON-RPC allows.
+     */
+    private volatile boolean reversed;
+
+    private volatile int batchStatus = 200;
+
+    private volatile int callStatus = 200;
+
+    private HttpServer daemon;
+
+    private ExecutorService daemonExecutor;
+
+    private DaemonRpcClient client;
+
+    @BeforeEach
+    void startDaemon() throws IOException {
+        daemon = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        daemonExecutor = Executors.newCachedThreadPool();
+        daemon.setExecutor(daemonExecutor);
+        daemon.createContext("/json_rpc", this::answer);
+        daemon.start();
+        client = new DaemonRpcClient(URI.create("http://127.0.0.1:" + daemon.getAddress().getPort()),
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(), Duration.ofSeconds(TIMEOUT_SECONDS));
+    }
+
+    @AfterEach
+    void stop() {
+        daemon.stop(0);
+        daemonExecutor.shutdownNow();
+    }
+
+    @Test
+    void matchesBatchResultsById() throws Exception {
+        reversed = true;
+        RpcBatch batch = client.batch();
+        List<CompletableFuture<BlockHeader>> headers = new ArrayList<>();
+        for (long height = 10; height < 15; height++) {
+            headers.add(batch.add("get_block_header_by_height", heightParams(height), DaemonRpcClient.member("block_header", BlockHeader::read)));
+        }
+        assertEquals(5, batch.size());
+
+        batch.send().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        for (int i = 0; i < headers.size(); i++) {
+            BlockHeader header = headers.get(i).join();
+            assertEquals(10 + i, header.getHeight());
+            assertEquals("hash" + (10 + i), header.getHash());
+        }
+        assertEquals(1, posts.get());
+    }
+
+    @Test
+    void failsOnlyTheCallsWithErrors() throws Exception {
+        RpcBatch batch = client.batch();
+        CompletableFuture<BlockHeader> known = batch.add("get_block_header_by_height", heightParams(5), DaemonRpcClient.member("block_header", BlockHeader::read));
+        CompletableFuture<BlockHeader> tooHigh = batch.add("get_block_header_by_height", heightParams(TOP_HEIGHT + 1), DaemonRpcClient.member("block_header", BlockHeader::read));
+        CompletableFuture<Void> garbled = batch.add("garbled", RpcParams.NONE, DaemonRpcClient.status());
+        CompletableFuture<BlockHeader> last = batch.add("get_block_header_by_height", heightParams(6), DaemonRpcClient.member("block_header", BlockHeader::read));
+
+        CompletableFuture<Void> all = batch.send();
+
+        assertEquals(5, known.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getHeight());
+        assertEquals(6, last.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getHeight());
+        RpcException tooHighError = assertInstanceOf(RpcException.class, failure(tooHigh));
+        assertEquals(-2, tooHighError.getCode());
+        // a null id is matched by position
+        RpcException garbledError = assertInstanceOf(RpcException.class, failure(garbled));
+        assertEquals(-32700, garbledError.getCode());
+        assertNotNull(failure(all));
+        assertEquals(1, posts.get());
+    }
+
+    @Test
+    void fallsBackToIndividualCalls() throws Exception {
+        batchesSupported = false;
+        RpcBatch batch = client.batch();
+        CompletableFuture<BlockHeader> first = batch.add("get_block_header_by_height", heightParams(1), DaemonRpcClient.member("block_header", BlockHeader::read));
+        CompletableFuture<BlockHeader> second = batch.add("get_block_header_by_height", heightParams(2), DaemonRpcClient.member("block_header", BlockHeader::read));
+        CompletableFuture<BlockHeader> tooHigh = batch.add("get_block_header_by_height", heightParams(TOP_HEIGHT + 1), DaemonRpcClient.member("block_header", BlockHeader::read));
+
+        CompletableFuture<Void> all = batch.send();
+
+        assertEquals(1, first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getHeight());
+        assertEquals(2, second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getHeight());
+        assertEquals(-2, assertInstanceOf(RpcException.class, failure(tooHigh)).getCode());
+        assertNotNull(failure(all));
+        // the rejected batch, then one request per call
+        assertEquals(4, posts.get());
+    }
+
+    @Test
+    void failsWithTheSameExceptionOnBothPaths() throws Exception {
+        batchStatus = 500;
+        RpcBatch batch = client.batch();
+        CompletableFuture<Void> batched = batch.add("get_info", RpcParams.NONE, DaemonRpcClient.status());
+        batch.send();
+        assertEquals(500, assertInstanceOf(RpcException.class, failure(batched)).getCode());
+
+        // batches rejected, then the individual call fails at the transport
+        batchStatus = 200;
+        batchesSupported = false;
+        callStatus = 500;
+        batch = client.batch();
+        CompletableFuture<Void> individual = batch.add("get_info", RpcParams.NONE, DaemonRpcClient.status());
+        batch.send();
+        assertEquals(500, assertInstanceOf(RpcException.class, failure(individual)).getCode());
+        assertEquals(3, posts.get());
+    }
+
+    @Test
+    void sendsNothingForAnEmptyBatch() throws Exception {
+        client.batch().send().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(0, posts.get());
+    }
+
+    private static RpcParams heightParams(long height) {
+        return writer -> writer.beginObject().name("height").value(height).endObject();
+    }
+
+    /**
+     * @return exception the future failed with, exactly as passed to dependent stages.
+     */
+    private static Throwable failure(CompletableFuture<?> future) throws Exception {
+        return future.handle((result, error) -> error).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        posts.incrementAndGet();
+        JsonReader reader = JsonReader.of(exchange.getRequestBody().readAllBytes());
+        boolean isBatch = reader.peek() == JsonToken.BEGIN_ARRAY;
+        int status = isBatch ? batchStatus : callStatus;
+        String response;
+        if (status != 200) {
+            response = "{}";
+        } else if (!isBatch) {
+            response = answerCall(reader);
+        } else if (!batchesSupported) {
+            response = "{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32600,\"message\":\"Invalid Request\"}}";
+        } else {
+            List<String> responses = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                responses.add(answerCall(reader));
+            }
+            reader.endArray();
+            if (reversed) {
+                Collections.reverse(responses);
+            }
+            response = "[" + String.join(",", responses) + "]";
+        }
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String answerCall(JsonReader reader) throws IOException {
+        String id = null;
+        String method = null;
+        long height = -1;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> id = reader.nextString();
+                case "method" -> method = reader.nextString();
+                case "params" -> {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("height")) {
+                            height = reader.nextLong();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if ("garbled".equals(method)) {
+            return "{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32700,\"message\":\"Parse error\"}}";
+        }
+        if (height > TOP_HEIGHT) {
+            return "{\"jsonrpc\":\"2.0\",\"id\":\"" + id + "\",\"error\":{\"code\":-2,\"message\":\"Too big height: " + height + "\"}}";
+        }
+        String result = "get_block_header_by_height".equals(method)
+                ? "{\"block_header\":{\"height\":" + height + ",\"hash\":\"hash" + height + "\",\"reward\":600000000000},\"status\":\"OK\"}"
+                : "{\"status\":\"OK\"}";
+        return "{\"jsonrpc\":\"2.0\",\"id\":\"" + id + "\",\"result\":" + result + "}";
+    }
+}
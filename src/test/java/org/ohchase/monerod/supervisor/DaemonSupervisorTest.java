@@ -0,0 +1,188 @@
+package org.ohchase.monerod.supervisor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ohchase.monerod.DaemonProcess;
+import org.ohchase.monerod.RecordingDaemonListener;
+import org.ohchase.monerod.configuration.DaemonConfig;
+import org.ohchase.monerod.configuration.NetworkType;
+import org.ohchase.monerod.configuration.SupervisorConfig;
+import org.ohchase.monerod.fake.FakeMonerod;
+import org.ohchase.monerod.fake.FakeScenario;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Supervises a {@link FakeMonerod} that crashes with exit code 139 a few lines after every start.
+ * Jitter is off, so backoff delays are exact.
+ */
+class DaemonSupervisorTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(50);
+
+    @TempDir
+    Path directory;
+
+    private final RecordingDaemonListener daemonListener = new RecordingDaemonListener();
+
+    private final RecordingSupervisorListener supervisorListener = new RecordingSupervisorListener();
+
+    @Test
+    void restartsCrashedDaemonAndReportsRecovery() throws Exception {
+        SupervisorConfig config = config().maxRestarts(1).build();
+        try (DaemonSupervisor supervisor = supervise(FakeScenario.synthetic(10).crash(2, 139), config)) {
+            supervisor.start().getStarted().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+            assertTrue(supervisorListener.await(event -> event.startsWith("gaveUp")));
+            assertEquals(List.of(
+                    "restartScheduled 139 " + INITIAL_BACKOFF,
+                    "recovered",
+                    "gaveUp Restart budget of 1 spent, last exit code 139"), supervisorListener.events);
+            assertEquals(DaemonSupervisor.State.GAVE_UP, supervisor.getState());
+            assertEquals(1, supervisor.getRestarts());
+            assertTrue(supervisor.getLastTimeToRecover().orElseThrow().compareTo(INITIAL_BACKOFF) >= 0);
+            assertTrue(supervisor.getDaemonProcess().isEmpty());
+            // every incarnation reported to the same daemon listener
+            assertEquals(2, daemonListener.getEvents().stream().filter("daemonStarted"::equals).count());
+            assertTrue(daemonListener.await("daemonKilled", TIMEOUT));
+        }
+    }
+
+    @Test
+    void growsBackoffUpToMaximum() throws Exception {
+        SupervisorConfig config = config().maxBackoff(Duration.ofMillis(150)).maxRestarts(3).build();
+        try (DaemonSupervisor supervisor = supervise(FakeScenario.synthetic(10).crash(2, 139), config)) {
+            supervisor.start();
+
+            assertTrue(supervisorListener.await(event -> event.startsWith("gaveUp")));
+            assertEquals(List.of(
+                    "restartScheduled 139 PT0.05S",
+                    "restartScheduled 139 PT0.1S",
+                    "restartScheduled 139 PT0.15S",
+                    "gaveUp Restart budget of 3 spent, last exit code 139"), supervisorListener.without("recovered"));
+            assertEquals(3, supervisor.getRestarts());
+        }
+    }
+
+    @Test
+    void resetsBackoffAfterStableRun() throws Exception {
+        SupervisorConfig config = config().stableAfter(Duration.ofMillis(100)).maxRestarts(2).build();
+        // each incarnation stays up for longer than the stable time before crashing
+        FakeScenario scenario = FakeScenario.synthetic(10).stall(1, Duration.ofMillis(400)).crash(2, 139);
+        try (DaemonSupervisor supervisor = supervise(scenario, config)) {
+            supervisor.start();
+
+            assertTrue(supervisorListener.await(event -> event.startsWith("gaveUp")));
+            assertEquals(List.of(
+                    "restartScheduled 139 " + INITIAL_BACKOFF,
+                    "restartScheduled 139 " + INITIAL_BACKOFF,
+                    "gaveUp Restart budget of 2 spent, last exit code 139"), supervisorListener.without("recovered"));
+        }
+    }
+
+    @Test
+    void givesUpOnCrashLoop() throws Exception {
+        SupervisorConfig config = config().crashLoopThreshold(3).crashLoopWindow(Duration.ofMinutes(1)).build();
+        try (DaemonSupervisor supervisor = supervise(FakeScenario.synthetic(10).crash(2, 139), config)) {
+            supervisor.start();
+
+            assertTrue(supervisorListener.await(event -> event.startsWith("gaveUp")));
+            assertEquals(List.of(
+                    "restartScheduled 139 PT0.05S",
+                    "restartScheduled 139 PT0.1S",
+                    "gaveUp Crash loop: 3 crashes within PT1M, last exit code 139"), supervisorListener.without("recovered"));
+            assertEquals(DaemonSupervisor.State.GAVE_UP, supervisor.getState());
+            assertEquals(2, supervisor.getRestarts());
+        }
+    }
+
+    @Test
+    void restartsWhenDaemonListenerThrows() throws Exception {
+        daemonListener.failWith(new IllegalStateException("listener bug"));
+        SupervisorConfig config = config().maxRestarts(1).build();
+        try (DaemonSupervisor supervisor = supervise(FakeScenario.synthetic(10).crash(2, 139), config)) {
+            supervisor.start();
+
+            assertTrue(supervisorListener.await(event -> event.startsWith("gaveUp")));
+            assertEquals(List.of(
+                    "restartScheduled 139 " + INITIAL_BACKOFF,
+                    "recovered",
+                    "gaveUp Restart budget of 1 spent, last exit code 139"), supervisorListener.events);
+        }
+    }
+
+    @Test
+    void doesNotRestartStoppedDaemon() throws Exception {
+        try (DaemonSupervisor supervisor = supervise(FakeScenario.synthetic(0), config().build())) {
+            DaemonProcess daemonProcess = supervisor.start().getStarted().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+            assertEquals(DaemonSupervisor.State.RUNNING, supervisor.getState());
+            assertEquals(daemonProcess, supervisor.getDaemonProcess().orElseThrow());
+
+            assertEquals(0, supervisor.stop());
+
+            assertEquals(DaemonSupervisor.State.STOPPED, supervisor.getState());
+            Thread.sleep(INITIAL_BACKOFF.multipliedBy(4).toMillis());
+            assertTrue(supervisorListener.events.isEmpty());
+            assertEquals(0, supervisor.getRestarts());
+        }
+    }
+
+    private DaemonSupervisor supervise(FakeScenario scenario, SupervisorConfig config) throws Exception {
+        DaemonConfig daemonConfig = DaemonConfig.builder()
+                .networkType(NetworkType.MAIN_NET)
+                .dataDirectory(directory.resolve("data"))
+                .build();
+        return new DaemonSupervisor(FakeMonerod.install(directory, scenario), daemonListener, daemonConfig, config, supervisorListener);
+    }
+
+    private static SupervisorConfig.SupervisorConfigBuilder config() {
+        return SupervisorConfig.builder()
+                .initialBackoff(INITIAL_BACKOFF)
+                .jitter(0);
+    }
+
+    private static final class RecordingSupervisorListener implements ISupervisorListener {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onRestartScheduled(int exitCode, Duration delay) {
+            events.add("restartScheduled " + exitCode + " " + delay);
+        }
+
+        @Override
+        public void onRecovered(DaemonProcess daemonProcess, Duration timeToRecover) {
+            events.add("recovered");
+        }
+
+        @Override
+        public void onGaveUp(String reason) {
+            events.add("gaveUp " + reason);
+        }
+
+        private List<String> without(String event) {
+            return events.stream().filter(recorded -> !recorded.equals(event)).toList();
+        }
+
+        private boolean await(Predicate<String> event) throws InterruptedException {
+            long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while (events.stream().noneMatch(event)) {
+                if (System.nanoTime() >= deadline) {
+                    return false;
+                }
+                Thread.sleep(10);
+            }
+            return true;
+        }
+    }
+}